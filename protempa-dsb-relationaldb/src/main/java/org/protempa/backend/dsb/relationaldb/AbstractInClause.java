@@ -19,6 +19,8 @@
  */
 package org.protempa.backend.dsb.relationaldb;
 
+import java.util.List;
+
 public abstract class AbstractInClause implements InClause {
 
     private final ColumnSpec columnSpec;
@@ -36,6 +38,11 @@ public abstract class AbstractInClause implements InClause {
 
     @Override
     public String generateClause() {
+        return generateClause(new SqlParameters(false));
+    }
+
+    @Override
+    public String generateClause(SqlParameters parameters) {
         StringBuilder result = new StringBuilder();
 
         result.append(referenceIndices.generateColumnReference(columnSpec));
@@ -43,10 +50,10 @@ public abstract class AbstractInClause implements InClause {
             result.append(" NOT");
         }
         result.append(" IN (");
-        for (int k = 0; k < elements.length; k++) {
-            Object sqlCode = elements[k];
-            result.append(SqlGeneratorUtil.prepareValue(sqlCode));
-            if (k + 1 < elements.length) {
+        List<String> values = parameters.prepareInListValues(elements);
+        for (int k = 0, n = values.size(); k < n; k++) {
+            result.append(values.get(k));
+            if (k + 1 < n) {
                 result.append(',');
             }
         }
@@ -49,7 +49,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -66,6 +65,7 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
 
     static final int FETCH_SIZE = 10000;
     private static final int DEFAULT_QUERY_THREAD_COUNT = 4;
+    private static final int DEFAULT_PREFETCH_SIZE = 100;
     private static final String READ_PROPOSITION_SQL = "select {0} from {1} {2}";
     private ConnectionSpec connectionSpec;
     private final Map<String, List<EntitySpec>> primitiveParameterSpecs;
@@ -78,8 +78,8 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
     private UnitFactory units;
     private RelationalDbDataSourceBackend backend;
     private int queryThreadCount;
+    private int partitionThreadCount;
     private static Logger logger = SQLGenUtil.logger();
-    List<Connection> connections = new ArrayList<>();
 
     protected AbstractSQLGenerator() {
         this.primitiveParameterSpecs = new HashMap<>();
@@ -107,6 +107,10 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
             if (queryThreadCountSetting != null) {
                 this.queryThreadCount = queryThreadCountSetting;
             }
+            Integer partitionThreadCountSetting
+                    = backend.getPartitionThreadCount();
+            this.partitionThreadCount = partitionThreadCountSetting != null
+                    ? partitionThreadCountSetting : this.queryThreadCount;
         } else {
             throw new IllegalArgumentException(
                     "relationalDatabaseSpec cannot be null");
@@ -153,14 +157,20 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
         private final Set<String> propIds;
         private final Set<String> keyIds;
         private final EntitySpec entitySpec;
+        private final ExecutorService partitionExecutor;
+        private final List<Connection> connections;
 
         public SQLExecutorCallable(EntitySpec entitySpec,
                 Map<EntitySpec, SQLGenResultProcessorFactory> allEntitySpecToResultProcessor,
                 Collection<EntitySpec> allEntitySpecs,
                 Filter filters,
                 Set<String> propIds,
-                Set<String> keyIds) {
+                Set<String> keyIds,
+                ExecutorService partitionExecutor,
+                List<Connection> connections) {
             this.entitySpec = entitySpec;
+            this.partitionExecutor = partitionExecutor;
+            this.connections = connections;
             this.allEntitySpecToResultProcessor = allEntitySpecToResultProcessor;
             this.allEntitySpecs = allEntitySpecs;
             this.filters = filters;
@@ -180,7 +190,7 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
             Connection conn;
             try {
                 conn = connectionSpec.getOrCreate();
-                connections.add(conn);
+                this.connections.add(conn);
             } catch (SQLException ex) {
                 throw new DataSourceReadException(ex);
             }
@@ -190,7 +200,8 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
                     propIds,
                     keyIds, new StreamingSQLExecutor(
                             conn, backendNameForMessages(),
-                            backend.getQueryTimeout()));
+                            backend.getQueryTimeout()),
+                    this.partitionExecutor, this.connections);
         }
 
     }
@@ -207,22 +218,38 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
                 = allEntitySpecToResultProcessor.keySet();
 
         final List<StreamingIteratorPair> itrs = new ArrayList<>();
+        /*
+         * The connections of one read, which are closed together by the
+         * returned iterator. Query and partition threads add to it.
+         */
+        List<Connection> connections = java.util.Collections.synchronizedList(
+                new ArrayList<Connection>());
         ExecutorService executor = Executors.newFixedThreadPool(this.queryThreadCount);
+        /*
+         * Partitions get their own pool. Queuing them on the query pool could
+         * deadlock when every query thread waits for its partitions.
+         */
+        ExecutorService partitionExecutor = this.partitionThreadCount > 1
+                ? Executors.newFixedThreadPool(this.partitionThreadCount)
+                : null;
         List<Future<List<StreamingIteratorPair>>> list = new ArrayList<>();
-        for (EntitySpec entitySpec : entitySpecToPropIds.keySet()) {
-            list.add(executor.submit(new SQLExecutorCallable(entitySpec, allEntitySpecToResultProcessor, allEntitySpecs, filters, propIds, keyIds)));
-        }
-
-        for (Future<List<StreamingIteratorPair>> future : list) {
-            try {
-                itrs.addAll(future.get());
-            } catch (InterruptedException ex) {
-                SQLGenUtil.logger().log(Level.FINER, "SQL generation thread interrupted", ex);
-            } catch (ExecutionException ex) {
-                throw new DataSourceReadException(ex);
+        try {
+            for (EntitySpec entitySpec : entitySpecToPropIds.keySet()) {
+                list.add(executor.submit(new SQLExecutorCallable(entitySpec, allEntitySpecToResultProcessor, allEntitySpecs, filters, propIds, keyIds, partitionExecutor, connections)));
+            }
+            for (List<StreamingIteratorPair> pairs
+                    : QueryFutures.getAll(list, PAIRS_CLOSER)) {
+                itrs.addAll(pairs);
+            }
+        } catch (DataSourceReadException | RuntimeException ex) {
+            closeConnections(connections, ex);
+            throw ex;
+        } finally {
+            executor.shutdown();
+            if (partitionExecutor != null) {
+                partitionExecutor.shutdown();
             }
         }
-        executor.shutdown();
 
         List<DataStreamingEventIterator<Proposition>> events
                 = new ArrayList<>(
@@ -266,52 +293,158 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
             return connection;
         }
 
+        /**
+         * Closes the iterators, for when the read that they are part of
+         * failed.
+         *
+         * @throws DataSourceReadException if an iterator could not be
+         * closed. The other iterators are closed anyway.
+         */
+        void close() throws DataSourceReadException {
+            List<DataStreamingEventIterator<?>> itrs = new ArrayList<>();
+            itrs.add(this.props);
+            itrs.addAll(this.refs);
+            DataSourceReadException exceptionThrown = null;
+            for (DataStreamingEventIterator<?> itr : itrs) {
+                try {
+                    itr.close();
+                } catch (DataSourceReadException ex) {
+                    if (exceptionThrown == null) {
+                        exceptionThrown = ex;
+                    } else {
+                        exceptionThrown.addSuppressed(ex);
+                    }
+                }
+            }
+            if (exceptionThrown != null) {
+                throw exceptionThrown;
+            }
+        }
+
+    }
+
+    /**
+     * Closes the iterators of a query thread or partition worker that
+     * succeeded when another failed.
+     */
+    private static final QueryFutures.ResultCloser<List<StreamingIteratorPair>> PAIRS_CLOSER
+            = new QueryFutures.ResultCloser<List<StreamingIteratorPair>>() {
+
+        @Override
+        public void close(List<StreamingIteratorPair> pairs)
+                throws DataSourceReadException {
+            closePairs(pairs);
+        }
+    };
+
+    /**
+     * Closes the given iterator pairs.
+     *
+     * @throws DataSourceReadException if an iterator could not be closed.
+     * The other iterators are closed anyway.
+     */
+    private static void closePairs(List<StreamingIteratorPair> pairs)
+            throws DataSourceReadException {
+        DataSourceReadException exceptionThrown = null;
+        for (StreamingIteratorPair pair : pairs) {
+            try {
+                pair.close();
+            } catch (DataSourceReadException ex) {
+                if (exceptionThrown == null) {
+                    exceptionThrown = ex;
+                } else {
+                    exceptionThrown.addSuppressed(ex);
+                }
+            }
+        }
+        if (exceptionThrown != null) {
+            throw exceptionThrown;
+        }
+    }
+
+    /**
+     * Closes the iterator pairs of a read that failed, adding any exceptions
+     * from closing them to the read's exception.
+     */
+    private static void closePairs(List<StreamingIteratorPair> pairs,
+            Exception failure) {
+        try {
+            closePairs(pairs);
+        } catch (DataSourceReadException ex) {
+            failure.addSuppressed(ex);
+        }
+    }
+
+    /**
+     * Closes the connections of a read that failed, adding any exceptions
+     * from closing them to the read's exception.
+     */
+    private static void closeConnections(List<Connection> connections,
+            Exception failure) {
+        synchronized (connections) {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
     }
 
     private List<StreamingIteratorPair> processEntitySpecStreaming(EntitySpec entitySpec,
             Map<EntitySpec, SQLGenResultProcessorFactory> allEntitySpecToResultProcessor,
             Collection<EntitySpec> allEntitySpecs, Filter filters,
             Set<String> propIds, Set<String> keyIds,
-            StreamingSQLExecutor executor)
+            StreamingSQLExecutor executor,
+            ExecutorService partitionExecutor, List<Connection> connections)
             throws DataSourceReadException {
-        List<StreamingIteratorPair> result = new ArrayList<>();
-        
         logProcessingEntitySpec(logger, entitySpec);
 
-        SQLGenResultProcessorFactory<Proposition> factory
+        final SQLGenResultProcessorFactory<Proposition> factory
                 = getResultProcessorFactory(allEntitySpecToResultProcessor,
                         entitySpec);
 
-        List<EntitySpec> applicableEntitySpecs
+        final List<EntitySpec> applicableEntitySpecs
                 = computeApplicableEntitySpecs(allEntitySpecs, entitySpec);
 
         Set<Filter> applicableFilters = computeApplicableFilters(filters,
                 allEntitySpecs, entitySpec);
 
-        List<Set<Filter>> partitions = constructPartitions(entitySpec,
+        final List<Set<Filter>> partitions = constructPartitions(entitySpec,
                 applicableFilters);
 
-        LinkedHashMap<String, ReferenceSpec> inboundRefSpecs
+        final LinkedHashMap<String, ReferenceSpec> inboundRefSpecs
                 = collectInboundRefSpecs(applicableEntitySpecs, entitySpec, propIds);
-        Map<String, ReferenceSpec> bidirRefSpecs = 
+        final Map<String, ReferenceSpec> bidirRefSpecs = 
                 collectBidirectionalReferences(applicableEntitySpecs, entitySpec, propIds);
 
-        String dataSourceBackendId = this.backend.getId();
-        StreamingMainResultProcessor<Proposition> resultProcessor
-                = factory.getStreamingInstance(dataSourceBackendId, entitySpec,
-                        inboundRefSpecs, bidirRefSpecs, propIds);
-
-        for (Set<Filter> filterSet : partitions) {
-            generateAndExecuteSelectStreaming(entitySpec, propIds, filterSet,
-                    applicableEntitySpecs, inboundRefSpecs, keyIds,
-                    SQLOrderBy.ASCENDING,
-                    resultProcessor, executor, true);
-            DataStreamingEventIterator<Proposition> results
-                    = resultProcessor.getResults();
-            List<DataStreamingEventIterator<UniqueIdPair>> refResults
-                    = java.util.Collections.singletonList(resultProcessor
-                            .getInboundReferenceResults());
-            result.add(new StreamingIteratorPair(results, refResults, executor.getConnection()));
+        List<StreamingIteratorPair> result;
+        int concurrency = partitionExecutor != null
+                ? Math.min(this.partitionThreadCount, partitions.size()) : 1;
+        if (concurrency <= 1) {
+            result = new ArrayList<>(partitions.size());
+            StreamingMainResultProcessor<Proposition> resultProcessor
+                    = factory.getStreamingInstance(this.backend.getId(),
+                            entitySpec, inboundRefSpecs, bidirRefSpecs,
+                            propIds);
+            boolean prefetch = partitions.size() == 1;
+            try {
+                for (Set<Filter> filterSet : partitions) {
+                    result.add(executePartition(entitySpec, propIds,
+                            filterSet, applicableEntitySpecs,
+                            inboundRefSpecs, keyIds, resultProcessor,
+                            executor, prefetch));
+                }
+            } catch (DataSourceReadException | RuntimeException ex) {
+                closePairs(result, ex);
+                throw ex;
+            }
+        } else {
+            result = executePartitionsConcurrently(entitySpec, factory,
+                    propIds, partitions, applicableEntitySpecs,
+                    inboundRefSpecs, bidirRefSpecs, keyIds, executor,
+                    partitionExecutor, concurrency, connections);
         }
 
         logDoneProcessing(logger, entitySpec);
@@ -319,6 +452,139 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
         return result;
     }
 
+    /**
+     * Executes the queries for an entity spec's partitions on up to
+     * <code>concurrency</code> connections at once. Partitions are dealt
+     * out to the connections round-robin, and each connection executes its
+     * partitions in order on a thread from the partition pool. The
+     * connections stay open until the returned iterators are closed. A
+     * partition that has a connection to itself is prefetched on its own
+     * thread. The result sets of partitions that share a connection are read
+     * only by the consumer's thread, so that no connection is ever read by
+     * two threads at once. Each
+     * partition's results are in key id order, and they are merged by key id
+     * along with the results of the other entity specs by
+     * {@link RelationalDbDataReadIterator}.
+     *
+     * @return one iterator pair per partition, in partition order.
+     */
+    private List<StreamingIteratorPair> executePartitionsConcurrently(
+            final EntitySpec entitySpec,
+            final SQLGenResultProcessorFactory<Proposition> factory,
+            final Set<String> propIds, final List<Set<Filter>> partitions,
+            final List<EntitySpec> applicableEntitySpecs,
+            final LinkedHashMap<String, ReferenceSpec> inboundRefSpecs,
+            final Map<String, ReferenceSpec> bidirRefSpecs,
+            final Set<String> keyIds, StreamingSQLExecutor executor,
+            ExecutorService partitionExecutor, final int concurrency,
+            List<Connection> connections) throws DataSourceReadException {
+        final StreamingSQLExecutor[] executors
+                = new StreamingSQLExecutor[concurrency];
+        executors[0] = executor;
+        for (int i = 1; i < concurrency; i++) {
+            Connection conn;
+            try {
+                conn = this.connectionSpec.getOrCreate();
+                connections.add(conn);
+            } catch (SQLException ex) {
+                throw new DataSourceReadException(ex);
+            }
+            executors[i] = new StreamingSQLExecutor(conn,
+                    backendNameForMessages(), this.backend.getQueryTimeout());
+        }
+        List<Future<List<StreamingIteratorPair>>> futures
+                = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final int worker = i;
+            futures.add(partitionExecutor.submit(
+                    new Callable<List<StreamingIteratorPair>>() {
+
+                @Override
+                public List<StreamingIteratorPair> call()
+                        throws DataSourceReadException {
+                    List<StreamingIteratorPair> result = new ArrayList<>();
+                    int n = partitions.size();
+                    boolean prefetch = worker + concurrency >= n;
+                    try {
+                        for (int j = worker; j < n; j += concurrency) {
+                            StreamingMainResultProcessor<Proposition> resultProcessor
+                                    = factory.getStreamingInstance(
+                                            backend.getId(), entitySpec,
+                                            inboundRefSpecs, bidirRefSpecs,
+                                            propIds);
+                            result.add(executePartition(entitySpec, propIds,
+                                    partitions.get(j), applicableEntitySpecs,
+                                    inboundRefSpecs, keyIds, resultProcessor,
+                                    executors[worker], prefetch));
+                        }
+                    } catch (DataSourceReadException | RuntimeException ex) {
+                        closePairs(result, ex);
+                        throw ex;
+                    }
+                    return result;
+                }
+            }));
+        }
+        List<List<StreamingIteratorPair>> workerPairs
+                = QueryFutures.getAll(futures, PAIRS_CLOSER);
+        StreamingIteratorPair[] pairs
+                = new StreamingIteratorPair[partitions.size()];
+        for (int i = 0; i < concurrency; i++) {
+            List<StreamingIteratorPair> workerResult = workerPairs.get(i);
+            for (int k = 0, n = workerResult.size(); k < n; k++) {
+                pairs[i + k * concurrency] = workerResult.get(k);
+            }
+        }
+        return java.util.Arrays.asList(pairs);
+    }
+
+    private StreamingIteratorPair executePartition(EntitySpec entitySpec,
+            Set<String> propIds, Set<Filter> filterSet,
+            List<EntitySpec> applicableEntitySpecs,
+            LinkedHashMap<String, ReferenceSpec> inboundRefSpecs,
+            Set<String> keyIds,
+            StreamingMainResultProcessor<Proposition> resultProcessor,
+            StreamingSQLExecutor executor, boolean prefetch)
+            throws DataSourceReadException {
+        generateAndExecuteSelectStreaming(entitySpec, propIds, filterSet,
+                applicableEntitySpecs, inboundRefSpecs, keyIds,
+                SQLOrderBy.ASCENDING,
+                resultProcessor, executor, true);
+        DataStreamingEventIterator<Proposition> results
+                = resultProcessor.getResults();
+        if (prefetch) {
+            results = prefetch(results, entitySpec);
+        }
+        List<DataStreamingEventIterator<UniqueIdPair>> refResults
+                = java.util.Collections.singletonList(resultProcessor
+                        .getInboundReferenceResults());
+        return new StreamingIteratorPair(results, refResults,
+                executor.getConnection());
+    }
+
+    /**
+     * Wraps a result set iterator so that it is read and parsed on its own
+     * thread, up to {@link SQLGenUtil#SYSTEM_PROPERTY_PREFETCH_SIZE} key
+     * ids ahead of the consumer. The reference iterator that is populated by
+     * the result set iterator is synchronized for this purpose. Only result
+     * sets that are alone on their connection may be prefetched, because a
+     * JDBC connection must not be read by more than one thread at a time.
+     */
+    private static DataStreamingEventIterator<Proposition> prefetch(
+            DataStreamingEventIterator<Proposition> results,
+            EntitySpec entitySpec) {
+        int prefetchSize = Integer.getInteger(
+                SQLGenUtil.SYSTEM_PROPERTY_PREFETCH_SIZE,
+                DEFAULT_PREFETCH_SIZE);
+        if (prefetchSize > 0
+                && !(results instanceof EmptyDataStreamingEventIterator)) {
+            return new PrefetchingDataStreamingEventIterator<>(results,
+                    entitySpec.getName(), prefetchSize);
+        } else {
+            return results;
+        }
+    }
+
     private static List<EntitySpec> computeApplicableEntitySpecs(
             Collection<EntitySpec> allEntitySpecs, EntitySpec entitySpec) {
         List<EntitySpec> result = new LinkedList<>(allEntitySpecs);
@@ -546,10 +812,12 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
                     new Object[]{backendNameForMessages, entitySpecName});
         }
 
+        SqlParameters parameters = new SqlParameters(
+                Boolean.getBoolean(SQLGenUtil.SYSTEM_PROPERTY_BIND_PARAMETERS));
         String query = getSelectStatement(entitySpec,
                 entitySpecsCopy, inboundRefSpecs, filtersCopy, propIds,
                 keyIds, order,
-                resultProcessor, wrapKeyId).generateStatement();
+                resultProcessor, wrapKeyId).generateStatement(parameters);
 
         
             logger.log(
@@ -557,8 +825,15 @@ public abstract class AbstractSQLGenerator implements SQLGenerator {
                     "Data source backend {0} generated the following query for {1}: {2}",
                     new Object[]{backendNameForMessages, entitySpecName,
                         query});
+        if (parameters.isBinding() && logger.isLoggable(Level.FINE)) {
+            logger.log(Level.FINE,
+                    "Data source backend {0} is binding the following values for {1}: {2}",
+                    new Object[]{backendNameForMessages, entitySpecName,
+                        parameters.getValues()});
+        }
 
-        executor.executeSelect(entitySpecName, query, resultProcessor);
+        executor.executeSelect(entitySpecName, query, parameters,
+                resultProcessor);
     }
 
     private static void removeNonApplicableEntitySpecs(EntitySpec entitySpec,
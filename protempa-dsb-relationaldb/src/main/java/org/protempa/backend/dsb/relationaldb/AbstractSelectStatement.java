@@ -79,6 +79,11 @@ public abstract class AbstractSelectStatement implements SelectStatement {
 
     @Override
     public String generateStatement() {
+        return generateStatement(new SqlParameters(false));
+    }
+
+    @Override
+    public String generateStatement(SqlParameters parameters) {
         ColumnSpecInfo info = new ColumnSpecInfoFactory().newInstance(propIds,
                 entitySpec, entitySpecs, inboundReferenceSpecs, filters);
         TableAliaser referenceIndices = new TableAliaser(info.getColumnSpecs(),
@@ -105,7 +110,7 @@ public abstract class AbstractSelectStatement implements SelectStatement {
 
         return select.generateClause() + 
                 " " + from.generateClause() + 
-                " " + where.generateClause();
+                " " + where.generateClause(parameters);
     }
     
     protected final List<ColumnSpec> toColumnSpecs(List<IntColumnSpecWrapper> columnSpecWrappers) {
@@ -40,12 +40,14 @@ abstract class AbstractTimeSpecProcessor {
     private final Set<Filter> filters;
     private final boolean first;
     private final TableAliaser referenceIndices;
+    private final SqlParameters parameters;
 
-    protected AbstractTimeSpecProcessor(EntitySpec entitySpec, Set<Filter> filters, boolean first, TableAliaser referenceIndices) {
+    protected AbstractTimeSpecProcessor(EntitySpec entitySpec, Set<Filter> filters, boolean first, TableAliaser referenceIndices, SqlParameters parameters) {
         this.entitySpec = entitySpec;
         this.filters = filters;
         this.first = first;
         this.referenceIndices = referenceIndices;
+        this.parameters = parameters;
     }
 
     protected final EntitySpec getEntitySpec() {
@@ -77,7 +79,7 @@ abstract class AbstractTimeSpecProcessor {
                                 }
                                 wherePart.append(referenceIndices.generateColumnReferenceWithOp(timeSpec));
                                 wherePart.append(" >= ");
-                                wherePart.append(entitySpec.getPositionParser().format(pdsc2.getMinimumStart()));
+                                wherePart.append(parameters.preparePosition(entitySpec.getPositionParser(), pdsc2.getMinimumStart()));
                             }
                             if (outputFinish) {
                                 if (!first || outputStart) {
@@ -85,7 +87,7 @@ abstract class AbstractTimeSpecProcessor {
                                 }
                                 wherePart.append(referenceIndices.generateColumnReferenceWithOp(timeSpec));
                                 wherePart.append(" <= ");
-                                wherePart.append(entitySpec.getPositionParser().format(pdsc2.getMaximumFinish()));
+                                wherePart.append(parameters.preparePosition(entitySpec.getPositionParser(), pdsc2.getMaximumFinish()));
                             }
                         }
                     }
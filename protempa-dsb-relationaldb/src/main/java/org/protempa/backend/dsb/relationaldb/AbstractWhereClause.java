@@ -118,6 +118,11 @@ public abstract class AbstractWhereClause implements WhereClause {
 
     @Override
     public String generateClause() {
+        return generateClause(new SqlParameters(false));
+    }
+
+    @Override
+    public String generateClause(SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
 
         EntitySpec prevEntitySpec = null;
@@ -140,7 +145,7 @@ public abstract class AbstractWhereClause implements WhereClause {
                     }
                     int wherePartLength = wherePart.length();
                     wherePart.append(processForWhereClause(prevEntitySpec,
-                            first));
+                            first, parameters));
                     if (wherePart.length() > wherePartLength) {
                         first = false;
                     }
@@ -149,7 +154,7 @@ public abstract class AbstractWhereClause implements WhereClause {
                     int wherePartLength = wherePart.length();
                     wherePart.append(") OR (");
                     wherePart.append(processForWhereClause(prevEntitySpec,
-                            first));
+                            first, parameters));
                     wherePart.append(")) ");
                     if (wherePart.length() > wherePartLength) {
                         first = false;
@@ -158,7 +163,7 @@ public abstract class AbstractWhereClause implements WhereClause {
                 } else {
                     int wherePartLength = wherePart.length();
                     wherePart.append(processForWhereClause(prevEntitySpec,
-                            first));
+                            first, parameters));
                     if (wherePart.length() > wherePartLength) {
                         first = false;
                     }
@@ -170,13 +175,14 @@ public abstract class AbstractWhereClause implements WhereClause {
         if (inGroup) {
             first = true;
             wherePart.append(") OR (");
-            wherePart.append(processForWhereClause(prevEntitySpec, first));
+            wherePart.append(processForWhereClause(prevEntitySpec, first, parameters));
             wherePart.append(")) ");
         } else {
-            wherePart.append(processForWhereClause(prevEntitySpec, first));
+            wherePart.append(processForWhereClause(prevEntitySpec, first, parameters));
         }
 
-        processKeyIdConstraintsForWhereClause(info, wherePart, keyIds);
+        processKeyIdConstraintsForWhereClause(info, wherePart, keyIds,
+                parameters);
 
         if (wherePart.length() > 0) {
             wherePart.insert(0, "WHERE ");
@@ -188,7 +194,8 @@ public abstract class AbstractWhereClause implements WhereClause {
     }
 
     private void processKeyIdConstraintsForWhereClause(ColumnSpecInfo info,
-            StringBuilder wherePart, Set<String> keyIds) {
+            StringBuilder wherePart, Set<String> keyIds,
+            SqlParameters parameters) {
         if (keyIds != null && !keyIds.isEmpty()) {
             if (wherePart.length() > 0) {
                 wherePart.append(" AND ");
@@ -196,22 +203,22 @@ public abstract class AbstractWhereClause implements WhereClause {
             ColumnSpec keySpec = info.getColumnSpecs().get(0).getColumnSpec();
 
             wherePart.append(getInClause(keySpec, keyIds.toArray(), false)
-                    .generateClause());
+                    .generateClause(parameters));
         }
     }
 
     private String processForWhereClause(EntitySpec entitySpec,
-            boolean first) {
+            boolean first, SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
         int wherePartLength = wherePart.length();
         wherePart.append(TimeSpecProcessor.processStartTimeSpec(entitySpec,
-                filters, first, referenceIndices));
+                filters, first, referenceIndices, parameters));
         if (wherePart.length() > wherePartLength) {
             first = false;
         }
         wherePartLength = wherePart.length();
         wherePart.append(TimeSpecProcessor.processFinishTimeSpec(
-                entitySpec, filters, first, referenceIndices));
+                entitySpec, filters, first, referenceIndices, parameters));
         if (wherePart.length() > wherePartLength) {
             first = false;
         }
@@ -221,13 +228,13 @@ public abstract class AbstractWhereClause implements WhereClause {
         }
         wherePartLength = wherePart.length();
         wherePart.append(processConstraintSpecsForWhereClause(entitySpec,
-                first));
+                first, parameters));
 
         return wherePart.toString();
     }
 
     private StringBuilder processConstraintSpecs(EntitySpec entitySpec,
-            boolean first) {
+            boolean first, SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
 
         CONSTRAINT_LOOP:
@@ -235,7 +242,7 @@ public abstract class AbstractWhereClause implements WhereClause {
                 .getConstraintSpecs()) {
             int wherePartLength = wherePart.length();
             wherePart.append(processConstraintSpecForWhereClause(
-                    constraintSpec, null, first));
+                    constraintSpec, null, first, parameters));
             if (wherePart.length() > wherePartLength) {
                 first = false;
             }
@@ -245,14 +252,15 @@ public abstract class AbstractWhereClause implements WhereClause {
     }
 
     private StringBuilder processPropertySpecs(PropertySpec[] propertySpecs,
-            boolean first) {
+            boolean first, SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
 
         for (PropertySpec ps : propertySpecs) {
             ColumnSpec constraintSpec = ps.getConstraintSpec();
             if (constraintSpec != null) {
                 int wherePartLength = wherePart.length();
-                wherePart.append(processConstraint(constraintSpec, null, null, first));
+                wherePart.append(processConstraint(constraintSpec, null, null,
+                        first, parameters));
                 if (wherePart.length() > wherePartLength) {
                     first = false;
                 }
@@ -269,7 +277,7 @@ public abstract class AbstractWhereClause implements WhereClause {
                         int wherePartLength = wherePart.length();
                         wherePart.append(processPropertyValueFilter(colSpec,
                                 pvf.getValueComparator(), pvf.getValues(),
-                                first));
+                                first, parameters));
                         if (wherePart.length() > wherePartLength) {
                             first = false;
                         }
@@ -283,7 +291,8 @@ public abstract class AbstractWhereClause implements WhereClause {
         return wherePart;
     }
 
-    private StringBuilder processCodeSpec(EntitySpec entitySpec, boolean first) {
+    private StringBuilder processCodeSpec(EntitySpec entitySpec, boolean first,
+            SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
         ColumnSpec codeSpec = entitySpec.getCodeSpec();
 
@@ -295,7 +304,7 @@ public abstract class AbstractWhereClause implements WhereClause {
             } else {
                 int wherePartLength = wherePart.length();
                 wherePart.append(processConstraintSpecForWhereClause(codeSpec,
-                        this.propIds, first));
+                        this.propIds, first, parameters));
                 if (wherePart.length() > wherePartLength) {
                     first = false;
                 }
@@ -306,23 +315,24 @@ public abstract class AbstractWhereClause implements WhereClause {
     }
 
     private String processConstraintSpecsForWhereClause(EntitySpec entitySpec,
-            boolean first) {
+            boolean first, SqlParameters parameters) {
 
         StringBuilder wherePart = new StringBuilder();
 
         int wherePartLength = wherePart.length();
-        wherePart.append(processConstraintSpecs(entitySpec, first));
+        wherePart.append(processConstraintSpecs(entitySpec, first,
+                parameters));
         if (first && wherePart.length() > wherePartLength) {
             first = false;
             wherePartLength = wherePart.length();
         }
         wherePart.append(processPropertySpecs(entitySpec.getPropertySpecs(),
-                first));
+                first, parameters));
         if (first && wherePart.length() > wherePartLength) {
             first = false;
             wherePartLength = wherePart.length();
         }
-        wherePart.append(processCodeSpec(entitySpec, first));
+        wherePart.append(processCodeSpec(entitySpec, first, parameters));
 
         return wherePart.toString();
     }
@@ -342,7 +352,7 @@ public abstract class AbstractWhereClause implements WhereClause {
     }
 
     private String processConstraintSpecForWhereClause(ColumnSpec columnSpec,
-            Set<?> propIds, boolean first) {
+            Set<?> propIds, boolean first, SqlParameters parameters) {
 
         StringBuilder wherePart = new StringBuilder();
         String expr = columnSpec.getExpr();
@@ -354,13 +364,15 @@ public abstract class AbstractWhereClause implements WhereClause {
         } else if (hasConstraint(columnSpec)) {
             setCaseClauseIfNeeded(columnSpec, null);
             wherePart
-                    .append(processConstraint(columnSpec, propIds, null, first));
+                    .append(processConstraint(columnSpec, propIds, null, first,
+                            parameters));
         }
         return wherePart.toString();
     }
 
     private String processPropertyValueFilter(ColumnSpec columnSpec,
-            ValueComparator comparator, Value[] values, boolean first) {
+            ValueComparator comparator, Value[] values, boolean first,
+            SqlParameters parameters) {
 
         StringBuilder wherePart = new StringBuilder();
 
@@ -371,14 +383,15 @@ public abstract class AbstractWhereClause implements WhereClause {
                 value.accept(ve);
             }
             wherePart.append(processConstraint(columnSpec, ve.values,
-                    constraint, first));
+                    constraint, first, parameters));
         }
 
         return wherePart.toString();
     }
 
     private String processConstraint(ColumnSpec columnSpec, Set<?> propIds,
-            Operator constraintOverride, boolean first) {
+            Operator constraintOverride, boolean first,
+            SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
         ColumnSpec cs = columnSpec.getLastSpec();
         Operator constraint = cs.getConstraint();
@@ -397,7 +410,8 @@ public abstract class AbstractWhereClause implements WhereClause {
                     filteredConstraintValues);
             wherePart.append(
                     WhereConstraintProcessor.getInstance(cs,
-                            constraint, this, sqlCodes, referenceIndices)
+                            constraint, this, sqlCodes, referenceIndices,
+                            parameters)
                     .processConstraint()).append(')');
         }
 
@@ -36,8 +36,8 @@ import org.protempa.proposition.interval.Interval;
  */
 class FinishTimeSpecProcessor extends AbstractTimeSpecProcessor {
 
-    FinishTimeSpecProcessor(EntitySpec entitySpec, Set<Filter> filters, boolean first, TableAliaser referenceIndices) {
-        super(entitySpec, filters, first, referenceIndices);
+    FinishTimeSpecProcessor(EntitySpec entitySpec, Set<Filter> filters, boolean first, TableAliaser referenceIndices, SqlParameters parameters) {
+        super(entitySpec, filters, first, referenceIndices, parameters);
     }
 
     @Override
@@ -21,4 +21,5 @@ package org.protempa.backend.dsb.relationaldb;
 
 public interface InClause extends SqlClause {
 
+    String generateClause(SqlParameters parameters);
 }
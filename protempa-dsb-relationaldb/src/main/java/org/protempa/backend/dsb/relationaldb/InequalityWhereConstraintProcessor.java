@@ -25,8 +25,9 @@ class InequalityWhereConstraintProcessor extends WhereConstraintProcessor {
 
     InequalityWhereConstraintProcessor(ColumnSpec columnSpec,
             Operator constraint, WhereClause whereClause, Object[] sqlCodes,
-            TableAliaser referenceIndices) {
-        super(columnSpec, constraint, whereClause, sqlCodes, referenceIndices);
+            TableAliaser referenceIndices, SqlParameters parameters) {
+        super(columnSpec, constraint, whereClause, sqlCodes, referenceIndices,
+                parameters);
     }
 
     @Override
@@ -36,7 +37,7 @@ class InequalityWhereConstraintProcessor extends WhereConstraintProcessor {
         result.append(getReferenceIndices().generateColumnReferenceWithOp(
                 getColumnSpec()));
         result.append(getConstraint().getSqlOperator());
-        result.append(SqlGeneratorUtil.prepareValue(getSqlCodes()[0]));
+        result.append(getParameters().prepareValue(getSqlCodes()[0]));
 
         return result.toString();
     }
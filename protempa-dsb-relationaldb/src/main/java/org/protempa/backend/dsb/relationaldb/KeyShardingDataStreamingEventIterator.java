@@ -0,0 +1,355 @@
+/*
+ * #%L
+ * Protempa Relational Database Data Source Backend
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.protempa.DataSourceReadException;
+import org.protempa.DataStreamingEvent;
+import org.protempa.DataStreamingEventIterator;
+
+/**
+ * Reads data in shards of key ids, one {@link DataStreamingEventIterator}
+ * per shard, and returns the events of the shards one shard after another.
+ * Shards are taken in key id order and do not overlap, so the events are in
+ * key id order if each shard's are.
+ *
+ * With one thread, a shard is read only after the previous shard's iterator
+ * has been exhausted and closed, so only one shard's queries are open at a
+ * time. With more threads, the queries of up to that many shards are
+ * executed at once, the one being returned and the ones after it.
+ *
+ * @author Andrew Post
+ */
+final class KeyShardingDataStreamingEventIterator<E>
+        implements DataStreamingEventIterator<E> {
+
+    private static final Logger LOGGER = SQLGenUtil.logger();
+
+    /**
+     * Supplies the key ids of each shard.
+     */
+    interface ShardSource {
+
+        /**
+         * Returns the key ids of the next shard.
+         *
+         * @return the key ids, or <code>null</code> if there are no more
+         * shards.
+         * @throws DataSourceReadException if an error occurred reading the
+         * key ids.
+         */
+        Set<String> nextShard() throws DataSourceReadException;
+
+        void close() throws DataSourceReadException;
+    }
+
+    /**
+     * Reads the data of one shard.
+     */
+    interface ShardReader<E> {
+
+        DataStreamingEventIterator<E> read(Set<String> keyIds)
+                throws DataSourceReadException;
+    }
+
+    private final ShardSource shardSource;
+    private final ShardReader<E> shardReader;
+    private final int threadCount;
+    private final ExecutorService executor;
+    private final Deque<Future<DataStreamingEventIterator<E>>> pending;
+    private DataStreamingEventIterator<E> current;
+    private boolean exhausted;
+    private int shardCount;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param shardSource supplies the key ids of the shards. It is closed
+     * when this iterator is closed.
+     * @param shardReader reads the data of a shard.
+     * @param threadCount the number of shards whose data may be read at
+     * once.
+     */
+    KeyShardingDataStreamingEventIterator(ShardSource shardSource,
+            ShardReader<E> shardReader, int threadCount) {
+        assert shardSource != null : "shardSource cannot be null";
+        assert shardReader != null : "shardReader cannot be null";
+        this.shardSource = shardSource;
+        this.shardReader = shardReader;
+        this.threadCount = Math.max(threadCount, 1);
+        this.executor = this.threadCount > 1
+                ? Executors.newFixedThreadPool(this.threadCount - 1) : null;
+        this.pending = new ArrayDeque<>();
+    }
+
+    @Override
+    public boolean hasNext() throws DataSourceReadException {
+        while (true) {
+            if (this.current == null) {
+                this.current = nextShardIterator();
+                if (this.current == null) {
+                    return false;
+                }
+            }
+            if (this.current.hasNext()) {
+                return true;
+            }
+            DataStreamingEventIterator<E> itr = this.current;
+            this.current = null;
+            itr.close();
+        }
+    }
+
+    @Override
+    public DataStreamingEvent<E> next() throws DataSourceReadException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return this.current.next();
+    }
+
+    @Override
+    public void close() throws DataSourceReadException {
+        DataSourceReadException exceptionThrown = null;
+        if (this.current != null) {
+            try {
+                this.current.close();
+            } catch (DataSourceReadException ex) {
+                exceptionThrown = ex;
+            }
+            this.current = null;
+        }
+        for (Future<DataStreamingEventIterator<E>> future : this.pending) {
+            try {
+                getShardIterator(future).close();
+            } catch (DataSourceReadException ex) {
+                if (exceptionThrown == null) {
+                    exceptionThrown = ex;
+                } else {
+                    exceptionThrown.addSuppressed(ex);
+                }
+            }
+        }
+        this.pending.clear();
+        if (this.executor != null) {
+            this.executor.shutdown();
+        }
+        try {
+            this.shardSource.close();
+        } catch (DataSourceReadException ex) {
+            if (exceptionThrown == null) {
+                exceptionThrown = ex;
+            } else {
+                exceptionThrown.addSuppressed(ex);
+            }
+        }
+        LOGGER.log(Level.FINE, "Read {0} shard(s) of key ids",
+                this.shardCount);
+        if (exceptionThrown != null) {
+            throw exceptionThrown;
+        }
+    }
+
+    private DataStreamingEventIterator<E> nextShardIterator()
+            throws DataSourceReadException {
+        if (this.executor == null) {
+            Set<String> keyIds = nextShard();
+            return keyIds != null ? this.shardReader.read(keyIds) : null;
+        }
+        if (this.pending.isEmpty()) {
+            submitNextShard();
+        }
+        Future<DataStreamingEventIterator<E>> future = this.pending.poll();
+        if (future == null) {
+            return null;
+        }
+        DataStreamingEventIterator<E> result = getShardIterator(future);
+        while (this.pending.size() < this.threadCount - 1
+                && submitNextShard()) {
+        }
+        return result;
+    }
+
+    private boolean submitNextShard() throws DataSourceReadException {
+        final Set<String> keyIds = nextShard();
+        if (keyIds == null) {
+            return false;
+        }
+        this.pending.add(this.executor.submit(
+                new Callable<DataStreamingEventIterator<E>>() {
+
+            @Override
+            public DataStreamingEventIterator<E> call()
+                    throws DataSourceReadException {
+                return shardReader.read(keyIds);
+            }
+        }));
+        return true;
+    }
+
+    private Set<String> nextShard() throws DataSourceReadException {
+        if (this.exhausted) {
+            return null;
+        }
+        Set<String> result = this.shardSource.nextShard();
+        if (result == null) {
+            this.exhausted = true;
+        } else {
+            this.shardCount++;
+            LOGGER.log(Level.FINER, "Reading shard {0} of {1} key id(s)",
+                    new Object[]{this.shardCount, result.size()});
+        }
+        return result;
+    }
+
+    private DataStreamingEventIterator<E> getShardIterator(
+            Future<DataStreamingEventIterator<E>> future)
+            throws DataSourceReadException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataSourceReadException(
+                    "Interrupted while reading a shard of key ids", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof DataSourceReadException) {
+                throw (DataSourceReadException) cause;
+            } else {
+                throw new DataSourceReadException(cause);
+            }
+        }
+    }
+
+    /**
+     * Divides a list of key ids that is already in key id order into shards.
+     */
+    static final class KeyIdListShardSource implements ShardSource {
+
+        private final Iterator<String> keyIds;
+        private final int shardSize;
+
+        KeyIdListShardSource(List<String> keyIds, int shardSize) {
+            this.keyIds = keyIds.iterator();
+            this.shardSize = shardSize;
+        }
+
+        @Override
+        public Set<String> nextShard() {
+            if (!this.keyIds.hasNext()) {
+                return null;
+            }
+            Set<String> result = new LinkedHashSet<>();
+            while (result.size() < this.shardSize && this.keyIds.hasNext()) {
+                result.add(this.keyIds.next());
+            }
+            return result;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Divides the key ids that are returned in key id order by a query into
+     * shards. The query's result set is read one shard at a time, and its
+     * connection is closed when the shard source is closed.
+     */
+    static final class QueryShardSource implements ShardSource {
+
+        private final Connection connection;
+        private final String query;
+        private final int shardSize;
+        private Statement statement;
+        private ResultSet resultSet;
+        private boolean done;
+
+        QueryShardSource(Connection connection, String query, int shardSize) {
+            this.connection = connection;
+            this.query = query;
+            this.shardSize = shardSize;
+        }
+
+        @Override
+        public Set<String> nextShard() throws DataSourceReadException {
+            if (this.done) {
+                return null;
+            }
+            try {
+                if (this.resultSet == null) {
+                    LOGGER.log(Level.FINE, "Reading key ids for sharding: {0}",
+                            this.query);
+                    this.statement = this.connection.createStatement();
+                    this.statement.setFetchSize(AbstractSQLGenerator.FETCH_SIZE);
+                    this.resultSet = this.statement.executeQuery(this.query);
+                }
+                Set<String> result = new LinkedHashSet<>();
+                while (result.size() < this.shardSize) {
+                    if (!this.resultSet.next()) {
+                        this.done = true;
+                        break;
+                    }
+                    String keyId = this.resultSet.getString(1);
+                    if (keyId != null) {
+                        result.add(keyId);
+                    }
+                }
+                return result.isEmpty() ? null : result;
+            } catch (SQLException ex) {
+                throw new DataSourceReadException(
+                        "Error reading key ids for sharding", ex);
+            }
+        }
+
+        @Override
+        public void close() throws DataSourceReadException {
+            try {
+                try {
+                    if (this.statement != null) {
+                        this.statement.close();
+                    }
+                } finally {
+                    this.connection.close();
+                }
+            } catch (SQLException ex) {
+                throw new DataSourceReadException(
+                        "Error closing the key id query", ex);
+            }
+        }
+    }
+}
@@ -25,8 +25,9 @@ final class LikeWhereConstraintProcessor extends WhereConstraintProcessor {
 
     LikeWhereConstraintProcessor(ColumnSpec columnSpec, Operator constraint,
             WhereClause whereClause, Object[] sqlCodes,
-            TableAliaser referenceIndices) {
-        super(columnSpec, constraint, whereClause, sqlCodes, referenceIndices);
+            TableAliaser referenceIndices, SqlParameters parameters) {
+        super(columnSpec, constraint, whereClause, sqlCodes, referenceIndices,
+                parameters);
     }
 
     @Override
@@ -40,7 +41,7 @@ final class LikeWhereConstraintProcessor extends WhereConstraintProcessor {
             result.append(getReferenceIndices().generateColumnReferenceWithOp(
                     getColumnSpec()));
             result.append(" LIKE ");
-            result.append(SqlGeneratorUtil.prepareValue(getSqlCodes()[i]));
+            result.append(getParameters().prepareValue(getSqlCodes()[i]));
             if (i + 1 < getSqlCodes().length) {
                 result.append(" OR ");
             }
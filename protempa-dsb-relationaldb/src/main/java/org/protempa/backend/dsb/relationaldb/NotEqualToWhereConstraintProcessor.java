@@ -23,8 +23,9 @@ final class NotEqualToWhereConstraintProcessor extends WhereConstraintProcessor
 
     NotEqualToWhereConstraintProcessor(ColumnSpec columnSpec,
             Operator constraint, WhereClause whereClause, Object[] sqlCodes,
-            TableAliaser referenceIndices) {
-        super(columnSpec, constraint, whereClause, sqlCodes, referenceIndices);
+            TableAliaser referenceIndices, SqlParameters parameters) {
+        super(columnSpec, constraint, whereClause, sqlCodes, referenceIndices,
+                parameters);
     }
 
     @Override
@@ -33,7 +34,7 @@ final class NotEqualToWhereConstraintProcessor extends WhereConstraintProcessor
 
         if (getSqlCodes().length > 1) {
             result.append(getWhereClause().getInClause(getColumnSpec(),
-                    getSqlCodes(), true).generateClause());
+                    getSqlCodes(), true).generateClause(getParameters()));
 
         } else {
             result.append(getReferenceIndices().generateColumnReferenceWithOp(
@@ -41,7 +42,7 @@ final class NotEqualToWhereConstraintProcessor extends WhereConstraintProcessor
             result.append(' ');
             result.append(getConstraint().getSqlOperator());
             result.append(' ');
-            result.append(SqlGeneratorUtil.prepareValue(getSqlCodes()[0]));
+            result.append(getParameters().prepareValue(getSqlCodes()[0]));
         }
 
         return result.toString();
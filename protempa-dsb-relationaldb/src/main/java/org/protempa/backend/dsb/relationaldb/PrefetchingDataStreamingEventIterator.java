@@ -0,0 +1,187 @@
+/*
+ * #%L
+ * Protempa Relational Database Data Source Backend
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.protempa.DataSourceReadException;
+import org.protempa.DataStreamingEvent;
+import org.protempa.DataStreamingEventIterator;
+
+/**
+ * Drains another {@link DataStreamingEventIterator} on its own thread into a
+ * bounded buffer of {@link DataStreamingEvent}s, so that reading and parsing
+ * a result set overlaps with consuming the events from it. The producer
+ * thread is started by the first call to {@link #hasNext()} or
+ * {@link #next()}, and it is stopped by {@link #close()}. Exceptions thrown
+ * by the wrapped iterator are rethrown to the consumer after the events that
+ * preceded them. Runtime exceptions and errors are rethrown wrapped in a
+ * {@link DataSourceReadException}.
+ *
+ * Any reference iterators that the wrapped iterator populates as a side
+ * effect of iteration will be populated from the producer thread, and they
+ * must be safe for access from two threads.
+ *
+ * @author Andrew Post
+ */
+final class PrefetchingDataStreamingEventIterator<E>
+        implements DataStreamingEventIterator<E> {
+
+    private static final Logger LOGGER = SQLGenUtil.logger();
+
+    private final DataStreamingEventIterator<E> itr;
+    private final BlockingQueue<DataStreamingEvent<E>> queue;
+    private final DataStreamingEvent<E> poisonPill;
+    private final Thread producer;
+    private volatile DataSourceReadException exception;
+    private volatile boolean closed;
+    private boolean started;
+    private DataStreamingEvent<E> nextEvent;
+    private boolean end;
+
+    /**
+     * Creates a prefetching iterator.
+     *
+     * @param itr the iterator to drain. Cannot be <code>null</code>.
+     * @param name a name for the producer thread, typically the name of the
+     * entity spec being read.
+     * @param bufferSize the maximum number of events to read ahead. Must be
+     * positive.
+     */
+    PrefetchingDataStreamingEventIterator(DataStreamingEventIterator<E> itr,
+            String name, int bufferSize) {
+        assert itr != null : "itr cannot be null";
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        this.itr = itr;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.poisonPill = new DataStreamingEvent<>("poison",
+                Collections.<E>emptyList());
+        this.producer = new Thread(new Producer(),
+                "protempa.dsb.relationaldb.Prefetch-" + name);
+        this.producer.setDaemon(true);
+    }
+
+    @Override
+    public boolean hasNext() throws DataSourceReadException {
+        return advance() != null;
+    }
+
+    @Override
+    public DataStreamingEvent<E> next() throws DataSourceReadException {
+        DataStreamingEvent<E> result = advance();
+        if (result == null) {
+            throw new NoSuchElementException();
+        }
+        this.nextEvent = null;
+        return result;
+    }
+
+    @Override
+    public void close() throws DataSourceReadException {
+        this.closed = true;
+        if (this.started) {
+            this.producer.interrupt();
+            try {
+                this.producer.join();
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.FINER,
+                        "Interrupted while waiting for prefetch thread {0} to stop",
+                        this.producer.getName());
+                Thread.currentThread().interrupt();
+            }
+        }
+        this.queue.clear();
+        this.itr.close();
+    }
+
+    private DataStreamingEvent<E> advance() throws DataSourceReadException {
+        if (this.nextEvent == null && !this.end) {
+            if (!this.started) {
+                this.started = true;
+                this.producer.start();
+            }
+            DataStreamingEvent<E> event;
+            try {
+                event = this.queue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataSourceReadException(
+                        "Interrupted while waiting for data from "
+                        + this.producer.getName(), ex);
+            }
+            if (event == this.poisonPill) {
+                this.end = true;
+                DataSourceReadException ex = this.exception;
+                if (ex != null) {
+                    this.exception = null;
+                    throw ex;
+                }
+            } else {
+                this.nextEvent = event;
+            }
+        }
+        return this.nextEvent;
+    }
+
+    private class Producer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                while (!closed && itr.hasNext()) {
+                    queue.put(itr.next());
+                }
+            } catch (DataSourceReadException ex) {
+                exception = ex;
+            } catch (InterruptedException ex) {
+                LOGGER.log(Level.FINER, "Prefetch thread {0} interrupted",
+                        producer.getName());
+            } catch (RuntimeException | Error ex) {
+                exception = new DataSourceReadException(
+                        "Error reading data in " + producer.getName(), ex);
+            } finally {
+                putPoisonPill();
+            }
+        }
+
+        /*
+         * Always signals the end of the data to the consumer, even after an
+         * error, so that it does not wait forever. The pill is not needed
+         * after close() is called, and close() interrupts this thread if it is
+         * blocked on a full queue.
+         */
+        private void putPoisonPill() {
+            if (!closed) {
+                try {
+                    queue.put(poisonPill);
+                } catch (InterruptedException ex) {
+                    LOGGER.log(Level.FINER, "Prefetch thread {0} interrupted",
+                            producer.getName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * #%L
+ * Protempa Relational Database Data Source Backend
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.protempa.DataSourceReadException;
+
+/**
+ * Waits for queries that are executing on other threads. If a query fails,
+ * the remaining queries are still waited for, so that the results of the
+ * ones that succeeded can be closed rather than left holding open cursors,
+ * and then the first failure is thrown.
+ *
+ * @author Andrew Post
+ */
+final class QueryFutures {
+
+    /**
+     * Closes the results of a query that succeeded when another query
+     * failed.
+     *
+     * @param <E> the type of the results.
+     */
+    interface ResultCloser<E> {
+
+        void close(E result) throws DataSourceReadException;
+    }
+
+    private QueryFutures() {
+    }
+
+    /**
+     * Gets the results of the given futures. If any of them fails, the
+     * results of the others are closed, and the first failure is thrown with
+     * the rest of the failures, including any from closing results, added as
+     * suppressed exceptions. If the current thread is interrupted, the
+     * futures that have not been waited for yet are cancelled, and their
+     * results are not closed.
+     *
+     * @param futures the futures of the queries.
+     * @param closer closes the results of the queries that succeeded if
+     * another query failed.
+     * @return the queries' results, in the same order as the futures.
+     * @throws DataSourceReadException if any of the queries failed.
+     */
+    static <E> List<E> getAll(List<? extends Future<E>> futures,
+            ResultCloser<? super E> closer) throws DataSourceReadException {
+        List<E> results = new ArrayList<>(futures.size());
+        DataSourceReadException exceptionThrown = null;
+        boolean interrupted = false;
+        for (Future<E> future : futures) {
+            if (interrupted) {
+                future.cancel(true);
+                continue;
+            }
+            try {
+                results.add(future.get());
+            } catch (InterruptedException ex) {
+                interrupted = true;
+                future.cancel(true);
+                exceptionThrown = addFailure(exceptionThrown, ex);
+            } catch (ExecutionException ex) {
+                exceptionThrown = addFailure(exceptionThrown, ex.getCause());
+            } catch (CancellationException ex) {
+                exceptionThrown = addFailure(exceptionThrown, ex);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (exceptionThrown != null) {
+            for (E result : results) {
+                try {
+                    closer.close(result);
+                } catch (DataSourceReadException ex) {
+                    exceptionThrown.addSuppressed(ex);
+                }
+            }
+            throw exceptionThrown;
+        }
+        return results;
+    }
+
+    private static DataSourceReadException addFailure(
+            DataSourceReadException exceptionThrown, Throwable failure) {
+        if (exceptionThrown == null) {
+            return failure instanceof DataSourceReadException
+                    ? (DataSourceReadException) failure
+                    : new DataSourceReadException(failure);
+        } else {
+            exceptionThrown.addSuppressed(failure);
+            return exceptionThrown;
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.protempa.DataSourceWriteException;
 import org.protempa.DataStreamingEvent;
 import org.protempa.DataStreamingEventIterator;
 import org.protempa.KeySetSpec;
+import org.protempa.KeyWriter;
 import org.protempa.KnowledgeSource;
 import org.protempa.KnowledgeSourceReadException;
 import org.protempa.PropertyDefinition;
@@ -55,6 +56,7 @@ import org.protempa.ProtempaEvent;
 import org.protempa.backend.AbstractCommonsDataSourceBackend;
 import org.protempa.backend.BackendInitializationException;
 import org.protempa.backend.BackendInstanceSpec;
+import org.protempa.backend.PooledConnectionSpec;
 import org.protempa.backend.DataSourceBackendFailedConfigurationValidationException;
 import org.protempa.backend.DataSourceBackendFailedDataValidationException;
 import org.protempa.backend.DataSourceBackendInitializationException;
@@ -100,6 +102,8 @@ public abstract class RelationalDbDataSourceBackend
 
     private static final DataValidationEvent[] EMPTY_VALIDATION_EVENT_ARRAY
             = new DataValidationEvent[0];
+    private static final int DEFAULT_KEY_LOADER_BATCH_SIZE = 1000;
+    private static final int DEFAULT_KEY_LOADER_COMMIT_SIZE = 10000;
     private DatabaseAPI databaseAPI;
     private String databaseId;
     protected String username;
@@ -121,6 +125,13 @@ public abstract class RelationalDbDataSourceBackend
     private FromBackendRelationalDatabaseSpecBuilder relationalDatabaseSpecBuilder;
     private MappingsFactory mappingsFactory;
     private Integer queryThreadCount;
+    private Integer partitionThreadCount;
+    private Integer keyShardSize;
+    private Integer keyShardThreadCount;
+    private Integer connectionPoolSize;
+    private Integer keyLoaderBatchSize;
+    private Integer keyLoaderCommitSize;
+    private PooledConnectionSpec connectionPool;
 
     public RelationalDbDataSourceBackend() {
         this.databaseAPI = DatabaseAPI.DRIVERMANAGER;
@@ -213,6 +224,88 @@ public abstract class RelationalDbDataSourceBackend
         this.queryThreadCount = queryThreadCount;
     }
 
+    public Integer getPartitionThreadCount() {
+        return partitionThreadCount;
+    }
+
+    /**
+     * Sets the maximum number of partitions of entity specs with a
+     * {@link EntitySpec#getPartitionBy() } unit whose queries are executed at
+     * once, each on its own connection. A partitioned entity spec holds up
+     * to this many connections until its data is read. If <code>null</code>
+     * (the default), the query thread count is used. If <code>1</code> or
+     * less, the partitions of an entity spec are queried one after another
+     * on one connection.
+     *
+     * @param partitionThreadCount the number of partitions.
+     */
+    @BackendProperty
+    public void setPartitionThreadCount(Integer partitionThreadCount) {
+        this.sqlGenerator = null;
+        this.partitionThreadCount = partitionThreadCount;
+    }
+
+    public Integer getKeyShardSize() {
+        return keyShardSize;
+    }
+
+    /**
+     * Sets the number of key ids per shard when reading data. Each shard's
+     * queries are constrained to its key ids, so the database sorts a
+     * shard's rows rather than all of them. The key ids are those that are
+     * specified when reading, or else all key ids in the key loader table
+     * in key set mode or in the default key id table. If <code>null</code>
+     * or not positive (the default), data is read unsharded.
+     *
+     * @param keyShardSize the number of key ids.
+     */
+    @BackendProperty
+    public void setKeyShardSize(Integer keyShardSize) {
+        this.keyShardSize = keyShardSize;
+    }
+
+    public Integer getKeyShardThreadCount() {
+        return keyShardThreadCount;
+    }
+
+    /**
+     * Sets the number of shards whose data may be read at once when
+     * sharding by key id. If <code>null</code> or <code>1</code> (the
+     * default), shards are read one after another, and only one shard's
+     * queries are open at a time.
+     *
+     * @param keyShardThreadCount the number of shards.
+     */
+    @BackendProperty
+    public void setKeyShardThreadCount(Integer keyShardThreadCount) {
+        this.keyShardThreadCount = keyShardThreadCount;
+    }
+
+    public Integer getConnectionPoolSize() {
+        return connectionPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of database connections that this backend may
+     * have open at once. Reading data holds one connection per entity spec
+     * that is queried until the data is read, and up to
+     * {@link #getPartitionThreadCount() } per partitioned entity spec. When
+     * sharding by key id, that is multiplied by
+     * {@link #getKeyShardThreadCount() }, plus one connection for reading
+     * the shards' key ids. The maximum must be at least that many
+     * connections. If
+     * <code>null</code> or not positive (the default), there is no maximum.
+     * Connections are reused in either case.
+     *
+     * @param connectionPoolSize the maximum number of connections.
+     */
+    @BackendProperty
+    public void setConnectionPoolSize(Integer connectionPoolSize) {
+        this.sqlGenerator = null;
+        closeConnectionPool();
+        this.connectionPoolSize = connectionPoolSize;
+    }
+
     public String getKeyLoaderKeyIdTable() {
         if (this.keyLoaderKeyIdTable != null) {
             return this.keyLoaderKeyIdTable;
@@ -253,6 +346,41 @@ public abstract class RelationalDbDataSourceBackend
         this.keyLoaderKeyIdColumn = keyLoaderKeyIdColumn;
     }
 
+    public int getKeyLoaderBatchSize() {
+        return this.keyLoaderBatchSize != null && this.keyLoaderBatchSize > 0
+                ? this.keyLoaderBatchSize : DEFAULT_KEY_LOADER_BATCH_SIZE;
+    }
+
+    /**
+     * Sets the number of key ids to insert into the key loader table per
+     * statement. Each key id is a bind parameter in an <code>IN</code> list,
+     * so some databases limit it (Oracle to 1000). If <code>null</code> or
+     * not positive, the default of 1000 is used.
+     *
+     * @param keyLoaderBatchSize the number of key ids.
+     */
+    @BackendProperty
+    public void setKeyLoaderBatchSize(Integer keyLoaderBatchSize) {
+        this.keyLoaderBatchSize = keyLoaderBatchSize;
+    }
+
+    public int getKeyLoaderCommitSize() {
+        return this.keyLoaderCommitSize != null && this.keyLoaderCommitSize > 0
+                ? this.keyLoaderCommitSize : DEFAULT_KEY_LOADER_COMMIT_SIZE;
+    }
+
+    /**
+     * Sets the number of key ids to insert into the key loader table between
+     * commits. If <code>null</code> or not positive, the default of 10000 is
+     * used.
+     *
+     * @param keyLoaderCommitSize the number of key ids.
+     */
+    @BackendProperty
+    public void setKeyLoaderCommitSize(Integer keyLoaderCommitSize) {
+        this.keyLoaderCommitSize = keyLoaderCommitSize;
+    }
+
     public String getKeyLoaderKeyIdJoinKey() {
         if (this.keyLoaderKeyIdJoinKey != null) {
             return this.keyLoaderKeyIdJoinKey;
@@ -330,6 +458,7 @@ public abstract class RelationalDbDataSourceBackend
      */
     public void setDatabaseAPI(DatabaseAPI databaseAPI) {
         this.sqlGenerator = null;
+        closeConnectionPool();
         if (databaseAPI == null) {
             databaseAPI = DatabaseAPI.DRIVERMANAGER;
         }
@@ -366,6 +495,7 @@ public abstract class RelationalDbDataSourceBackend
     @BackendProperty
     public void setDatabaseId(String databaseId) {
         this.sqlGenerator = null;
+        closeConnectionPool();
         this.databaseId = databaseId;
     }
 
@@ -414,6 +544,7 @@ public abstract class RelationalDbDataSourceBackend
     @BackendProperty
     public void setUsername(String user) {
         this.sqlGenerator = null;
+        closeConnectionPool();
         this.username = user;
     }
 
@@ -434,6 +565,7 @@ public abstract class RelationalDbDataSourceBackend
     @BackendProperty
     public void setPassword(String password) {
         this.sqlGenerator = null;
+        closeConnectionPool();
         this.password = password;
     }
 
@@ -473,8 +605,84 @@ public abstract class RelationalDbDataSourceBackend
                         + nameForErrors(), ex);
             }
         }
-        return this.sqlGenerator.readPropositionsStreaming(keyIds, propIds,
-                filters);
+        if (this.keyShardSize == null || this.keyShardSize <= 0) {
+            return this.sqlGenerator.readPropositionsStreaming(keyIds, propIds,
+                    filters);
+        }
+        KeyShardingDataStreamingEventIterator.ShardSource shardSource
+                = newShardSource(keyIds, this.keyShardSize);
+        if (shardSource == null) {
+            SQLGenUtil.logger().log(Level.WARNING,
+                    "Data source backend {0} cannot shard by key id without a key id table; reading unsharded",
+                    nameForErrors());
+            return this.sqlGenerator.readPropositionsStreaming(keyIds, propIds,
+                    filters);
+        }
+        final SQLGenerator generator = this.sqlGenerator;
+        return new KeyShardingDataStreamingEventIterator<>(shardSource,
+                new KeyShardingDataStreamingEventIterator.ShardReader<Proposition>() {
+
+            @Override
+            public DataStreamingEventIterator<Proposition> read(
+                    Set<String> shardKeyIds) throws DataSourceReadException {
+                return generator.readPropositionsStreaming(shardKeyIds,
+                        propIds, filters);
+            }
+        }, this.keyShardThreadCount != null ? this.keyShardThreadCount : 1);
+    }
+
+    /**
+     * Returns the source of the key ids of each shard. If key ids are
+     * specified, they are sorted with the key id comparator. Otherwise, they
+     * are queried in key id order from the key loader table in key set mode,
+     * or from the default key id table.
+     *
+     * @return the shard source, or <code>null</code> if no key ids are
+     * specified and there is no table to query them from.
+     */
+    private KeyShardingDataStreamingEventIterator.ShardSource newShardSource(
+            Set<String> keyIds, int shardSize) throws DataSourceReadException {
+        if (keyIds != null && !keyIds.isEmpty()) {
+            List<String> sortedKeyIds = new ArrayList<>(keyIds);
+            Collections.sort(sortedKeyIds, getKeyIdComparator());
+            return new KeyShardingDataStreamingEventIterator.KeyIdListShardSource(
+                    sortedKeyIds, shardSize);
+        }
+        String schema;
+        String table;
+        String column;
+        if (isInKeySetMode()) {
+            schema = getKeyLoaderKeyIdSchema();
+            table = getKeyLoaderKeyIdTable();
+            column = getKeyLoaderKeyIdColumn();
+        } else {
+            schema = getSchemaName();
+            table = getDefaultKeyIdTable();
+            column = getDefaultKeyIdColumn();
+        }
+        if (table == null || column == null) {
+            return null;
+        }
+        StringBuilder stmtBuilder = new StringBuilder();
+        stmtBuilder.append("SELECT DISTINCT ");
+        stmtBuilder.append(column);
+        stmtBuilder.append(" FROM ");
+        if (schema != null) {
+            stmtBuilder.append(schema);
+            stmtBuilder.append('.');
+        }
+        stmtBuilder.append(table);
+        stmtBuilder.append(" ORDER BY ");
+        stmtBuilder.append(column);
+        try {
+            return new KeyShardingDataStreamingEventIterator.QueryShardSource(
+                    getConnectionSpecInstance().getOrCreate(),
+                    stmtBuilder.toString(), shardSize);
+        } catch (InvalidConnectionSpecArguments | SQLException ex) {
+            throw new DataSourceReadException(
+                    "Could not read key ids in data source backend "
+                    + nameForErrors(), ex);
+        }
     }
 
     @Override
@@ -532,65 +740,190 @@ public abstract class RelationalDbDataSourceBackend
     @Override
     public void writeKeys(Set<String> keyIds) throws DataSourceWriteException {
         if (isInKeySetMode() && keyIds != null) {
-            for (String keyId : keyIds) {
-                writeKeys(keyId);
+            try (KeyWriter keyWriter = newKeyWriter()) {
+                for (String keyId : keyIds) {
+                    keyWriter.write(keyId);
+                }
             }
         }
     }
 
-    private void writeKeys(String keyId) throws DataSourceWriteException {
-        final int batchSize = 1000;
-        int commitSize = 10000;
+    /**
+     * Returns a key writer that inserts key ids into the key loader table
+     * over a single connection, {@link #getKeyLoaderBatchSize() } key ids per
+     * statement, committing every {@link #getKeyLoaderCommitSize() } key
+     * ids. If this backend is not in key set mode, key ids are ignored.
+     *
+     * @return a {@link KeyWriter}.
+     * @throws DataSourceWriteException if a connection to the database could
+     * not be made.
+     */
+    @Override
+    public KeyWriter newKeyWriter() throws DataSourceWriteException {
+        if (!isInKeySetMode()) {
+            return super.newKeyWriter();
+        }
         try {
-            ConnectionSpec connectionSpecInstance
-                    = getConnectionSpecInstance();
+            return new RelationalDbKeyWriter();
+        } catch (InvalidConnectionSpecArguments | SQLException ex) {
+            throw new DataSourceWriteException("Could not write key ids in data source backend " + nameForErrors(), ex);
+        }
+    }
+
+    /**
+     * Inserts key ids into the key loader table with a statement that copies
+     * the rows of the default key id table that have the key ids. Key ids
+     * are buffered and inserted with one statement per batch. The statement
+     * for a full batch is prepared once and reused. Discarding the writer
+     * drops the buffered key ids and rolls back the inserts since the last
+     * commit.
+     */
+    private final class RelationalDbKeyWriter implements KeyWriter {
+
+        private final int batchSize;
+        private final int commitSize;
+        private final Connection connection;
+        private final boolean autoCommit;
+        private final List<String> keyIds;
+        private PreparedStatement batchStmt;
+        private int uncommitted;
+        private boolean closed;
+
+        RelationalDbKeyWriter() throws InvalidConnectionSpecArguments,
+                SQLException {
+            this.batchSize = getKeyLoaderBatchSize();
+            this.commitSize = getKeyLoaderCommitSize();
+            this.connection = getConnectionSpecInstance().getOrCreate();
+            this.autoCommit = this.connection.getAutoCommit();
+            this.keyIds = new ArrayList<>(this.batchSize);
+        }
 
-            try (Connection con = connectionSpecInstance.getOrCreate()) {
+        @Override
+        public void write(String keyId) throws DataSourceWriteException {
+            if (this.closed) {
+                throw new DataSourceWriteException("Key writer is closed");
+            }
+            this.keyIds.add(keyId);
+            if (this.keyIds.size() >= this.batchSize) {
                 try {
-                    int i = 0;
-                    List<String> subKeyIds = new ArrayList<>(batchSize);
-                    String stmt = buildWriteKeysInsertStmt(batchSize);
-                    SQLGenUtil.logger().log(Level.FINER, "Statement for writing keys: {0}", stmt);
-                    try (PreparedStatement prepareStatement = con.prepareStatement(stmt)) {
-                        subKeyIds.add(keyId);
-                        if (++i % batchSize == 0) {
-                            for (int j = 0, n = subKeyIds.size(); j < n; j++) {
-                                prepareStatement.setObject(j + 1, subKeyIds.get(j));
-                            }
-                            prepareStatement.execute();
-                        }
-                        if (i >= commitSize) {
-                            con.commit();
-                            commitSize = 0;
-                        }
-                    }
-                    if (!subKeyIds.isEmpty()) {
-                        stmt = buildWriteKeysInsertStmt(subKeyIds.size());
-                        SQLGenUtil.logger().log(Level.FINER, "Statement for writing keys: {0}", stmt);
-                        i = 0;
-                        try (PreparedStatement prepareStatement = con.prepareStatement(stmt)) {
-                            for (String subKeyId : subKeyIds) {
-                                prepareStatement.setObject(++i, subKeyId);
-                            }
-                            prepareStatement.execute();
-                        }
-                    }
-                    if (i >= commitSize) {
-                        con.commit();
-                        commitSize = 0;
-                    }
+                    flush();
                 } catch (SQLException ex) {
-                    if (commitSize > 0) {
-                        try {
-                            con.rollback();
-                        } catch (SQLException ignore) {
-                            ex.addSuppressed(ignore);
-                        }
-                    }
+                    throw abort(ex);
                 }
             }
-        } catch (InvalidConnectionSpecArguments | SQLException ex) {
-            throw new DataSourceWriteException("Could not write key ids in data source backend " + nameForErrors(), ex);
+        }
+
+        @Override
+        public void close() throws DataSourceWriteException {
+            if (this.closed) {
+                return;
+            }
+            try {
+                flush();
+                if (this.uncommitted > 0 && !this.autoCommit) {
+                    this.connection.commit();
+                }
+            } catch (SQLException ex) {
+                throw abort(ex);
+            }
+            try {
+                release();
+            } catch (SQLException ex) {
+                throw new DataSourceWriteException("Could not write key ids in data source backend " + nameForErrors(), ex);
+            }
+        }
+
+        @Override
+        public void discard() throws DataSourceWriteException {
+            if (this.closed) {
+                return;
+            }
+            SQLException exceptionThrown = null;
+            if (!this.autoCommit) {
+                try {
+                    this.connection.rollback();
+                } catch (SQLException ex) {
+                    exceptionThrown = ex;
+                }
+            }
+            try {
+                release();
+            } catch (SQLException ex) {
+                if (exceptionThrown == null) {
+                    exceptionThrown = ex;
+                } else {
+                    exceptionThrown.addSuppressed(ex);
+                }
+            }
+            if (exceptionThrown != null) {
+                throw new DataSourceWriteException("Could not discard key ids in data source backend " + nameForErrors(), exceptionThrown);
+            }
+        }
+
+        private void flush() throws SQLException {
+            int size = this.keyIds.size();
+            if (size == 0) {
+                return;
+            }
+            PreparedStatement stmt;
+            if (size == this.batchSize) {
+                if (this.batchStmt == null) {
+                    this.batchStmt = prepare(size);
+                }
+                stmt = this.batchStmt;
+            } else {
+                stmt = prepare(size);
+            }
+            try {
+                for (int i = 0; i < size; i++) {
+                    stmt.setObject(i + 1, this.keyIds.get(i));
+                }
+                stmt.execute();
+            } finally {
+                if (stmt != this.batchStmt) {
+                    stmt.close();
+                }
+            }
+            this.keyIds.clear();
+            this.uncommitted += size;
+            if (this.uncommitted >= this.commitSize && !this.autoCommit) {
+                this.connection.commit();
+                this.uncommitted = 0;
+            }
+        }
+
+        private PreparedStatement prepare(int size) throws SQLException {
+            String stmt = buildWriteKeysInsertStmt(size);
+            SQLGenUtil.logger().log(Level.FINER, "Statement for writing keys: {0}", stmt);
+            return this.connection.prepareStatement(stmt);
+        }
+
+        private DataSourceWriteException abort(SQLException ex) {
+            if (!this.autoCommit) {
+                try {
+                    this.connection.rollback();
+                } catch (SQLException ignore) {
+                    ex.addSuppressed(ignore);
+                }
+            }
+            try {
+                release();
+            } catch (SQLException ignore) {
+                ex.addSuppressed(ignore);
+            }
+            return new DataSourceWriteException("Could not write key ids in data source backend " + nameForErrors(), ex);
+        }
+
+        private void release() throws SQLException {
+            this.closed = true;
+            this.keyIds.clear();
+            try {
+                if (this.batchStmt != null) {
+                    this.batchStmt.close();
+                }
+            } finally {
+                this.connection.close();
+            }
         }
     }
 
@@ -701,6 +1034,7 @@ public abstract class RelationalDbDataSourceBackend
     @Override
     public void close() throws BackendCloseException {
         this.sqlGenerator = null;
+        closeConnectionPool();
         if (this.mappingsFactory != null) {
             try {
                 this.mappingsFactory.closeAll();
@@ -710,10 +1044,37 @@ public abstract class RelationalDbDataSourceBackend
         }
     }
 
-    protected ConnectionSpec getConnectionSpecInstance()
+    /**
+     * Returns the connection spec for the database. Connections that are
+     * gotten from it are pooled, and closing them returns them to the pool.
+     * The pool is created on first use and closed when this backend is
+     * closed or its connection properties change.
+     *
+     * @return a {@link ConnectionSpec}.
+     * @throws InvalidConnectionSpecArguments if the connection properties
+     * are invalid.
+     */
+    protected synchronized ConnectionSpec getConnectionSpecInstance()
             throws InvalidConnectionSpecArguments {
-        return this.databaseAPI.newConnectionSpecInstance(
-                this.databaseId, this.username, this.password, false);
+        if (this.connectionPool == null) {
+            this.connectionPool = new PooledConnectionSpec(
+                    this.databaseAPI.newConnectionSpecInstance(
+                            this.databaseId, this.username, this.password,
+                            false),
+                    this.connectionPoolSize != null
+                            ? this.connectionPoolSize : 0);
+        }
+        return this.connectionPool;
+    }
+
+    private synchronized void closeConnectionPool() {
+        if (this.connectionPool != null) {
+            SQLGenUtil.logger().log(Level.FINE,
+                    "Closing connection pool of data source backend {0}: {1}",
+                    new Object[]{nameForErrors(), this.connectionPool});
+            this.connectionPool.close();
+            this.connectionPool = null;
+        }
     }
 
     protected abstract EntitySpec[] constantSpecs(String keyIdSchema, String keyIdTable, String keyIdColumn, String keyIdJoinKey) throws IOException;
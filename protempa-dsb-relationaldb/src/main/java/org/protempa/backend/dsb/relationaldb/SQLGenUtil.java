@@ -36,6 +36,23 @@ class SQLGenUtil {
     static final String SYSTEM_PROPERTY_FORCE_SQL_GENERATOR =
             "protempa.dsb.relationaldatabase.sqlgenerator";
 
+    /**
+     * Set to <code>true</code> to generate SQL with <code>?</code>
+     * placeholders in place of key ids, codes and dates, and to execute it
+     * with a {@link java.sql.PreparedStatement}. This lets the database reuse
+     * query plans across queries that differ only in their values.
+     */
+    static final String SYSTEM_PROPERTY_BIND_PARAMETERS =
+            "protempa.dsb.relationaldatabase.bindparameters";
+
+    /**
+     * The maximum number of key ids' worth of data to read ahead from each
+     * result set on a separate thread while streaming. Set to 0 to read each
+     * result set on the thread that consumes the data.
+     */
+    static final String SYSTEM_PROPERTY_PREFETCH_SIZE =
+            "protempa.dsb.relationaldatabase.prefetchsize";
+
     private SQLGenUtil() {
     }
 
@@ -27,4 +27,12 @@ package org.protempa.backend.dsb.relationaldb;
  */
 public interface SelectStatement extends SqlStatement {
 
+    /**
+     * Generates the statement, collecting its values in the given parameter
+     * list.
+     *
+     * @param parameters the parameter list.
+     * @return the statement.
+     */
+    String generateStatement(SqlParameters parameters);
 }
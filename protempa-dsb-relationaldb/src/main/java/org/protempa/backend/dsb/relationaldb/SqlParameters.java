@@ -0,0 +1,240 @@
+/*
+ * #%L
+ * Protempa Commons Backend Provider
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Collects the values in a generated SQL statement. In binding mode, values
+ * are replaced with <code>?</code> placeholders and recorded in order for
+ * binding to a {@link PreparedStatement}, so that statements that differ only
+ * in their values have the same text and can share a query plan. Otherwise,
+ * values are inlined as literals with
+ * {@link SqlGeneratorUtil#prepareValue(java.lang.Object)}.
+ *
+ * Values other than numbers, booleans and dates, such as key ids and codes,
+ * are bound as strings with the JDBC type of the column that they are
+ * compared with, as reported by the statement's {@link ParameterMetaData}.
+ * An inlined string literal gets its type from that column, while a string
+ * bound as a <code>VARCHAR</code> may not be comparable with it (e.g., with
+ * a numeric column in PostgreSQL). If the driver does not report parameter
+ * types, strings are bound as <code>VARCHAR</code>s.
+ *
+ * @author Andrew Post
+ */
+public final class SqlParameters {
+
+    /**
+     * IN lists longer than this are inlined rather than bound, to stay well
+     * within the bind variable limits of JDBC drivers.
+     */
+    static final int MAX_BOUND_IN_LIST_SIZE = 1024;
+
+    private final boolean bind;
+    private final List<Object> values;
+
+    /**
+     * Creates an empty parameter list.
+     *
+     * @param bind <code>true</code> to replace values with placeholders,
+     * <code>false</code> to inline them.
+     */
+    public SqlParameters(boolean bind) {
+        this.bind = bind;
+        this.values = new ArrayList<>();
+    }
+
+    /**
+     * Returns whether values are replaced with placeholders.
+     *
+     * @return <code>true</code> or <code>false</code>.
+     */
+    public boolean isBinding() {
+        return this.bind;
+    }
+
+    /**
+     * Returns an SQL-ready string for the given value. In binding mode, this
+     * is a placeholder, and the value is added to this parameter list.
+     * <code>null</code> is always inlined so that it may be used with
+     * <code>IS</code> and <code>IS NOT</code>.
+     *
+     * @param val the value to prepare.
+     * @return a <tt>String</tt> ready to be appended to an SQL statement.
+     */
+    public String prepareValue(Object val) {
+        if (this.bind && val != null) {
+            this.values.add(toParameter(val));
+            return "?";
+        } else {
+            return SqlGeneratorUtil.prepareValue(val);
+        }
+    }
+
+    /**
+     * Returns SQL-ready strings for the elements of an IN list. In binding
+     * mode, the list is padded to the next power of two by repeating its
+     * last element, so that IN lists of similar length share the same
+     * statement text. IN lists that are longer than
+     * {@link #MAX_BOUND_IN_LIST_SIZE} or that contain <code>null</code> are
+     * inlined.
+     *
+     * @param elements the elements of the IN list.
+     * @return the strings to append to the IN list, separated by commas.
+     */
+    public List<String> prepareInListValues(Object[] elements) {
+        List<String> result;
+        if (this.bind && elements.length > 0
+                && elements.length <= MAX_BOUND_IN_LIST_SIZE
+                && !containsNull(elements)) {
+            int size = Integer.highestOneBit(elements.length);
+            if (size < elements.length) {
+                size <<= 1;
+            }
+            result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(prepareValue(
+                        elements[Math.min(i, elements.length - 1)]));
+            }
+        } else {
+            result = new ArrayList<>(elements.length);
+            for (Object element : elements) {
+                result.add(SqlGeneratorUtil.prepareValue(element));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns an SQL-ready string for a position. In binding mode, positions
+     * formatted by the JDBC timestamp escape formats are bound as
+     * {@link Timestamp}s. Positions in other formats are inlined.
+     *
+     * @param positionParser the entity spec's position format.
+     * @param position a position.
+     * @return a <tt>String</tt> ready to be appended to an SQL statement.
+     */
+    String preparePosition(JDBCPositionFormat positionParser, Long position) {
+        if (this.bind && position != null
+                && (positionParser instanceof JDBCTimestampPositionParser
+                || positionParser instanceof JDBCDatePositionParser
+                || positionParser instanceof JDBCDateTimeTimestampPositionParser)) {
+            this.values.add(new Timestamp(position));
+            return "?";
+        } else {
+            return positionParser.format(position);
+        }
+    }
+
+    /**
+     * Returns the values that were replaced with placeholders, in order.
+     *
+     * @return an unmodifiable {@link List}.
+     */
+    List<Object> getValues() {
+        return Collections.unmodifiableList(this.values);
+    }
+
+    /**
+     * Binds the values in this parameter list to a prepared statement's
+     * placeholders.
+     *
+     * @param stmt a {@link PreparedStatement} created from the SQL that was
+     * generated with this parameter list.
+     * @throws SQLException if an error occurs binding a value.
+     */
+    void bind(PreparedStatement stmt) throws SQLException {
+        ParameterMetaData metaData = null;
+        boolean metaDataRead = false;
+        for (int i = 0, n = this.values.size(); i < n; i++) {
+            Object value = this.values.get(i);
+            if (value instanceof String) {
+                if (!metaDataRead) {
+                    metaData = parameterMetaData(stmt);
+                    metaDataRead = true;
+                }
+                stmt.setObject(i + 1, value, parameterType(metaData, i + 1));
+            } else {
+                stmt.setObject(i + 1, value);
+            }
+        }
+    }
+
+    private static ParameterMetaData parameterMetaData(PreparedStatement stmt) {
+        try {
+            return stmt.getParameterMetaData();
+        } catch (SQLException ex) {
+            SQLGenUtil.logger().log(Level.FINEST,
+                    "Parameter metadata is unavailable; binding strings as VARCHAR",
+                    ex);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the JDBC type of a placeholder, or {@link Types#VARCHAR} if the
+     * driver does not know it.
+     */
+    private static int parameterType(ParameterMetaData metaData, int param) {
+        if (metaData != null) {
+            try {
+                int type = metaData.getParameterType(param);
+                if (type != Types.NULL && type != Types.OTHER) {
+                    return type;
+                }
+            } catch (SQLException ex) {
+                SQLGenUtil.logger().log(Level.FINEST,
+                        "Type of parameter {0} is unavailable; binding it as VARCHAR",
+                        param);
+            }
+        }
+        return Types.VARCHAR;
+    }
+
+    private static Object toParameter(Object val) {
+        if (val instanceof Boolean) {
+            return ((Boolean) val) ? 1 : 0;
+        } else if (val instanceof Date && !(val instanceof Timestamp)) {
+            return new Timestamp(((Date) val).getTime());
+        } else if (val instanceof Number || val instanceof Timestamp) {
+            return val;
+        } else {
+            return val.toString();
+        }
+    }
+
+    private static boolean containsNull(Object[] elements) {
+        for (Object element : elements) {
+            if (element == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
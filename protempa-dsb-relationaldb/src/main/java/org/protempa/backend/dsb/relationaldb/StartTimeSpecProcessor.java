@@ -36,8 +36,8 @@ import org.protempa.proposition.interval.Interval;
  */
 class StartTimeSpecProcessor extends AbstractTimeSpecProcessor {
 
-    StartTimeSpecProcessor(EntitySpec entitySpec, Set<Filter> filters, boolean first, TableAliaser referenceIndices) {
-        super(entitySpec, filters, first, referenceIndices);
+    StartTimeSpecProcessor(EntitySpec entitySpec, Set<Filter> filters, boolean first, TableAliaser referenceIndices, SqlParameters parameters) {
+        super(entitySpec, filters, first, referenceIndices, parameters);
     }
 
     @Override
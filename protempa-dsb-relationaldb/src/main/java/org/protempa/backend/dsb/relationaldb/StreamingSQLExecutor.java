@@ -20,6 +20,7 @@
 package org.protempa.backend.dsb.relationaldb;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -35,6 +36,7 @@ public class StreamingSQLExecutor {
 
     private final Connection connection;
     private final String backendNameForMessages;
+    private boolean rolesSet;
 
     StreamingSQLExecutor(Connection connection,
             String backendNameForMessages, Integer timeout) {
@@ -47,6 +49,7 @@ public class StreamingSQLExecutor {
     }
     
     void executeSelect(String entitySpecName, String query,
+            SqlParameters parameters,
             StreamingResultProcessor<?> resultProcessor)
             throws DataSourceReadException {
         Logger logger = SQLGenUtil.logger();
@@ -66,12 +69,29 @@ public class StreamingSQLExecutor {
             }
 
             try {
-                Statement stmt = connection.createStatement();
-                stmt.setFetchSize(AbstractSQLGenerator.FETCH_SIZE);
                 //this is for connection to DWS and DWP
-                if (this.connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("ORACLE")) 
-                	stmt.execute("SET ROLE ALL");  
-                ResultSet resultSet = stmt.executeQuery(query);
+                if (!this.rolesSet) {
+                    if (this.connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("ORACLE")) {
+                        try (Statement roleStmt = this.connection.createStatement()) {
+                            roleStmt.execute("SET ROLE ALL");
+                        }
+                    }
+                    this.rolesSet = true;
+                }
+                Statement stmt;
+                ResultSet resultSet;
+                if (parameters.isBinding()) {
+                    PreparedStatement pstmt
+                            = this.connection.prepareStatement(query);
+                    stmt = pstmt;
+                    stmt.setFetchSize(AbstractSQLGenerator.FETCH_SIZE);
+                    parameters.bind(pstmt);
+                    resultSet = pstmt.executeQuery();
+                } else {
+                    stmt = this.connection.createStatement();
+                    stmt.setFetchSize(AbstractSQLGenerator.FETCH_SIZE);
+                    resultSet = stmt.executeQuery(query);
+                }
                 logger.log(Level.FINE, "Database query execution for {0} has returned", entitySpecName);
                 resultProcessor.setStatement(stmt);
                 resultProcessor.process(resultSet);
@@ -28,15 +28,15 @@ final class TimeSpecProcessor {
 
     static String processStartTimeSpec(
             EntitySpec entitySpec, Set<Filter> filters, boolean first,
-            TableAliaser referenceIndices) {
+            TableAliaser referenceIndices, SqlParameters parameters) {
         return new StartTimeSpecProcessor(entitySpec, filters, first,
-                referenceIndices).process();
+                referenceIndices, parameters).process();
     }
 
     static String processFinishTimeSpec(
             EntitySpec entitySpec, Set<Filter> filters, boolean first,
-            TableAliaser referenceIndices) {
+            TableAliaser referenceIndices, SqlParameters parameters) {
         return new FinishTimeSpecProcessor(entitySpec, filters, first,
-                referenceIndices).process();
+                referenceIndices, parameters).process();
     }
 }
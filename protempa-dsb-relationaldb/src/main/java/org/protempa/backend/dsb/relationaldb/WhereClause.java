@@ -24,4 +24,6 @@ public interface WhereClause extends SqlClause {
     InClause getInClause(ColumnSpec columnSpec, Object[] elements, boolean not);
 
     OrderByClause getOrderByClause(ColumnSpec keyIdSpec);
+
+    String generateClause(SqlParameters parameters);
 }
@@ -26,38 +26,44 @@ abstract class WhereConstraintProcessor {
     private final WhereClause whereClause;
     private final Object[] sqlCodes;
     private final TableAliaser referenceIndices;
+    private final SqlParameters parameters;
 
     protected WhereConstraintProcessor(ColumnSpec columnSpec,
             Operator constraint, WhereClause whereClause, Object[] sqlCodes,
-            TableAliaser referenceIndices) {
+            TableAliaser referenceIndices, SqlParameters parameters) {
         this.columnSpec = columnSpec;
         this.constraint = constraint;
         this.whereClause = whereClause;
         this.sqlCodes = sqlCodes;
         this.referenceIndices = referenceIndices;
+        this.parameters = parameters;
     }
 
     static WhereConstraintProcessor getInstance(ColumnSpec columnSpec,
             Operator constraint, WhereClause whereClause, Object[] sqlCodes,
-            TableAliaser referenceIndices) {
+            TableAliaser referenceIndices, SqlParameters parameters) {
         switch (constraint) {
             case EQUAL_TO:
             case IS:
                 return new EqualToWhereConstraintProcessor(columnSpec,
-                        constraint, whereClause, sqlCodes, referenceIndices);
+                        constraint, whereClause, sqlCodes, referenceIndices,
+                        parameters);
             case NOT_EQUAL_TO:
             case IS_NOT:
                 return new NotEqualToWhereConstraintProcessor(columnSpec,
-                        constraint, whereClause, sqlCodes, referenceIndices);
+                        constraint, whereClause, sqlCodes, referenceIndices,
+                        parameters);
             case LESS_THAN:
             case LESS_THAN_OR_EQUAL_TO:
             case GREATER_THAN:
             case GREATER_THAN_OR_EQUAL_TO:
                 return new InequalityWhereConstraintProcessor(columnSpec,
-                        constraint, whereClause, sqlCodes, referenceIndices);
+                        constraint, whereClause, sqlCodes, referenceIndices,
+                        parameters);
             case LIKE:
                 return new LikeWhereConstraintProcessor(columnSpec, constraint,
-                        whereClause, sqlCodes, referenceIndices);
+                        whereClause, sqlCodes, referenceIndices,
+                        parameters);
             default:
                 throw new AssertionError("Invalid constraint: " + constraint);
         }
@@ -83,5 +89,9 @@ abstract class WhereConstraintProcessor {
         return referenceIndices;
     }
 
+    protected SqlParameters getParameters() {
+        return parameters;
+    }
+
     protected abstract String processConstraint();
 }
@@ -19,9 +19,10 @@
  */
 package org.protempa.backend.dsb.relationaldb.oracle;
 
+import java.util.List;
 import org.protempa.backend.dsb.relationaldb.AbstractInClause;
 import org.protempa.backend.dsb.relationaldb.ColumnSpec;
-import org.protempa.backend.dsb.relationaldb.SqlGeneratorUtil;
+import org.protempa.backend.dsb.relationaldb.SqlParameters;
 import org.protempa.backend.dsb.relationaldb.TableAliaser;
 
 
@@ -47,17 +48,17 @@ final class Ojdbc6OracleInClause extends AbstractInClause {
      * want more than 1000 we create multiple IN clauses chained together by OR.
      */
     @Override
-    public String generateClause() {
+    public String generateClause(SqlParameters parameters) {
         StringBuilder wherePart = new StringBuilder();
         wherePart.append(referenceIndices.generateColumnReference(columnSpec));
         if (not) {
             wherePart.append(" NOT");
         }
         wherePart.append(" IN (");
-        for (int k = 0; k < elements.length; k++) {
-            Object val = elements[k];
-            wherePart.append(SqlGeneratorUtil.prepareValue(val));
-            if (k + 1 < elements.length) {
+        List<String> values = parameters.prepareInListValues(elements);
+        for (int k = 0, n = values.size(); k < n; k++) {
+            wherePart.append(values.get(k));
+            if (k + 1 < n) {
                 if ((k + 1) % 1000 == 0) {
                     wherePart.append(") OR ");
                     wherePart.append(referenceIndices.generateColumnReference(columnSpec));
@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * Protempa Commons Backend Provider
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import org.protempa.DataSourceReadException;
+import org.protempa.DataStreamingEvent;
+import org.protempa.DataStreamingEventIterator;
+
+/**
+ * A {@link DataStreamingEventIterator} over a list of key ids, with one empty
+ * event per key id, for testing iterators that wrap other iterators.
+ *
+ * @author Andrew Post
+ */
+class FakeDataStreamingEventIterator
+        implements DataStreamingEventIterator<Object> {
+
+    private final Iterator<String> keyIds;
+    private final Throwable failure;
+    private boolean closed;
+
+    /**
+     * Creates an iterator.
+     *
+     * @param keyIds the key ids.
+     * @param failure thrown by {@link #hasNext()} after the last key id, or
+     * <code>null</code> to end the iteration normally. Must be a
+     * {@link DataSourceReadException}, a {@link RuntimeException} or an
+     * {@link Error}.
+     */
+    FakeDataStreamingEventIterator(List<String> keyIds, Throwable failure) {
+        this.keyIds = keyIds.iterator();
+        this.failure = failure;
+    }
+
+    @Override
+    public boolean hasNext() throws DataSourceReadException {
+        if (this.closed) {
+            throw new IllegalStateException("closed");
+        }
+        if (!this.keyIds.hasNext() && this.failure != null) {
+            if (this.failure instanceof DataSourceReadException) {
+                throw (DataSourceReadException) this.failure;
+            } else if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            } else {
+                throw (Error) this.failure;
+            }
+        }
+        return this.keyIds.hasNext();
+    }
+
+    @Override
+    public DataStreamingEvent<Object> next() throws DataSourceReadException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return new DataStreamingEvent<>(this.keyIds.next(),
+                Collections.emptyList());
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+    boolean isClosed() {
+        return this.closed;
+    }
+}
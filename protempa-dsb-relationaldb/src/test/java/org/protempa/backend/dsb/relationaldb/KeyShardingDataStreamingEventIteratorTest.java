@@ -0,0 +1,401 @@
+/*
+ * #%L
+ * Protempa Commons Backend Provider
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.protempa.DataSourceReadException;
+import org.protempa.DataStreamingEventIterator;
+import org.protempa.backend.dsb.relationaldb.KeyShardingDataStreamingEventIterator.KeyIdListShardSource;
+import org.protempa.backend.dsb.relationaldb.KeyShardingDataStreamingEventIterator.QueryShardSource;
+import org.protempa.backend.dsb.relationaldb.KeyShardingDataStreamingEventIterator.ShardReader;
+import org.protempa.backend.dsb.relationaldb.KeyShardingDataStreamingEventIterator.ShardSource;
+
+/**
+ * Tests {@link KeyShardingDataStreamingEventIterator} with fake shard
+ * sources and readers, and {@link QueryShardSource} with a fake connection.
+ *
+ * @author Andrew Post
+ */
+public class KeyShardingDataStreamingEventIteratorTest {
+
+    private static final List<String> KEY_IDS = Arrays.asList("a", "b", "c",
+            "d", "e", "f", "g", "h", "i", "j");
+
+    @Test(timeout = 10000)
+    public void testShardOrderOneThread() throws DataSourceReadException {
+        assertShardOrder(1);
+    }
+
+    @Test(timeout = 10000)
+    public void testShardOrderThreeThreads() throws DataSourceReadException {
+        assertShardOrder(3);
+    }
+
+    @Test(timeout = 10000)
+    public void testOneShardOpenWithOneThread()
+            throws DataSourceReadException {
+        CountingShardSource source = new CountingShardSource(
+                new KeyIdListShardSource(KEY_IDS, 3));
+        FakeShardReader reader = new FakeShardReader(null, true);
+        KeyShardingDataStreamingEventIterator<Object> itr
+                = new KeyShardingDataStreamingEventIterator<>(source, reader,
+                        1);
+        Assert.assertTrue(itr.hasNext());
+        Assert.assertEquals(1, source.getShardCount());
+        Assert.assertEquals(KEY_IDS, readKeyIds(itr));
+        Assert.assertEquals(4, reader.getIterators().size());
+        itr.close();
+    }
+
+    @Test(timeout = 10000)
+    public void testPrefetchWindow() throws DataSourceReadException {
+        CountingShardSource source = new CountingShardSource(
+                new KeyIdListShardSource(KEY_IDS, 2));
+        FakeShardReader reader = new FakeShardReader(null, false);
+        KeyShardingDataStreamingEventIterator<Object> itr
+                = new KeyShardingDataStreamingEventIterator<>(source, reader,
+                        3);
+        /*
+         * The shard being returned and the next threadCount - 1 shards are
+         * requested.
+         */
+        Assert.assertTrue(itr.hasNext());
+        Assert.assertEquals(3, source.getShardCount());
+        Assert.assertEquals("a", itr.next().getKeyId());
+        Assert.assertEquals("b", itr.next().getKeyId());
+        Assert.assertEquals(3, source.getShardCount());
+        Assert.assertTrue(itr.hasNext());
+        Assert.assertEquals(4, source.getShardCount());
+        Assert.assertTrue(reader.getIterators().get(0).isClosed());
+        itr.close();
+        for (FakeDataStreamingEventIterator shard : reader.getIterators()) {
+            Assert.assertTrue(shard.isClosed());
+        }
+        Assert.assertTrue(source.isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testShardReadFails() throws DataSourceReadException {
+        CountingShardSource source = new CountingShardSource(
+                new KeyIdListShardSource(KEY_IDS, 2));
+        FakeShardReader reader = new FakeShardReader("c", false);
+        KeyShardingDataStreamingEventIterator<Object> itr
+                = new KeyShardingDataStreamingEventIterator<>(source, reader,
+                        3);
+        Assert.assertEquals("a", itr.next().getKeyId());
+        Assert.assertEquals("b", itr.next().getKeyId());
+        try {
+            itr.hasNext();
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(reader.getFailure(), ex);
+        }
+        itr.close();
+        Assert.assertEquals(3, source.getShardCount());
+        Assert.assertEquals(2, reader.getIterators().size());
+        for (FakeDataStreamingEventIterator shard : reader.getIterators()) {
+            Assert.assertTrue(shard.isClosed());
+        }
+        Assert.assertTrue(source.isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testPendingShardReadFailsOnClose()
+            throws DataSourceReadException {
+        CountingShardSource source = new CountingShardSource(
+                new KeyIdListShardSource(KEY_IDS, 2));
+        FakeShardReader reader = new FakeShardReader("c", false);
+        KeyShardingDataStreamingEventIterator<Object> itr
+                = new KeyShardingDataStreamingEventIterator<>(source, reader,
+                        3);
+        Assert.assertEquals("a", itr.next().getKeyId());
+        try {
+            itr.close();
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(reader.getFailure(), ex);
+        }
+        Assert.assertEquals(2, reader.getIterators().size());
+        for (FakeDataStreamingEventIterator shard : reader.getIterators()) {
+            Assert.assertTrue(shard.isClosed());
+        }
+        Assert.assertTrue(source.isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testQueryShardSource() throws DataSourceReadException {
+        FakeConnection connection = new FakeConnection(
+                Arrays.asList("a", "b", null, "c", "d", "e"));
+        QueryShardSource source = new QueryShardSource(
+                connection.newProxy(), "select keyid from t", 2);
+        Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("a", "b")),
+                source.nextShard());
+        Assert.assertEquals(new LinkedHashSet<>(Arrays.asList("c", "d")),
+                source.nextShard());
+        Assert.assertEquals(Collections.singleton("e"), source.nextShard());
+        Assert.assertNull(source.nextShard());
+        Assert.assertNull(source.nextShard());
+        Assert.assertEquals(1, connection.queryCount);
+        Assert.assertEquals(AbstractSQLGenerator.FETCH_SIZE,
+                connection.fetchSize);
+        source.close();
+        Assert.assertTrue(connection.statementClosed);
+        Assert.assertTrue(connection.closed);
+    }
+
+    @Test(timeout = 10000)
+    public void testQueryShardSourceNoKeyIds()
+            throws DataSourceReadException {
+        FakeConnection connection = new FakeConnection(
+                Collections.<String>emptyList());
+        QueryShardSource source = new QueryShardSource(
+                connection.newProxy(), "select keyid from t", 2);
+        Assert.assertNull(source.nextShard());
+        source.close();
+        Assert.assertTrue(connection.closed);
+    }
+
+    private static void assertShardOrder(int threadCount)
+            throws DataSourceReadException {
+        CountingShardSource source = new CountingShardSource(
+                new KeyIdListShardSource(KEY_IDS, 3));
+        FakeShardReader reader = new FakeShardReader(null, false);
+        KeyShardingDataStreamingEventIterator<Object> itr
+                = new KeyShardingDataStreamingEventIterator<>(source, reader,
+                        threadCount);
+        Assert.assertEquals(KEY_IDS, readKeyIds(itr));
+        itr.close();
+        Assert.assertEquals(4, reader.getIterators().size());
+        for (FakeDataStreamingEventIterator shard : reader.getIterators()) {
+            Assert.assertTrue(shard.isClosed());
+        }
+        Assert.assertTrue(source.isClosed());
+    }
+
+    private static List<String> readKeyIds(
+            DataStreamingEventIterator<Object> itr)
+            throws DataSourceReadException {
+        List<String> result = new ArrayList<>();
+        while (itr.hasNext()) {
+            result.add(itr.next().getKeyId());
+        }
+        return result;
+    }
+
+    /**
+     * Counts the shards that have been requested from another shard source.
+     */
+    private static final class CountingShardSource implements ShardSource {
+
+        private final ShardSource shardSource;
+        private int shardCount;
+        private boolean closed;
+
+        CountingShardSource(ShardSource shardSource) {
+            this.shardSource = shardSource;
+        }
+
+        @Override
+        public synchronized Set<String> nextShard()
+                throws DataSourceReadException {
+            Set<String> result = this.shardSource.nextShard();
+            if (result != null) {
+                this.shardCount++;
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized void close() throws DataSourceReadException {
+            this.shardSource.close();
+            this.closed = true;
+        }
+
+        synchronized int getShardCount() {
+            return this.shardCount;
+        }
+
+        synchronized boolean isClosed() {
+            return this.closed;
+        }
+    }
+
+    /**
+     * Returns a {@link FakeDataStreamingEventIterator} per shard, or fails
+     * reading the shard with a given key id.
+     */
+    private static final class FakeShardReader
+            implements ShardReader<Object> {
+
+        private final String failingKeyId;
+        private final boolean checkPreviousClosed;
+        private final DataSourceReadException failure;
+        private final List<FakeDataStreamingEventIterator> iterators;
+
+        /**
+         * @param failingKeyId a key id of the shard whose read fails, or
+         * <code>null</code>.
+         * @param checkPreviousClosed whether to check that the iterators
+         * of the shards that were read before are closed when a shard is
+         * read.
+         */
+        FakeShardReader(String failingKeyId, boolean checkPreviousClosed) {
+            this.failingKeyId = failingKeyId;
+            this.checkPreviousClosed = checkPreviousClosed;
+            this.failure = new DataSourceReadException("test");
+            this.iterators = new ArrayList<>();
+        }
+
+        @Override
+        public synchronized DataStreamingEventIterator<Object> read(
+                Set<String> keyIds) throws DataSourceReadException {
+            if (this.checkPreviousClosed) {
+                for (FakeDataStreamingEventIterator itr : this.iterators) {
+                    Assert.assertTrue(itr.isClosed());
+                }
+            }
+            if (keyIds.contains(this.failingKeyId)) {
+                throw this.failure;
+            }
+            FakeDataStreamingEventIterator result
+                    = new FakeDataStreamingEventIterator(
+                            new ArrayList<>(keyIds), null);
+            this.iterators.add(result);
+            return result;
+        }
+
+        DataSourceReadException getFailure() {
+            return this.failure;
+        }
+
+        synchronized List<FakeDataStreamingEventIterator> getIterators() {
+            return new ArrayList<>(this.iterators);
+        }
+    }
+
+    /**
+     * A connection with one statement that returns the given key ids, and
+     * that records how it was used.
+     */
+    private static final class FakeConnection {
+
+        private final List<String> keyIds;
+        private int queryCount;
+        private int fetchSize;
+        private boolean statementClosed;
+        private boolean closed;
+
+        FakeConnection(List<String> keyIds) {
+            this.keyIds = keyIds;
+        }
+
+        Connection newProxy() {
+            return proxy(Connection.class, new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) {
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return newStatement();
+                        case "close":
+                            closed = true;
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(
+                                    method.getName());
+                    }
+                }
+            });
+        }
+
+        private Statement newStatement() {
+            return proxy(Statement.class, new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) {
+                    switch (method.getName()) {
+                        case "setFetchSize":
+                            fetchSize = (Integer) args[0];
+                            return null;
+                        case "executeQuery":
+                            queryCount++;
+                            return newResultSet();
+                        case "close":
+                            statementClosed = true;
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(
+                                    method.getName());
+                    }
+                }
+            });
+        }
+
+        private ResultSet newResultSet() {
+            final Iterator<String> itr = this.keyIds.iterator();
+            return proxy(ResultSet.class, new InvocationHandler() {
+
+                private String keyId;
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) {
+                    switch (method.getName()) {
+                        case "next":
+                            if (itr.hasNext()) {
+                                this.keyId = itr.next();
+                                return true;
+                            } else {
+                                return false;
+                            }
+                        case "getString":
+                            Assert.assertEquals(1, args[0]);
+                            return this.keyId;
+                        default:
+                            throw new UnsupportedOperationException(
+                                    method.getName());
+                    }
+                }
+            });
+        }
+
+        private static <T> T proxy(Class<T> cls, InvocationHandler handler) {
+            return cls.cast(Proxy.newProxyInstance(
+                    KeyShardingDataStreamingEventIteratorTest.class
+                            .getClassLoader(), new Class<?>[]{cls}, handler));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * #%L
+ * Protempa Commons Backend Provider
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.protempa.DataSourceReadException;
+
+/**
+ * Tests {@link PrefetchingDataStreamingEventIterator}.
+ *
+ * @author Andrew Post
+ */
+public class PrefetchingDataStreamingEventIteratorTest {
+
+    @Test(timeout = 10000)
+    public void testReadsAllEvents() throws DataSourceReadException {
+        FakeDataStreamingEventIterator itr
+                = new FakeDataStreamingEventIterator(
+                        Arrays.asList("a", "b", "c", "d"), null);
+        PrefetchingDataStreamingEventIterator<Object> prefetch
+                = new PrefetchingDataStreamingEventIterator<>(itr, "test", 2);
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"),
+                readKeyIds(prefetch, new ArrayList<String>()));
+        prefetch.close();
+        Assert.assertTrue(itr.isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testDataSourceReadException() {
+        DataSourceReadException failure = new DataSourceReadException("test");
+        List<String> keyIds = new ArrayList<>();
+        try {
+            readKeyIds(newPrefetch(failure), keyIds);
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(failure, ex);
+        }
+        Assert.assertEquals(Arrays.asList("a", "b"), keyIds);
+    }
+
+    @Test(timeout = 10000)
+    public void testRuntimeException() {
+        IllegalStateException failure = new IllegalStateException("test");
+        try {
+            readKeyIds(newPrefetch(failure), new ArrayList<String>());
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(failure, ex.getCause());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testError() {
+        StackOverflowError failure = new StackOverflowError("test");
+        List<String> keyIds = new ArrayList<>();
+        try {
+            readKeyIds(newPrefetch(failure), keyIds);
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(failure, ex.getCause());
+        }
+        Assert.assertEquals(Arrays.asList("a", "b"), keyIds);
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseWithFullBuffer() throws DataSourceReadException {
+        FakeDataStreamingEventIterator itr
+                = new FakeDataStreamingEventIterator(
+                        Arrays.asList("a", "b", "c", "d"), null);
+        PrefetchingDataStreamingEventIterator<Object> prefetch
+                = new PrefetchingDataStreamingEventIterator<>(itr, "test", 1);
+        Assert.assertEquals("a", prefetch.next().getKeyId());
+        prefetch.close();
+        Assert.assertTrue(itr.isClosed());
+    }
+
+    private static PrefetchingDataStreamingEventIterator<Object> newPrefetch(
+            Throwable failure) {
+        return new PrefetchingDataStreamingEventIterator<Object>(
+                new FakeDataStreamingEventIterator(
+                        Arrays.asList("a", "b"), failure), "test", 1);
+    }
+
+    private static List<String> readKeyIds(
+            PrefetchingDataStreamingEventIterator<Object> prefetch,
+            List<String> keyIds) throws DataSourceReadException {
+        while (prefetch.hasNext()) {
+            keyIds.add(prefetch.next().getKeyId());
+        }
+        return keyIds;
+    }
+}
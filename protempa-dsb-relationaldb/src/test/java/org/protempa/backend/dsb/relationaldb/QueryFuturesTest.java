@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * Protempa Commons Backend Provider
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.protempa.DataSourceReadException;
+
+/**
+ * Tests {@link QueryFutures} on partitions of a read, one of which may fail.
+ *
+ * @author Andrew Post
+ */
+public class QueryFuturesTest {
+
+    private static final QueryFutures.ResultCloser<FakeDataStreamingEventIterator> CLOSER
+            = new QueryFutures.ResultCloser<FakeDataStreamingEventIterator>() {
+
+        @Override
+        public void close(FakeDataStreamingEventIterator result)
+                throws DataSourceReadException {
+            result.close();
+        }
+    };
+
+    private ExecutorService executor;
+    private List<FakeDataStreamingEventIterator> partitions;
+
+    @Before
+    public void setUp() {
+        this.executor = Executors.newFixedThreadPool(4);
+        this.partitions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            this.partitions.add(new FakeDataStreamingEventIterator(
+                    Collections.singletonList("key" + i), null));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testAllPartitionsSucceed() throws DataSourceReadException {
+        List<Future<FakeDataStreamingEventIterator>> futures
+                = new ArrayList<>();
+        for (FakeDataStreamingEventIterator partition : this.partitions) {
+            futures.add(this.executor.submit(succeed(partition, null)));
+        }
+        Assert.assertEquals(this.partitions,
+                QueryFutures.getAll(futures, CLOSER));
+        for (FakeDataStreamingEventIterator partition : this.partitions) {
+            Assert.assertFalse(partition.isClosed());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingPartition() {
+        DataSourceReadException failure = new DataSourceReadException("test");
+        CountDownLatch failed = new CountDownLatch(1);
+        List<Future<FakeDataStreamingEventIterator>> futures
+                = new ArrayList<>();
+        futures.add(this.executor.submit(succeed(this.partitions.get(0),
+                null)));
+        futures.add(this.executor.submit(succeed(this.partitions.get(1),
+                null)));
+        futures.add(this.executor.submit(fail(failure, failed)));
+        /*
+         * The last partition finishes after the failure, and its results
+         * must still be closed.
+         */
+        futures.add(this.executor.submit(succeed(this.partitions.get(3),
+                failed)));
+        try {
+            QueryFutures.getAll(futures, CLOSER);
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(failure, ex);
+        }
+        Assert.assertTrue(this.partitions.get(0).isClosed());
+        Assert.assertTrue(this.partitions.get(1).isClosed());
+        Assert.assertFalse(this.partitions.get(2).isClosed());
+        Assert.assertTrue(this.partitions.get(3).isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailuresAfterTheFirstSuppressed() {
+        DataSourceReadException failure1 = new DataSourceReadException("1");
+        IllegalStateException failure2 = new IllegalStateException("2");
+        List<Future<FakeDataStreamingEventIterator>> futures
+                = Arrays.asList(this.executor.submit(fail(failure1, null)),
+                        this.executor.submit(fail(failure2, null)),
+                        this.executor.submit(
+                                succeed(this.partitions.get(0), null)));
+        try {
+            QueryFutures.getAll(futures, CLOSER);
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(failure1, ex);
+            Assert.assertArrayEquals(new Throwable[]{failure2},
+                    ex.getSuppressed());
+        }
+        Assert.assertTrue(this.partitions.get(0).isClosed());
+    }
+
+    @Test(timeout = 10000)
+    public void testRuntimeExceptionWrapped() {
+        IllegalStateException failure = new IllegalStateException("test");
+        List<Future<FakeDataStreamingEventIterator>> futures
+                = Collections.singletonList(
+                        this.executor.submit(fail(failure, null)));
+        try {
+            QueryFutures.getAll(futures, CLOSER);
+            Assert.fail("Expected a DataSourceReadException");
+        } catch (DataSourceReadException ex) {
+            Assert.assertSame(failure, ex.getCause());
+        }
+    }
+
+    /**
+     * Returns a partition's results, after the given latch is released if
+     * there is one.
+     */
+    private static Callable<FakeDataStreamingEventIterator> succeed(
+            final FakeDataStreamingEventIterator result,
+            final CountDownLatch after) {
+        return new Callable<FakeDataStreamingEventIterator>() {
+
+            @Override
+            public FakeDataStreamingEventIterator call() throws Exception {
+                if (after != null) {
+                    after.await();
+                    Thread.sleep(100);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Throws the given exception, and then releases the given latch if there
+     * is one.
+     */
+    private static Callable<FakeDataStreamingEventIterator> fail(
+            final Exception failure, final CountDownLatch latch) {
+        return new Callable<FakeDataStreamingEventIterator>() {
+
+            @Override
+            public FakeDataStreamingEventIterator call() throws Exception {
+                try {
+                    throw failure;
+                } finally {
+                    if (latch != null) {
+                        latch.countDown();
+                    }
+                }
+            }
+        };
+    }
+}
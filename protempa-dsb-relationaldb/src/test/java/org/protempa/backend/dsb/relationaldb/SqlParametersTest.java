@@ -0,0 +1,280 @@
+/*
+ * #%L
+ * Protempa Commons Backend Provider
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb.relationaldb;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+import org.protempa.backend.dsb.filter.Filter;
+import org.protempa.backend.dsb.filter.PositionFilter;
+import org.protempa.backend.dsb.filter.PropertyValueFilter;
+import org.protempa.backend.dsb.relationaldb.mappings.DefaultMappings;
+import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.ValueComparator;
+import org.protempa.proposition.value.ValueType;
+
+/**
+ * Tests the SQL text and the bound values of where, IN and position clauses
+ * generated with {@link SqlParameters}.
+ *
+ * @author Andrew Post
+ */
+public class SqlParametersTest {
+
+    private static final ColumnSpec KEY_SPEC
+            = new ColumnSpec("s", "patient", "patient_key");
+    private static final ColumnSpec START_SPEC
+            = new ColumnSpec("s", "patient", "start_time");
+    private static final ColumnSpec CODE_SPEC
+            = new ColumnSpec("s", "patient", "code", Operator.EQUAL_TO,
+                    new DefaultMappings(
+                            Collections.<Object, String>singletonMap(
+                                    "123", "PropA")));
+    private static final ColumnSpec DOSE_SPEC
+            = new ColumnSpec("s", "patient", "dose");
+
+    @Test
+    public void testKeyIdInListBound() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("a1.patient_key IN (?,?)",
+                new DefaultInClause(KEY_SPEC, new Object[]{"123", "456"},
+                        false, newAliaser()).generateClause(parameters));
+        Assert.assertEquals(Arrays.<Object>asList("123", "456"),
+                parameters.getValues());
+    }
+
+    @Test
+    public void testCodeInListBound() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("a1.code IN (?,?,?,?)",
+                new DefaultInClause(CODE_SPEC,
+                        new Object[]{"123", "456", "789"}, false,
+                        newAliaser()).generateClause(parameters));
+        Assert.assertEquals(
+                Arrays.<Object>asList("123", "456", "789", "789"),
+                parameters.getValues());
+    }
+
+    @Test
+    public void testCodeInListInlined() {
+        SqlParameters parameters = new SqlParameters(false);
+        Assert.assertEquals("a1.code IN ('123','456','789')",
+                new DefaultInClause(CODE_SPEC,
+                        new Object[]{"123", "456", "789"}, false,
+                        newAliaser()).generateClause(parameters));
+        Assert.assertTrue(parameters.getValues().isEmpty());
+    }
+
+    @Test
+    public void testNumberInListBound() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("a1.dose NOT IN (?,?,?,?)",
+                new DefaultInClause(DOSE_SPEC, new Object[]{1, 2, 3},
+                        true, newAliaser()).generateClause(parameters));
+        Assert.assertEquals(Arrays.<Object>asList(1, 2, 3, 3),
+                parameters.getValues());
+    }
+
+    @Test
+    public void testInListWithNullInlined() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("a1.dose IN (1,null)",
+                new DefaultInClause(DOSE_SPEC, new Object[]{1, null},
+                        false, newAliaser()).generateClause(parameters));
+        Assert.assertTrue(parameters.getValues().isEmpty());
+    }
+
+    @Test
+    public void testValues() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("?", parameters.prepareValue("abc"));
+        Assert.assertEquals("null", parameters.prepareValue(null));
+        Assert.assertEquals("?", parameters.prepareValue(Boolean.TRUE));
+        Assert.assertEquals("?", parameters.prepareValue(new java.util.Date(5)));
+        Assert.assertEquals("?", parameters.prepareValue(2.5));
+        Assert.assertEquals(
+                Arrays.<Object>asList("abc", 1, new Timestamp(5), 2.5),
+                parameters.getValues());
+    }
+
+    @Test
+    public void testPositionBound() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("?", parameters.preparePosition(
+                new JDBCTimestampPositionParser(), 1000L));
+        Assert.assertEquals(Collections.<Object>singletonList(
+                new Timestamp(1000L)), parameters.getValues());
+    }
+
+    @Test
+    public void testWhereClauseBound() {
+        SqlParameters parameters = new SqlParameters(true);
+        Assert.assertEquals("WHERE a1.start_time >= ? AND a1.start_time <= ? "
+                + "AND (a1.dose = ?) AND (a1.code = ?) "
+                + "AND a1.patient_key IN (?,?)",
+                newWhereClause().generateClause(parameters));
+        Assert.assertEquals(Arrays.<Object>asList(new Timestamp(1000L),
+                new Timestamp(2000L), new BigDecimal(5), "123", "1", "2"),
+                parameters.getValues());
+    }
+
+    @Test
+    public void testWhereClauseInlined() {
+        SqlParameters parameters = new SqlParameters(false);
+        String clause = newWhereClause().generateClause(parameters);
+        Assert.assertFalse(clause.contains("?"));
+        Assert.assertTrue(clause.contains("(a1.dose = 5)"));
+        Assert.assertTrue(parameters.getValues().isEmpty());
+    }
+
+    @Test
+    public void testStringsBoundWithParameterType() throws SQLException {
+        SqlParameters parameters = new SqlParameters(true);
+        parameters.prepareValue("123");
+        parameters.prepareValue(5);
+        parameters.prepareValue("abc");
+        FakePreparedStatement stmt = new FakePreparedStatement(
+                new int[]{Types.INTEGER, Types.INTEGER, Types.OTHER});
+        parameters.bind(stmt.newProxy());
+        Assert.assertEquals(Arrays.<Object>asList(
+                Arrays.<Object>asList(1, "123", Types.INTEGER),
+                Arrays.<Object>asList(2, 5),
+                Arrays.<Object>asList(3, "abc", Types.VARCHAR)),
+                stmt.calls);
+    }
+
+    @Test
+    public void testStringsBoundAsVarcharWithoutParameterTypes()
+            throws SQLException {
+        SqlParameters parameters = new SqlParameters(true);
+        parameters.prepareValue("123");
+        FakePreparedStatement stmt = new FakePreparedStatement(null);
+        parameters.bind(stmt.newProxy());
+        Assert.assertEquals(Collections.<Object>singletonList(
+                Arrays.<Object>asList(1, "123", Types.VARCHAR)), stmt.calls);
+    }
+
+    private static TableAliaser newAliaser() {
+        return new TableAliaser(Arrays.asList(
+                new IntColumnSpecWrapper(KEY_SPEC),
+                new IntColumnSpecWrapper(START_SPEC),
+                new IntColumnSpecWrapper(CODE_SPEC),
+                new IntColumnSpecWrapper(DOSE_SPEC)));
+    }
+
+    private static WhereClause newWhereClause() {
+        EntitySpec entitySpec = new EntitySpec("Encounter", null,
+                new String[]{"PropA"}, false, KEY_SPEC, new ColumnSpec[]{KEY_SPEC},
+                START_SPEC, null,
+                new PropertySpec[]{new PropertySpec("dose", null, DOSE_SPEC,
+                            ValueType.NUMBERVALUE)},
+                new ReferenceSpec[0], null, CODE_SPEC, new ColumnSpec[0],
+                null, null, null,
+                new JDBCTimestampPositionParser(), null);
+        Set<Filter> filters = new LinkedHashSet<>();
+        filters.add(new PositionFilter(new String[]{"PropA"}, 1000L, null,
+                2000L, null));
+        filters.add(new PropertyValueFilter(new String[]{"PropA"}, "dose",
+                ValueComparator.EQUAL_TO, NumberValue.getInstance(5)));
+        ColumnSpecInfo info = new ColumnSpecInfo();
+        info.setColumnSpecs(Arrays.asList(new IntColumnSpecWrapper(KEY_SPEC)));
+        return new DefaultWhereClause(Collections.singleton("PropA"), info,
+                Collections.singletonList(entitySpec), filters, newAliaser(),
+                new LinkedHashSet<>(Arrays.asList("1", "2")), null, null,
+                null);
+    }
+
+    /**
+     * A prepared statement that records its <code>setObject</code> calls,
+     * and whose parameter metadata reports the given types.
+     */
+    private static final class FakePreparedStatement {
+
+        private final int[] parameterTypes;
+        private final List<Object> calls = new ArrayList<>();
+
+        /**
+         * @param parameterTypes the parameter types, or <code>null</code>
+         * if the parameter metadata is not supported.
+         */
+        FakePreparedStatement(int[] parameterTypes) {
+            this.parameterTypes = parameterTypes;
+        }
+
+        PreparedStatement newProxy() {
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) throws SQLException {
+                    switch (method.getName()) {
+                        case "setObject":
+                            calls.add(Arrays.asList(args));
+                            return null;
+                        case "getParameterMetaData":
+                            if (parameterTypes == null) {
+                                throw new SQLFeatureNotSupportedException();
+                            }
+                            return newMetaData();
+                        default:
+                            throw new UnsupportedOperationException(
+                                    method.getName());
+                    }
+                }
+            });
+        }
+
+        private ParameterMetaData newMetaData() {
+            return (ParameterMetaData) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[]{ParameterMetaData.class},
+                    new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) {
+                    if ("getParameterType".equals(method.getName())) {
+                        return parameterTypes[(Integer) args[0] - 1];
+                    }
+                    throw new UnsupportedOperationException(
+                            method.getName());
+                }
+            });
+        }
+    }
+}
@@ -38,10 +38,7 @@ public abstract class AbstractCombinerConsequence<P extends Proposition> impleme
     
     private static final Logger LOGGER = Logger.getLogger(AbstractCombinerConsequence.class.getName());
 
-    private final DerivationsBuilder derivationsBuilder;
-
-    AbstractCombinerConsequence(DerivationsBuilder derivationsBuilder) {
-        this.derivationsBuilder = derivationsBuilder;
+    AbstractCombinerConsequence() {
     }
     
     @Override
@@ -57,15 +54,17 @@ public abstract class AbstractCombinerConsequence<P extends Proposition> impleme
         kh.retract(a1f);
         kh.retract(a2f);
         kh.insertLogical(result);
-        Set<Proposition> a1PropBackward = this.derivationsBuilder.propositionRetractedBackward(a1);
-        Set<Proposition> a2PropBackward = this.derivationsBuilder.propositionRetractedBackward(a2);
+        DerivationsBuilder derivationsBuilder = 
+                WorkingMemoryGlobals.getDerivationsBuilder(wm);
+        Set<Proposition> a1PropBackward = derivationsBuilder.propositionRetractedBackward(a1);
+        Set<Proposition> a2PropBackward = derivationsBuilder.propositionRetractedBackward(a2);
         for (Proposition prop : a1PropBackward) {
-            this.derivationsBuilder.propositionReplaceForward(prop, a1, result);
-            this.derivationsBuilder.propositionAssertedBackward(prop, result);
+            derivationsBuilder.propositionReplaceForward(prop, a1, result);
+            derivationsBuilder.propositionAssertedBackward(prop, result);
         }
         for (Proposition prop : a2PropBackward) {
-            this.derivationsBuilder.propositionReplaceForward(prop, a2, result);
-            this.derivationsBuilder.propositionAssertedBackward(prop, result);
+            derivationsBuilder.propositionReplaceForward(prop, a2, result);
+            derivationsBuilder.propositionAssertedBackward(prop, result);
         }
         LOGGER.log(Level.FINER, "Asserted derived proposition {0}", result);
     }
@@ -19,6 +19,8 @@
  */
 package org.protempa;
 
+import java.util.Collection;
+import java.util.Map;
 import org.drools.RuleBase;
 import org.protempa.query.Query;
 
@@ -62,31 +64,106 @@ abstract class AbstractExecutionStrategy implements ExecutionStrategy {
     @Override
     public void initialize(PropositionDefinitionCache cache)
             throws ExecutionStrategyInitializationException {
+        initialize(cache, null);
+    }
+
+    /**
+     * Initializes this execution strategy, optionally with a rule base that
+     * was compiled by another execution strategy for the same query. Rule
+     * bases do not hold any per-key state, so they may be shared by execution
+     * strategies running in different threads.
+     *
+     * @param cache the proposition definitions needed by the query. Cannot be
+     * <code>null</code>.
+     * @param ruleBase a previously compiled rule base, or <code>null</code> 
+     * to compile a new one.
+     * @throws ExecutionStrategyInitializationException if an error occurs.
+     */
+    @Override
+    public void initialize(PropositionDefinitionCache cache, RuleBase ruleBase)
+            throws ExecutionStrategyInitializationException {
         if (cache == null) {
             throw new IllegalArgumentException("cache cannot be null");
         }
         this.cache = cache;
-        createRuleBase();
+        if (ruleBase != null) {
+            this.ruleBase = ruleBase;
+        } else {
+            createRuleBase();
+        }
     }
 
-    protected RuleBase getRuleBase() {
+    @Override
+    public RuleBase getRuleBase() {
         return this.ruleBase;
     }
 
     private void createRuleBase() throws ExecutionStrategyInitializationException {
-        JBossRuleCreator ruleCreator = newRuleCreator();
+        this.ruleBase = newRuleBase();
+    }
+
+    /**
+     * Called by {@link #initialize(org.protempa.PropositionDefinitionCache, org.drools.RuleBase) }
+     * when no rule base was supplied. Implementations select the proposition
+     * definitions to translate into rules and call
+     * {@link #getOrCreateRuleBase(java.util.Collection, org.protempa.PropositionDefinitionCache) }.
+     *
+     * @return a rule base.
+     * @throws ExecutionStrategyInitializationException if an error occurs.
+     */
+    protected abstract RuleBase newRuleBase() throws ExecutionStrategyInitializationException;
+
+    /**
+     * Gets a compiled rule base for the given proposition definitions from
+     * the process-wide {@link RuleBaseCache}, or translates and compiles one
+     * and adds it to the cache.
+     *
+     * @param propDefs the proposition definitions to translate into rules.
+     * Cannot be <code>null</code>.
+     * @param cache the proposition definitions that the rules may refer to.
+     * Cannot be <code>null</code>.
+     * @return a rule base.
+     * @throws ExecutionStrategyInitializationException if an algorithm could
+     * not be found or the rule base could not be compiled.
+     */
+    protected final RuleBase getOrCreateRuleBase(
+            Collection<PropositionDefinition> propDefs,
+            PropositionDefinitionCache cache)
+            throws ExecutionStrategyInitializationException {
+        ValidateAlgorithmCheckedVisitor visitor
+                = new ValidateAlgorithmCheckedVisitor(getAlgorithmSource());
         try {
-            this.ruleBase = new JBossRuleBaseFactory(ruleCreator).newInstance();
+            visitor.visit(propDefs);
+        } catch (ProtempaException ex) {
+            throw new ExecutionStrategyInitializationException(ex);
+        }
+        Map<LowLevelAbstractionDefinition, Algorithm> algorithms
+                = visitor.getAlgorithms();
+        RuleBaseCache ruleBaseCache = RuleBaseCache.getInstance();
+        String fingerprint
+                = ruleBaseCache.fingerprint(propDefs, cache, algorithms);
+        if (fingerprint != null) {
+            RuleBase result = ruleBaseCache.get(fingerprint);
+            if (result != null) {
+                return result;
+            }
+        }
+        JBossRuleCreator ruleCreator = new JBossRuleCreator(algorithms, cache);
+        try {
+            ruleCreator.visit(propDefs);
+        } catch (ProtempaException ex) {
+            throw new ExecutionStrategyInitializationException(ex);
+        }
+        RuleBase result;
+        try {
+            result = new JBossRuleBaseFactory(ruleCreator).newInstance();
         } catch (RuleBaseInstantiationException ex) {
             throw new ExecutionStrategyInitializationException(ex);
         }
+        if (fingerprint != null) {
+            ruleBaseCache.put(fingerprint, result);
+        }
+        return result;
     }
-    
-    /**
-     * Called by {@link #initialize(java.util.Collection) }.
-     * @return a newly created rule creator instance.
-     * @throws ExecutionStrategyInitializationException 
-     */
-    protected abstract JBossRuleCreator newRuleCreator() throws ExecutionStrategyInitializationException;
-    
+
 }
@@ -19,23 +19,26 @@
  */
 package org.protempa;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.drools.base.ClassObjectType;
 import org.drools.base.SalienceInteger;
-import org.drools.rule.EvalCondition;
+import org.drools.rule.Collect;
 import org.drools.rule.InvalidRuleException;
 import org.drools.rule.Pattern;
 import org.drools.rule.PredicateConstraint;
 import org.drools.rule.Rule;
-import org.drools.spi.Constraint;
 import org.protempa.proposition.AbstractParameter;
 
 /**
- * Represents rules that combine two abstract parameters with 1) the same
+ * Represents rules that combine abstract parameters with 1) the same
  * abstraction definition, 2) values, and 3) are within the minimum and maximum
- * gap defined in the abstraction definition.
+ * gap defined in the abstraction definition. Each rule collects all of an
+ * abstraction definition's abstract parameters and combines them in one pass
+ * (see {@link AbstractionCombinerConsequence}), rather than joining every
+ * pair of them.
  *
  * @author Andrew Post
  */
@@ -44,30 +47,27 @@ final class AbstractionCombiner implements RuleCreator<AbstractionDefinition> {
     private static final Logger LOGGER = Logger.getLogger(AbstractionCombiner.class.getName());
     private static final ClassObjectType ABSTRACT_PARAMETER_OBJECT_TYPE = new ClassObjectType(
             AbstractParameter.class);
+    private static final ClassObjectType ARRAY_LIST_OBJECT_TYPE = new ClassObjectType(
+            ArrayList.class);
 
     AbstractionCombiner() {
     }
 
     @Override
-    public void toRules(AbstractionDefinition d, List<Rule> rules,
-            DerivationsBuilder derivationsBuilder) {
+    public void toRules(AbstractionDefinition d, List<Rule> rules) {
         try {
             Rule rule = new Rule("ABSTRACTION_COMBINER_" + d.getId());
             rule.setSalience(new SalienceInteger(3));
-            Pattern p0 = new Pattern(0, ABSTRACT_PARAMETER_OBJECT_TYPE);
-            Constraint c0 = new PredicateConstraint(
-                    new ParameterPredicateExpression(d.getPropositionId(), null));
-            p0.addConstraint(c0);
-            Pattern p1 = new Pattern(1, ABSTRACT_PARAMETER_OBJECT_TYPE);
-            Constraint c1 = new PredicateConstraint(
-                    new ParameterPredicateExpression(d.getPropositionId(), null));
-            p1.addConstraint(c1);
-            rule.addPattern(p0);
-            rule.addPattern(p1);
-            rule.addPattern(new EvalCondition(
-                    new AbstractionCombinerCondition(d), null));
-            rule.setConsequence(new AbstractionCombinerConsequence(
-                    derivationsBuilder));
+            Pattern sourceP = new Pattern(2, 1, ABSTRACT_PARAMETER_OBJECT_TYPE, "");
+            PropositionIdConstraints.add(sourceP,
+                    ABSTRACT_PARAMETER_OBJECT_TYPE, d.getPropositionId());
+            Pattern resultP = new Pattern(1, 1, ARRAY_LIST_OBJECT_TYPE, "result");
+            resultP.setSource(new Collect(sourceP, new Pattern(1, 1,
+                    ARRAY_LIST_OBJECT_TYPE, "result")));
+            resultP.addConstraint(new PredicateConstraint(
+                    new CollectionSizeExpression(2)));
+            rule.addPattern(resultP);
+            rule.setConsequence(new AbstractionCombinerConsequence(d));
             rules.add(rule);
         } catch (InvalidRuleException e) {
             LOGGER.log(Level.SEVERE,
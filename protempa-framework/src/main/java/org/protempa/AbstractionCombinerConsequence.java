@@ -7,9 +7,9 @@
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *      http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -17,48 +17,225 @@
  * limitations under the License.
  * #L%
  */
-/*
- * To change this template, choose Tools | Templates
- * and open the template in the editor.
- */
 package org.protempa;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.drools.WorkingMemory;
+import org.drools.spi.Consequence;
+import org.drools.spi.KnowledgeHelper;
 import org.protempa.proposition.AbstractParameter;
 import org.protempa.proposition.ProviderBasedUniqueIdFactory;
-import org.protempa.proposition.Segment;
-import org.protempa.proposition.Sequence;
+import org.protempa.proposition.TemporalProposition;
 import org.protempa.proposition.UniqueIdFactory;
+import org.protempa.proposition.comparator.TemporalPropositionIntervalComparator;
+import org.protempa.proposition.interval.Interval;
+import org.protempa.proposition.interval.IntervalFactory;
 
 /**
+ * Combines the abstract parameters of an abstraction definition that have
+ * the same value and context and that are within the minimum and maximum gap
+ * defined in the abstraction definition. The abstract parameters are grouped
+ * by value and context, each group is sorted by interval, and adjacent
+ * abstract parameters are combined in a single pass over each group. The
+ * combined abstract parameters are retracted and replaced by one abstract
+ * parameter per run of combinable abstract parameters.
  *
  * @author Andrew Post
  */
-class AbstractionCombinerConsequence extends AbstractCombinerConsequence<AbstractParameter> {
-    private static final long serialVersionUID = -7984448674528718012L;
-    
-    public AbstractionCombinerConsequence(DerivationsBuilder derivationsBuilder) {
-        super(derivationsBuilder);
+final class AbstractionCombinerConsequence implements Consequence {
+
+    private static final long serialVersionUID = 4238307424946478614L;
+    private static final Logger LOGGER = Logger.getLogger(
+            AbstractionCombinerConsequence.class.getName());
+    private static final HorizontalTemporalInference HTI
+            = new HorizontalTemporalInference();
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+    private static final Comparator<TemporalProposition> INTERVAL_COMP
+            = new TemporalPropositionIntervalComparator();
+    private final AbstractionDefinition abstractionDefinition;
+
+    AbstractionCombinerConsequence(
+            AbstractionDefinition abstractionDefinition) {
+        assert abstractionDefinition != null :
+                "abstractionDefinition cannot be null";
+        this.abstractionDefinition = abstractionDefinition;
     }
 
     @Override
-    protected AbstractParameter newCombinedFact(AbstractParameter a1, 
-            AbstractParameter a2, WorkingMemory wm) {
-        String a1Id = a1.getId();
-        Sequence<AbstractParameter> s = new Sequence<>(a1Id, 2);
-        s.add(a1);
-        s.add(a2);
-        Segment<AbstractParameter> segment = new Segment<>(s);
-        JBossRulesDerivedLocalUniqueIdValuesProvider provider = 
-                new JBossRulesDerivedLocalUniqueIdValuesProvider(wm, a1Id);
+    public void evaluate(KnowledgeHelper kh, WorkingMemory wm)
+            throws Exception {
+        @SuppressWarnings("unchecked")
+        List<AbstractParameter> pl = (List<AbstractParameter>) kh.get(
+                kh.getDeclaration("result"));
+        Map<List<Object>, List<AbstractParameter>> groups
+                = new LinkedHashMap<>();
+        for (AbstractParameter ap : pl) {
+            List<Object> key = Arrays.<Object>asList(ap.getValue(),
+                    ap.getContextId());
+            List<AbstractParameter> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(ap);
+        }
+
+        List<List<AbstractParameter>> runs = new ArrayList<>();
+        List<Interval> runIntervals = new ArrayList<>();
+        for (List<AbstractParameter> group : groups.values()) {
+            if (group.size() > 1) {
+                combine(group, runs, runIntervals);
+            }
+        }
+
+        if (!runs.isEmpty()) {
+            /*
+             * Retract before inserting so that the combined propositions are
+             * not retracted along with this activation.
+             */
+            for (List<AbstractParameter> run : runs) {
+                for (AbstractParameter ap : run) {
+                    kh.retract(ap);
+                }
+            }
+            DerivationsBuilder derivationsBuilder
+                    = WorkingMemoryGlobals.getDerivationsBuilder(wm);
+            for (int i = 0, n = runs.size(); i < n; i++) {
+                List<AbstractParameter> run = runs.get(i);
+                AbstractParameter result = newCombinedFact(run,
+                        runIntervals.get(i), wm);
+                kh.insertLogical(result);
+                derivationsBuilder.propositionsCombined(run, result);
+                if (LOGGER.isLoggable(Level.FINEST)) {
+                    LOGGER.log(Level.FINEST, "Created {0} from {1}",
+                            new Object[]{result, run});
+                }
+                LOGGER.log(Level.FINER, "Asserted derived proposition {0}",
+                        result);
+            }
+        }
+    }
+
+    /**
+     * Sorts a group of abstract parameters with the same value and context
+     * by interval, and collects the runs of two or more adjacent abstract
+     * parameters that should be combined.
+     *
+     * @param group the abstract parameters.
+     * @param runs the runs of abstract parameters to combine.
+     * @param runIntervals the intervals of the combined abstract parameters,
+     * one per run.
+     */
+    private void combine(List<AbstractParameter> group,
+            List<List<AbstractParameter>> runs, List<Interval> runIntervals) {
+        Collections.sort(group, INTERVAL_COMP);
+        GapFunction gapFunction = this.abstractionDefinition.getGapFunction();
+        List<AbstractParameter> run = new ArrayList<>();
+        IntervalUnion union = null;
+        for (AbstractParameter ap : group) {
+            Interval ival = ap.getInterval();
+            if (union != null) {
+                Interval runIval = union.getInterval();
+                if (HTI.execute(this.abstractionDefinition, runIval, ival)
+                        || gapFunction.execute(runIval, ival)) {
+                    run.add(ap);
+                    union.add(ival);
+                    continue;
+                }
+                if (run.size() > 1) {
+                    runs.add(run);
+                    runIntervals.add(union.getInterval());
+                    run = new ArrayList<>();
+                } else {
+                    run.clear();
+                }
+            }
+            run.add(ap);
+            union = new IntervalUnion(ival);
+        }
+        if (run.size() > 1) {
+            runs.add(run);
+            runIntervals.add(union.getInterval());
+        }
+    }
+
+    private static AbstractParameter newCombinedFact(
+            List<AbstractParameter> run, Interval interval,
+            WorkingMemory wm) {
+        AbstractParameter first = run.get(0);
+        String id = first.getId();
+        JBossRulesDerivedLocalUniqueIdValuesProvider provider
+                = new JBossRulesDerivedLocalUniqueIdValuesProvider(wm, id);
         UniqueIdFactory factory = new ProviderBasedUniqueIdFactory(provider);
-        AbstractParameter result = new AbstractParameter(a1Id, factory.getInstance());
+        AbstractParameter result = new AbstractParameter(id,
+                factory.getInstance());
         result.setSourceSystem(SourceSystem.DERIVED);
-        result.setInterval(segment.getInterval());
-        result.setValue(a1.getValue());
+        result.setInterval(interval);
+        result.setValue(first.getValue());
+        result.setContextId(first.getContextId());
         result.setCreateDate(new Date());
         return result;
     }
-    
+
+    /**
+     * Computes incrementally the interval of a
+     * {@link org.protempa.proposition.Segment} of temporal propositions that
+     * are added in interval order, with the earliest start of the first
+     * interval, the earliest of the latest starts, the latest of the
+     * earliest finishes, and the latest finish.
+     */
+    private static final class IntervalUnion {
+
+        private final Interval first;
+        private Interval maxStartIval;
+        private Interval minFinishIval;
+        private Interval maxFinishIval;
+        private Interval interval;
+
+        IntervalUnion(Interval first) {
+            this.first = first;
+            this.maxStartIval = first;
+            this.minFinishIval = first;
+            this.maxFinishIval = first;
+            this.interval = first;
+        }
+
+        void add(Interval ival) {
+            Long maxStart = ival.getMaximumStart();
+            Long runMaxStart = this.maxStartIval.getMaximumStart();
+            if (maxStart != null
+                    && (runMaxStart == null || maxStart < runMaxStart)) {
+                this.maxStartIval = ival;
+            }
+            Long minFinish = ival.getMinimumFinish();
+            Long runMinFinish = this.minFinishIval.getMinimumFinish();
+            if (minFinish != null
+                    && (runMinFinish == null || minFinish > runMinFinish)) {
+                this.minFinishIval = ival;
+            }
+            if (ival.maximumFinish() > this.maxFinishIval.maximumFinish()) {
+                this.maxFinishIval = ival;
+            }
+            this.interval = INTERVAL_FACTORY.getInstance(
+                    this.first.getMinStart(), this.maxStartIval.getMaxStart(),
+                    this.first.getStartGranularity(),
+                    this.minFinishIval.getMinFinish(),
+                    this.maxFinishIval.getMaxFinish(),
+                    this.maxFinishIval.getFinishGranularity());
+        }
+
+        Interval getInterval() {
+            return this.interval;
+        }
+    }
 }
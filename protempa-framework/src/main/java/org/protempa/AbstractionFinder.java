@@ -75,6 +75,7 @@ final class AbstractionFinder {
                 new SourceListener<KnowledgeSourceUpdatedEvent>() {
             @Override
             public void sourceUpdated(KnowledgeSourceUpdatedEvent event) {
+                RuleBaseCache.getInstance().clear();
             }
 
             @Override
@@ -88,6 +89,7 @@ final class AbstractionFinder {
                 new SourceListener<AlgorithmSourceUpdatedEvent>() {
             @Override
             public void sourceUpdated(AlgorithmSourceUpdatedEvent event) {
+                RuleBaseCache.getInstance().clear();
             }
 
             @Override
@@ -0,0 +1,74 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Segment;
+import org.protempa.proposition.value.Value;
+
+/**
+ * The running state of an {@link IncrementalAlgorithm} over a sliding window
+ * of a sequence. Parameters are added to the end of the window and removed
+ * from its start as the window slides forward, so that the algorithm's
+ * result can be updated rather than computed again from the whole window.
+ * Parameters are identified by their index in the {@link ParameterColumns}
+ * view of the sequence that the window was created with.
+ *
+ * @author Andrew Post
+ */
+public interface AlgorithmWindow {
+
+    /**
+     * Adds a parameter to the end of the window.
+     *
+     * @param index the parameter's index in the column view.
+     */
+    void add(int index);
+
+    /**
+     * Removes the first parameter of the window.
+     *
+     * @param index the index of the window's first parameter in the column
+     * view.
+     */
+    void remove(int index);
+
+    /**
+     * Removes all parameters from the window.
+     */
+    void clear();
+
+    /**
+     * Computes whether or not a temporal abstraction exists in the window.
+     *
+     * @param segment a <code>Segment</code> with the parameters that are in
+     * the window, in the same order.
+     * @return <code>null</code> if the pattern does not exist, or an
+     * algorithm-specific <code>Value</code> if it does. Must return the same
+     * value as {@link Algorithm#compute(Segment, AlgorithmArguments)} on the
+     * segment. Windows that keep running floating point sums, which round
+     * differently than computing from the segment, must compute from the
+     * segment when a comparison is close enough to a tie that rounding
+     * could change its outcome.
+     * @throws AlgorithmProcessingException if an error occurred.
+     */
+    Value compute(Segment<PrimitiveParameter> segment)
+            throws AlgorithmProcessingException;
+}
@@ -19,12 +19,10 @@ package org.protempa;
  * limitations under the License.
  * #L%
  */
+import java.util.BitSet;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
-import org.arp.javautil.arrays.Arrays;
 
 /**
  *
@@ -36,6 +34,7 @@ class CollectSubtreeGetterSlowStrategy {
     private final PropositionDefinitionWalker propDefWalker;
     private final PropIdWalker propIdWalker;
     private final boolean narrower;
+    private TransitiveClosureIndex index;
 
     CollectSubtreeGetterSlowStrategy(Map<String, PropositionDefinition> propositionDefinitionMap, boolean narrower) {
         assert propositionDefinitionMap != null : "propositionDefinitionMap cannot be null";
@@ -83,26 +82,33 @@ class CollectSubtreeGetterSlowStrategy {
         return this.propDefWalker.walkNarrowerPropDefs(inDataSourceOnly, propIds);
     }
 
+    /**
+     * Creates the descendants index on first use, because the proposition
+     * definition map is not read until a subtree is requested.
+     */
+    private synchronized TransitiveClosureIndex getIndex() {
+        if (this.index == null) {
+            this.index = new TransitiveClosureIndex(
+                    this.propositionDefinitionMap, this.narrower);
+        }
+        return this.index;
+    }
+
     private abstract class Walker<E> {
 
         InDataSourceResult<E> walkNarrowerPropDefs(boolean inDataSource, Set<String> propIds) {
             Set<E> found = new HashSet<>();
             Set<String> missing = new HashSet<>();
-            Queue<String> queue = new LinkedList<>(propIds);
-            while (!queue.isEmpty()) {
-                String propId = queue.poll();
-                PropositionDefinition pd = propositionDefinitionMap.get(propId);
+            TransitiveClosureIndex idx = getIndex();
+            BitSet closure = idx.closure(propIds, missing);
+            for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) {
+                PropositionDefinition pd = idx.getPropDef(i);
                 if (pd != null) {
                     if (!inDataSource || pd.getInDataSource()) {
-                        addToFound(propId, pd, found);
-                    }
-                    if (narrower) {
-                        Arrays.addAll(queue, pd.getChildren());
-                    } else {
-                        Arrays.addAll(queue, pd.getInverseIsA());
+                        addToFound(idx.getPropId(i), pd, found);
                     }
                 } else {
-                    missing.add(propId);
+                    missing.add(idx.getPropId(i));
                 }
             }
             InDataSourceResult<E> inDataSourceResult = new InDataSourceResult<>(found, missing);
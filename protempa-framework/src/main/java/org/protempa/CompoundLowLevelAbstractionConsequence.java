@@ -50,7 +50,6 @@ final class CompoundLowLevelAbstractionConsequence implements Consequence {
 
     private static final long serialVersionUID = 6456351279290509422L;
     private final CompoundLowLevelAbstractionDefinition cllad;
-    private final DerivationsBuilder derivationsBuilder;
     private final static Logger LOGGER = Logger.getLogger(CompoundLowLevelAbstractionConsequence.class.getName());
 
     /**
@@ -58,15 +57,11 @@ final class CompoundLowLevelAbstractionConsequence implements Consequence {
      *
      * @param def the {@link CompoundLowLevelAbstractionDefinition} this is a
      * consequence for
-     * @param derivationsBuilder the {@link DerivationsBuilder} to add asserted
-     * propositions to
      */
     CompoundLowLevelAbstractionConsequence(
-            CompoundLowLevelAbstractionDefinition def,
-            DerivationsBuilder derivationsBuilder) {
+            CompoundLowLevelAbstractionDefinition def) {
         assert def != null : "def cannot be null";
         this.cllad = def;
-        this.derivationsBuilder = derivationsBuilder;
     }
 
     @Override
@@ -171,6 +166,9 @@ final class CompoundLowLevelAbstractionConsequence implements Consequence {
     private void assertDerivedProposition(KnowledgeHelper knowledgeHelper,
             AbstractParameter derived, Set<AbstractParameter> sources) {
         knowledgeHelper.insertLogical(derived);
+        DerivationsBuilder derivationsBuilder = 
+                WorkingMemoryGlobals.getDerivationsBuilder(
+                        knowledgeHelper.getWorkingMemory());
         for (AbstractParameter parameter : sources) {
             derivationsBuilder.propositionAsserted(parameter, derived);
         }
@@ -27,9 +27,7 @@ import org.drools.base.SalienceInteger;
 import org.drools.rule.EvalCondition;
 import org.drools.rule.InvalidRuleException;
 import org.drools.rule.Pattern;
-import org.drools.rule.PredicateConstraint;
 import org.drools.rule.Rule;
-import org.drools.spi.Constraint;
 import org.protempa.proposition.Context;
 
 /**
@@ -43,25 +41,21 @@ final class ContextCombiner implements RuleCreator<ContextDefinition> {
             = new ClassObjectType(Context.class);
 
     @Override
-    public void toRules(ContextDefinition d, List<Rule> rules,
-            DerivationsBuilder derivationsBuilder) {
+    public void toRules(ContextDefinition d, List<Rule> rules) {
         try {
             Rule rule = new Rule("CONTEXT_COMBINER_" + d.getId());
             rule.setSalience(new SalienceInteger(3));
             Pattern p0 = new Pattern(0, CONTEXT_OBJECT_TYPE);
-            Constraint c0 = new PredicateConstraint(
-                    new PropositionPredicateExpression(d.getPropositionId()));
-            p0.addConstraint(c0);
+            PropositionIdConstraints.add(p0, CONTEXT_OBJECT_TYPE,
+                    d.getPropositionId());
             Pattern p1 = new Pattern(1, CONTEXT_OBJECT_TYPE);
-            Constraint c1 = new PredicateConstraint(
-                    new PropositionPredicateExpression(d.getPropositionId()));
-            p1.addConstraint(c1);
+            PropositionIdConstraints.add(p1, CONTEXT_OBJECT_TYPE,
+                    d.getPropositionId());
             rule.addPattern(p0);
             rule.addPattern(p1);
             rule.addPattern(new EvalCondition(
                     new ContextCombinerCondition(d), null));
-            rule.setConsequence(new ContextCombinerConsequence(
-                    derivationsBuilder));
+            rule.setConsequence(new ContextCombinerConsequence());
             rules.add(rule);
         } catch (InvalidRuleException e) {
             LOGGER.log(Level.SEVERE,
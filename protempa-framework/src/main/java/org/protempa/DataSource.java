@@ -116,6 +116,16 @@ public interface DataSource extends Source<DataSourceUpdatedEvent,
     
     void writeKeys(Set<String> keyIds) throws DataSourceWriteException;
     
+    /**
+     * Returns a writer for loading key ids into this data source one at a
+     * time. It is an alternative to {@link #writeKeys(java.util.Set) } for
+     * large key sets.
+     *
+     * @return a {@link KeyWriter}. It must be closed after use.
+     * @throws DataSourceWriteException if the writer could not be created.
+     */
+    KeyWriter newKeyWriter() throws DataSourceWriteException;
+
     void writeKeysFromKeySet(KeySetQueryResultsHandler queryResultsHandler) throws DataSourceWriteException;
 
 }
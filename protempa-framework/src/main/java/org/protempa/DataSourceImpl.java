@@ -235,6 +235,30 @@ public final class DataSourceImpl extends AbstractSource<DataSourceUpdatedEvent,
         }
     }
 
+    @Override
+    public KeyWriter newKeyWriter() throws DataSourceWriteException {
+        List<KeyWriter> writers = new ArrayList<>();
+        try {
+            for (DataSourceBackend backend : getBackends()) {
+                try {
+                    writers.add(backend.newKeyWriter());
+                } catch (Error | RuntimeException ex) {
+                    throw new DataSourceWriteException("Unexpected error accessing " + backend.getDisplayName(), ex);
+                }
+            }
+        } catch (DataSourceWriteException ex) {
+            for (KeyWriter writer : writers) {
+                try {
+                    writer.discard();
+                } catch (DataSourceWriteException ignore) {
+                    ex.addSuppressed(ignore);
+                }
+            }
+            throw ex;
+        }
+        return new MultiplexingKeyWriter(writers);
+    }
+
     @Override
     public void writeKeysFromKeySet(KeySetQueryResultsHandler queryResultsHandler) throws DataSourceWriteException {
         for (DataSourceBackend backend : getBackends()) {
@@ -293,4 +317,55 @@ public final class DataSourceImpl extends AbstractSource<DataSourceUpdatedEvent,
             throw new IllegalArgumentException("propIds cannot be null");
         }
     }
+
+    /**
+     * Writes key ids to the key writers of all of the backends.
+     */
+    private static final class MultiplexingKeyWriter implements KeyWriter {
+
+        private final List<KeyWriter> writers;
+
+        MultiplexingKeyWriter(List<KeyWriter> writers) {
+            this.writers = writers;
+        }
+
+        @Override
+        public void write(String keyId) throws DataSourceWriteException {
+            for (KeyWriter writer : this.writers) {
+                writer.write(keyId);
+            }
+        }
+
+        @Override
+        public void close() throws DataSourceWriteException {
+            closeAll(true);
+        }
+
+        @Override
+        public void discard() throws DataSourceWriteException {
+            closeAll(false);
+        }
+
+        private void closeAll(boolean commit) throws DataSourceWriteException {
+            DataSourceWriteException exceptionThrown = null;
+            for (KeyWriter writer : this.writers) {
+                try {
+                    if (commit) {
+                        writer.close();
+                    } else {
+                        writer.discard();
+                    }
+                } catch (DataSourceWriteException ex) {
+                    if (exceptionThrown == null) {
+                        exceptionThrown = ex;
+                    } else {
+                        exceptionThrown.addSuppressed(ex);
+                    }
+                }
+            }
+            if (exceptionThrown != null) {
+                throw exceptionThrown;
+            }
+        }
+    }
 }
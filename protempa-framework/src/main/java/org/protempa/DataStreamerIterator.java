@@ -20,7 +20,8 @@
 package org.protempa;
 
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import org.protempa.proposition.Proposition;
 
@@ -29,17 +30,74 @@ import org.protempa.proposition.Proposition;
  * iterator. While {@link DataStreamer} implements pushing data from a data
  * source to the caller, this iterator supports pulling data from the data 
  * source.
+ * 
+ * Elements with the same key id are returned in passes over the iterators in
+ * the order they were given, one element per iterator per pass. The
+ * iterators' current elements are kept sorted by key id, so that the
+ * iterators in a pass are found together at the front, and an iterator that
+ * moves on to a later key id is put back in its place with a binary search.
+ * Getting each element thus takes time logarithmic in the number of
+ * iterators when few of them share a key id, and about constant time when
+ * many do.
+ * 
  * @author Andrew Post
  */
 final class DataStreamerIterator<E extends Proposition> implements AutoCloseable {
 
+    /**
+     * The most recent element retrieved from one of the iterators.
+     */
+    private static final class Head<E> {
+
+        private final int index;
+        private DataStreamingEvent<E> event;
+
+        Head(int index) {
+            this.index = index;
+        }
+    }
+
+    private static final Comparator<Head<?>> HEAD_COMPARATOR
+            = new Comparator<Head<?>>() {
+                @Override
+                public int compare(Head<?> o1, Head<?> o2) {
+                    int result = o1.event.getKeyId().compareTo(
+                            o2.event.getKeyId());
+                    if (result != 0) {
+                        return result;
+                    }
+                    return Integer.compare(o1.index, o2.index);
+                }
+            };
+
     private final List<DataStreamingEventIterator<E>> itrs;
-    private final List<DataStreamingEvent<E>> currentElt;
+    /*
+     * The iterators in the current pass are in [passStart, passEnd), in
+     * index order. The iterators that are not in a pass are in [headsStart,
+     * headsEnd), sorted by key id and then by index. The slots in between
+     * are free.
+     */
+    private final Head<E>[] heads;
+    private int passStart;
+    private int passPosition;
+    private int passEnd;
+    private int headsStart;
+    private int headsEnd;
+    /*
+     * The iterators from the current pass that have another element with the
+     * pass's key id. They are moved to the front of the pass as it goes.
+     */
+    private int nextPassSize;
+    /*
+     * The iterators from the current pass that have moved on to a later key
+     * id, in index order.
+     */
+    private final Head<E>[] moved;
+    private int movedSize;
+    private String passKeyId;
     private boolean hasNext;
     private DataStreamingEvent<E> result;
     private boolean hasNextComputed;
-    private int i = 0;
-    private DataStreamingEvent<E> currentMin;
     private String nextKeyId;
 
     /**
@@ -50,38 +108,29 @@ final class DataStreamerIterator<E extends Proposition> implements AutoCloseable
      * @throws SQLException if an error occurred querying the underlying
      * database during iteration.
      */
+    @SuppressWarnings("unchecked")
     DataStreamerIterator(List<DataStreamingEventIterator<E>> itrs) 
             throws DataSourceReadException {
         assert itrs != null : "itrs cannot be null";
         this.itrs = itrs;
-        this.currentElt = new ArrayList<>(itrs.size());
         int itrsSize = itrs.size();
-        for (int j = 0; j < itrsSize; j++) {
-            this.currentElt.add(null);
-        }
+        this.heads = new Head[itrsSize];
+        this.moved = new Head[itrsSize];
         /*
-         * Stores the most recent element retrieved from each iterator.
-         */
-        /*
-         * Stores the most recent element retrieved from each iterator.
+         * Retrieve the first element from each iterator.
          */
         for (int j = 0; j < itrsSize; j++) {
-            advance(j);
+            Head<E> head = new Head<>(j);
+            if (advance(head)) {
+                this.heads[this.headsEnd++] = head;
+            }
         }
+        Arrays.sort(this.heads, 0, this.headsEnd, HEAD_COMPARATOR);
         /*
          * If the iterators have no elements, cut to the chase and arrange for
          * {@link #hasNext()} to return immediately.
          */
-        /*
-         * If the iterators have no elements, cut to the chase and arrange for
-         * {@link #hasNext()} to return immediately.
-         */
-        for (DataStreamingEvent<E> event : this.currentElt) {
-            if (event != null) {
-                this.hasNext = true;
-                break;
-            }
-        }
+        this.hasNext = this.headsEnd > 0;
     }
 
     String getNextKeyId() {
@@ -89,9 +138,8 @@ final class DataStreamerIterator<E extends Proposition> implements AutoCloseable
     }
 
     /**
-     * We loop through the iterators passed into the constructor and return
-     * whether the the next item in at least one iterator is for the right
-     * keyId.
+     * Returns whether any of the iterators passed into the constructor has
+     * another element. The next element is the one with the smallest key id.
      *
      * @return
      * <code>true</code> or
@@ -99,52 +147,24 @@ final class DataStreamerIterator<E extends Proposition> implements AutoCloseable
      */
     boolean hasNext() throws DataSourceReadException {
         if (!hasNextComputed) {
-            boolean stayInLoop;
-            do {
-                stayInLoop = false;
-                /*
-                 * Prior to reading the first iterator, we loop through all of
-                 * the iterators to determine the minimum keyId. The minimum
-                 * keyId, stored in currentMin, is used for data retrieval. The
-                 * value of currentMin will be null if there is no data to
-                 * retrieve.
-                 */
-                if (i == 0) {
-                    this.currentMin = null;
-                    for (DataStreamingEvent<E> elt : this.currentElt) {
-                        currentMin = min(elt);
-                    }
-                }
-                /*
-                 * If there is no data to retrieve, we'll return false. If there
-                 * is data to retrieve, we'll loop through the iterators and
-                 * pull data for the current keyId, which is the keyId field of
-                 * currentMin. If there's no data for the current keyId, this
-                 * should loop through all of the iterators until their ends,
-                 * and set hasNext to false.
-                 */
-                if (currentMin == null) {
-                    this.hasNext = false;
-                } else {
-                    int n = this.currentElt.size();
-                    for (; i < n; i++) {
-                        DataStreamingEvent<E> elt = this.currentElt.get(i);
-                        if (elt != null && elt.getKeyId().equals(
-                                this.currentMin != null 
-                                ? this.currentMin.getKeyId() : null)) {
-                            this.result = elt;
-                            this.nextKeyId = elt.getKeyId();
-                            advance(i);
-                            i++;
-                            break;
-                        }
-                    }
-                    if (this.i == n && this.result == null) {
-                        this.i = 0;
-                        stayInLoop = true;
+            if (this.passPosition == this.passEnd) {
+                nextPass();
+            }
+            if (this.passPosition < this.passEnd) {
+                Head<E> head = this.heads[this.passPosition++];
+                this.result = head.event;
+                this.nextKeyId = head.event.getKeyId();
+                if (advance(head)) {
+                    if (this.passKeyId.equals(head.event.getKeyId())) {
+                        this.heads[this.passStart + this.nextPassSize++]
+                                = head;
+                    } else {
+                        this.moved[this.movedSize++] = head;
                     }
                 }
-            } while (this.hasNext && stayInLoop);
+            } else {
+                this.hasNext = false;
+            }
             this.hasNextComputed = true;
         }
         return hasNext;
@@ -159,25 +179,64 @@ final class DataStreamerIterator<E extends Proposition> implements AutoCloseable
         return r;
     }
 
-    private void advance(int j) 
-            throws DataSourceReadException {
-        DataStreamingEventIterator<E> itr = this.itrs.get(j);
-        if (itr.hasNext()) {
-            DataStreamingEvent<E> next = itr.next();
-            this.currentElt.set(j, next);
-        } else {
-            this.currentElt.set(j, null);
+    /**
+     * Finishes the current pass and starts the next one. The iterators that
+     * moved on to a later key id are put back in the sorted heads. If none of
+     * the iterators has another element with the current pass's key id, the
+     * next pass is all of the iterators with the smallest remaining key id.
+     */
+    private void nextPass() {
+        if (this.movedSize > 0) {
+            insertMoved();
+        }
+        this.passPosition = this.passStart;
+        this.passEnd = this.passStart + this.nextPassSize;
+        if (this.nextPassSize == 0 && this.headsStart < this.headsEnd) {
+            this.passStart = this.passPosition = this.headsStart;
+            this.passKeyId = this.heads[this.headsStart].event.getKeyId();
+            int end = this.headsStart + 1;
+            while (end < this.headsEnd && this.passKeyId.equals(
+                    this.heads[end].event.getKeyId())) {
+                end++;
+            }
+            this.passEnd = this.headsStart = end;
         }
+        this.nextPassSize = 0;
     }
 
-    private DataStreamingEvent min(DataStreamingEvent elt2) {
-        DataStreamingEvent elt1 = this.currentMin;
-        if (elt1 == null) {
-            return elt2;
-        } else if (elt2 == null) {
-            return elt1;
+    /**
+     * Merges the iterators that moved on to a later key id into the sorted
+     * heads. They are written into the free slots just before the sorted
+     * heads, and only the heads that sort before the last of them are moved.
+     */
+    private void insertMoved() {
+        if (this.movedSize > 1) {
+            Arrays.sort(this.moved, 0, this.movedSize, HEAD_COMPARATOR);
+        }
+        int r = this.headsStart;
+        int w = r - this.movedSize;
+        this.headsStart = w;
+        for (int k = 0; k < this.movedSize; k++) {
+            Head<E> head = this.moved[k];
+            int pos = -Arrays.binarySearch(this.heads, r, this.headsEnd, head,
+                    HEAD_COMPARATOR) - 1;
+            System.arraycopy(this.heads, r, this.heads, w, pos - r);
+            w += pos - r;
+            r = pos;
+            this.heads[w++] = head;
+        }
+        this.movedSize = 0;
+    }
+
+    private boolean advance(Head<E> head) 
+            throws DataSourceReadException {
+        DataStreamingEventIterator<E> itr = this.itrs.get(head.index);
+        if (itr.hasNext()) {
+            head.event = itr.next();
+            return true;
         } else {
-            return elt1.getKeyId().compareTo(elt2.getKeyId()) < 0 ? elt1 : elt2;
+            head.event = null;
+            return false;
         }
     }
     
@@ -22,6 +22,7 @@ package org.protempa;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -92,6 +93,44 @@ final class DerivationsBuilder implements Serializable {
         return this.backwardDerivations.remove(proposition);
     }
 
+    /**
+     * Records that some propositions were retracted and replaced by one
+     * proposition that combines them. The propositions from which the
+     * retracted propositions were derived become the propositions from which
+     * the combined proposition was derived.
+     *
+     * @param oldPropositions the retracted propositions.
+     * @param newProposition the combined proposition.
+     */
+    void propositionsCombined(Collection<? extends Proposition> oldPropositions,
+            Proposition newProposition) {
+        assert newProposition != null : "new proposition cannot be null";
+        Set<Proposition> newBackward = null;
+        for (Proposition oldProposition : oldPropositions) {
+            Set<Proposition> oldBackward
+                    = this.backwardDerivations.remove(oldProposition);
+            if (oldBackward != null) {
+                for (Proposition prop : oldBackward) {
+                    Collection<Proposition> props
+                            = this.forwardDerivations.get(prop);
+                    if (props != null) {
+                        props.remove(oldProposition);
+                        props.add(newProposition);
+                    }
+                }
+                if (newBackward == null) {
+                    newBackward = this.backwardDerivations.get(newProposition);
+                    if (newBackward == null) {
+                        newBackward = new HashSet<>();
+                        this.backwardDerivations.put(newProposition,
+                                newBackward);
+                    }
+                }
+                newBackward.addAll(oldBackward);
+            }
+        }
+    }
+
     void propositionAsserted(Proposition oldProposition,
             Proposition newProposition) {
         assert oldProposition != null : "old proposition cannot be null";
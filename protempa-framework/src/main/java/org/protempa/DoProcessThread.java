@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.drools.RuleBase;
 import org.protempa.proposition.Proposition;
 import org.protempa.proposition.UniqueId;
 import org.protempa.query.Query;
@@ -48,6 +49,13 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
     private DerivationsBuilder derivationsBuilder;
     private final AlgorithmSource algorithmSource;
 
+    /**
+     * Creates a thread for processing data.
+     * 
+     * @param ruleBase a rule base that was compiled for this query by another 
+     * do process thread, or <code>null</code> if this thread's execution 
+     * strategy should compile its own.
+     */
     DoProcessThread(
             BlockingQueue<QueueObject> hqrQueue,
             QueueObject hqrPoisonPill, Query query,
@@ -55,6 +63,7 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
             KnowledgeSource knowledgeSource,
             PropositionDefinitionCache propositionDefinitionCache,
             AlgorithmSource algorithmSource,
+            RuleBase ruleBase,
             Logger logger) throws QueryException {
         super(query, logger, "protempa.executor.DoProcessThread");
         this.hqrQueue = hqrQueue;
@@ -66,7 +75,7 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
         assert algorithmSource != null : "algorithmSource cannot be null";
         this.algorithmSource = algorithmSource;
         try {
-            initialize();
+            initialize(ruleBase);
         } catch (KnowledgeSourceReadException | ExecutionStrategyInitializationException ex) {
             throw new QueryException(query.getName(), ex);
         }
@@ -94,7 +103,7 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
         return algorithmSource;
     }
 
-    final void doProcessData(String keyId, Iterator<Proposition> dataItr, int sizeHint, Query query) throws InterruptedException {
+    final void doProcessData(String keyId, long sequenceNumber, Iterator<Proposition> dataItr, int sizeHint, Query query) throws InterruptedException {
         Iterator<Proposition> resultsItr;
         try {
             if (this.executionStrategy != null) {
@@ -117,12 +126,19 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
                 log(Level.FINEST, "Backward derivations: {0}", backwardDerivations);
                 log(Level.FINEST, "References: {0}", refs);
             }
-            this.hqrQueue.put(new QueueObject(keyId, filteredPropositions,
-                    forwardDerivations, backwardDerivations, refs));
+            this.hqrQueue.put(new QueueObject(keyId, sequenceNumber, 
+                    filteredPropositions, forwardDerivations, 
+                    backwardDerivations, refs));
             log(Level.FINER, "Results put on query result handler queue: keyId:{0}", 
             		new Object[] {keyId});
         } catch (ExecutionStrategyExecutionException ex) {
             this.exceptions.add(new QueryException(query.getName(), ex));
+            /*
+             * Tell the query results handler thread that this key has no
+             * results so that it does not wait for them if it is putting
+             * results back in key order.
+             */
+            this.hqrQueue.put(new QueueObject(keyId, sequenceNumber));
         } finally {
             this.derivationsBuilder.reset();
         }
@@ -141,6 +157,18 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
         return this.executionStrategy;
     }
 
+    /**
+     * Gets the rule base of this thread's execution strategy, for sharing
+     * with other do process threads that are processing the same query.
+     * 
+     * @return a {@link RuleBase}, or <code>null</code> if this thread has no
+     * execution strategy because the query has nothing to abstract.
+     */
+    final RuleBase getRuleBase() {
+        return this.executionStrategy != null 
+                ? this.executionStrategy.getRuleBase() : null;
+    }
+
     final void closeWorkingMemory() {
         if (this.executionStrategy != null) {
             this.executionStrategy.closeCurrentWorkingMemory();
@@ -187,10 +215,20 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
         }
     }
 
+    /**
+     * Called when this thread stops unexpectedly so that any other threads 
+     * that are consuming from the same queue as this one do not wait 
+     * forever for data that will never come. The default implementation does 
+     * nothing.
+     */
+    void releaseOtherConsumers() {
+    }
+
     private void handleException() {
         if (producer != null) {
             producer.interrupt();
         }
+        releaseOtherConsumers();
         try {
             swallowHQRPoisonPill();
         } catch (InterruptedException ignore) {
@@ -198,11 +236,11 @@ abstract class DoProcessThread<E extends ExecutionStrategy> extends AbstractThre
         }
     }
 
-    private void initialize() throws KnowledgeSourceReadException, ExecutionStrategyInitializationException {
+    private void initialize(RuleBase ruleBase) throws KnowledgeSourceReadException, ExecutionStrategyInitializationException {
         Query query = getQuery();
         if (hasSomethingToAbstract(query) || query.getDatabasePath() != null) {
             this.executionStrategy = selectExecutionStrategy();
-            this.executionStrategy.initialize(this.propositionDefinitionCache);
+            this.executionStrategy.initialize(this.propositionDefinitionCache, ruleBase);
             this.derivationsBuilder = this.executionStrategy.getDerivationsBuilder();
         } else {
             this.derivationsBuilder = new DerivationsBuilder();
@@ -22,12 +22,19 @@ package org.protempa;
 
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.drools.RuleBase;
 import org.protempa.proposition.Proposition;
 import org.protempa.query.Query;
 
 /**
+ * Processes data for an ETL query. One or more instances of this class may
+ * consume from the same do process queue, in which case keys are processed in
+ * parallel. Each key is numbered in the order in which it was taken from the
+ * queue so that the query results handler thread can put results back in key
+ * order if needed.
  *
  * @author Andrew Post
  */
@@ -37,27 +44,60 @@ public class DoRegularProcessThread extends DoProcessThread<ExecutionStrategy> {
     
     private final BlockingQueue<DataStreamingEvent<Proposition>> doProcessQueue;
     private final DataStreamingEvent<Proposition> doProcessPoisonPill;
+    private final AtomicLong sequenceNumbers;
+    private final KeyOrderWindow keyOrderWindow;
 
+    /**
+     * Creates a thread for processing the data that the producer puts on
+     * the do process queue.
+     * 
+     * @param sequenceNumbers the source of key sequence numbers, shared by
+     * all threads consuming from the do process queue.
+     * @param keyOrderWindow the window that keys must be in before they are
+     * processed if results are handled in key order, or <code>null</code>.
+     * @param ruleBase a rule base compiled for the query by another thread,
+     * or <code>null</code> to compile one.
+     */
     DoRegularProcessThread(BlockingQueue<DataStreamingEvent<Proposition>> doProcessQueue, 
             BlockingQueue<QueueObject> hqrQueue, 
             DataStreamingEvent<Proposition> doProcessPoisonPill, 
             QueueObject hqrPoisonPill, Query query, Thread producer, 
             AlgorithmSource algorithmSource, KnowledgeSource knowledgeSource, 
-            PropositionDefinitionCache propositionDefinitionCache) throws QueryException {
+            PropositionDefinitionCache propositionDefinitionCache,
+            AtomicLong sequenceNumbers, KeyOrderWindow keyOrderWindow, 
+            RuleBase ruleBase) throws QueryException {
         super(hqrQueue, hqrPoisonPill, query, producer, 
-                knowledgeSource, propositionDefinitionCache, algorithmSource, LOGGER);
+                knowledgeSource, propositionDefinitionCache, algorithmSource, 
+                ruleBase, LOGGER);
+        assert sequenceNumbers != null : "sequenceNumbers cannot be null";
         this.doProcessQueue = doProcessQueue;
         this.doProcessPoisonPill = doProcessPoisonPill;
+        this.sequenceNumbers = sequenceNumbers;
+        this.keyOrderWindow = keyOrderWindow;
     }
     
     @Override
     protected void doProcessDataLoop() throws InterruptedException {
         int count = 0;
         DataStreamingEvent<Proposition> dse;
-        while (!isInterrupted() && ((dse = doProcessQueue.take()) != doProcessPoisonPill)) {
+        long sequenceNumber;
+        while (!isInterrupted()) {
+            synchronized (this.doProcessQueue) {
+                dse = this.doProcessQueue.take();
+                sequenceNumber = this.sequenceNumbers.getAndIncrement();
+            }
+            if (dse == this.doProcessPoisonPill) {
+                // Leave it for any other threads consuming from the queue.
+                this.doProcessQueue.put(dse);
+                break;
+            }
+            if (this.keyOrderWindow != null) {
+                this.keyOrderWindow.await(sequenceNumber);
+            }
             try {
                 List<Proposition> data = dse.getData();
-                doProcessData(dse.getKeyId(), data.iterator(), data.size(), getQuery());
+                doProcessData(dse.getKeyId(), sequenceNumber, data.iterator(), 
+                        data.size(), getQuery());
                 count++;
             } finally {
                 closeWorkingMemory();
@@ -65,6 +105,17 @@ public class DoRegularProcessThread extends DoProcessThread<ExecutionStrategy> {
         }
         log(Level.INFO, "Processed {0} keys", count);
     }
+
+    @Override
+    void releaseOtherConsumers() {
+        /*
+         * The producer has been interrupted and will not send the poison
+         * pill, and the query is going to fail anyway, so discard whatever
+         * data is left.
+         */
+        this.doProcessQueue.clear();
+        this.doProcessQueue.offer(this.doProcessPoisonPill);
+    }
     
     @Override
     ExecutionStrategy selectExecutionStrategy() {
@@ -39,7 +39,8 @@ public class DoReprocessThread extends DoProcessThread<StatefulExecutionStrategy
             AlgorithmSource algorithmSource, KnowledgeSource knowledgeSource,
             PropositionDefinitionCache propositionDefinitionCache) throws QueryException {
         super(hqrQueue, hqrPoisonPill, query, null,
-                knowledgeSource, propositionDefinitionCache, algorithmSource, LOGGER);
+                knowledgeSource, propositionDefinitionCache, algorithmSource, 
+                null, LOGGER);
     }
 
     @Override
@@ -50,7 +51,7 @@ public class DoReprocessThread extends DoProcessThread<StatefulExecutionStrategy
         while (!isInterrupted() && iterator.hasNext()) {
             String keyId = iterator.next();
             try {
-                doProcessData(keyId, null, -1, getQuery());
+                doProcessData(keyId, count, null, -1, getQuery());
                 count++;
             } finally {
                 closeWorkingMemory();
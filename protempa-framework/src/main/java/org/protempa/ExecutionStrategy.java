@@ -21,6 +21,7 @@ package org.protempa;
 
 import java.util.Iterator;
 
+import org.drools.RuleBase;
 import org.protempa.proposition.Proposition;
 
 interface ExecutionStrategy {
@@ -28,6 +29,11 @@ interface ExecutionStrategy {
     void initialize(PropositionDefinitionCache cache) 
             throws ExecutionStrategyInitializationException;
     
+    void initialize(PropositionDefinitionCache cache, RuleBase ruleBase) 
+            throws ExecutionStrategyInitializationException;
+    
+    RuleBase getRuleBase();
+    
     Iterator<Proposition> execute(String keyIds, Iterator<? extends Proposition> objects) throws ExecutionStrategyExecutionException;
     
     DerivationsBuilder getDerivationsBuilder();
@@ -20,16 +20,20 @@ package org.protempa;
  * #L%
  */
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang3.StringUtils;
 import org.arp.javautil.arrays.Arrays;
+import org.drools.RuleBase;
 import org.protempa.backend.dsb.filter.Filter;
 import org.protempa.dest.Destination;
 import org.protempa.dest.QueryResultsHandler;
@@ -47,6 +51,23 @@ import org.protempa.query.QueryMode;
 final class Executor implements AutoCloseable {
 
     private static final Logger LOGGER = Logger.getLogger(Executor.class.getName());
+    
+    /**
+     * System property for the number of threads that process data in 
+     * parallel, one key at a time per thread. The default is 1. Queries that
+     * persist working memory always use one thread.
+     */
+    static final String SYSTEM_PROPERTY_DO_PROCESS_THREAD_COUNT = 
+            "protempa.executor.doProcessThreadCount";
+    
+    /**
+     * System property for whether to pass query results to the query results
+     * handler in the same key order in which the data source returned them
+     * when processing data in parallel. The default is <code>false</code>.
+     */
+    static final String SYSTEM_PROPERTY_KEY_ORDERED = 
+            "protempa.executor.keyOrdered";
+    
     private final Set<String> propIds;
     private final Filter filters;
     private final PropositionDefinition[] propDefs;
@@ -108,7 +129,7 @@ final class Executor implements AutoCloseable {
     void execute() throws QueryException {
         try {
             RetrieveDataThread retrieveDataThread;
-            DoProcessThread doProcessThread;
+            List<DoProcessThread> doProcessThreads = new ArrayList<>();
             synchronized (this) {
                 if (this.canceled) {
                     return;
@@ -118,6 +139,7 @@ final class Executor implements AutoCloseable {
                         = new ArrayBlockingQueue<>(1000);
                 QueueObject hqrPoisonPill = new QueueObject();
                 BlockingQueue<QueueObject> hqrQueue = new ArrayBlockingQueue<>(1000);
+                KeyOrderWindow keyOrderWindow = null;
                 QueryMode queryMode = this.query.getQueryMode();
                 if (Arrays.contains(QueryMode.etlModes(), queryMode)) {
                     DataStreamingEvent doProcessPoisonPill
@@ -127,27 +149,46 @@ final class Executor implements AutoCloseable {
                             this.abstractionFinder.getDataSource(),
                             this.propositionDefinitionCache,
                             this.filters, this.resultsHandler);
-                    doProcessThread = new DoRegularProcessThread(doProcessQueue, hqrQueue,
-                            doProcessPoisonPill, hqrPoisonPill, this.query,
-                            retrieveDataThread, this.abstractionFinder.getAlgorithmSource(),
-                            this.abstractionFinder.getKnowledgeSource(),
-                            this.propositionDefinitionCache);
+                    AtomicLong sequenceNumbers = new AtomicLong();
+                    int n = doProcessThreadCount();
+                    if (Boolean.getBoolean(SYSTEM_PROPERTY_KEY_ORDERED)) {
+                        keyOrderWindow = new KeyOrderWindow(
+                                (long) n * hqrQueue.remainingCapacity());
+                    }
+                    RuleBase ruleBase = null;
+                    for (int i = 0; i < n; i++) {
+                        DoRegularProcessThread doProcessThread 
+                                = new DoRegularProcessThread(doProcessQueue, hqrQueue,
+                                doProcessPoisonPill, hqrPoisonPill, this.query,
+                                retrieveDataThread, this.abstractionFinder.getAlgorithmSource(),
+                                this.abstractionFinder.getKnowledgeSource(),
+                                this.propositionDefinitionCache, 
+                                sequenceNumbers, keyOrderWindow, ruleBase);
+                        if (ruleBase == null) {
+                            ruleBase = doProcessThread.getRuleBase();
+                        }
+                        doProcessThreads.add(doProcessThread);
+                    }
                 } else {
                     retrieveDataThread = null;
-                    doProcessThread = new DoReprocessThread(hqrQueue,
+                    doProcessThreads.add(new DoReprocessThread(hqrQueue,
                             hqrPoisonPill, this.query,
                             this.abstractionFinder.getAlgorithmSource(),
                             this.abstractionFinder.getKnowledgeSource(),
-                            this.propositionDefinitionCache);
+                            this.propositionDefinitionCache));
 
                 }
                 this.handleQueryResultThread
                         = new HandleQueryResultThread(hqrQueue, hqrPoisonPill,
-                                doProcessThread, this.query, this.resultsHandler, this.propositionDefinitionCache);
+                                doProcessThreads, this.query, this.resultsHandler, 
+                                this.propositionDefinitionCache,
+                                keyOrderWindow);
                 if (retrieveDataThread != null) {
                     retrieveDataThread.start();
                 }
-                doProcessThread.start();
+                for (DoProcessThread doProcessThread : doProcessThreads) {
+                    doProcessThread.start();
+                }
                 this.handleQueryResultThread.start();
             }
 
@@ -168,13 +209,15 @@ final class Executor implements AutoCloseable {
                 }
             }
             try {
-                doProcessThread.join();
-                for (Iterator<QueryException> itr = doProcessThread.getExceptions().iterator(); itr.hasNext();) {
-                    QueryException e = itr.next();
-                    if (this.exception == null) {
-                        this.exception = e;
-                    } else {
-                        this.exception.addSuppressed(e);
+                for (DoProcessThread doProcessThread : doProcessThreads) {
+                    doProcessThread.join();
+                    for (Iterator<QueryException> itr = doProcessThread.getExceptions().iterator(); itr.hasNext();) {
+                        QueryException e = itr.next();
+                        if (this.exception == null) {
+                            this.exception = e;
+                        } else {
+                            this.exception.addSuppressed(e);
+                        }
                     }
                 }
                 log(Level.INFO, "Done processing data");
@@ -237,6 +280,20 @@ final class Executor implements AutoCloseable {
         }
     }
 
+    private int doProcessThreadCount() {
+        int count = Integer.getInteger(SYSTEM_PROPERTY_DO_PROCESS_THREAD_COUNT, 1);
+        if (count < 1) {
+            log(Level.WARNING, "Invalid do process thread count {0}; using 1", count);
+            return 1;
+        }
+        if (count > 1 && this.query.getDatabasePath() != null) {
+            log(Level.FINE, "Queries that persist working memory use one do process thread");
+            return 1;
+        }
+        log(Level.FINE, "Using {0} do process thread(s)", count);
+        return count;
+    }
+
     private void extractPropositionDefinitionCache() throws KnowledgeSourceReadException {
         this.propositionDefinitionCache = new PropositionDefinitionCache(this.ks.collectPropDefDescendantsUsingAllNarrower(false, this.propIds.toArray(new String[this.propIds.size()])));
 
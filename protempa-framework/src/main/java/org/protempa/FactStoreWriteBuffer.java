@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eurekaclinical.datastore.DataStore;
+
+/**
+ * Buffers the working memory of keys and writes it to a data store in
+ * batches. A batch is due once a number of keys are buffered or once a time
+ * has passed since the last write. Writing is synchronous: the buffer is
+ * written by {@link #flush()} on the calling thread, which keeps the data
+ * store confined to the thread that processes the keys.
+ *
+ * @author Andrew Post
+ */
+final class FactStoreWriteBuffer {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(FactStoreWriteBuffer.class.getName());
+
+    private final DataStore<String, WorkingMemoryFactStore> dataStore;
+    private final Map<String, WorkingMemoryFactStore> pending;
+    private final int batchSize;
+    private final long batchMillis;
+    private long lastWriteTime;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param dataStore the data store to write to. Cannot be
+     * <code>null</code>.
+     * @param batchSize the number of buffered keys at which a batch is due.
+     * Values less than one are treated as one.
+     * @param batchMillis the time in milliseconds since the last write after
+     * which a batch is due.
+     */
+    FactStoreWriteBuffer(DataStore<String, WorkingMemoryFactStore> dataStore,
+            int batchSize, long batchMillis) {
+        assert dataStore != null : "dataStore cannot be null";
+        this.dataStore = dataStore;
+        this.pending = new LinkedHashMap<>();
+        this.batchSize = Math.max(1, batchSize);
+        this.batchMillis = batchMillis;
+        this.lastWriteTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets a key's working memory from this buffer if it has not been written
+     * to the data store yet, otherwise from the data store.
+     *
+     * @param keyId a key id.
+     * @return the key's working memory, or <code>null</code> if there is none.
+     */
+    WorkingMemoryFactStore get(String keyId) {
+        WorkingMemoryFactStore factStore = this.pending.get(keyId);
+        if (factStore == null) {
+            factStore = this.dataStore.get(keyId);
+        }
+        return factStore;
+    }
+
+    /**
+     * Buffers a key's working memory, replacing any that is buffered for the
+     * key already.
+     *
+     * @param keyId a key id.
+     * @param factStore the key's working memory.
+     * @return <code>true</code> if a batch is due, in which case the caller
+     * should call {@link #flush()}.
+     */
+    boolean put(String keyId, WorkingMemoryFactStore factStore) {
+        this.pending.put(keyId, factStore);
+        return this.pending.size() >= this.batchSize
+                || System.currentTimeMillis() - this.lastWriteTime
+                >= this.batchMillis;
+    }
+
+    /**
+     * Writes the buffered working memory to the data store together and
+     * empties this buffer.
+     *
+     * @return the number of keys whose working memory was written.
+     */
+    int flush() {
+        int result = this.pending.size();
+        if (result > 0) {
+            LOGGER.log(Level.FINER, "Writing working memory for {0} key IDs",
+                    result);
+            this.dataStore.putAll(this.pending);
+            this.pending.clear();
+        }
+        this.lastWriteTime = System.currentTimeMillis();
+        return result;
+    }
+
+    /**
+     * Returns the number of keys whose working memory is buffered.
+     *
+     * @return the number of keys.
+     */
+    int size() {
+        return this.pending.size();
+    }
+}
@@ -20,7 +20,9 @@ package org.protempa;
  * #L%
  */
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +32,12 @@ import org.protempa.dest.QueryResultsHandlerProcessingException;
 import org.protempa.query.Query;
 
 /**
+ * Passes query results to the query results handler. Results may come from
+ * more than one producer thread, each of which sends a poison pill when it is
+ * done. If results must be handled in key order, results that arrive early
+ * are held until the results for all keys that precede them have been
+ * handled. How many results may be held is limited by a
+ * {@link KeyOrderWindow} that the producer threads wait on.
  *
  * @author Andrew Post
  */
@@ -38,23 +46,42 @@ class HandleQueryResultThread extends AbstractThread {
     private static final Logger LOGGER = Logger.getLogger(HandleQueryResultThread.class.getName());
 
     private final BlockingQueue<QueueObject> queue;
-    private final Thread producerThread;
+    private final List<? extends Thread> producerThreads;
     private final QueueObject poisonPill;
     private final List<QueryException> exceptions;
     private final QueryResultsHandler queryResultsHandler;
     private final PropositionDefinitionCache cache;
+    private final Map<Long, QueueObject> outOfOrder;
+    private final KeyOrderWindow keyOrderWindow;
+    private long nextSequenceNumber;
 
+    /**
+     * Creates a thread for passing query results to the query results
+     * handler.
+     *
+     * @param keyOrderWindow the window that the producer threads wait on if
+     * results must be handled in key order, or <code>null</code> if results
+     * may be handled in the order in which they arrive.
+     */
     HandleQueryResultThread(BlockingQueue<QueueObject> queue,
-            QueueObject poisonPill, Thread producerThread, Query query,
-            QueryResultsHandler queryResultsHandler,
-            PropositionDefinitionCache cache) {
+            QueueObject poisonPill, List<? extends Thread> producerThreads, 
+            Query query, QueryResultsHandler queryResultsHandler,
+            PropositionDefinitionCache cache, KeyOrderWindow keyOrderWindow) {
         super(query, LOGGER, "protempa.executor.HandleQueryResultThread");
+        assert producerThreads != null && !producerThreads.isEmpty() : 
+                "producerThreads cannot be null or empty";
         this.queue = queue;
-        this.producerThread = producerThread;
+        this.producerThreads = producerThreads;
         this.poisonPill = poisonPill;
         this.exceptions = new ArrayList<>();
         this.queryResultsHandler = queryResultsHandler;
         this.cache = cache;
+        this.keyOrderWindow = keyOrderWindow;
+        if (keyOrderWindow != null) {
+            this.outOfOrder = new HashMap<>();
+        } else {
+            this.outOfOrder = null;
+        }
     }
 
     public List<QueryException> getExceptions() {
@@ -67,40 +94,39 @@ class HandleQueryResultThread extends AbstractThread {
         Query query = getQuery();
         QueueObject qo;
         boolean closed = false;
+        int producersRemaining = this.producerThreads.size();
         try {
             this.queryResultsHandler.start(this.cache);
             log(Level.FINE, "Query results handler started");
             log(Level.FINE, "Query results handler waiting for results...");
-            while ((qo = queue.take()) != poisonPill) {
-                log(Level.FINER, "Handling some results");
-                try {
-                    this.queryResultsHandler.handleQueryResult(qo.keyId,
-                            qo.propositions, qo.forwardDerivations,
-                            qo.backwardDerivations, qo.refs);
-                } catch (QueryResultsHandlerProcessingException ex) {
-                    log(Level.FINER, "Handle query results threw QueryResultsHandlerProcessingException", ex);
-                    exceptions.add(new QueryException(query.getName(), ex));
-                    producerThread.interrupt();
-                    break;
-                } catch (Error | RuntimeException t) {
-                    log(Level.FINER, "Handle query results threw exception", t);
-                    exceptions.add(new QueryException(query.getName(),
-                            new QueryResultsHandlerProcessingException(t)));
-                    producerThread.interrupt();
+            PRODUCERS:
+            while (producersRemaining > 0) {
+                qo = queue.take();
+                if (qo == poisonPill) {
+                    producersRemaining--;
+                } else if (this.outOfOrder != null) {
+                    this.outOfOrder.put(qo.sequenceNumber, qo);
+                    while ((qo = this.outOfOrder.remove(this.nextSequenceNumber)) != null) {
+                        this.nextSequenceNumber++;
+                        this.keyOrderWindow.advance();
+                        if (!handleQueryResult(qo)) {
+                            break PRODUCERS;
+                        }
+                    }
+                } else if (!handleQueryResult(qo)) {
                     break;
                 }
-                log(Level.FINER, "Results passed to query result handler");
             }
             this.queryResultsHandler.finish();
             this.queryResultsHandler.close();
             closed = true;
         } catch (InterruptedException ex) {
             log(Level.FINER, "Handle query results thread interrupted", ex);
-            producerThread.interrupt();
+            interruptProducers();
         } catch (QueryResultsHandlerProcessingException ex) {
             log(Level.FINER, "Query results handler threw exception", ex);
             exceptions.add(new QueryException(query.getName(), ex));
-            producerThread.interrupt();
+            interruptProducers();
         } catch (QueryResultsHandlerCloseException ex) {
             log(Level.FINER, "Query results handler close threw exception", ex);
             exceptions.add(new QueryException(query.getName(), ex));
@@ -117,4 +143,44 @@ class HandleQueryResultThread extends AbstractThread {
         log(Level.FINER, "End handle query results thread");
     }
 
+    /**
+     * Passes one key's results to the query results handler.
+     * 
+     * @param qo the results.
+     * @return <code>true</code> if successful, <code>false</code> if the 
+     * query results handler failed and processing should stop.
+     */
+    private boolean handleQueryResult(QueueObject qo) {
+        if (qo.propositions == null) {
+            log(Level.FINER, "Skipping key {0}, which failed processing", qo.keyId);
+            return true;
+        }
+        log(Level.FINER, "Handling some results");
+        Query query = getQuery();
+        try {
+            this.queryResultsHandler.handleQueryResult(qo.keyId,
+                    qo.propositions, qo.forwardDerivations,
+                    qo.backwardDerivations, qo.refs);
+        } catch (QueryResultsHandlerProcessingException ex) {
+            log(Level.FINER, "Handle query results threw QueryResultsHandlerProcessingException", ex);
+            exceptions.add(new QueryException(query.getName(), ex));
+            interruptProducers();
+            return false;
+        } catch (Error | RuntimeException t) {
+            log(Level.FINER, "Handle query results threw exception", t);
+            exceptions.add(new QueryException(query.getName(),
+                    new QueryResultsHandlerProcessingException(t)));
+            interruptProducers();
+            return false;
+        }
+        log(Level.FINER, "Results passed to query result handler");
+        return true;
+    }
+
+    private void interruptProducers() {
+        for (Thread producerThread : this.producerThreads) {
+            producerThread.interrupt();
+        }
+    }
+
 }
@@ -27,7 +27,6 @@ import java.util.logging.Logger;
 import org.drools.WorkingMemory;
 import org.drools.spi.Consequence;
 import org.drools.spi.KnowledgeHelper;
-import org.drools.spi.Tuple;
 import org.protempa.proposition.AbstractParameter;
 import org.protempa.proposition.Proposition;
 import org.protempa.proposition.ProviderBasedUniqueIdFactory;
@@ -43,20 +42,29 @@ class HighLevelAbstractionConsequence implements Consequence {
 
     private static final long serialVersionUID = -833609244124008166L;
     private static final Logger LOGGER = Logger.getLogger(HighLevelAbstractionConsequence.class.getName());
+    /**
+     * Prefix of the declarations of the lists of propositions matching each
+     * extended proposition definition. The list for the <code>i</code>th
+     * extended proposition definition is declared as this prefix followed by
+     * <code>i</code>.
+     */
+    static final String RESULT_PREFIX = "result";
     private final HighLevelAbstractionDefinition cad;
     private final int columns;
     private final ExtendedPropositionDefinition[] epds;
-    private final DerivationsBuilder derivationsBuilder;
+    private final TemporalExtendedPropositionDefinition[] tepds;
+    private final HighLevelAbstractionMatcher matcher;
 
     /**
      *
      * @param def a {@link HighLevelAbstractionDefinition}, cannot be
      * <code>null</code>.
-     * @param columns the number of parameters, must be greater than zero.
+     * @param epds the extended proposition definitions, in the order of the
+     * rule's collected lists of matching propositions. Must have length
+     * greater than zero.
      */
     HighLevelAbstractionConsequence(HighLevelAbstractionDefinition def,
-            ExtendedPropositionDefinition[] epds,
-            DerivationsBuilder derivationsBuilder) {
+            ExtendedPropositionDefinition[] epds) {
         assert def != null : "def cannot be null";
         assert epds != null : "epds cannot be null";
         int col = epds.length;
@@ -64,48 +72,55 @@ class HighLevelAbstractionConsequence implements Consequence {
         this.cad = def;
         this.columns = col;
         this.epds = epds;
-        this.derivationsBuilder = derivationsBuilder;
+        List<TemporalExtendedPropositionDefinition> tepdsL
+                = extractTemporalExtendedPropositionDefinitions();
+        this.tepds = tepdsL.toArray(
+                new TemporalExtendedPropositionDefinition[tepdsL.size()]);
+        this.matcher = new HighLevelAbstractionMatcher(def, epds);
     }
 
     @Override
     public void evaluate(KnowledgeHelper kh, WorkingMemory wm)
             throws Exception {
-        List<Proposition> ps = parameters(kh.getTuple(), wm);
-        List<TemporalProposition> tps = extractTemporalPropositions(ps);
-        List<TemporalExtendedPropositionDefinition> tepdsL
-                = extractTemporalExtendedPropositionDefinitions();
-        TemporalExtendedPropositionDefinition[] tepds
-                = tepdsL.toArray(
-                        new TemporalExtendedPropositionDefinition[tepdsL.size()]);
-        Segment<TemporalProposition> segment
-                = new Segment<>(
-                        new Sequence<>(cad.getPropositionId(), tps));
+        List<Proposition[]> instances = this.matcher.match(parameters(kh));
+        if (instances.isEmpty()) {
+            return;
+        }
         TemporalPatternOffset temporalOffset = cad.getTemporalOffset();
         JBossRulesDerivedLocalUniqueIdValuesProvider provider = new JBossRulesDerivedLocalUniqueIdValuesProvider(wm, cad.getPropositionId());
         UniqueIdFactory factory = new ProviderBasedUniqueIdFactory(provider);
-        AbstractParameter result
-                = AbstractParameterFactory.getFromAbstraction(cad.getPropositionId(), 
-                        factory.getInstance(),
-                        segment, tps, null, temporalOffset, tepds, null);
-        kh.insertLogical(result);
-        for (Proposition proposition : segment) {
-            this.derivationsBuilder.propositionAsserted(proposition, result);
+        DerivationsBuilder derivationsBuilder = 
+                WorkingMemoryGlobals.getDerivationsBuilder(wm);
+        for (Proposition[] instance : instances) {
+            List<TemporalProposition> tps
+                    = extractTemporalPropositions(instance);
+            Segment<TemporalProposition> segment
+                    = new Segment<>(
+                            new Sequence<>(cad.getPropositionId(), tps));
+            AbstractParameter result
+                    = AbstractParameterFactory.getFromAbstraction(cad.getPropositionId(), 
+                            factory.getInstance(),
+                            segment, tps, null, temporalOffset, this.tepds, null);
+            kh.insertLogical(result);
+            for (Proposition proposition : segment) {
+                derivationsBuilder.propositionAsserted(proposition, result);
+            }
+            LOGGER.log(Level.FINER, "Asserted derived proposition {0}", result);
         }
-        LOGGER.log(Level.FINER, "Asserted derived proposition {0}", result);
     }
 
-    private List<Proposition> parameters(Tuple arg0,
-            WorkingMemory arg1) {
-        List<Proposition> sequences
-                = new ArrayList<>(columns);
+    @SuppressWarnings("unchecked")
+    private List<? extends Proposition>[] parameters(KnowledgeHelper kh) {
+        List<? extends Proposition>[] result = new List[columns];
         for (int i = 0; i < columns; i++) {
-            sequences.add((Proposition) arg1.getObject(arg0.get(i)));
+            result[i] = (List<? extends Proposition>) kh.get(
+                    kh.getDeclaration(RESULT_PREFIX + i));
         }
-        return sequences;
+        return result;
     }
 
-    private List<TemporalProposition> extractTemporalPropositions(
-            List<Proposition> ps) {
+    private static List<TemporalProposition> extractTemporalPropositions(
+            Proposition[] ps) {
         List<TemporalProposition> tps = new ArrayList<>();
         for (Proposition prop : ps) {
             if (prop instanceof TemporalProposition) {
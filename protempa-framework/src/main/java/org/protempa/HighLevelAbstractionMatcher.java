@@ -0,0 +1,432 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.TemporalProposition;
+import org.protempa.proposition.interval.Interval;
+import org.protempa.proposition.interval.Relation;
+
+/**
+ * Finds the instances of a high-level abstraction definition in the
+ * propositions matching each of its extended proposition definitions.
+ *
+ * Instances are found with a backtracking join. Extended proposition
+ * definitions are assigned in an order in which each one is related to a
+ * previously assigned one whenever possible. For each temporal extended
+ * proposition definition, the candidate propositions are sorted by each
+ * interval endpoint that a relation constrains, and the endpoints of the
+ * already assigned propositions are used to binary search for the range of
+ * candidates that can satisfy the relations (see
+ * {@link Relation#hasRelation(int, long, long)}). Only
+ * the candidates in the narrowest range are checked against all relations.
+ * The cost thus depends mainly on the number of instances found rather than
+ * on the product of the numbers of candidates.
+ *
+ * An instance is an array of propositions, one per extended proposition
+ * definition, in which no proposition appears more than once and every
+ * relation between temporal extended proposition definitions holds.
+ *
+ * @author Andrew Post
+ */
+final class HighLevelAbstractionMatcher implements Serializable {
+
+    private static final long serialVersionUID = -3198374625091834527L;
+
+    private static final int MIN_START = 0;
+    private static final int MAX_START = 1;
+    private static final int MIN_FINISH = 2;
+    private static final int MAX_FINISH = 3;
+    private static final int ENDPOINTS = 4;
+
+    /*
+     * The interval endpoints of the left-hand-side and right-hand-side
+     * intervals that each of a relation's eight constraints compares. See
+     * Relation.hasRelation(Interval, Interval).
+     */
+    private static final int[] LHS_ENDPOINT = {MIN_START, MAX_START,
+        MIN_START, MAX_START, MIN_FINISH, MAX_FINISH, MIN_FINISH, MAX_FINISH};
+    private static final int[] RHS_ENDPOINT = {MIN_START, MAX_START,
+        MIN_FINISH, MAX_FINISH, MIN_START, MAX_START, MIN_FINISH, MAX_FINISH};
+
+    private final boolean[] temporal;
+    private final int[] order;
+    private final RelatedPair[][] pairsByStep;
+
+    /**
+     * A relation between two extended proposition definitions, identified by
+     * their indices.
+     */
+    private static final class RelatedPair implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private final int lhs;
+        private final int rhs;
+        private final Relation relation;
+
+        RelatedPair(int lhs, int rhs, Relation relation) {
+            this.lhs = lhs;
+            this.rhs = rhs;
+            this.relation = relation;
+        }
+
+        boolean hasRelation(Proposition[] instance) {
+            return this.relation.hasRelation(
+                    ((TemporalProposition) instance[this.lhs]).getInterval(),
+                    ((TemporalProposition) instance[this.rhs]).getInterval());
+        }
+    }
+
+    /**
+     * Creates a matcher.
+     *
+     * @param def a {@link HighLevelAbstractionDefinition}. Cannot be
+     * <code>null</code>.
+     * @param epds the definition's extended proposition definitions, in the
+     * order in which matching propositions will be passed to
+     * {@link #match(java.util.List[]) }. Cannot be <code>null</code>.
+     */
+    HighLevelAbstractionMatcher(HighLevelAbstractionDefinition def,
+            ExtendedPropositionDefinition[] epds) {
+        assert def != null : "def cannot be null";
+        assert epds != null : "epds cannot be null";
+        int n = epds.length;
+        this.temporal = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            this.temporal[i]
+                    = epds[i] instanceof TemporalExtendedPropositionDefinition;
+        }
+        List<RelatedPair> pairs = new ArrayList<>();
+        List<List<Integer>> neighbors = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            neighbors.add(new ArrayList<>());
+        }
+        for (List<TemporalExtendedPropositionDefinition> pair
+                : def.getTemporalExtendedPropositionDefinitionPairs()) {
+            int lhs = indexOf(epds, pair.get(0));
+            int rhs = indexOf(epds, pair.get(1));
+            assert lhs >= 0 && rhs >= 0 :
+                    "relation refers to an extended proposition definition that is not in "
+                    + def.getId();
+            pairs.add(new RelatedPair(lhs, rhs, def.getRelation(pair)));
+            neighbors.get(lhs).add(rhs);
+            neighbors.get(rhs).add(lhs);
+        }
+
+        /*
+         * Assign the temporal extended proposition definitions breadth-first
+         * starting from the most related one, so that each is joined to an
+         * already assigned one where possible, and the non-temporal ones last.
+         */
+        this.order = new int[n];
+        int[] step = new int[n];
+        Arrays.fill(step, -1);
+        int next = 0;
+        while (next < n) {
+            int start = -1;
+            for (int i = 0; i < n; i++) {
+                if (step[i] < 0 && (start < 0
+                        || (this.temporal[i] && !this.temporal[start])
+                        || (this.temporal[i] == this.temporal[start]
+                        && neighbors.get(i).size()
+                        > neighbors.get(start).size()))) {
+                    start = i;
+                }
+            }
+            Queue<Integer> queue = new LinkedList<>();
+            queue.add(start);
+            step[start] = next;
+            this.order[next++] = start;
+            Integer i;
+            while ((i = queue.poll()) != null) {
+                for (int j : neighbors.get(i)) {
+                    if (step[j] < 0) {
+                        step[j] = next;
+                        this.order[next++] = j;
+                        queue.add(j);
+                    }
+                }
+            }
+        }
+
+        /*
+         * Check each relation as soon as both of its sides are assigned.
+         */
+        List<List<RelatedPair>> byStep = new ArrayList<>(n);
+        for (int s = 0; s < n; s++) {
+            byStep.add(new ArrayList<>());
+        }
+        for (RelatedPair pair : pairs) {
+            byStep.get(Math.max(step[pair.lhs], step[pair.rhs])).add(pair);
+        }
+        this.pairsByStep = new RelatedPair[n][];
+        for (int s = 0; s < n; s++) {
+            List<RelatedPair> l = byStep.get(s);
+            this.pairsByStep[s] = l.toArray(new RelatedPair[l.size()]);
+        }
+    }
+
+    /**
+     * Finds all instances of the high-level abstraction definition.
+     *
+     * @param candidates for each extended proposition definition, the
+     * propositions that match it. Propositions matching a temporal extended
+     * proposition definition must be {@link TemporalProposition}s.
+     * @return the instances found, each an array of propositions in the same
+     * order as the extended proposition definitions. Guaranteed not
+     * <code>null</code>.
+     */
+    List<Proposition[]> match(List<? extends Proposition>[] candidates) {
+        assert candidates.length == this.order.length :
+                "expected " + this.order.length + " candidate lists but got "
+                + candidates.length;
+        List<Proposition[]> result = new ArrayList<>();
+        Candidates[] index = new Candidates[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            if (candidates[i].isEmpty()) {
+                return result;
+            }
+            index[i] = new Candidates(candidates[i]);
+        }
+        match(0, index, new Proposition[candidates.length], result);
+        return result;
+    }
+
+    private void match(int s, Candidates[] index, Proposition[] instance,
+            List<Proposition[]> result) {
+        if (s == this.order.length) {
+            result.add(instance.clone());
+            return;
+        }
+        int i = this.order[s];
+        Candidates candidates = index[i];
+        RelatedPair[] pairs = this.pairsByStep[s];
+
+        /*
+         * Narrow the candidates by each constrained endpoint.
+         */
+        int[] from = null;
+        int[] to = null;
+        for (RelatedPair pair : pairs) {
+            boolean candidateIsLhs = pair.lhs == i;
+            int other = candidateIsLhs ? pair.rhs : pair.lhs;
+            if (other == i) {
+                continue;
+            }
+            Interval otherInterval
+                    = ((TemporalProposition) instance[other]).getInterval();
+            if (otherInterval == null) {
+                return;
+            }
+            for (int c = 0; c < 8; c++) {
+                if (!pair.relation.isConstrained(c)) {
+                    continue;
+                }
+                int endpoint;
+                long fixed;
+                if (candidateIsLhs) {
+                    endpoint = LHS_ENDPOINT[c];
+                    fixed = endpoint(otherInterval, RHS_ENDPOINT[c]);
+                } else {
+                    endpoint = RHS_ENDPOINT[c];
+                    fixed = endpoint(otherInterval, LHS_ENDPOINT[c]);
+                }
+                if (isUnbounded(fixed)) {
+                    return;
+                }
+                if (from == null) {
+                    from = new int[ENDPOINTS];
+                    to = new int[ENDPOINTS];
+                    Arrays.fill(to, -1);
+                }
+                long[] keys = candidates.keys(endpoint);
+                if (to[endpoint] < 0) {
+                    to[endpoint] = keys.length;
+                }
+                /*
+                 * Even constraints are lower bounds on the right-hand side
+                 * and upper bounds on the left-hand side; odd constraints are
+                 * the reverse.
+                 */
+                boolean lowerBound = ((c & 1) == 0) != candidateIsLhs;
+                int boundary = firstChange(keys, from[endpoint],
+                        to[endpoint], pair.relation, c, candidateIsLhs, fixed);
+                if (lowerBound) {
+                    from[endpoint] = boundary;
+                } else {
+                    to[endpoint] = boundary;
+                }
+                if (from[endpoint] >= to[endpoint]) {
+                    return;
+                }
+            }
+        }
+
+        if (from == null) {
+            for (Proposition p : candidates.propositions) {
+                tryCandidate(s, i, p, pairs, index, instance, result);
+            }
+        } else {
+            int best = -1;
+            for (int e = 0; e < ENDPOINTS; e++) {
+                if (to[e] >= 0 && (best < 0
+                        || to[e] - from[e] < to[best] - from[best])) {
+                    best = e;
+                }
+            }
+            Proposition[] sorted = candidates.sorted(best);
+            for (int k = from[best]; k < to[best]; k++) {
+                tryCandidate(s, i, sorted[k], pairs, index, instance, result);
+            }
+        }
+        instance[i] = null;
+    }
+
+    private void tryCandidate(int s, int i, Proposition p,
+            RelatedPair[] pairs, Candidates[] index, Proposition[] instance,
+            List<Proposition[]> result) {
+        instance[i] = null;
+        for (Proposition q : instance) {
+            if (p.equals(q)) {
+                return;
+            }
+        }
+        instance[i] = p;
+        for (RelatedPair pair : pairs) {
+            if (!pair.hasRelation(instance)) {
+                return;
+            }
+        }
+        match(s + 1, index, instance, result);
+    }
+
+    /**
+     * Finds the index in <code>[from, to)</code> of the first key for which a
+     * constraint's result differs from its result at <code>from</code>. The
+     * constraint is monotone in the candidate endpoint, so the keys in
+     * <code>[from, to)</code> are split into one range that satisfies it and
+     * one that does not.
+     */
+    private static int firstChange(long[] keys, int from, int to,
+            Relation relation, int constraint, boolean candidateIsLhs,
+            long fixed) {
+        boolean lowerBound = ((constraint & 1) == 0) != candidateIsLhs;
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            boolean satisfied = candidateIsLhs
+                    ? relation.hasRelation(constraint, keys[mid], fixed)
+                    : relation.hasRelation(constraint, fixed, keys[mid]);
+            if (satisfied == lowerBound) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    private static long endpoint(Interval interval, int endpoint) {
+        switch (endpoint) {
+            case MIN_START:
+                return interval.minimumStart();
+            case MAX_START:
+                return interval.maximumStart();
+            case MIN_FINISH:
+                return interval.minimumFinish();
+            case MAX_FINISH:
+                return interval.maximumFinish();
+            default:
+                throw new AssertionError("invalid endpoint " + endpoint);
+        }
+    }
+
+    private static boolean isUnbounded(long endpoint) {
+        return endpoint == Interval.NEGATIVE_INFINITY
+                || endpoint == Interval.POSITIVE_INFINITY;
+    }
+
+    private static int indexOf(ExtendedPropositionDefinition[] epds,
+            ExtendedPropositionDefinition epd) {
+        for (int i = 0; i < epds.length; i++) {
+            if (epds[i] == epd) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The propositions matching one extended proposition definition, with
+     * views sorted by interval endpoint that are created when first needed.
+     * Propositions without an interval or with an unbounded endpoint are
+     * left out of that endpoint's view, because a constraint on a missing
+     * endpoint is never satisfied.
+     */
+    private static final class Candidates {
+
+        private final List<? extends Proposition> propositions;
+        private final Proposition[][] sorted;
+        private final long[][] keys;
+
+        Candidates(List<? extends Proposition> propositions) {
+            this.propositions = propositions;
+            this.sorted = new Proposition[ENDPOINTS][];
+            this.keys = new long[ENDPOINTS][];
+        }
+
+        long[] keys(int endpoint) {
+            if (this.keys[endpoint] == null) {
+                List<TemporalProposition> l
+                        = new ArrayList<>(this.propositions.size());
+                for (Proposition p : this.propositions) {
+                    Interval interval = ((TemporalProposition) p).getInterval();
+                    if (interval != null
+                            && !isUnbounded(endpoint(interval, endpoint))) {
+                        l.add((TemporalProposition) p);
+                    }
+                }
+                l.sort(Comparator.comparingLong(
+                        (TemporalProposition p)
+                        -> endpoint(p.getInterval(), endpoint)));
+                long[] k = new long[l.size()];
+                for (int j = 0; j < k.length; j++) {
+                    k[j] = endpoint(l.get(j).getInterval(), endpoint);
+                }
+                this.sorted[endpoint] = l.toArray(new Proposition[l.size()]);
+                this.keys[endpoint] = k;
+            }
+            return this.keys[endpoint];
+        }
+
+        Proposition[] sorted(int endpoint) {
+            keys(endpoint);
+            return this.sorted[endpoint];
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+/**
+ * An algorithm that can also keep a running state over a sliding window, so
+ * that scanning a sequence with a window does not process each window from
+ * scratch.
+ *
+ * @author Andrew Post
+ */
+public interface IncrementalAlgorithm extends Algorithm {
+
+    /**
+     * Creates an empty window over a sequence.
+     *
+     * @param arguments the algorithm's arguments.
+     * @param columns a {@link ParameterColumns} view of the sequence.
+     * @return a new {@link AlgorithmWindow}.
+     */
+    AlgorithmWindow newWindow(AlgorithmArguments arguments,
+            ParameterColumns columns);
+}
@@ -33,12 +33,10 @@ import org.drools.base.ClassObjectType;
 import org.drools.base.SalienceInteger;
 import org.drools.rule.Collect;
 import org.drools.rule.Declaration;
-import org.drools.rule.EvalCondition;
 import org.drools.rule.InvalidRuleException;
 import org.drools.rule.Pattern;
 import org.drools.rule.PredicateConstraint;
 import org.drools.rule.Rule;
-import org.drools.spi.Constraint;
 import org.drools.spi.PredicateExpression;
 import org.drools.spi.Tuple;
 import org.protempa.SequentialTemporalPatternDefinition.SubsequentTemporalExtendedPropositionDefinition;
@@ -89,17 +87,14 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
     private final Map<LowLevelAbstractionDefinition, Algorithm> algorithms;
     private final List<Rule> rules;
     private final Map<Rule, TemporalPropositionDefinition> ruleToAbstractionDefinition;
-    private final DerivationsBuilder derivationsBuilder;
     private final PropositionDefinitionCache cache;
 
     JBossRuleCreator(Map<LowLevelAbstractionDefinition, Algorithm> algorithms,
-            DerivationsBuilder derivationsBuilder, 
             PropositionDefinitionCache cache) {
         assert cache != null : "cache cannot be null";
         this.algorithms = algorithms;
         this.rules = new ArrayList<>();
         this.ruleToAbstractionDefinition = new HashMap<>();
-        this.derivationsBuilder = derivationsBuilder;
         this.cache = cache;
     }
 
@@ -127,13 +122,11 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 Rule inducedByRule = new Rule(def.getId() + "_INDUCED_BY");
                 for (int i = 0; i < tepds.length; i++) {
                     Pattern sourceP = new Pattern(i, TEMP_PROP_OT);
-                    sourceP.addConstraint(new PredicateConstraint(
-                            new GetMatchesPredicateExpression(tepds[i], this.cache)));
+                    addMatchesConstraint(sourceP, TEMP_PROP_OT, tepds[i]);
                     inducedByRule.addPattern(sourceP);
                 }
                 inducedByRule.setConsequence(
-                        new ContextDefinitionInducedByConsequence(def,
-                                this.derivationsBuilder));
+                        new ContextDefinitionInducedByConsequence(def));
                 inducedByRule.setSalience(MINUS_THREE_SALIENCE);
                 this.rules.add(inducedByRule);
                 this.ruleToAbstractionDefinition.put(inducedByRule, def);
@@ -141,7 +134,7 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
             }
 
             if (ruleCreated) {
-                CONTEXT_COMBINER.toRules(def, rules, this.derivationsBuilder);
+                CONTEXT_COMBINER.toRules(def, rules);
             }
         } catch (InvalidRuleException e) {
             throw new AssertionError(e.getClass().getName() + ": "
@@ -173,8 +166,7 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 String[] abstractedFromArr = 
                         abstractedFrom.toArray(new String[abstractedFrom.size()]);
                 Set<String> subtrees = this.cache.collectPropIdDescendantsUsingInverseIsA(abstractedFromArr);
-                sourceP.addConstraint(new PredicateConstraint(
-                        new PropositionPredicateExpression(subtrees)));
+                PropositionIdConstraints.add(sourceP, PRIM_PARAM_OT, subtrees);
                 Pattern resultP = new Pattern(1, 1, ARRAY_LIST_OT, "result");
                 resultP.setSource(new Collect(sourceP, new Pattern(1, 1,
                         ARRAY_LIST_OT, "result")));
@@ -185,8 +177,8 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 String contextId = def.getContextId();
                 if (contextId != null) {
                     Pattern sourceP2 = new Pattern(4, 1, CONTEXT_OT, "context");
-                    sourceP2.addConstraint(new PredicateConstraint(
-                            new PropositionPredicateExpression(contextId)));
+                    PropositionIdConstraints.add(sourceP2, CONTEXT_OT,
+                            contextId);
                     Pattern resultP2 = new Pattern(3, 1, ARRAY_LIST_OT, "result2");
                     resultP2.setSource(new Collect(sourceP2, new Pattern(3, 1, ARRAY_LIST_OT, "result")));
                     resultP2.addConstraint(new PredicateConstraint(
@@ -196,8 +188,7 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
 
                 Algorithm algo = this.algorithms.get(def);
 
-                rule.setConsequence(new LowLevelAbstractionConsequence(def,
-                        algo, this.derivationsBuilder));
+                rule.setConsequence(new LowLevelAbstractionConsequence(def, algo));
                 rule.setSalience(TWO_SALIENCE);
                 this.ruleToAbstractionDefinition.put(rule, def);
                 rules.add(rule);
@@ -219,6 +210,8 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 String[] abstractedFromArr = 
                         abstractedFrom.toArray(new String[abstractedFrom.size()]);
                 Set<String> subtrees = this.cache.collectPropIdDescendantsUsingInverseIsA(abstractedFromArr);
+                PropositionIdConstraints.addIndexed(sourceP, ABSTRACT_PARAM_OT,
+                        subtrees);
                 sourceP.addConstraint(new PredicateConstraint(
                         new AbstractParameterPredicateExpression(subtrees, def.getContextId())));
                 Pattern resultP = new Pattern(1, 1, ARRAY_LIST_OT, "result");
@@ -229,12 +222,11 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                                 new CollectionSizeExpression(1)));
                 rule.addPattern(resultP);
                 rule.setConsequence(
-                        new CompoundLowLevelAbstractionConsequence(def,
-                                this.derivationsBuilder));
+                        new CompoundLowLevelAbstractionConsequence(def));
                 rule.setSalience(ONE_SALIENCE);
                 this.ruleToAbstractionDefinition.put(rule, def);
                 rules.add(rule);
-                ABSTRACTION_COMBINER.toRules(def, rules, this.derivationsBuilder);
+                ABSTRACTION_COMBINER.toRules(def, rules);
             }
         } catch (InvalidRuleException e) {
             throw new AssertionError(e.getClass().getName() + ": "
@@ -267,21 +259,26 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 rule.setSalience(TWO_SALIENCE);
                 ExtendedPropositionDefinition[] epds = epdsC
                         .toArray(new ExtendedPropositionDefinition[epdsC.size()]);
+                /*
+                 * Collect the propositions matching each extended proposition
+                 * definition and join them in the consequence rather than
+                 * joining every combination of them in the Rete network.
+                 */
                 for (int i = 0; i < epds.length; i++) {
-                    Pattern p = new Pattern(i, PROP_OT);
-                    GetMatchesPredicateExpression matchesPredicateExpression = new GetMatchesPredicateExpression(epds[i], this.cache);
-                    Constraint c = new PredicateConstraint(
-                            matchesPredicateExpression);
-                    p.addConstraint(c);
-                    rule.addPattern(p);
+                    Pattern sourceP = new Pattern(2 * i + 2, 1, PROP_OT, "");
+                    addMatchesConstraint(sourceP, PROP_OT, epds[i]);
+                    Pattern resultP = new Pattern(2 * i + 1, 1, ARRAY_LIST_OT,
+                            HighLevelAbstractionConsequence.RESULT_PREFIX + i);
+                    resultP.setSource(new Collect(sourceP, new Pattern(2 * i + 1,
+                            1, ARRAY_LIST_OT, "result")));
+                    resultP.addConstraint(new PredicateConstraint(
+                            new CollectionSizeExpression(1)));
+                    rule.addPattern(resultP);
                 }
-                rule.addPattern(new EvalCondition(
-                        new HighLevelAbstractionCondition(def, epds), null));
-                rule.setConsequence(new HighLevelAbstractionConsequence(def,
-                        epds, this.derivationsBuilder));
+                rule.setConsequence(new HighLevelAbstractionConsequence(def, epds));
                 this.ruleToAbstractionDefinition.put(rule, def);
                 rules.add(rule);
-                ABSTRACTION_COMBINER.toRules(def, rules, this.derivationsBuilder);
+                ABSTRACTION_COMBINER.toRules(def, rules);
             }
         } catch (InvalidRuleException e) {
             throw new AssertionError(e.getClass().getName() + ": "
@@ -309,10 +306,7 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
 
                 Pattern sourceP = new Pattern(2, 1, TEMP_PROP_OT, "");
                 for (int i = 0; i < epds.length; i++) {
-                    GetMatchesPredicateExpression matchesPredicateExpression = new GetMatchesPredicateExpression(epds[i], this.cache);
-                    Constraint c = new PredicateConstraint(
-                            matchesPredicateExpression);
-                    sourceP.addConstraint(c);
+                    addMatchesConstraint(sourceP, TEMP_PROP_OT, epds[i]);
                 }
 
                 Pattern resultP = new Pattern(1, 1, ARRAY_LIST_OT, "result");
@@ -329,8 +323,7 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 resultP.addConstraint(new PredicateConstraint(
                         new CollectionSizeExpression(len)));
                 rule.addPattern(resultP);
-                rule.setConsequence(new SliceConsequence(def,
-                        this.derivationsBuilder));
+                rule.setConsequence(new SliceConsequence(def));
                 rule.setSalience(MINUS_TWO_SALIENCE);
                 this.ruleToAbstractionDefinition.put(rule, def);
                 rules.add(rule);
@@ -356,18 +349,13 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
             if (lhs != null) {
                 Rule rule = new Rule("SEQ_TP_" + def.getId());
                 Pattern sourceP = new Pattern(2, TEMP_PROP_OT);
-                GetMatchesPredicateExpression matchesPredicateExpression = new GetMatchesPredicateExpression(lhs, this.cache);
-                sourceP.addConstraint(new PredicateConstraint(
-                        matchesPredicateExpression));
+                addMatchesConstraint(sourceP, TEMP_PROP_OT, lhs);
                 SubsequentTemporalExtendedPropositionDefinition[] relatedTemporalExtendedPropositionDefinitions = def.getSubsequentTemporalExtendedPropositionDefinitions();
                 for (int i = 0; i < relatedTemporalExtendedPropositionDefinitions.length; i++) {
                     SubsequentTemporalExtendedPropositionDefinition rtepd
                             = relatedTemporalExtendedPropositionDefinitions[i];
-                    GetMatchesPredicateExpression matchesPredicateExpression1 = new GetMatchesPredicateExpression(
-                            rtepd.getRelatedTemporalExtendedPropositionDefinition(), this.cache);
-                    Constraint c = new PredicateConstraint(
-                            matchesPredicateExpression1);
-                    sourceP.addConstraint(c);
+                    addMatchesConstraint(sourceP, TEMP_PROP_OT,
+                            rtepd.getRelatedTemporalExtendedPropositionDefinition());
                 }
 
                 Pattern resultP = new Pattern(1, 1, ARRAY_LIST_OT, "result");
@@ -376,12 +364,11 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
                 resultP.addConstraint(new PredicateConstraint(
                         new CollectionSizeExpression(1)));
                 rule.addPattern(resultP);
-                rule.setConsequence(new SequentialTemporalPatternConsequence(def,
-                        this.derivationsBuilder));
+                rule.setConsequence(new SequentialTemporalPatternConsequence(def));
                 rule.setSalience(MINUS_TWO_SALIENCE);
                 this.ruleToAbstractionDefinition.put(rule, def);
                 rules.add(rule);
-                ABSTRACTION_COMBINER.toRules(def, rules, this.derivationsBuilder);
+                ABSTRACTION_COMBINER.toRules(def, rules);
             }
         } catch (InvalidRuleException e) {
             throw new AssertionError(e.getClass().getName() + ": "
@@ -449,6 +436,32 @@ class JBossRuleCreator extends AbstractPropositionDefinitionCheckedVisitor {
         return config;
     }
     
+    /**
+     * Adds a constraint to a pattern that a proposition matches an extended
+     * proposition definition. If the definition matches a single proposition
+     * id, a literal constraint on the id may be added first so that Drools
+     * only evaluates the predicate for propositions with that id (see
+     * {@link PropositionIdConstraints}).
+     *
+     * @param pattern a {@link Pattern}.
+     * @param objectType the pattern's {@link ClassObjectType}.
+     * @param epd an {@link ExtendedPropositionDefinition}.
+     * @throws ProtempaException if an error occurs accessing the knowledge
+     * source.
+     */
+    private void addMatchesConstraint(Pattern pattern,
+            ClassObjectType objectType, ExtendedPropositionDefinition epd)
+            throws ProtempaException {
+        GetMatchesPredicateExpression matchesPredicateExpression =
+                new GetMatchesPredicateExpression(epd, this.cache);
+        if (epd.getPropositionId() != null) {
+            PropositionIdConstraints.addIndexed(pattern, objectType,
+                    matchesPredicateExpression.subtrees);
+        }
+        pattern.addConstraint(new PredicateConstraint(
+                matchesPredicateExpression));
+    }
+
     /**
      * This needs to be static. Predicate expressions may be serialized, and
      * if an instance of this predicate expression is serialized, it would
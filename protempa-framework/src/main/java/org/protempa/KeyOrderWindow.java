@@ -0,0 +1,70 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+/**
+ * Keeps the do process threads from getting too far ahead of the handle
+ * query result thread when results must be handled in key order. Results
+ * that arrive before the results for the keys that precede them must be held
+ * until those keys are handled, so a key that takes a long time to process
+ * would otherwise let the held results grow without limit. A do process
+ * thread waits before processing a key until the key is within a fixed
+ * number of keys of the next key to be handled. The key that is next to be
+ * handled is always within the window, so processing never stalls.
+ *
+ * @author Andrew Post
+ */
+final class KeyOrderWindow {
+
+    private final long size;
+    private long nextSequenceNumber;
+
+    /**
+     * Creates a window.
+     *
+     * @param size how many keys, starting with the next key to be handled,
+     * may be processed or held at a time. Must be positive.
+     */
+    KeyOrderWindow(long size) {
+        assert size > 0 : "size must be positive";
+        this.size = size;
+    }
+
+    /**
+     * Waits until a key is within the window.
+     *
+     * @param sequenceNumber the key's sequence number.
+     * @throws InterruptedException if the thread was interrupted while
+     * waiting.
+     */
+    synchronized void await(long sequenceNumber) throws InterruptedException {
+        while (sequenceNumber - this.nextSequenceNumber >= this.size) {
+            wait();
+        }
+    }
+
+    /**
+     * Moves the window forward past a key that has been handled.
+     */
+    synchronized void advance() {
+        this.nextSequenceNumber++;
+        notifyAll();
+    }
+}
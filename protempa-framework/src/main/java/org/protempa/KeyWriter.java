@@ -0,0 +1,64 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+/**
+ * Writes key ids to a data source one at a time, for loading large key sets
+ * without collecting them first. Implementations may buffer key ids and write
+ * them in batches. Key ids that have not been written yet are written when
+ * the writer is closed, or thrown away when the writer is discarded. Key
+ * writers should always be closed or discarded after use.
+ *
+ * @author Andrew Post
+ */
+public interface KeyWriter extends AutoCloseable {
+
+    /**
+     * Writes a key id.
+     *
+     * @param keyId a key id. Cannot be <code>null</code>.
+     * @throws DataSourceWriteException if an error occurred writing to the
+     * underlying data source.
+     */
+    void write(String keyId) throws DataSourceWriteException;
+
+    /**
+     * Writes any remaining key ids and closes any IO or other resources
+     * opened by the writer.
+     *
+     * @throws DataSourceWriteException if an error occurred writing to the
+     * underlying data source(s).
+     */
+    @Override
+    void close() throws DataSourceWriteException;
+
+    /**
+     * Throws away any key ids that have not been written yet, rolls back
+     * writes that have not been committed if the underlying data source
+     * supports it, and closes any IO or other resources opened by the writer.
+     * Call this instead of {@link #close() } when loading the keys failed or
+     * was cancelled. Key ids that were already committed are not removed.
+     * Calling it after the writer is closed has no effect.
+     *
+     * @throws DataSourceWriteException if an error occurred releasing the
+     * underlying data source(s).
+     */
+    void discard() throws DataSourceWriteException;
+}
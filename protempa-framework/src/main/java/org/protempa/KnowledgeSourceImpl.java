@@ -23,9 +23,15 @@ import org.protempa.valueset.ValueSet;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.apache.commons.lang3.StringUtils;
@@ -40,6 +46,14 @@ import org.protempa.backend.ksb.KnowledgeSourceBackend;
  * must specify a backend in the constructor from where information about
  * primitive parameters and abstract parameters can be obtained.
  *
+ * Proposition definitions, is-a relationships and subtree closures that are
+ * read from the backends are kept in bounded least-recently-used caches,
+ * including the ids for which no definition was found. The caches are
+ * cleared by {@link #clear()}, which is called whenever a backend fires an
+ * update event. The maximum number of entries in each cache may be set with
+ * the {@link #SYSTEM_PROPERTY_CACHE_MAXIMUM_SIZE} system property. A value of
+ * <code>0</code> disables caching.
+ *
  * @author Andrew Post
  */
 public final class KnowledgeSourceImpl
@@ -47,18 +61,47 @@ public final class KnowledgeSourceImpl
     
     private static final Logger LOGGER = Logger.getLogger(KnowledgeSourceImpl.class.getName());
 
+    /**
+     * System property for the maximum number of entries in each of the
+     * knowledge source's read caches.
+     */
+    public static final String SYSTEM_PROPERTY_CACHE_MAXIMUM_SIZE
+            = "protempa.knowledgeSource.cacheMaximumSize";
+
+    public static final int DEFAULT_CACHE_MAXIMUM_SIZE = 10000;
+
+    /**
+     * Returned by {@link ReadCache#get(java.lang.Object)} when there is no
+     * entry for a key, to distinguish cached <code>null</code> values.
+     */
+    private static final Object NOT_CACHED = new Object();
+
     /**
      * PROTEMPA knowledge base.
      */
+    private final int cacheMaximumSize;
+    private final AtomicLong cacheHits;
+    private final AtomicLong cacheMisses;
+    private volatile long cacheGeneration;
     private final PropositionDefinitionReader propDefReader;
     private final AbstractionDefinitionReader abstractionDefReader;
     private final ContextDefinitionReader contextDefReader;
     private final TemporalPropositionDefinitionReader tempPropDefReader;
+    private final ReadCache<String, List<String>> isACache;
+    private final ReadCache<List<Object>, Set<String>> subtreePropIdsCache;
+    private final ReadCache<List<Object>, Set<PropositionDefinition>> subtreePropDefsCache;
     private SubtreePropositionDefinitionGetterRegular inDataSourceGetter;
     private SubtreePropositionDefinitionGetterRegular collectSubtreeGetter;
 
     public KnowledgeSourceImpl(KnowledgeSourceBackend... backends) {
         super(backends);
+        this.cacheMaximumSize = Integer.getInteger(
+                SYSTEM_PROPERTY_CACHE_MAXIMUM_SIZE, DEFAULT_CACHE_MAXIMUM_SIZE);
+        this.cacheHits = new AtomicLong();
+        this.cacheMisses = new AtomicLong();
+        this.isACache = new ReadCache<>();
+        this.subtreePropIdsCache = new ReadCache<>();
+        this.subtreePropDefsCache = new ReadCache<>();
         this.propDefReader = new PropositionDefinitionReader();
         this.abstractionDefReader = new AbstractionDefinitionReader();
         this.contextDefReader = new ContextDefinitionReader();
@@ -153,10 +196,7 @@ public final class KnowledgeSourceImpl
         if (id == null) {
             throw new IllegalArgumentException("id cannot be null");
         }
-        Set<String> isAs = new HashSet<>();
-        for (KnowledgeSourceBackend backend : getBackends()) {
-            Arrays.addAll(isAs, backend.readIsA(id));
-        }
+        List<String> isAs = readIsAPropIdsCached(id);
         return readPropositionDefinitions(isAs.toArray(new String[isAs.size()]));
     }
 
@@ -166,11 +206,26 @@ public final class KnowledgeSourceImpl
         if (id == null) {
             throw new IllegalArgumentException("id cannot be null");
         }
+        return new ArrayList<>(readIsAPropIdsCached(id));
+    }
+
+    private List<String> readIsAPropIdsCached(String id)
+            throws KnowledgeSourceReadException {
+        Object cached = this.isACache.get(id);
+        if (cached != NOT_CACHED) {
+            @SuppressWarnings("unchecked")
+            List<String> result = (List<String>) cached;
+            return result;
+        }
+        long generation = this.cacheGeneration;
         Set<String> isAs = new HashSet<>();
         for (KnowledgeSourceBackend backend : getBackends()) {
             Arrays.addAll(isAs, backend.readIsA(id));
         }
-        return new ArrayList<>(isAs);
+        List<String> result
+                = Collections.unmodifiableList(new ArrayList<>(isAs));
+        this.isACache.put(id, result, generation);
+        return result;
     }
 
     @Override
@@ -485,34 +540,134 @@ public final class KnowledgeSourceImpl
         return this.tempPropDefReader.read(propIds);
     }
 
+    /**
+     * A bounded least-recently-used map that counts its hits and misses in
+     * the knowledge source's cache statistics. A value that is read from the
+     * backends is only added if the caches have not been cleared since the
+     * read began, so that a concurrent {@link #clear()} cannot be undone by a
+     * read of stale data.
+     *
+     * @param <K> the key type.
+     * @param <V> the value type. Values may be <code>null</code>.
+     */
+    private final class ReadCache<K, V> {
+
+        private final Map<K, V> map;
+
+        ReadCache() {
+            final int maximumSize = cacheMaximumSize;
+            this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        /**
+         * Returns the cached value for a key.
+         *
+         * @param key the key.
+         * @return the cached value, which may be <code>null</code>, or
+         * {@link #NOT_CACHED} if there is no entry for the key.
+         */
+        synchronized Object get(K key) {
+            V value = this.map.get(key);
+            if (value != null || this.map.containsKey(key)) {
+                cacheHits.incrementAndGet();
+                return value;
+            } else {
+                cacheMisses.incrementAndGet();
+                return NOT_CACHED;
+            }
+        }
+
+        synchronized void put(K key, V value, long generation) {
+            if (generation == cacheGeneration) {
+                this.map.put(key, value);
+            }
+        }
+
+        synchronized void clear() {
+            this.map.clear();
+        }
+    }
+
     private abstract class AbstractDefinitionReader<E extends PropositionDefinition> {
 
+        private final ReadCache<String, E> cache = new ReadCache<>();
+
         final E read(String id) throws KnowledgeSourceReadException {
             if (id == null) {
                 throw new IllegalArgumentException("id cannot be null");
             }
             initializeIfNeeded("reading the proposition definition {0}", id);
 
+            Object cached = this.cache.get(id);
+            if (cached != NOT_CACHED) {
+                return cast(cached);
+            }
+            long generation = cacheGeneration;
             E result = null;
-            if (result == null) {
-                for (KnowledgeSourceBackend backend : getBackends()) {
-                    result = readFromBackend(id, backend);
-                    if (result != null) {
-                        return result;
-                    }
+            for (KnowledgeSourceBackend backend : getBackends()) {
+                result = readFromBackend(id, backend);
+                if (result != null) {
+                    break;
                 }
             }
+            this.cache.put(id, result, generation);
             return result;
         }
 
+        /**
+         * Reads the definitions with the given ids, in the order of the ids.
+         * Only the ids that are not in the cache are read from the backends.
+         * If more than one backend has a definition with the same id, the
+         * first backend's definition is returned, as in
+         * {@link #read(java.lang.String)}.
+         *
+         * @param ids the ids of the definitions to read.
+         * @return the definitions that were found.
+         * @throws KnowledgeSourceReadException if an error occurred reading
+         * from a backend.
+         */
         final List<E> read(String[] ids) throws KnowledgeSourceReadException {
             assert ids != null : "ids cannot be null";
             initializeIfNeeded("reading the proposition definitions {0}", ids);
 
-            List<E> result = new ArrayList<>();
+            Set<String> idsAsSet = new LinkedHashSet<>(Arrays.asList(ids));
+            Map<String, E> found = new HashMap<>();
+            List<String> misses = new ArrayList<>();
+            for (String id : idsAsSet) {
+                Object cached = this.cache.get(id);
+                if (cached == NOT_CACHED) {
+                    misses.add(id);
+                } else {
+                    found.put(id, cast(cached));
+                }
+            }
+            if (!misses.isEmpty()) {
+                long generation = cacheGeneration;
+                for (KnowledgeSourceBackend backend : getBackends()) {
+                    for (E def : readFromBackend(misses, backend)) {
+                        if (found.get(def.getId()) == null) {
+                            found.put(def.getId(), def);
+                        }
+                    }
+                }
+                for (String id : misses) {
+                    this.cache.put(id, found.get(id), generation);
+                }
+            }
 
-            for (KnowledgeSourceBackend backend : getBackends()) {
-                result.addAll(readFromBackend(Arrays.asList(ids), backend));
+            List<E> result = new ArrayList<>(idsAsSet.size());
+            for (String id : idsAsSet) {
+                E def = found.get(id);
+                if (def != null) {
+                    result.add(def);
+                }
             }
             return result;
         }
@@ -524,6 +679,15 @@ public final class KnowledgeSourceImpl
             return read(id) != null;
         }
 
+        final void clear() {
+            this.cache.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        private E cast(Object cached) {
+            return (E) cached;
+        }
+
         protected abstract E readFromBackend(String id,
                 KnowledgeSourceBackend backend)
                 throws KnowledgeSourceReadException;
@@ -689,8 +853,40 @@ public final class KnowledgeSourceImpl
         super.close();
     }
 
+    /**
+     * Clears the knowledge source's read caches. The hit and miss counts are
+     * not reset.
+     */
     @Override
     public void clear() {
+        this.cacheGeneration++;
+        this.propDefReader.clear();
+        this.abstractionDefReader.clear();
+        this.contextDefReader.clear();
+        this.tempPropDefReader.clear();
+        this.isACache.clear();
+        this.subtreePropIdsCache.clear();
+        this.subtreePropDefsCache.clear();
+    }
+
+    /**
+     * Returns the number of reads that were answered from the knowledge
+     * source's caches since it was created.
+     *
+     * @return the number of cache hits.
+     */
+    public long getCacheHitCount() {
+        return this.cacheHits.get();
+    }
+
+    /**
+     * Returns the number of reads that went to the knowledge source backends
+     * because the requested data was not in the knowledge source's caches.
+     *
+     * @return the number of cache misses.
+     */
+    public long getCacheMissCount() {
+        return this.cacheMisses.get();
     }
 
     @Override
@@ -700,7 +896,7 @@ public final class KnowledgeSourceImpl
                 "Getting proposition ids for {0} with inDataSource set to true",
                 StringUtils.join(propIds, ","));
         ProtempaUtil.checkArrayForNullElement(propIds, "propIds");
-        return this.inDataSourceGetter.subtreePropIds(inDataSourceOnly, propIds);
+        return subtreePropIds(this.inDataSourceGetter, inDataSourceOnly, propIds);
     }
 
     @Override
@@ -710,7 +906,7 @@ public final class KnowledgeSourceImpl
                 "Getting proposition definitions for {0} with inDataSource set to true",
                 StringUtils.join(propIds, ","));
         ProtempaUtil.checkArrayForNullElement(propIds, "propIds");
-        return this.inDataSourceGetter.subtreePropDefs(inDataSourceOnly, propIds);
+        return subtreePropDefs(this.inDataSourceGetter, inDataSourceOnly, propIds);
     }
 
     @Override
@@ -719,7 +915,7 @@ public final class KnowledgeSourceImpl
                 "Getting proposition ids for {0}",
                 StringUtils.join(propIds, ","));
         ProtempaUtil.checkArrayForNullElement(propIds, "propIds");
-        return this.collectSubtreeGetter.subtreePropIds(false, propIds);
+        return subtreePropIds(this.collectSubtreeGetter, false, propIds);
     }
 
     @Override
@@ -728,7 +924,60 @@ public final class KnowledgeSourceImpl
                 "Getting proposition definitions for {0}",
                 StringUtils.join(propIds, ","));
         ProtempaUtil.checkArrayForNullElement(propIds, "propIds");
-        return this.collectSubtreeGetter.subtreePropDefs(false, propIds);
+        return subtreePropDefs(this.collectSubtreeGetter, false, propIds);
+    }
+
+    private Set<String> subtreePropIds(
+            SubtreePropositionDefinitionGetterRegular getter,
+            boolean inDataSourceOnly, String... propIds)
+            throws KnowledgeSourceReadException {
+        List<Object> key = subtreeKey(getter, inDataSourceOnly, propIds);
+        Object cached = this.subtreePropIdsCache.get(key);
+        if (cached != NOT_CACHED) {
+            @SuppressWarnings("unchecked")
+            Set<String> result = (Set<String>) cached;
+            return new HashSet<>(result);
+        }
+        long generation = this.cacheGeneration;
+        Set<String> result = getter.subtreePropIds(inDataSourceOnly, propIds);
+        this.subtreePropIdsCache.put(key,
+                Collections.unmodifiableSet(new HashSet<>(result)), generation);
+        return result;
+    }
+
+    private Set<PropositionDefinition> subtreePropDefs(
+            SubtreePropositionDefinitionGetterRegular getter,
+            boolean inDataSourceOnly, String... propIds)
+            throws KnowledgeSourceReadException {
+        List<Object> key = subtreeKey(getter, inDataSourceOnly, propIds);
+        Object cached = this.subtreePropDefsCache.get(key);
+        if (cached != NOT_CACHED) {
+            @SuppressWarnings("unchecked")
+            Set<PropositionDefinition> result
+                    = (Set<PropositionDefinition>) cached;
+            return new HashSet<>(result);
+        }
+        long generation = this.cacheGeneration;
+        Set<PropositionDefinition> result
+                = getter.subtreePropDefs(inDataSourceOnly, propIds);
+        this.subtreePropDefsCache.put(key,
+                Collections.unmodifiableSet(new HashSet<>(result)), generation);
+        return result;
+    }
+
+    /**
+     * Creates a subtree cache key. The order and multiplicity of the
+     * proposition ids do not affect a subtree, so they are not part of the
+     * key.
+     */
+    private List<Object> subtreeKey(
+            SubtreePropositionDefinitionGetterRegular getter,
+            boolean inDataSourceOnly, String[] propIds) {
+        List<Object> key = new ArrayList<>(3);
+        key.add(getter == this.inDataSourceGetter);
+        key.add(inDataSourceOnly);
+        key.add(new TreeSet<>(Arrays.asList(propIds)));
+        return key;
     }
 
     @Override
@@ -19,10 +19,7 @@
  */
 package org.protempa;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -34,6 +31,7 @@ import org.drools.spi.KnowledgeHelper;
 import org.protempa.proposition.Context;
 import org.protempa.proposition.PrimitiveParameter;
 import org.protempa.proposition.Sequence;
+import org.protempa.proposition.interval.Interval;
 import org.protempa.proposition.interval.Relation;
 
 /**
@@ -47,18 +45,21 @@ final class LowLevelAbstractionConsequence implements Consequence {
             null, null, null, null, null, null, null, 0, null, null, null);
     private final LowLevelAbstractionDefinition def;
     private final Algorithm algorithm;
-    private final DerivationsBuilder derivationsBuilder;
-    private transient MyObjectAsserter objAsserter;
 
     private void doProcess(KnowledgeHelper knowledgeHelper, Sequence<PrimitiveParameter> subSeq) throws AlgorithmProcessingException, AlgorithmInitializationException {
-        objAsserter.knowledgeHelper = knowledgeHelper;
+        WorkingMemory workingMemory = knowledgeHelper.getWorkingMemory();
         LowLevelAbstractionFinder.process(subSeq, this.def, this.algorithm,
-                objAsserter, this.derivationsBuilder, knowledgeHelper.getWorkingMemory());
-        objAsserter.knowledgeHelper = null;
+                new MyObjectAsserter(knowledgeHelper), 
+                WorkingMemoryGlobals.getDerivationsBuilder(workingMemory), 
+                workingMemory);
     }
 
     private static class MyObjectAsserter implements ObjectAsserter {
-        private KnowledgeHelper knowledgeHelper;
+        private final KnowledgeHelper knowledgeHelper;
+        
+        MyObjectAsserter(KnowledgeHelper knowledgeHelper) {
+            this.knowledgeHelper = knowledgeHelper;
+        }
 
         @Override
         public void assertObject(Object obj) {
@@ -69,11 +70,9 @@ final class LowLevelAbstractionConsequence implements Consequence {
 
     LowLevelAbstractionConsequence(
             LowLevelAbstractionDefinition simpleAbstractionDef,
-            Algorithm algorithm, DerivationsBuilder derivationsBuilder) {
+            Algorithm algorithm) {
         this.def = simpleAbstractionDef;
         this.algorithm = algorithm;
-        this.derivationsBuilder = derivationsBuilder;
-        this.objAsserter = new MyObjectAsserter();
     }
 
     @SuppressWarnings("unchecked")
@@ -92,44 +91,125 @@ final class LowLevelAbstractionConsequence implements Consequence {
 
             Sequence<Context> contextSeq =
                     new Sequence<>(this.def.getContextId(), contexts);
-            LinkedList<PrimitiveParameter> ll = new LinkedList<>(seq);
+            for (Sequence<PrimitiveParameter> subSeq
+                    : partition(seq, contextSeq)) {
+                doProcess(kh, subSeq);
+            }
+        } else {
+            doProcess(kh, seq);
+        }
 
-            for (Context context : contextSeq) {
-                boolean in = false;
-                Iterator<PrimitiveParameter> itr = ll.iterator();
-                PrimitiveParameter tp = itr.next();
-                Sequence<PrimitiveParameter> subSeq =
-                        new Sequence<>(seq.getPropositionIds());
-                while (true) {
-                    if (REL.hasRelation(tp.getInterval(), context.getInterval())) {
-                        subSeq.add(tp);
-                        in = true;
-                        itr.remove();
-                    } else if (in) {
-                        in = false;
-                        break;
-                    }
-                    
-                    if (itr.hasNext()) {
-                        tp = itr.next();
-                    } else {
-                        break;
-                    }
+    }
 
-                }
-                if (!subSeq.isEmpty()) {
-                    doProcess(kh, subSeq);
-                    subSeq.clear();
+    /**
+     * Splits a sequence of primitive parameters into a sequence per context.
+     * For each context in turn, its sequence is the first run of the
+     * parameters not already in a previous context's sequence that are
+     * within the context. Contexts with no parameters are skipped.
+     *
+     * Both sequences are sorted once, and the parameters are swept with
+     * bounds on where each context's parameters can be: a running maximum of
+     * the parameters' maximum starts and a running minimum from the end of
+     * their minimum finishes, which a parameter must be at least and at most
+     * to be within a context. Parameters already taken by a context are
+     * skipped with an array of links to the next parameter not yet taken.
+     *
+     * @param seq a {@link Sequence} of {@link PrimitiveParameter}s.
+     * @param contexts a {@link Sequence} of {@link Context}s.
+     * @return a {@link List} of the non-empty sequences, in context order.
+     */
+    static List<Sequence<PrimitiveParameter>> partition(
+            Sequence<PrimitiveParameter> seq, Sequence<Context> contexts) {
+        List<Sequence<PrimitiveParameter>> result = new ArrayList<>();
+        int n = seq.size();
+        if (n == 0) {
+            return result;
+        }
+        Interval[] intervals = new Interval[n];
+        long[] maxStarts = new long[n];
+        long[] minFinishes = new long[n];
+        int[] next = new int[n + 1];
+        long maxStart = Interval.NEGATIVE_INFINITY;
+        int i = 0;
+        for (PrimitiveParameter param : seq) {
+            Interval interval = param.getInterval();
+            intervals[i] = interval;
+            if (interval != null) {
+                maxStart = Math.max(maxStart, interval.maximumStart());
+            }
+            maxStarts[i] = maxStart;
+            next[i] = i;
+            i++;
+        }
+        next[n] = n;
+        long minFinish = Interval.POSITIVE_INFINITY;
+        for (i = n - 1; i >= 0; i--) {
+            if (intervals[i] != null) {
+                minFinish = Math.min(minFinish, intervals[i].minimumFinish());
+            }
+            minFinishes[i] = minFinish;
+        }
+
+        for (Context context : contexts) {
+            Interval contextInterval = context.getInterval();
+            if (contextInterval == null) {
+                continue;
+            }
+            long contextMinFinish = contextInterval.minimumFinish();
+            Sequence<PrimitiveParameter> subSeq = null;
+            for (i = nextNotTaken(next, firstAtLeast(maxStarts,
+                    contextInterval.maximumStart()));
+                    i < n && minFinishes[i] <= contextMinFinish;
+                    i = nextNotTaken(next, i + 1)) {
+                if (REL.hasRelation(intervals[i], contextInterval)) {
+                    if (subSeq == null) {
+                        subSeq = new Sequence<>(seq.getPropositionIds());
+                    }
+                    subSeq.add(seq.get(i));
+                    next[i] = i + 1;
+                } else if (subSeq != null) {
+                    break;
                 }
             }
-        } else {
-            doProcess(kh, seq);
+            if (subSeq != null) {
+                result.add(subSeq);
+            }
         }
+        return result;
+    }
 
+    /**
+     * Returns the index of the first element of a nondecreasing array that
+     * is at least the given value.
+     */
+    private static int firstAtLeast(long[] values, long value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
-    private void readObject(ObjectInputStream s) throws IOException, ClassNotFoundException {
-        s.defaultReadObject();
-        this.objAsserter = new MyObjectAsserter();
+    /**
+     * Follows the links from an index to the first parameter at or after it
+     * that has not been taken, shortening the links along the way.
+     */
+    private static int nextNotTaken(int[] next, int i) {
+        int root = i;
+        while (next[root] != root) {
+            root = next[root];
+        }
+        while (next[i] != root) {
+            int j = next[i];
+            next[i] = root;
+            i = j;
+        }
+        return root;
     }
 }
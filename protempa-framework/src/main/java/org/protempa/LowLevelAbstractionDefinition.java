@@ -541,9 +541,35 @@ public final class LowLevelAbstractionDefinition
             Segment<PrimitiveParameter> segment, Algorithm algorithm)
             throws AlgorithmInitializationException,
             AlgorithmProcessingException {
+        return satisfiedBy(segment, null, algorithm);
+    }
+
+    /**
+     * Test whether or not the given time series satisfies the constraints of
+     * this detector and an optional algorithm, using the sliding windows of
+     * {@link IncrementalAlgorithm}s.
+     *
+     * @param segment
+     *            a time series <code>Segment</code>.
+     * @param windows
+     *            the {@link SlidingWindows} of the segment's sequence, or
+     *            <code>null</code>.
+     * @param algorithm
+     *            an <code>Algorithm</code>, or <code>null</code> to
+     *            specify no algorithm.
+     * @return the first value definition whose constraints the time series
+     *         segment satisfies, or <code>null</code> if none.
+     * @throws AlgorithmProcessingException
+     * @throws AlgorithmInitializationException
+     */
+    final LowLevelAbstractionValueDefinition satisfiedBy(
+            Segment<PrimitiveParameter> segment, SlidingWindows windows,
+            Algorithm algorithm)
+            throws AlgorithmInitializationException,
+            AlgorithmProcessingException {
         if (satisfiesGapBetweenValues(segment)) {
             for (LowLevelAbstractionValueDefinition valueDef : this.valueDefinitions) {
-                if (valueDef.satisfiedBy(segment, algorithm)) {
+                if (valueDef.satisfiedBy(segment, windows, algorithm)) {
                     return valueDef;
                 }
             }
@@ -302,13 +302,17 @@ public final class LowLevelAbstractionFinder {
         JBossRulesDerivedLocalUniqueIdValuesProvider provider = new JBossRulesDerivedLocalUniqueIdValuesProvider(workingMemory, id);
         UniqueIdFactory factory = new ProviderBasedUniqueIdFactory(provider);
         GapFunction gf = def.getGapFunction();
+        SlidingWindows windows = algorithm instanceof IncrementalAlgorithm
+                ? new SlidingWindows((IncrementalAlgorithm) algorithm, seq)
+                : null;
 
         if (seg != null) {
             Segment<PrimitiveParameter> lastSeg = null;
             LowLevelAbstractionValueDefinition prevFoundValue = null;
             LowLevelAbstractionValueDefinition foundValue = null;
             do {
-                if ((foundValue = def.satisfiedBy(seg, algorithm)) != null) {
+                if ((foundValue = def.satisfiedBy(seg, windows,
+                        algorithm)) != null) {
                     Segment<PrimitiveParameter> nextSeg = null;
                     do {
                         if (lastSeg != null
@@ -338,7 +342,8 @@ public final class LowLevelAbstractionFinder {
                     } while ((nextSeg = nextSegmentAfterMatch(def, seg,
                             algorithm, minPatternLength, maxPatternLength)) != null
                             && (foundValue =
-                            def.satisfiedBy(nextSeg, algorithm)) != null);
+                            def.satisfiedBy(nextSeg, windows, algorithm))
+                            != null);
                 }
             } while (advanceRow(def, seg, lastSeg, algorithm, minPatternLength,
                     maxPatternLength) != null);
@@ -111,6 +111,30 @@ public class LowLevelAbstractionValueDefinition implements Serializable {
             Segment<PrimitiveParameter> segment, Algorithm algorithm)
             throws AlgorithmInitializationException,
             AlgorithmProcessingException {
+        return satisfiedBy(segment, null, algorithm);
+    }
+
+    /**
+     * Test whether or not the given time series satisfies the constraints of
+     * this detector and an optional algorithm, using the sliding windows of
+     * {@link IncrementalAlgorithm}s.
+     *
+     * @param segment a time series <code>Segment</code>, cannot be
+     * <code>null</code>.
+     * @param windows the {@link SlidingWindows} of the segment's sequence,
+     * or <code>null</code>.
+     * @param algorithm an <code>Algorithm</code>, or <code>null</code> to
+     * specify no algorithm.
+     * @return <code>true</code> if the time series segment satisfies the
+     * constraints of this detector, <code>false</code> otherwise
+     * @throws AlgorithmInitializationException
+     * @throws AlgorithmProcessingException
+     */
+    final boolean satisfiedBy(
+            Segment<PrimitiveParameter> segment, SlidingWindows windows,
+            Algorithm algorithm)
+            throws AlgorithmInitializationException,
+            AlgorithmProcessingException {
         Object result = null;
         if (algorithm != null) {
             if (this.algorithmArguments == null) {
@@ -118,7 +142,12 @@ public class LowLevelAbstractionValueDefinition implements Serializable {
                         this);
                 algorithm.initialize(this.algorithmArguments);
             }
-            result = algorithm.compute(segment, this.algorithmArguments);
+            if (windows != null && algorithm instanceof IncrementalAlgorithm) {
+                result = windows.compute(this, this.algorithmArguments,
+                        segment);
+            } else {
+                result = algorithm.compute(segment, this.algorithmArguments);
+            }
         } else {
             result = BooleanValue.TRUE;
         }
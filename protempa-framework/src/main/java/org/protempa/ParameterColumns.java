@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.List;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.Value;
+import org.protempa.proposition.value.ValueComparator;
+
+/**
+ * A column-oriented view of a sequence of primitive parameters, with their
+ * positions and values in parallel primitive arrays. It is built once per
+ * sequence by {@link SlidingWindows} and read by the
+ * {@link AlgorithmWindow}s of {@link IncrementalAlgorithm}s, so that they
+ * can process the overlapping segments of the sequence without going
+ * through each parameter's {@link Value}.
+ *
+ * Only number values that compare with each other the same as their
+ * <code>double</code> values do, that is, those for which
+ * {@link NumberValue#isDoubleComparable()} is <code>true</code>, are numeric
+ * in this view. These are the values created from a <code>double</code>, and
+ * decimal values with at most 15 significant digits that are zero or in the
+ * range of normal <code>double</code>s. All other values, including
+ * <code>null</code> values and inequality number values, are marked
+ * non-numeric, and algorithms should process segments containing them
+ * through the parameters' values.
+ *
+ * @author Andrew Post
+ */
+public final class ParameterColumns {
+
+    private final List<PrimitiveParameter> parameters;
+    private final long[] positions;
+    private final boolean[] hasPosition;
+    private final double[] values;
+    /**
+     * The number of non-numeric values before each index, so that whether a
+     * range of values is numeric can be checked in constant time.
+     */
+    private final int[] nonNumericCounts;
+
+    /**
+     * Creates a column view of the given primitive parameters.
+     *
+     * @param parameters a {@link List} of {@link PrimitiveParameter}s, such
+     * as a sequence. Cannot be <code>null</code>.
+     */
+    public ParameterColumns(List<PrimitiveParameter> parameters) {
+        if (parameters == null) {
+            throw new IllegalArgumentException("parameters cannot be null");
+        }
+        this.parameters = parameters;
+        int n = parameters.size();
+        this.positions = new long[n];
+        this.hasPosition = new boolean[n];
+        this.values = new double[n];
+        this.nonNumericCounts = new int[n + 1];
+        int i = 0;
+        for (PrimitiveParameter param : parameters) {
+            Long position = param.getPosition();
+            if (position != null) {
+                this.positions[i] = position;
+                this.hasPosition[i] = true;
+            }
+            Value value = param.getValue();
+            int nonNumeric = this.nonNumericCounts[i];
+            if (isNumeric(value)) {
+                this.values[i] = ((NumberValue) value).doubleValue();
+            } else {
+                this.values[i] = Double.NaN;
+                nonNumeric++;
+            }
+            this.nonNumericCounts[++i] = nonNumeric;
+        }
+    }
+
+    /**
+     * Returns the number of parameters in this view.
+     *
+     * @return the number of parameters.
+     */
+    public int size() {
+        return this.values.length;
+    }
+
+    /**
+     * Returns the parameter at the given index.
+     *
+     * @param index an index.
+     * @return a {@link PrimitiveParameter}.
+     */
+    public PrimitiveParameter getParameter(int index) {
+        return this.parameters.get(index);
+    }
+
+    /**
+     * Returns whether the parameter at the given index has a position.
+     *
+     * @param index an index.
+     * @return <code>true</code> or <code>false</code>.
+     */
+    public boolean hasPosition(int index) {
+        return this.hasPosition[index];
+    }
+
+    /**
+     * Returns the position of the parameter at the given index.
+     *
+     * @param index an index.
+     * @return the position, or <code>0</code> if the parameter has none.
+     */
+    public long getPosition(int index) {
+        return this.positions[index];
+    }
+
+    /**
+     * Returns whether the value of the parameter at the given index is
+     * numeric.
+     *
+     * @param index an index.
+     * @return <code>true</code> or <code>false</code>.
+     */
+    public boolean isNumeric(int index) {
+        return this.nonNumericCounts[index + 1] == this.nonNumericCounts[index];
+    }
+
+    /**
+     * Returns whether the values of the parameters in the given range are all
+     * numeric.
+     *
+     * @param firstIndex the first index of the range, inclusive.
+     * @param lastIndex the last index of the range, inclusive.
+     * @return <code>true</code> if the range is not empty and all of its
+     * values are numeric, <code>false</code> otherwise.
+     */
+    public boolean isNumeric(int firstIndex, int lastIndex) {
+        return firstIndex <= lastIndex
+                && this.nonNumericCounts[lastIndex + 1]
+                == this.nonNumericCounts[firstIndex];
+    }
+
+    /**
+     * Returns the value of the parameter at the given index.
+     *
+     * @param index an index.
+     * @return the value, or {@link Double#NaN} if the value is not numeric.
+     */
+    public double getValue(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * Returns whether a value would be numeric in a column view, for checking
+     * algorithm arguments such as thresholds.
+     *
+     * @param value a {@link Value}.
+     * @return <code>true</code> if the value is a {@link NumberValue} that
+     * compares the same as a <code>double</code>, <code>false</code>
+     * otherwise.
+     */
+    public static boolean isNumeric(Value value) {
+        return value instanceof NumberValue
+                && ((NumberValue) value).isDoubleComparable();
+    }
+
+    /**
+     * Compares two numeric values the same way that
+     * {@link ValueComparator#compare(Value, Value)} compares the
+     * corresponding number values.
+     *
+     * @param comparator a {@link ValueComparator}.
+     * @param lhs the left-hand side value.
+     * @param rhs the right-hand side value.
+     * @return whether <code>comparator</code> includes how the values
+     * compare.
+     */
+    public static boolean compare(ValueComparator comparator, double lhs,
+            double rhs) {
+        return comparator.includes(lhs > rhs ? ValueComparator.GREATER_THAN
+                : (lhs < rhs ? ValueComparator.LESS_THAN
+                        : ValueComparator.EQUAL_TO));
+    }
+}
@@ -22,11 +22,9 @@ package org.protempa;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
+import org.arp.javautil.arrays.Arrays;
 
 /**
  * A cache containing all of the proposition definitions currently being
@@ -37,6 +35,7 @@ import java.util.Set;
 public class PropositionDefinitionCache {
 
     private final Map<String, PropositionDefinition> cache;
+    private TransitiveClosureIndex inverseIsAIndex;
 
     public PropositionDefinitionCache(Collection<? extends PropositionDefinition> propDefs) {
         this.cache = new HashMap<>();
@@ -56,6 +55,7 @@ public class PropositionDefinitionCache {
             for (Map.Entry<String, PropositionDefinition> me : otherCache.cache.entrySet()) {
                 this.cache.putIfAbsent(me.getKey(), me.getValue());
             }
+            this.inverseIsAIndex = null;
         }
     }
 
@@ -77,24 +77,29 @@ public class PropositionDefinitionCache {
     }
     
     public PropositionDefinition remove(String id) {
+        this.inverseIsAIndex = null;
         return this.cache.remove(id);
     }
 
+    /**
+     * Gets the given proposition ids and the ids of their descendants using
+     * the inverse is-a relationships of the proposition definitions in this
+     * cache. The descendants of each proposition id are computed once and
+     * then reused until this cache is modified.
+     *
+     * @param propIds proposition ids.
+     * @return a newly created set of proposition ids.
+     * @throws QueryException never.
+     */
     public Set<String> collectPropIdDescendantsUsingInverseIsA(String... propIds) throws QueryException {
-        Set<String> result = new HashSet<>();
-        Queue<String> queue = new LinkedList<>();
-        org.arp.javautil.arrays.Arrays.addAll(queue, propIds);
-        String propId;
-        while ((propId = queue.poll()) != null) {
-            if (result.add(propId)) {
-                PropositionDefinition pd = cache.get(propId);
-                if (pd != null) {
-                    String[] children = pd.getInverseIsA();
-                    org.arp.javautil.arrays.Arrays.addAll(queue, children);
-                }
-            }
+        return getInverseIsAIndex().closurePropIds(Arrays.asList(propIds));
+    }
+
+    private synchronized TransitiveClosureIndex getInverseIsAIndex() {
+        if (this.inverseIsAIndex == null) {
+            this.inverseIsAIndex = new TransitiveClosureIndex(this.cache, false);
         }
-        return result;
+        return this.inverseIsAIndex;
     }
 
 }
@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.drools.base.ClassFieldExtractor;
+import org.drools.base.ClassFieldExtractorCache;
+import org.drools.base.ClassObjectType;
+import org.drools.base.FieldFactory;
+import org.drools.base.ValueType;
+import org.drools.base.evaluators.Operator;
+import org.drools.rule.LiteralConstraint;
+import org.drools.rule.Pattern;
+import org.drools.rule.PredicateConstraint;
+import org.drools.spi.AlphaNodeFieldConstraint;
+
+/**
+ * Creates constraints on the ids of the propositions that a pattern matches.
+ * Patterns get a {@link PropositionPredicateExpression} by default. If the
+ * {@link #SYSTEM_PROPERTY_INDEXED} system property is <code>true</code>, a
+ * pattern that matches a single proposition id instead gets a literal
+ * equality constraint on the <code>id</code> field, which Drools hashes
+ * across the patterns of an object type. Inserting a proposition then only
+ * evaluates the patterns for its id rather than a predicate for every
+ * pattern of the object type. Patterns that match more than one proposition
+ * id always get a predicate.
+ *
+ * @author Andrew Post
+ */
+final class PropositionIdConstraints {
+
+    /**
+     * System property for whether patterns that match a single proposition
+     * id get a literal constraint on the <code>id</code> field. The default
+     * is <code>false</code>.
+     */
+    static final String SYSTEM_PROPERTY_INDEXED
+            = "protempa.ruleCreator.indexedIdConstraints";
+
+    private static final Logger LOGGER
+            = Logger.getLogger(PropositionIdConstraints.class.getName());
+
+    private static final String ID_FIELD = "id";
+
+    private PropositionIdConstraints() {
+    }
+
+    /**
+     * Adds a constraint to a pattern that a proposition's id is one of the
+     * given ids.
+     *
+     * @param pattern a {@link Pattern}.
+     * @param objectType the pattern's {@link ClassObjectType}.
+     * @param propIds the proposition ids.
+     */
+    static void add(Pattern pattern, ClassObjectType objectType,
+            Set<String> propIds) {
+        if (!addIndexed(pattern, objectType, propIds)) {
+            pattern.addConstraint(new PredicateConstraint(
+                    new PropositionPredicateExpression(propIds)));
+        }
+    }
+
+    /**
+     * Adds a constraint to a pattern that a proposition's id is the given id.
+     *
+     * @param pattern a {@link Pattern}.
+     * @param objectType the pattern's {@link ClassObjectType}.
+     * @param propId a proposition id.
+     */
+    static void add(Pattern pattern, ClassObjectType objectType,
+            String propId) {
+        add(pattern, objectType, Collections.singleton(propId));
+    }
+
+    /**
+     * Adds a literal constraint to a pattern that a proposition's id is the
+     * given id if there is only one. Callers that evaluate the proposition
+     * id in a predicate anyway should call this first so that the predicate
+     * is only evaluated for propositions with that id.
+     *
+     * @param pattern a {@link Pattern}.
+     * @param objectType the pattern's {@link ClassObjectType}.
+     * @param propIds the proposition ids.
+     * @return <code>true</code> if a constraint was added,
+     * <code>false</code> if there is not exactly one id, literal constraints
+     * are turned off, or Drools could not create one for the object type.
+     */
+    static boolean addIndexed(Pattern pattern, ClassObjectType objectType,
+            Set<String> propIds) {
+        if (propIds.size() != 1 || !Boolean.getBoolean(SYSTEM_PROPERTY_INDEXED)) {
+            return false;
+        }
+        AlphaNodeFieldConstraint constraint = newEqualTo(objectType,
+                propIds.iterator().next());
+        if (constraint == null) {
+            return false;
+        }
+        pattern.addConstraint(constraint);
+        return true;
+    }
+
+    /**
+     * Creates a literal constraint that a proposition's id is the given id.
+     *
+     * @return the constraint, or <code>null</code> if Drools could not
+     * create a field extractor for the id of the object type.
+     */
+    private static AlphaNodeFieldConstraint newEqualTo(
+            ClassObjectType objectType, String propId) {
+        ClassFieldExtractor extractor;
+        try {
+            extractor = ClassFieldExtractorCache.getInstance().getExtractor(
+                    objectType.getClassType(), ID_FIELD,
+                    PropositionIdConstraints.class.getClassLoader());
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING,
+                    "Could not create an extractor for the id of "
+                    + objectType.getClassType().getName()
+                    + "; using a predicate instead", ex);
+            return null;
+        }
+        ValueType valueType = extractor.getValueType();
+        return new LiteralConstraint(extractor,
+                valueType.getEvaluator(Operator.EQUAL),
+                FieldFactory.getFieldValue(propId, valueType));
+    }
+}
@@ -35,11 +35,13 @@ final class QueueObject {
     Map<Proposition, Set<Proposition>> forwardDerivations;
     Map<Proposition, Set<Proposition>> backwardDerivations;
     String keyId;
+    long sequenceNumber;
     Map<UniqueId, Proposition> refs;
 
-    QueueObject(String keyId, List<Proposition> propositions, 
+    QueueObject(String keyId, long sequenceNumber, List<Proposition> propositions, 
             Map<Proposition, Set<Proposition>> forwardDerivations, 
             Map<Proposition, Set<Proposition>> backwardDerivations, Map<UniqueId, Proposition> refs) {
+        this.sequenceNumber = sequenceNumber;
         this.propositions = propositions;
         this.forwardDerivations = forwardDerivations;
         this.backwardDerivations = backwardDerivations;
@@ -47,6 +49,18 @@ final class QueueObject {
         this.refs = refs;
     }
 
+    /**
+     * Creates a queue object for a key that failed processing and thus has no
+     * results.
+     * 
+     * @param keyId the key id.
+     * @param sequenceNumber the order in which the key was retrieved.
+     */
+    QueueObject(String keyId, long sequenceNumber) {
+        this.keyId = keyId;
+        this.sequenceNumber = sequenceNumber;
+    }
+
     QueueObject() {
     }
     
@@ -0,0 +1,463 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.codec.binary.Hex;
+import org.drools.RuleBase;
+import org.protempa.proposition.interval.Relation;
+import org.protempa.proposition.value.Granularity;
+import org.protempa.proposition.value.Unit;
+import org.protempa.proposition.value.Value;
+
+/**
+ * Process-wide least-recently-used cache of compiled rule bases. Translating
+ * proposition definitions into Drools rules and compiling the resulting Rete
+ * network is expensive, and consecutive queries against the same knowledge
+ * base and algorithm source usually produce identical rule bases. Rule bases
+ * hold no per-key state (see {@link WorkingMemoryGlobals}), so they may be
+ * shared by queries running one after another or at the same time.
+ *
+ * Entries are keyed by a SHA-256 fingerprint of the proposition definitions
+ * being translated, the proposition definition cache passed to the
+ * {@link JBossRuleCreator}, and the algorithms assigned to low-level
+ * abstraction definitions. The fingerprint covers the contents of the
+ * definitions that affect the generated rules (ids, abstracted-from ids,
+ * relations, value definitions, algorithm arguments and so on) in a
+ * canonical order, so equal definitions read again from a knowledge source
+ * backend have the same fingerprint, and a changed definition simply misses
+ * the cache. Display names, descriptions, source ids, versions and
+ * timestamps are left out, because they do not affect the rules. The cache is
+ * additionally cleared whenever a knowledge source or algorithm source fires
+ * an update event, so that stale rule bases are not kept in memory.
+ *
+ * The maximum number of cached rule bases may be set with the
+ * {@link #SYSTEM_PROPERTY_MAXIMUM_SIZE} system property. A value of
+ * <code>0</code> disables caching.
+ *
+ * @author Andrew Post
+ */
+final class RuleBaseCache {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(RuleBaseCache.class.getName());
+
+    /**
+     * System property for the maximum number of compiled rule bases to keep.
+     */
+    static final String SYSTEM_PROPERTY_MAXIMUM_SIZE
+            = "protempa.ruleBaseCache.maximumSize";
+
+    static final int DEFAULT_MAXIMUM_SIZE = 4;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final RuleBaseCache INSTANCE = new RuleBaseCache(
+            Integer.getInteger(SYSTEM_PROPERTY_MAXIMUM_SIZE,
+                    DEFAULT_MAXIMUM_SIZE));
+
+    private final int maximumSize;
+    private final Map<String, RuleBase> ruleBases;
+
+    static RuleBaseCache getInstance() {
+        return INSTANCE;
+    }
+
+    RuleBaseCache(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        this.ruleBases = new LinkedHashMap<String, RuleBase>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, RuleBase> eldest) {
+                return size() > RuleBaseCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns whether this cache will store any rule bases.
+     *
+     * @return <code>true</code> if the maximum size is greater than zero,
+     * <code>false</code> otherwise.
+     */
+    boolean isEnabled() {
+        return this.maximumSize > 0;
+    }
+
+    /**
+     * Computes the key under which the rule base for the given inputs is
+     * cached.
+     *
+     * @param propDefs the proposition definitions to translate into rules.
+     * Cannot be <code>null</code>.
+     * @param cache the proposition definition cache given to the rule creator.
+     * Cannot be <code>null</code>.
+     * @param algorithms the algorithms assigned to the low-level abstraction
+     * definitions. Cannot be <code>null</code>.
+     * @return the fingerprint, or <code>null</code> if caching is disabled or
+     * one of the inputs could not be fingerprinted.
+     */
+    String fingerprint(Collection<PropositionDefinition> propDefs,
+            PropositionDefinitionCache cache,
+            Map<LowLevelAbstractionDefinition, Algorithm> algorithms) {
+        assert propDefs != null : "propDefs cannot be null";
+        assert cache != null : "cache cannot be null";
+        assert algorithms != null : "algorithms cannot be null";
+        if (!isEnabled()) {
+            return null;
+        }
+        Map<String, PropositionDefinition> allPropDefs = new TreeMap<>();
+        ArrayList<String> propDefIds = new ArrayList<>(propDefs.size());
+        for (PropositionDefinition propDef : propDefs) {
+            allPropDefs.put(propDef.getId(), propDef);
+            propDefIds.add(propDef.getId());
+        }
+        Collections.sort(propDefIds);
+        ArrayList<String> cacheIds = new ArrayList<>();
+        for (PropositionDefinition propDef : cache.getAll()) {
+            allPropDefs.putIfAbsent(propDef.getId(), propDef);
+            cacheIds.add(propDef.getId());
+        }
+        Collections.sort(cacheIds);
+        Map<String, Algorithm> algorithmsById = new TreeMap<>();
+        for (Map.Entry<LowLevelAbstractionDefinition, Algorithm> me
+                : algorithms.entrySet()) {
+            algorithmsById.put(me.getKey().getId(), me.getValue());
+        }
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new AssertionError(DIGEST_ALGORITHM
+                    + " is required to be supported by the JVM", ex);
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new DigestOutputStream(new DiscardingOutputStream(), digest))) {
+            CanonicalWriter writer = new CanonicalWriter();
+            writer.write(new ArrayList<>(allPropDefs.values()), out);
+            writer.write(propDefIds, out);
+            writer.write(cacheIds, out);
+            writer.write(algorithmsById, out);
+        } catch (IOException | IllegalStateException ex) {
+            LOGGER.log(Level.FINE,
+                    "Could not fingerprint the rule base's inputs; it will not be cached",
+                    ex);
+            return null;
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Gets a cached rule base.
+     *
+     * @param fingerprint a fingerprint computed by
+     * {@link #fingerprint(java.util.Collection, org.protempa.PropositionDefinitionCache, java.util.Map) }.
+     * @return the rule base, or <code>null</code> if there is none.
+     */
+    synchronized RuleBase get(String fingerprint) {
+        RuleBase result = this.ruleBases.get(fingerprint);
+        LOGGER.log(Level.FINE, "Rule base cache {0} for {1}",
+                new Object[]{result != null ? "hit" : "miss", fingerprint});
+        return result;
+    }
+
+    /**
+     * Adds a rule base to the cache, evicting the least recently used rule
+     * base if the cache is full.
+     *
+     * @param fingerprint a fingerprint computed by
+     * {@link #fingerprint(java.util.Collection, org.protempa.PropositionDefinitionCache, java.util.Map) }.
+     * @param ruleBase the compiled rule base.
+     */
+    synchronized void put(String fingerprint, RuleBase ruleBase) {
+        assert fingerprint != null : "fingerprint cannot be null";
+        assert ruleBase != null : "ruleBase cannot be null";
+        if (isEnabled()) {
+            this.ruleBases.put(fingerprint, ruleBase);
+        }
+    }
+
+    /**
+     * Removes all cached rule bases.
+     */
+    synchronized void clear() {
+        if (!this.ruleBases.isEmpty()) {
+            LOGGER.log(Level.FINE, "Clearing {0} cached rule base(s)",
+                    this.ruleBases.size());
+            this.ruleBases.clear();
+        }
+    }
+
+    synchronized int size() {
+        return this.ruleBases.size();
+    }
+
+    /**
+     * Writes an object graph in a canonical form: sets and maps are written
+     * in the order of their elements' and entries' canonical forms, and
+     * fields that do not affect the generated rules are skipped. Proposition
+     * definitions that are referenced from another proposition definition are
+     * written as their ids. Other objects are written field by field, apart
+     * from a few types that are written by value.
+     */
+    private static final class CanonicalWriter {
+
+        /**
+         * Fields of proposition definitions and of their parts that describe
+         * rather than define them, or that cache values computed from other
+         * fields.
+         */
+        private static final Set<String> SKIPPED_FIELDS
+                = new HashSet<>(Arrays.asList("displayName",
+                        "abbrevDisplayName", "abbreviatedDisplayName",
+                        "description", "sourceId", "accessed", "created",
+                        "updated", "downloaded", "version", "hashCode",
+                        "algorithmArguments"));
+
+        private static final Comparator<byte[]> BYTES_COMPARATOR
+                = new Comparator<byte[]>() {
+
+            @Override
+            public int compare(byte[] b1, byte[] b2) {
+                for (int i = 0, n = Math.min(b1.length, b2.length); i < n;
+                        i++) {
+                    int c = (b1[i] & 0xff) - (b2[i] & 0xff);
+                    if (c != 0) {
+                        return c;
+                    }
+                }
+                return b1.length - b2.length;
+            }
+        };
+
+        private final Map<Object, Object> inProgress = new IdentityHashMap<>();
+        private int propDefDepth;
+
+        void write(Object obj, DataOutputStream out) throws IOException {
+            if (obj == null) {
+                out.writeByte(0);
+            } else if (obj instanceof String || obj instanceof Number
+                    || obj instanceof Boolean || obj instanceof Character) {
+                writeScalar(obj.getClass(), obj.toString(), out);
+            } else if (obj instanceof Enum) {
+                Enum<?> e = (Enum<?>) obj;
+                writeScalar(e.getDeclaringClass(), e.name(), out);
+            } else if (obj instanceof Class) {
+                writeScalar(Class.class, ((Class<?>) obj).getName(), out);
+            } else if (obj instanceof Date) {
+                writeScalar(Date.class,
+                        String.valueOf(((Date) obj).getTime()), out);
+            } else if (obj instanceof Value) {
+                writeScalar(obj.getClass(), ((Value) obj).getFormatted(), out);
+            } else if (obj instanceof Unit) {
+                writeScalar(obj.getClass(), ((Unit) obj).getName(), out);
+            } else if (obj instanceof Granularity) {
+                writeScalar(obj.getClass(), ((Granularity) obj).getName(),
+                        out);
+            } else if (obj instanceof Algorithm) {
+                writeScalar(obj.getClass(), ((Algorithm) obj).getId(), out);
+            } else if (obj instanceof PropositionDefinition
+                    && this.propDefDepth > 0) {
+                writeScalar(PropositionDefinition.class,
+                        ((PropositionDefinition) obj).getId(), out);
+            } else {
+                if (this.inProgress.put(obj, obj) != null) {
+                    throw new IllegalStateException(
+                            "Cycle at an instance of " + obj.getClass());
+                }
+                try {
+                    writeComposite(obj, out);
+                } finally {
+                    this.inProgress.remove(obj);
+                }
+            }
+        }
+
+        private void writeComposite(Object obj, DataOutputStream out)
+                throws IOException {
+            if (obj.getClass().isArray()) {
+                int length = Array.getLength(obj);
+                out.writeByte(2);
+                out.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    write(Array.get(obj, i), out);
+                }
+            } else if (obj instanceof List) {
+                List<?> list = (List<?>) obj;
+                out.writeByte(2);
+                out.writeInt(list.size());
+                for (Object element : list) {
+                    write(element, out);
+                }
+            } else if (obj instanceof Collection) {
+                List<byte[]> elements = new ArrayList<>();
+                for (Object element : (Collection<?>) obj) {
+                    elements.add(toBytes(element, null));
+                }
+                writeSorted(elements, out);
+            } else if (obj instanceof Map) {
+                List<byte[]> entries = new ArrayList<>();
+                for (Map.Entry<?, ?> me : ((Map<?, ?>) obj).entrySet()) {
+                    entries.add(toBytes(me.getKey(), me.getValue()));
+                }
+                writeSorted(entries, out);
+            } else if (obj.getClass().getName().startsWith("java.")) {
+                writeScalar(obj.getClass(), obj.toString(), out);
+            } else {
+                boolean propDef = obj instanceof PropositionDefinition;
+                if (propDef) {
+                    this.propDefDepth++;
+                }
+                try {
+                    writeFields(obj, out);
+                } finally {
+                    if (propDef) {
+                        this.propDefDepth--;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Writes the fields of an object, and the contents of the transient
+         * fields of high-level and compound low-level abstraction
+         * definitions that affect the rules.
+         */
+        private void writeFields(Object obj, DataOutputStream out)
+                throws IOException {
+            out.writeByte(4);
+            writeString(obj.getClass().getName(), out);
+            for (Class<?> cls = obj.getClass(); cls != Object.class;
+                    cls = cls.getSuperclass()) {
+                Field[] fields = cls.getDeclaredFields();
+                Arrays.sort(fields, new Comparator<Field>() {
+
+                    @Override
+                    public int compare(Field f1, Field f2) {
+                        return f1.getName().compareTo(f2.getName());
+                    }
+                });
+                for (Field field : fields) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers)
+                            || Modifier.isTransient(modifiers)
+                            || field.isSynthetic()
+                            || SKIPPED_FIELDS.contains(field.getName())) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    try {
+                        write(field.get(obj), out);
+                    } catch (IllegalAccessException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+            if (obj instanceof HighLevelAbstractionDefinition) {
+                HighLevelAbstractionDefinition hlad
+                        = (HighLevelAbstractionDefinition) obj;
+                write(hlad.getExtendedPropositionDefinitions(), out);
+                Map<List<TemporalExtendedPropositionDefinition>, Relation> relations
+                        = new IdentityHashMap<>();
+                for (List<TemporalExtendedPropositionDefinition> pair
+                        : hlad.getTemporalExtendedPropositionDefinitionPairs()) {
+                    relations.put(pair, hlad.getRelation(pair));
+                }
+                write(relations, out);
+            } else if (obj instanceof CompoundLowLevelAbstractionDefinition) {
+                write(((CompoundLowLevelAbstractionDefinition) obj)
+                        .getValueClassifications(), out);
+            }
+        }
+
+        private byte[] toBytes(Object obj1, Object obj2) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                write(obj1, out);
+                write(obj2, out);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static void writeSorted(List<byte[]> elements,
+                DataOutputStream out) throws IOException {
+            Collections.sort(elements, BYTES_COMPARATOR);
+            out.writeByte(3);
+            out.writeInt(elements.size());
+            for (byte[] element : elements) {
+                out.writeInt(element.length);
+                out.write(element);
+            }
+        }
+
+        private static void writeScalar(Class<?> cls, String str,
+                DataOutputStream out) throws IOException {
+            out.writeByte(1);
+            writeString(cls.getName(), out);
+            writeString(str, out);
+        }
+
+        private static void writeString(String str, DataOutputStream out)
+                throws IOException {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static final class DiscardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
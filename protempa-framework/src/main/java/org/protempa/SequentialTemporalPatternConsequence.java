@@ -19,14 +19,10 @@
  */
 package org.protempa;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.arp.javautil.arrays.Arrays;
 import org.drools.FactException;
 
 import org.drools.WorkingMemory;
@@ -44,6 +40,14 @@ import org.protempa.proposition.UniqueIdFactory;
 import org.protempa.proposition.interval.Relation;
 
 /**
+ * Finds instances of a sequential temporal pattern: runs of consecutive
+ * temporal propositions, in temporal order, whose ids are those of the
+ * pattern's temporal extended proposition definitions and in which each
+ * proposition has the specified relation with the one before it. Runs with
+ * the right ids are found in a single pass over the sorted propositions
+ * using the Knuth-Morris-Pratt algorithm, and the relations of each run are
+ * checked directly against the intervals of consecutive propositions.
+ *
  * @author Andrew Post
  */
 class SequentialTemporalPatternConsequence implements Consequence {
@@ -52,10 +56,19 @@ class SequentialTemporalPatternConsequence implements Consequence {
     private static final Logger LOGGER = Logger.getLogger(SequentialTemporalPatternConsequence.class.getName());
     private final SequentialTemporalPatternDefinition def;
     private final TemporalExtendedPropositionDefinition[] epds;
-    private final DerivationsBuilder derivationsBuilder;
-    private int parameterMapCapacity;
-    private List<List<TemporalExtendedPropositionDefinition>> epdPairs;
-    private Map<List<TemporalExtendedPropositionDefinition>, Relation> epdToRelation;
+
+    /*
+     * The proposition id of each temporal extended proposition definition,
+     * and the relation between each one and the next.
+     */
+    private final String[] propIds;
+    private final Relation[] relations;
+
+    /*
+     * The Knuth-Morris-Pratt failure function of propIds: the length of the
+     * longest proper prefix of propIds[0..i] that is also a suffix of it.
+     */
+    private final int[] failure;
 
     /**
      *
@@ -63,8 +76,7 @@ class SequentialTemporalPatternConsequence implements Consequence {
      * <code>null</code>.
      * @param columns the number of parameters, must be greater than zero.
      */
-    SequentialTemporalPatternConsequence(SequentialTemporalPatternDefinition def,
-            DerivationsBuilder derivationsBuilder) {
+    SequentialTemporalPatternConsequence(SequentialTemporalPatternDefinition def) {
         assert def != null : "def cannot be null";
         this.def = def;
         SubsequentTemporalExtendedPropositionDefinition[] relatedTemporalExtendedPropositionDefinitions = 
@@ -74,35 +86,29 @@ class SequentialTemporalPatternConsequence implements Consequence {
         assert epds != null : "epds cannot be null";
         assert epds.length > 0 : "epds must be > 0";
         epds[0] = def.getFirstTemporalExtendedPropositionDefinition();
+        assert epds[0] != null : 
+                "mainTemporalExtendedPropositionDefinition cannot be null";
+        this.relations = new Relation[epds.length - 1];
         for (int i = 1; i < epds.length; i++) {
             epds[i] = 
                     relatedTemporalExtendedPropositionDefinitions[i - 1].getRelatedTemporalExtendedPropositionDefinition();
+            this.relations[i - 1] =
+                    relatedTemporalExtendedPropositionDefinitions[i - 1].getRelation();
         }
         this.epds = epds;
-        this.derivationsBuilder = derivationsBuilder;
-        this.parameterMapCapacity = this.epds.length * 4 / 3 + 1;
-        this.epdPairs = 
-                new ArrayList<>();
-        this.epdToRelation = 
-                new HashMap<>(
-                this.parameterMapCapacity);
-        TemporalExtendedPropositionDefinition lhs = 
-                def.getFirstTemporalExtendedPropositionDefinition();
-        assert lhs != null : 
-                "mainTemporalExtendedPropositionDefinition cannot be null";
-        for (SubsequentTemporalExtendedPropositionDefinition rhsr :
-                def.getSubsequentTemporalExtendedPropositionDefinitions()) {
-            TemporalExtendedPropositionDefinition rhs = 
-                    rhsr.getRelatedTemporalExtendedPropositionDefinition();
-            List<TemporalExtendedPropositionDefinition> asList =
-                    Arrays.asList(
-                    new TemporalExtendedPropositionDefinition[]{
-                        lhs,
-                        rhs
-                    });
-            this.epdPairs.add(asList);
-            this.epdToRelation.put(asList, rhsr.getRelation());
-            lhs = rhs;
+        this.propIds = new String[epds.length];
+        for (int i = 0; i < epds.length; i++) {
+            this.propIds[i] = epds[i].getPropositionId();
+        }
+        this.failure = new int[this.propIds.length];
+        for (int i = 1, k = 0; i < this.propIds.length; i++) {
+            while (k > 0 && !this.propIds[i].equals(this.propIds[k])) {
+                k = this.failure[k - 1];
+            }
+            if (this.propIds[i].equals(this.propIds[k])) {
+                k++;
+            }
+            this.failure[i] = k;
         }
     }
 
@@ -110,67 +116,64 @@ class SequentialTemporalPatternConsequence implements Consequence {
     public void evaluate(KnowledgeHelper knowledgeHelper, WorkingMemory arg1)
             throws Exception {
         @SuppressWarnings("unchecked")
-        List<TemporalProposition> tps = 
+        List<TemporalProposition> pl = 
                 (List<TemporalProposition>) knowledgeHelper
                 .get(knowledgeHelper.getDeclaration("result"));
-        Collections.sort(tps, ProtempaUtil.TEMP_PROP_COMP);
-
-        int i = 0;
-        Map<TemporalExtendedPropositionDefinition, TemporalProposition> propositionMap =
-                    new HashMap<>(this.parameterMapCapacity);
+        TemporalProposition[] tps =
+                pl.toArray(new TemporalProposition[pl.size()]);
+        Arrays.sort(tps, ProtempaUtil.TEMP_PROP_COMP);
+        List<TemporalProposition> tpsList = Arrays.asList(tps);
         
         JBossRulesDerivedLocalUniqueIdValuesProvider provider = new JBossRulesDerivedLocalUniqueIdValuesProvider(arg1, def.getPropositionId());
         UniqueIdFactory factory = new ProviderBasedUniqueIdFactory(provider);
         
-        TOP_LEVEL:
-        for (int l = this.epds.length, n = tps.size() - l + 1; i < n; i++) {
-            List<TemporalProposition> subList = tps.subList(i, i + l);
-
-            /*
-             * For constructing a map of extended proposition definition to actual
-             * temporal proposition.
-             */
-            
-            /*
-             * Populate the map.
-             */
-            for (int j = 0; j < l; j++) {
-                TemporalProposition p = subList.get(j);
-                if (!p.getId().equals(epds[j].getPropositionId())) {
-                    continue TOP_LEVEL;
-                }
-                propositionMap.put(epds[j], p);
+        int l = this.propIds.length;
+        for (int k = 0, j = 0; k < tps.length; k++) {
+            String id = tps[k].getId();
+            while (j > 0 && !id.equals(this.propIds[j])) {
+                j = this.failure[j - 1];
             }
-
-            /*
-             * Check for the presence of the specified temporal relations.
-             */
-            if (HighLevelAbstractionFinder.find(this.epdToRelation,
-                    this.epdPairs, propositionMap)) {
-                assertProposition(subList, knowledgeHelper, factory.getInstance());
+            if (id.equals(this.propIds[j])) {
+                j++;
+            }
+            if (j == l) {
+                int start = k - l + 1;
+                if (hasRelations(tps, start, l)) {
+                    assertProposition(tpsList.subList(start, k + 1),
+                            knowledgeHelper, factory.getInstance());
+                }
+                j = this.failure[j - 1];
             }
         }
         
         if (this.def.isAllowPartialMatches()) {
-            List<TemporalProposition> subList = tps.subList(i, tps.size());
-            propositionMap.clear();
-            for (int j = 0, n = subList.size(); j < n; j++) {
-                propositionMap.put(epds[j], subList.get(j));
+            int start = Math.max(0, tps.length - l + 1);
+            if (hasRelations(tps, start, tps.length - start)) {
+                assertProposition(tpsList.subList(start, tps.length),
+                        knowledgeHelper, factory.getInstance());
             }
-            for (int j = 0, n = this.epdPairs.size(); j < n; j++) {
-                List<TemporalExtendedPropositionDefinition> pair = 
-                        this.epdPairs.get(j);
-                TemporalProposition a1 = propositionMap.get(pair.get(0));
-                TemporalProposition a2 = propositionMap.get(pair.get(1));
-                if (a1 != null && a2 != null) {
-                    if (!this.epdToRelation.get(pair).hasRelation(
-                            a1.getInterval(), a2.getInterval())) {
-                        return;
-                    }
-                }
+        }
+    }
+
+    /**
+     * Returns whether each of a run of consecutive propositions has the
+     * specified relation with the one before it.
+     *
+     * @param tps the sorted propositions.
+     * @param start the index of the first proposition in the run.
+     * @param length the number of propositions in the run, at most the
+     * number of temporal extended proposition definitions.
+     * @return <code>true</code> or <code>false</code>.
+     */
+    private boolean hasRelations(TemporalProposition[] tps, int start,
+            int length) {
+        for (int j = 0; j < length - 1; j++) {
+            if (!this.relations[j].hasRelation(tps[start + j].getInterval(),
+                    tps[start + j + 1].getInterval())) {
+                return false;
             }
-            assertProposition(subList, knowledgeHelper, factory.getInstance());
         }
+        return true;
     }
 
     private void assertProposition(List<TemporalProposition> subList, 
@@ -185,8 +188,11 @@ class SequentialTemporalPatternConsequence implements Consequence {
                 def.getPropositionId(), uniqueId,
                 segment, subList, null, temporalOffset, epds, null);
         knowledgeHelper.insertLogical(result);
+        DerivationsBuilder derivationsBuilder = 
+                WorkingMemoryGlobals.getDerivationsBuilder(
+                        knowledgeHelper.getWorkingMemory());
         for (Proposition proposition : segment) {
-            this.derivationsBuilder.propositionAsserted(proposition, result);
+            derivationsBuilder.propositionAsserted(proposition, result);
         }
         LOGGER.log(Level.FINER, "Asserted derived proposition {0}", result);
     }
@@ -20,10 +20,12 @@
 package org.protempa;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.PriorityQueue;
 
 import org.drools.WorkingMemory;
 import org.drools.spi.Consequence;
@@ -47,10 +49,6 @@ final class SliceConsequence implements Consequence {
 
     private final SliceDefinition def;
 
-    private final PropositionCopier copier;
-    
-    private final DerivationsBuilder derivationsBuilder;
-
     /*
      * A sublist index range for performing the slice. This will not necessarily
      * be the same as the {@link SliceDefinition}'s index range. If the slice
@@ -78,20 +76,17 @@ final class SliceConsequence implements Consequence {
 
     /**
      * Constructs a consequence instance with a definition of the temporal slice
-     * to compute and a derivations builder for recording links between computed
-     * temporal slices and the intervals from which they were derived.
+     * to compute. Links between computed temporal slices and the intervals
+     * from which they were derived are recorded in the working memory's
+     * {@link DerivationsBuilder}.
      * 
      * @param def
      *            a {@link SliceDefinition} corresponding to this rule.
-     * @param listener
-     *            a {@link DerivationsBuilder}.
      */
-    SliceConsequence(SliceDefinition def, DerivationsBuilder listener) {
+    SliceConsequence(SliceDefinition def) {
         assert def != null : "def cannot be null";
-        assert listener != null : "listener cannot be null";
         
         this.def = def;
-        this.derivationsBuilder = listener;
         
         int minInd = def.getMinIndex();
         int maxInd = def.getMaxIndex();
@@ -105,7 +100,6 @@ final class SliceConsequence implements Consequence {
             this.reverse = false;
         }
         this.merged = def.isMergedInterval();
-        this.copier = new PropositionCopier(def.getPropositionId(), listener);
     }
 
     /**
@@ -131,19 +125,76 @@ final class SliceConsequence implements Consequence {
         } else {
             comp = ProtempaUtil.TEMP_PROP_COMP;
         }
-        Collections.sort(pl, comp);
-        this.copier.grab(arg0);
+        pl = first(pl, this.maxIndex, comp);
         if (this.merged) {
             mergedInterval(arg0, pl);
         } else {
+            PropositionCopier copier = 
+                    new PropositionCopier(this.def.getPropositionId());
+            copier.grab(arg0);
             for (ListIterator<TemporalProposition> itr = pl
                     .listIterator(this.minIndex); itr.hasNext()
                     && itr.nextIndex() < this.maxIndex;) {
                 TemporalProposition o = itr.next();
-                o.accept(this.copier);
+                o.accept(copier);
+            }
+            copier.release();
+        }
+    }
+
+    /**
+     * Returns the first propositions of a list in the given order, without
+     * sorting the whole list. Only the first <code>k</code> propositions are
+     * kept in a bounded heap as the list is scanned, so this takes
+     * O(n log k) time rather than the O(n log n) time of sorting the list.
+     * Propositions that compare as equal keep their relative order, as in a
+     * stable sort.
+     *
+     * @param pl a {@link List} of propositions. It is not modified.
+     * @param k the number of propositions to return.
+     * @param comp the order.
+     * @return a newly created {@link List} of the first <code>k</code>
+     * propositions in order, or of all of the propositions if there are
+     * fewer than <code>k</code>.
+     */
+    static List<TemporalProposition> first(List<TemporalProposition> pl,
+            int k, final Comparator<TemporalProposition> comp) {
+        int n = pl.size();
+        if (k <= 0) {
+            return new ArrayList<>(0);
+        }
+        if (k >= n) {
+            List<TemporalProposition> result = new ArrayList<>(pl);
+            Collections.sort(result, comp);
+            return result;
+        }
+        final TemporalProposition[] props
+                = pl.toArray(new TemporalProposition[n]);
+        Comparator<Integer> order = new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                int result = comp.compare(props[i1], props[i2]);
+                return result != 0 ? result : Integer.compare(i1, i2);
+            }
+        };
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k,
+                Collections.reverseOrder(order));
+        for (int i = 0; i < n; i++) {
+            if (heap.size() < k) {
+                heap.add(i);
+            } else if (order.compare(i, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(i);
             }
         }
-        this.copier.release();
+        Integer[] indices = heap.toArray(new Integer[heap.size()]);
+        Arrays.sort(indices, order);
+        List<TemporalProposition> result = new ArrayList<>(indices.length);
+        for (Integer i : indices) {
+            result.add(props[i]);
+        }
+        return result;
     }
 
     private void mergedInterval(KnowledgeHelper kh, List<TemporalProposition> pl) {
@@ -160,8 +211,10 @@ final class SliceConsequence implements Consequence {
         AbstractParameter result = AbstractParameterFactory.getFromAbstraction(
                 def.getPropositionId(), factory.getInstance(), segment, slice, null, null, null, null);
         kh.insertLogical(result);
+        DerivationsBuilder derivationsBuilder = 
+                WorkingMemoryGlobals.getDerivationsBuilder(kh.getWorkingMemory());
         for (Proposition p : segment) {
-            this.derivationsBuilder.propositionAsserted(p, result);
+            derivationsBuilder.propositionAsserted(p, result);
         }
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Segment;
+import org.protempa.proposition.Sequence;
+import org.protempa.proposition.value.Value;
+
+/**
+ * Keeps an {@link AlgorithmWindow} per low-level abstraction value definition
+ * while a sequence is searched, and moves it to each segment that is
+ * checked. Moving a window forward removes and adds only the parameters that
+ * left and entered it. A window that moves backward is cleared and filled
+ * again. The windows share one {@link ParameterColumns} view of the
+ * sequence.
+ *
+ * @author Andrew Post
+ */
+final class SlidingWindows {
+
+    private final IncrementalAlgorithm algorithm;
+    private final ParameterColumns columns;
+    private final Map<LowLevelAbstractionValueDefinition, Tracker> trackers;
+
+    SlidingWindows(IncrementalAlgorithm algorithm,
+            Sequence<PrimitiveParameter> sequence) {
+        assert algorithm != null : "algorithm cannot be null";
+        assert sequence != null : "sequence cannot be null";
+        this.algorithm = algorithm;
+        this.columns = new ParameterColumns(sequence);
+        this.trackers = new HashMap<>();
+    }
+
+    Value compute(LowLevelAbstractionValueDefinition def,
+            AlgorithmArguments arguments, Segment<PrimitiveParameter> segment)
+            throws AlgorithmProcessingException {
+        Tracker tracker = this.trackers.get(def);
+        if (tracker == null) {
+            tracker = new Tracker(this.algorithm.newWindow(arguments,
+                    this.columns));
+            this.trackers.put(def, tracker);
+        }
+        tracker.moveTo(segment.getFirstIndex(), segment.getLastIndex());
+        return tracker.window.compute(segment);
+    }
+
+    private final class Tracker {
+
+        private final AlgorithmWindow window;
+        private int first;
+        private int last;
+
+        Tracker(AlgorithmWindow window) {
+            this.window = window;
+            this.first = -1;
+            this.last = -1;
+        }
+
+        void moveTo(int first, int last) {
+            if (this.first < 0 || first < this.first || last < this.last
+                    || first > this.last) {
+                this.window.clear();
+                for (int i = first; i <= last; i++) {
+                    this.window.add(i);
+                }
+            } else {
+                for (int i = this.first; i < first; i++) {
+                    this.window.remove(i);
+                }
+                for (int i = this.last + 1; i <= last; i++) {
+                    this.window.add(i);
+                }
+            }
+            this.first = first;
+            this.last = last;
+        }
+    }
+}
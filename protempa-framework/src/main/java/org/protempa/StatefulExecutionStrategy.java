@@ -40,6 +40,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.collections4.iterators.IteratorChain;
 import org.arp.javautil.arrays.Arrays;
 import org.drools.FactException;
+import org.drools.RuleBase;
 import org.drools.StatefulSession;
 
 import org.eurekaclinical.datastore.DataStore;
@@ -52,6 +53,24 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
 
     private static final Logger LOGGER = Logger.getLogger(StatefulExecutionStrategy.class.getName());
 
+    /**
+     * System property for the number of keys' working memory to buffer
+     * before writing them to the data store together. The default is 100.
+     */
+    static final String SYSTEM_PROPERTY_WRITE_BATCH_SIZE
+            = "protempa.executor.stateful.writeBatchSize";
+
+    /**
+     * System property for the maximum time in milliseconds that a key's
+     * working memory may stay buffered before the buffer is written to the
+     * data store. The default is 5000.
+     */
+    static final String SYSTEM_PROPERTY_WRITE_BATCH_MILLIS
+            = "protempa.executor.stateful.writeBatchMillis";
+
+    private static final int DEFAULT_WRITE_BATCH_SIZE = 100;
+    private static final long DEFAULT_WRITE_BATCH_MILLIS = 5000L;
+
     private final Path databasePath;
     private DataStore<String, WorkingMemoryFactStore> dataStore;
     private WorkingMemoryDataStores workingMemoryDataStores;
@@ -60,6 +79,10 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
     private List<Proposition> propsToDelete;
     private final String databaseName;
     private final Path databaseDir;
+    private FactStoreWriteBuffer writeBuffer;
+    private final int writeBatchSize;
+    private final long writeBatchMillis;
+    private boolean propDefsWritten;
 
     StatefulExecutionStrategy(AlgorithmSource algorithmSource, Query query) {
         super(algorithmSource, query);
@@ -71,13 +94,19 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
         this.databaseName = this.databasePath.getFileName().toString();
         this.workingMemoryEventListener = new DeletedWorkingMemoryEventListener();
         this.propsToDelete = new ArrayList<>();
+        this.writeBatchSize = Integer.getInteger(
+                SYSTEM_PROPERTY_WRITE_BATCH_SIZE, DEFAULT_WRITE_BATCH_SIZE);
+        this.writeBatchMillis = Long.getLong(
+                SYSTEM_PROPERTY_WRITE_BATCH_MILLIS, DEFAULT_WRITE_BATCH_MILLIS);
     }
 
     @Override
-    public void initialize(PropositionDefinitionCache cache) throws ExecutionStrategyInitializationException {
+    public void initialize(PropositionDefinitionCache cache, RuleBase ruleBase) throws ExecutionStrategyInitializationException {
         createDataStoreManager(cache);
-        super.initialize(cache);
+        super.initialize(cache, ruleBase);
         getOrCreateDataStore();
+        this.writeBuffer = new FactStoreWriteBuffer(this.dataStore,
+                this.writeBatchSize, this.writeBatchMillis);
     }
 
     @Override
@@ -97,7 +126,14 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
 
     @Override
     public void shutdown() throws ExecutionStrategyShutdownException {
+        ExecutionStrategyShutdownException exception0 = writePendingFactStores();
         ExecutionStrategyShutdownException exception1 = closeDataStore();
+        if (exception0 != null) {
+            if (exception1 != null) {
+                exception0.addSuppressed(exception1);
+            }
+            exception1 = exception0;
+        }
         ExecutionStrategyShutdownException exception2 = closeDataStoreManager();
         if (exception1 != null && exception2 != null) {
             exception1.addSuppressed(exception2);
@@ -114,9 +150,7 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
     }
 
     @Override
-    protected JBossRuleCreator newRuleCreator() throws ExecutionStrategyInitializationException {
-        ValidateAlgorithmCheckedVisitor visitor
-                = new ValidateAlgorithmCheckedVisitor(getAlgorithmSource());
+    protected RuleBase newRuleBase() throws ExecutionStrategyInitializationException {
         PropositionDefinitionCache cache;
         Collection<PropositionDefinition> propDefs; //same as cache.getAll()
         Query query = getQuery();
@@ -181,20 +215,7 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
             default:
                 throw new AssertionError("Unexpected query mode " + query.getQueryMode());
         }
-        try {
-            visitor.visit(propDefs);
-        } catch (ProtempaException ex) {
-            throw new ExecutionStrategyInitializationException(ex);
-        }
-        JBossRuleCreator ruleCreator = new JBossRuleCreator(
-                visitor.getAlgorithms(), getDerivationsBuilder(),
-                cache);
-        try {
-            ruleCreator.visit(propDefs);
-        } catch (ProtempaException ex) {
-            throw new ExecutionStrategyInitializationException(ex);
-        }
-        return ruleCreator;
+        return getOrCreateRuleBase(propDefs, cache);
     }
 
     private PropositionDefinitionCache newCacheWithPropDefsThatWeNeedToCompute(Collection<PropositionDefinition> propDefs) {
@@ -268,12 +289,14 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
     private void createWorkingMemory(String keyId) {
         this.workingMemory = getRuleBase().newStatefulSession(true);
         this.workingMemory.setGlobal(WorkingMemoryGlobals.KEY_ID, keyId);
+        this.workingMemory.setGlobal(WorkingMemoryGlobals.DERIVATIONS_BUILDER, 
+                getDerivationsBuilder());
         if (this.dataStore != null) {
-            WorkingMemoryFactStore factStore = this.dataStore.get(keyId);
+            WorkingMemoryFactStore factStore = getFactStore(keyId);
             if (factStore != null) {
                 Map<String, Integer> instanceNums = factStore.getInstanceNums();
                 if (instanceNums != null) {
-                    this.workingMemory.setGlobal(WorkingMemoryGlobals.DERIVED_UNIQUE_ID_COUNTS, this.dataStore.get(keyId).getInstanceNums());
+                    this.workingMemory.setGlobal(WorkingMemoryGlobals.DERIVED_UNIQUE_ID_COUNTS, instanceNums);
                 }
             }
         }
@@ -287,7 +310,7 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
             }
         }
         if (this.dataStore != null) {
-            WorkingMemoryFactStore factStore = this.dataStore.get(keyId);
+            WorkingMemoryFactStore factStore = getFactStore(keyId);
             QueryMode queryMode = getQuery().getQueryMode();
             switch (queryMode) {
                 case REPROCESS_UPDATE:
@@ -352,22 +375,50 @@ class StatefulExecutionStrategy extends AbstractExecutionStrategy {
         factStore.removeAll(realPropsToDelete);
         factStore.setPropositions(facts);
         factStore.setInstanceNums((Map<String, Integer>) this.workingMemory.getGlobal(WorkingMemoryGlobals.DERIVED_UNIQUE_ID_COUNTS));
-        this.dataStore.put(keyId, factStore);
-        try {
-            this.workingMemoryDataStores.finish();
-        } catch (IOException ex) {
-            throw new ExecutionStrategyExecutionException(ex);
+        if (this.writeBuffer.put(keyId, factStore)) {
+            try {
+                flushPendingFactStores();
+            } catch (IOException ex) {
+                throw new ExecutionStrategyExecutionException(ex);
+            }
         }
         LOGGER.log(Level.FINEST,
                 "Persisted working memory for key ID {0}", keyId);
     }
 
+    private WorkingMemoryFactStore getFactStore(String keyId) {
+        return this.writeBuffer.get(keyId);
+    }
+
+    /**
+     * Writes the buffered working memory to the data store together. The
+     * proposition definitions, which do not change during a query, are
+     * written along with the first batch.
+     */
+    private void flushPendingFactStores() throws IOException {
+        if (this.writeBuffer.flush() > 0 && !this.propDefsWritten) {
+            this.workingMemoryDataStores.finish();
+            this.propDefsWritten = true;
+        }
+    }
+
     private Iterator<Proposition> getWorkingMemoryIterator() {
         return (Iterator<Proposition>) new IteratorChain(
                 this.workingMemory.iterateObjects(),
                 this.propsToDelete.iterator());
     }
 
+    private ExecutionStrategyShutdownException writePendingFactStores() {
+        if (this.writeBuffer != null) {
+            try {
+                flushPendingFactStores();
+            } catch (IOException | IOError ex) {
+                return new ExecutionStrategyShutdownException(ex);
+            }
+        }
+        return null;
+    }
+
     private ExecutionStrategyShutdownException closeDataStore() {
         if (this.dataStore != null) {
             try {
@@ -19,12 +19,12 @@
  */
 package org.protempa;
 
-import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import org.apache.commons.collections4.iterators.IteratorChain;
 import org.arp.javautil.collections.Iterators;
 
+import org.drools.RuleBase;
 import org.drools.StatelessSession;
 import org.drools.StatelessSessionResult;
 import org.protempa.proposition.Proposition;
@@ -41,9 +41,11 @@ class StatelessExecutionStrategy extends AbstractExecutionStrategy {
     }
 
     @Override
-    public void initialize(PropositionDefinitionCache cache) throws ExecutionStrategyInitializationException {
-        super.initialize(cache);
+    public void initialize(PropositionDefinitionCache cache, RuleBase ruleBase) throws ExecutionStrategyInitializationException {
+        super.initialize(cache, ruleBase);
         this.statelessSession = getRuleBase().newStatelessSession();
+        this.statelessSession.setGlobal(WorkingMemoryGlobals.DERIVATIONS_BUILDER, 
+                getDerivationsBuilder());
     }
 
     @Override
@@ -68,25 +70,9 @@ class StatelessExecutionStrategy extends AbstractExecutionStrategy {
     }
     
     @Override
-    protected JBossRuleCreator newRuleCreator() throws ExecutionStrategyInitializationException {
-        ValidateAlgorithmCheckedVisitor visitor = new ValidateAlgorithmCheckedVisitor(
-                getAlgorithmSource());
+    protected RuleBase newRuleBase() throws ExecutionStrategyInitializationException {
         PropositionDefinitionCache cache = getCache();
-        Collection<PropositionDefinition> propDefs = cache.getAll(); 
-        try {
-            visitor.visit(propDefs);
-        } catch (ProtempaException ex) {
-            throw new ExecutionStrategyInitializationException(ex);
-        }
-        JBossRuleCreator ruleCreator = new JBossRuleCreator(
-                visitor.getAlgorithms(), getDerivationsBuilder(),
-                cache);
-        try {
-            ruleCreator.visit(propDefs);
-        } catch (ProtempaException ex) {
-            throw new ExecutionStrategyInitializationException(ex);
-        }
-        return ruleCreator;
+        return getOrCreateRuleBase(cache.getAll(), cache);
     }
     
 }
@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the descendants of the proposition definitions in a fixed set of
+ * proposition definitions, following either their children (see
+ * {@link PropositionDefinition#getChildren()}) or their inverse is-a
+ * relationships. Every proposition id in the hierarchy, whether it has a
+ * definition or is only referenced as a child, is labelled with a dense
+ * integer. The descendants of a proposition id are computed on first request
+ * in one walk that visits each proposition id at most once, so that shared
+ * descendants in diamond-shaped hierarchies are not walked repeatedly, and
+ * are kept as a {@link BitSet} of labels. Later requests for the same
+ * proposition id are answered from the bit set.
+ *
+ * The index does not track changes to the proposition definitions it was
+ * created from. Create a new index if they change.
+ *
+ * @author Andrew Post
+ */
+final class TransitiveClosureIndex {
+
+    private final Map<String, Integer> labels;
+    private final String[] propIds;
+    private final PropositionDefinition[] propDefs;
+    private final int[][] children;
+    private final BitSet[] descendants;
+
+    /**
+     * Creates an index.
+     *
+     * @param propDefs the proposition definitions by id.
+     * @param narrower <code>true</code> to follow the proposition
+     * definitions' children, <code>false</code> to follow their inverse is-a
+     * relationships.
+     */
+    TransitiveClosureIndex(Map<String, PropositionDefinition> propDefs,
+            boolean narrower) {
+        assert propDefs != null : "propDefs cannot be null";
+        this.labels = new HashMap<>();
+        List<String> propIdList = new ArrayList<>(propDefs.size());
+        List<PropositionDefinition> propDefList
+                = new ArrayList<>(propDefs.size());
+        for (Map.Entry<String, PropositionDefinition> me
+                : propDefs.entrySet()) {
+            this.labels.put(me.getKey(), propIdList.size());
+            propIdList.add(me.getKey());
+            propDefList.add(me.getValue());
+        }
+        int numDefs = propDefList.size();
+        int[][] childLabels = new int[numDefs][];
+        for (int i = 0; i < numDefs; i++) {
+            PropositionDefinition pd = propDefList.get(i);
+            String[] childIds
+                    = narrower ? pd.getChildren() : pd.getInverseIsA();
+            int[] cl = new int[childIds.length];
+            for (int j = 0; j < childIds.length; j++) {
+                Integer label = this.labels.get(childIds[j]);
+                if (label == null) {
+                    label = propIdList.size();
+                    this.labels.put(childIds[j], label);
+                    propIdList.add(childIds[j]);
+                }
+                cl[j] = label;
+            }
+            childLabels[i] = cl;
+        }
+        int n = propIdList.size();
+        this.propIds = propIdList.toArray(new String[n]);
+        this.propDefs = propDefList.toArray(new PropositionDefinition[n]);
+        this.children = new int[n][];
+        System.arraycopy(childLabels, 0, this.children, 0, numDefs);
+        for (int i = numDefs; i < n; i++) {
+            this.children[i] = new int[0];
+        }
+        this.descendants = new BitSet[n];
+    }
+
+    /**
+     * Returns the labels of the given proposition ids and their descendants.
+     *
+     * @param roots the proposition ids.
+     * @param unknown a set to which proposition ids that are not in this
+     * index are added.
+     * @return the labels, as a newly created {@link BitSet}.
+     */
+    BitSet closure(Collection<String> roots, Set<String> unknown) {
+        BitSet result = new BitSet(this.propIds.length);
+        for (String root : roots) {
+            Integer label = this.labels.get(root);
+            if (label != null) {
+                result.or(descendants(label));
+            } else {
+                unknown.add(root);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given proposition ids and the proposition ids of their
+     * descendants, including those that have no proposition definition.
+     *
+     * @param roots the proposition ids.
+     * @return a newly created {@link Set} of proposition ids.
+     */
+    Set<String> closurePropIds(Collection<String> roots) {
+        Set<String> result = new HashSet<>();
+        BitSet labels = closure(roots, result);
+        for (int i = labels.nextSetBit(0); i >= 0;
+                i = labels.nextSetBit(i + 1)) {
+            result.add(this.propIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the proposition id with the given label.
+     *
+     * @param label a label.
+     * @return a proposition id.
+     */
+    String getPropId(int label) {
+        return this.propIds[label];
+    }
+
+    /**
+     * Returns the proposition definition with the given label.
+     *
+     * @param label a label.
+     * @return a proposition definition, or <code>null</code> if the
+     * proposition id with the given label is only referenced as a child.
+     */
+    PropositionDefinition getPropDef(int label) {
+        return this.propDefs[label];
+    }
+
+    private synchronized BitSet descendants(int label) {
+        BitSet result = this.descendants[label];
+        if (result == null) {
+            result = new BitSet(this.propIds.length);
+            result.set(label);
+            int[] stack = new int[16];
+            int size = 0;
+            stack[size++] = label;
+            while (size > 0) {
+                for (int child : this.children[stack[--size]]) {
+                    if (!result.get(child)) {
+                        result.set(child);
+                        if (size == stack.length) {
+                            stack = Arrays.copyOf(stack, size * 2);
+                        }
+                        stack[size++] = child;
+                    }
+                }
+            }
+            this.descendants[label] = result;
+        }
+        return result;
+    }
+}
@@ -19,6 +19,10 @@ package org.protempa;
  * limitations under the License.
  * #L%
  */
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,6 +38,10 @@ import org.arp.javautil.arrays.Arrays;
 import org.protempa.proposition.Proposition;
 
 /**
+ * The propositions, derivations and instance numbers of a key that are kept
+ * in a data store between query runs. Instances are serialized in the compact
+ * binary format of {@link WorkingMemoryFactStoreCodec}. Fact stores that were
+ * serialized with default Java serialization can still be read.
  *
  * @author Andrew Post
  */
@@ -156,4 +164,43 @@ public class WorkingMemoryFactStore implements Serializable {
         return removedProps;
     }
 
+    private Object writeReplace() {
+        return new SerializationProxy(this);
+    }
+
+    /**
+     * Stands in for a fact store during serialization, writing and reading
+     * it with {@link WorkingMemoryFactStoreCodec}.
+     */
+    private static final class SerializationProxy implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        private WorkingMemoryFactStore factStore;
+
+        /**
+         * For deserialization only.
+         */
+        public SerializationProxy() {
+        }
+
+        SerializationProxy(WorkingMemoryFactStore factStore) {
+            this.factStore = factStore;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            WorkingMemoryFactStoreCodec.write(this.factStore, out);
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException,
+                ClassNotFoundException {
+            this.factStore = WorkingMemoryFactStoreCodec.read(in);
+        }
+
+        private Object readResolve() {
+            return this.factStore;
+        }
+    }
 }
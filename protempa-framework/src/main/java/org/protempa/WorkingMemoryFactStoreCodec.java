@@ -0,0 +1,907 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.protempa.proposition.AbstractParameter;
+import org.protempa.proposition.AbstractProposition;
+import org.protempa.proposition.Constant;
+import org.protempa.proposition.Context;
+import org.protempa.proposition.DataSourceBackendId;
+import org.protempa.proposition.DerivedSourceId;
+import org.protempa.proposition.Event;
+import org.protempa.proposition.LocalUniqueId;
+import org.protempa.proposition.LocalUniqueIdValuesProvider;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.ProviderBasedLocalUniqueId;
+import org.protempa.proposition.SourceId;
+import org.protempa.proposition.TemporalParameter;
+import org.protempa.proposition.TemporalProposition;
+import org.protempa.proposition.UniqueId;
+import org.protempa.proposition.interval.Interval;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+import org.protempa.proposition.value.BooleanValue;
+import org.protempa.proposition.value.DateValue;
+import org.protempa.proposition.value.Granularity;
+import org.protempa.proposition.value.NominalValue;
+import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.Value;
+
+/**
+ * Compact binary encoding of a {@link WorkingMemoryFactStore}. Proposition
+ * ids, property names, reference names and nominal values are written once
+ * and referred to afterwards by their index in a dictionary. Each distinct
+ * proposition and unique id is written once, and the proposition list and
+ * derivation maps refer to propositions by index, which also preserves the
+ * sharing of proposition instances between them. Integers are written as
+ * variable-length quantities, and positions within an interval as
+ * differences.
+ *
+ * The built-in proposition, value, granularity and unique id types are
+ * written and read without reflection. Other implementations are written
+ * with {@link ObjectOutput#writeObject(java.lang.Object)}.
+ *
+ * @author Andrew Post
+ */
+final class WorkingMemoryFactStoreCodec {
+
+    static final int VERSION = 1;
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+
+    private static final int PROP_OBJECT = 0;
+    private static final int PROP_EVENT = 1;
+    private static final int PROP_PRIMITIVE_PARAMETER = 2;
+    private static final int PROP_ABSTRACT_PARAMETER = 3;
+    private static final int PROP_CONSTANT = 4;
+    private static final int PROP_CONTEXT = 5;
+
+    private static final int SOURCE_SYSTEM_NULL = 0;
+    private static final int SOURCE_SYSTEM_UNKNOWN = 1;
+    private static final int SOURCE_SYSTEM_DERIVED = 2;
+    private static final int SOURCE_SYSTEM_BACKEND = 3;
+    private static final int SOURCE_SYSTEM_OBJECT = 4;
+
+    private static final int LOCAL_UID_PROVIDER_BASED = 0;
+    private static final int LOCAL_UID_OBJECT = 1;
+
+    private static final int INTERVAL_NULL = 0;
+    private static final int INTERVAL_POSITION = 1;
+    private static final int INTERVAL_SIMPLE = 2;
+    private static final int INTERVAL_GENERAL = 3;
+
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_NOMINAL = 1;
+    private static final int VALUE_NUMBER = 2;
+    private static final int VALUE_BIG_NUMBER = 3;
+    private static final int VALUE_TRUE = 4;
+    private static final int VALUE_FALSE = 5;
+    private static final int VALUE_DATE = 6;
+    private static final int VALUE_OBJECT = 7;
+
+    private static final int GRANULARITY_NULL = 0;
+    private static final int GRANULARITY_OBJECT = 1;
+    private static final Granularity[] GRANULARITIES = {
+        null,
+        null,
+        AbsoluteTimeGranularity.SECOND,
+        AbsoluteTimeGranularity.MINUTE,
+        AbsoluteTimeGranularity.HOUR,
+        AbsoluteTimeGranularity.DAY,
+        AbsoluteTimeGranularity.MONTH,
+        AbsoluteTimeGranularity.YEAR
+    };
+
+    /*
+     * Table references are written as 0 for null, 1 for a new entry that
+     * follows inline, and the entry's index plus 2 otherwise.
+     */
+    private static final int REF_NULL = 0;
+    private static final int REF_NEW = 1;
+    private static final int REF_OFFSET = 2;
+
+    private WorkingMemoryFactStoreCodec() {
+    }
+
+    /**
+     * Writes a fact store.
+     *
+     * @param factStore the fact store. Cannot be <code>null</code>.
+     * @param out the output.
+     * @throws IOException if an error occurs writing.
+     */
+    static void write(WorkingMemoryFactStore factStore, ObjectOutput out)
+            throws IOException {
+        new Writer(out).write(factStore);
+    }
+
+    /**
+     * Reads a fact store that was written by
+     * {@link #write(org.protempa.WorkingMemoryFactStore, java.io.ObjectOutput)}.
+     *
+     * @param in the input.
+     * @return a fact store.
+     * @throws IOException if an error occurs reading, or the input is not in
+     * a supported format.
+     * @throws ClassNotFoundException if the class of an object that was
+     * written with Java serialization cannot be found.
+     */
+    static WorkingMemoryFactStore read(ObjectInput in) throws IOException,
+            ClassNotFoundException {
+        return new Reader(in).read();
+    }
+
+    private static final class Writer {
+
+        private final ObjectOutput out;
+        private final Map<String, Integer> strings;
+        private final Map<UniqueId, Integer> uniqueIds;
+        private final Map<Proposition, Integer> propositions;
+
+        Writer(ObjectOutput out) {
+            this.out = out;
+            this.strings = new HashMap<>();
+            this.uniqueIds = new HashMap<>();
+            this.propositions = new IdentityHashMap<>();
+        }
+
+        void write(WorkingMemoryFactStore factStore) throws IOException {
+            this.out.writeByte(VERSION);
+            List<Proposition> props = new ArrayList<>();
+            collect(props, factStore.getPropositions());
+            collectDerivations(props, factStore.getForwardDerivations());
+            collectDerivations(props, factStore.getBackwardDerivations());
+            writeVarInt(props.size());
+            for (Proposition prop : props) {
+                writeProposition(prop);
+            }
+            writePropositionList(factStore.getPropositions());
+            writeDerivations(factStore.getForwardDerivations());
+            writeDerivations(factStore.getBackwardDerivations());
+            Map<String, Integer> instanceNums = factStore.getInstanceNums();
+            writeSize(instanceNums != null ? instanceNums.size() : -1);
+            if (instanceNums != null) {
+                for (Map.Entry<String, Integer> me
+                        : instanceNums.entrySet()) {
+                    writeString(me.getKey());
+                    Integer num = me.getValue();
+                    writeVarLong(num != null ? zigzag(num) + 1 : 0);
+                }
+            }
+        }
+
+        private void collect(List<Proposition> props,
+                Collection<Proposition> c) {
+            if (c != null) {
+                for (Proposition prop : c) {
+                    collect(props, prop);
+                }
+            }
+        }
+
+        private void collect(List<Proposition> props, Proposition prop) {
+            if (prop != null && !this.propositions.containsKey(prop)) {
+                this.propositions.put(prop, props.size());
+                props.add(prop);
+            }
+        }
+
+        private void collectDerivations(List<Proposition> props,
+                Map<Proposition, Set<Proposition>> derivations) {
+            if (derivations != null) {
+                for (Map.Entry<Proposition, Set<Proposition>> me
+                        : derivations.entrySet()) {
+                    collect(props, me.getKey());
+                    collect(props, me.getValue());
+                }
+            }
+        }
+
+        private void writePropositionList(Collection<Proposition> props)
+                throws IOException {
+            if (props == null) {
+                writeSize(-1);
+            } else {
+                writeSize(props.size());
+                for (Proposition prop : props) {
+                    writePropositionRef(prop);
+                }
+            }
+        }
+
+        private void writeDerivations(
+                Map<Proposition, Set<Proposition>> derivations)
+                throws IOException {
+            if (derivations == null) {
+                writeSize(-1);
+            } else {
+                writeSize(derivations.size());
+                for (Map.Entry<Proposition, Set<Proposition>> me
+                        : derivations.entrySet()) {
+                    writePropositionRef(me.getKey());
+                    writePropositionList(me.getValue());
+                }
+            }
+        }
+
+        private void writePropositionRef(Proposition prop)
+                throws IOException {
+            writeVarInt(prop != null ? this.propositions.get(prop) + 1 : 0);
+        }
+
+        private void writeProposition(Proposition prop) throws IOException {
+            int type;
+            if (prop instanceof Event) {
+                type = PROP_EVENT;
+            } else if (prop instanceof PrimitiveParameter) {
+                type = PROP_PRIMITIVE_PARAMETER;
+            } else if (prop instanceof AbstractParameter) {
+                type = PROP_ABSTRACT_PARAMETER;
+            } else if (prop instanceof Constant) {
+                type = PROP_CONSTANT;
+            } else if (prop instanceof Context) {
+                type = PROP_CONTEXT;
+            } else {
+                type = PROP_OBJECT;
+            }
+            this.out.writeByte(type);
+            if (type == PROP_OBJECT) {
+                this.out.writeObject(prop);
+                return;
+            }
+            writeString(prop.getId());
+            writeUniqueId(prop.getUniqueId());
+            String[] propertyNames = prop.getPropertyNames();
+            writeVarInt(propertyNames.length);
+            for (String propertyName : propertyNames) {
+                writeString(propertyName);
+                writeValue(prop.getProperty(propertyName));
+            }
+            String[] referenceNames = prop.getReferenceNames();
+            writeVarInt(referenceNames.length);
+            for (String referenceName : referenceNames) {
+                writeString(referenceName);
+                List<UniqueId> refs = prop.getReferences(referenceName);
+                writeVarInt(refs.size());
+                for (UniqueId ref : refs) {
+                    writeUniqueId(ref);
+                }
+            }
+            writeSourceSystem(prop.getSourceSystem());
+            writeDate(prop.getCreateDate());
+            writeDate(prop.getUpdateDate());
+            writeDate(prop.getDeleteDate());
+            writeDate(prop.getDownloadDate());
+            if (prop instanceof TemporalProposition) {
+                writeInterval(((TemporalProposition) prop).getInterval());
+            }
+            if (prop instanceof TemporalParameter) {
+                writeValue(((TemporalParameter) prop).getValue());
+            }
+            if (type == PROP_ABSTRACT_PARAMETER) {
+                writeString(((AbstractParameter) prop).getContextId());
+            }
+        }
+
+        private void writeUniqueId(UniqueId uid) throws IOException {
+            if (uid == null) {
+                writeVarInt(REF_NULL);
+                return;
+            }
+            Integer index = this.uniqueIds.get(uid);
+            if (index != null) {
+                writeVarInt(index + REF_OFFSET);
+                return;
+            }
+            this.uniqueIds.put(uid, this.uniqueIds.size());
+            writeVarInt(REF_NEW);
+            writeSourceId(uid.getSourceId());
+            LocalUniqueId localUid = uid.getLocalUniqueId();
+            if (localUid instanceof ProviderBasedLocalUniqueId) {
+                this.out.writeByte(LOCAL_UID_PROVIDER_BASED);
+                writeString(localUid.getId());
+                writeVarLong(zigzag(localUid.getNumericalId()));
+            } else {
+                this.out.writeByte(LOCAL_UID_OBJECT);
+                this.out.writeObject(localUid);
+            }
+        }
+
+        private void writeSourceId(SourceId sourceId) throws IOException {
+            if (sourceId instanceof DataSourceBackendId) {
+                writeString(((DataSourceBackendId) sourceId).getId());
+            } else {
+                writeString(null);
+            }
+        }
+
+        private void writeSourceSystem(SourceSystem sourceSystem)
+                throws IOException {
+            if (sourceSystem == null) {
+                this.out.writeByte(SOURCE_SYSTEM_NULL);
+            } else if (sourceSystem == SourceSystem.UNKNOWN) {
+                this.out.writeByte(SOURCE_SYSTEM_UNKNOWN);
+            } else if (sourceSystem == SourceSystem.DERIVED) {
+                this.out.writeByte(SOURCE_SYSTEM_DERIVED);
+            } else if (sourceSystem instanceof DataSourceBackendSourceSystem) {
+                this.out.writeByte(SOURCE_SYSTEM_BACKEND);
+                writeString(((DataSourceBackendSourceSystem) sourceSystem)
+                        .getId());
+            } else {
+                this.out.writeByte(SOURCE_SYSTEM_OBJECT);
+                this.out.writeObject(sourceSystem);
+            }
+        }
+
+        private void writeInterval(Interval interval) throws IOException {
+            if (interval == null) {
+                this.out.writeByte(INTERVAL_NULL);
+                return;
+            }
+            Long minStart = interval.getMinStart();
+            Long maxStart = interval.getMaxStart();
+            Long minFinish = interval.getMinFinish();
+            Long maxFinish = interval.getMaxFinish();
+            Granularity startGran = interval.getStartGranularity();
+            Granularity finishGran = interval.getFinishGranularity();
+            if (minStart != null && minStart.equals(maxStart)
+                    && minFinish != null && minFinish.equals(maxFinish)) {
+                if (minStart.equals(minFinish) && startGran == finishGran) {
+                    this.out.writeByte(INTERVAL_POSITION);
+                    writeVarLong(zigzag(minStart));
+                    writeGranularity(startGran);
+                } else {
+                    this.out.writeByte(INTERVAL_SIMPLE);
+                    writeVarLong(zigzag(minStart));
+                    writeGranularity(startGran);
+                    writeVarLong(zigzag(minFinish - minStart));
+                    writeGranularity(finishGran);
+                }
+            } else {
+                this.out.writeByte(INTERVAL_GENERAL);
+                this.out.writeByte((minStart != null ? 1 : 0)
+                        | (maxStart != null ? 2 : 0)
+                        | (minFinish != null ? 4 : 0)
+                        | (maxFinish != null ? 8 : 0));
+                if (minStart != null) {
+                    writeVarLong(zigzag(minStart));
+                }
+                if (maxStart != null) {
+                    writeVarLong(zigzag(maxStart));
+                }
+                if (minFinish != null) {
+                    writeVarLong(zigzag(minFinish));
+                }
+                if (maxFinish != null) {
+                    writeVarLong(zigzag(maxFinish));
+                }
+                writeGranularity(startGran);
+                writeGranularity(finishGran);
+            }
+        }
+
+        private void writeGranularity(Granularity gran) throws IOException {
+            if (gran == null) {
+                this.out.writeByte(GRANULARITY_NULL);
+                return;
+            }
+            for (int i = 2; i < GRANULARITIES.length; i++) {
+                if (GRANULARITIES[i] == gran) {
+                    this.out.writeByte(i);
+                    return;
+                }
+            }
+            this.out.writeByte(GRANULARITY_OBJECT);
+            this.out.writeObject(gran);
+        }
+
+        private void writeValue(Value value) throws IOException {
+            if (value == null) {
+                this.out.writeByte(VALUE_NULL);
+            } else if (value instanceof NominalValue) {
+                this.out.writeByte(VALUE_NOMINAL);
+                writeString(((NominalValue) value).getString());
+            } else if (value instanceof NumberValue) {
+                BigDecimal num = ((NumberValue) value).getBigDecimal();
+                BigInteger unscaled = num.unscaledValue();
+                if (unscaled.bitLength() < 64) {
+                    this.out.writeByte(VALUE_NUMBER);
+                    writeVarLong(zigzag(num.scale()));
+                    writeVarLong(zigzag(unscaled.longValue()));
+                } else {
+                    this.out.writeByte(VALUE_BIG_NUMBER);
+                    writeVarLong(zigzag(num.scale()));
+                    byte[] bytes = unscaled.toByteArray();
+                    writeVarInt(bytes.length);
+                    this.out.write(bytes);
+                }
+            } else if (value instanceof BooleanValue) {
+                this.out.writeByte(((BooleanValue) value).booleanValue()
+                        ? VALUE_TRUE : VALUE_FALSE);
+            } else if (value.getClass() == DateValue.class
+                    && ((DateValue) value).getDate() != null) {
+                this.out.writeByte(VALUE_DATE);
+                writeVarLong(zigzag(((DateValue) value).getDate().getTime()));
+            } else {
+                this.out.writeByte(VALUE_OBJECT);
+                this.out.writeObject(value);
+            }
+        }
+
+        private void writeDate(Date date) throws IOException {
+            writeVarLong(date != null ? zigzag(date.getTime()) + 1 : 0);
+        }
+
+        private void writeString(String str) throws IOException {
+            if (str == null) {
+                writeVarInt(REF_NULL);
+                return;
+            }
+            Integer index = this.strings.get(str);
+            if (index != null) {
+                writeVarInt(index + REF_OFFSET);
+            } else {
+                this.strings.put(str, this.strings.size());
+                writeVarInt(REF_NEW);
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length);
+                this.out.write(bytes);
+            }
+        }
+
+        private void writeSize(int size) throws IOException {
+            writeVarInt(size + 1);
+        }
+
+        private void writeVarInt(int i) throws IOException {
+            writeVarLong(i & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long l) throws IOException {
+            while ((l & ~0x7FL) != 0) {
+                this.out.writeByte((int) ((l & 0x7F) | 0x80));
+                l >>>= 7;
+            }
+            this.out.writeByte((int) l);
+        }
+    }
+
+    private static final class Reader {
+
+        private final ObjectInput in;
+        private final List<String> strings;
+        private final List<UniqueId> uniqueIds;
+        private Proposition[] propositions;
+
+        Reader(ObjectInput in) {
+            this.in = in;
+            this.strings = new ArrayList<>();
+            this.uniqueIds = new ArrayList<>();
+        }
+
+        WorkingMemoryFactStore read() throws IOException,
+                ClassNotFoundException {
+            int version = this.in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new InvalidObjectException(
+                        "Can't restore. Unsupported version: " + version);
+            }
+            this.propositions = new Proposition[readVarInt()];
+            for (int i = 0; i < this.propositions.length; i++) {
+                this.propositions[i] = readProposition();
+            }
+            WorkingMemoryFactStore result = new WorkingMemoryFactStore();
+            result.setPropositions(readPropositionList());
+            result.setForwardDerivations(readDerivations());
+            result.setBackwardDerivations(readDerivations());
+            int numInstanceNums = readSize();
+            if (numInstanceNums >= 0) {
+                Map<String, Integer> instanceNums = new HashMap<>();
+                for (int i = 0; i < numInstanceNums; i++) {
+                    String key = readString();
+                    long num = readVarLong();
+                    instanceNums.put(key,
+                            num != 0 ? (int) unzigzag(num - 1) : null);
+                }
+                result.setInstanceNums(instanceNums);
+            }
+            return result;
+        }
+
+        private List<Proposition> readPropositionList() throws IOException {
+            int size = readSize();
+            if (size < 0) {
+                return null;
+            }
+            List<Proposition> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(readPropositionRef());
+            }
+            return result;
+        }
+
+        private Map<Proposition, Set<Proposition>> readDerivations()
+                throws IOException {
+            int size = readSize();
+            if (size < 0) {
+                return null;
+            }
+            Map<Proposition, Set<Proposition>> result = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                Proposition key = readPropositionRef();
+                int numValues = readSize();
+                Set<Proposition> values;
+                if (numValues < 0) {
+                    values = null;
+                } else {
+                    values = new HashSet<>();
+                    for (int j = 0; j < numValues; j++) {
+                        values.add(readPropositionRef());
+                    }
+                }
+                result.put(key, values);
+            }
+            return result;
+        }
+
+        private Proposition readPropositionRef() throws IOException {
+            int ref = readVarInt();
+            if (ref == 0) {
+                return null;
+            } else if (ref > this.propositions.length) {
+                throw new InvalidObjectException(
+                        "Can't restore. Invalid proposition reference: "
+                        + ref);
+            } else {
+                return this.propositions[ref - 1];
+            }
+        }
+
+        private Proposition readProposition() throws IOException,
+                ClassNotFoundException {
+            int type = this.in.readUnsignedByte();
+            if (type == PROP_OBJECT) {
+                return (Proposition) this.in.readObject();
+            }
+            String id = readString();
+            UniqueId uid = readUniqueId();
+            if (uid == null) {
+                throw new InvalidObjectException(
+                        "Can't restore. All propositions must have an unique id");
+            }
+            AbstractProposition prop;
+            switch (type) {
+                case PROP_EVENT:
+                    prop = new Event(id, uid);
+                    break;
+                case PROP_PRIMITIVE_PARAMETER:
+                    prop = new PrimitiveParameter(id, uid);
+                    break;
+                case PROP_ABSTRACT_PARAMETER:
+                    prop = new AbstractParameter(id, uid);
+                    break;
+                case PROP_CONSTANT:
+                    prop = new Constant(id, uid);
+                    break;
+                case PROP_CONTEXT:
+                    prop = new Context(id, uid);
+                    break;
+                default:
+                    throw new InvalidObjectException(
+                            "Can't restore. Invalid proposition type: "
+                            + type);
+            }
+            int numProperties = readVarInt();
+            for (int i = 0; i < numProperties; i++) {
+                String propertyName = readString();
+                prop.setProperty(propertyName, readValue());
+            }
+            int numRefs = readVarInt();
+            for (int i = 0; i < numRefs; i++) {
+                String refName = readString();
+                int numUids = readVarInt();
+                List<UniqueId> uids = new ArrayList<>(numUids);
+                for (int j = 0; j < numUids; j++) {
+                    uids.add(readUniqueId());
+                }
+                prop.setReferences(refName, uids);
+            }
+            prop.setSourceSystem(readSourceSystem());
+            prop.setCreateDate(readDate());
+            prop.setUpdateDate(readDate());
+            prop.setDeleteDate(readDate());
+            prop.setDownloadDate(readDate());
+            if (prop instanceof TemporalProposition) {
+                ((TemporalProposition) prop).setInterval(readInterval());
+            }
+            if (prop instanceof TemporalParameter) {
+                ((TemporalParameter) prop).setValue(readValue());
+            }
+            if (type == PROP_ABSTRACT_PARAMETER) {
+                ((AbstractParameter) prop).setContextId(readString());
+            }
+            return prop;
+        }
+
+        private UniqueId readUniqueId() throws IOException,
+                ClassNotFoundException {
+            int ref = readVarInt();
+            if (ref == REF_NULL) {
+                return null;
+            } else if (ref != REF_NEW) {
+                return tableEntry(this.uniqueIds, ref, "unique id");
+            }
+            SourceId sourceId = readSourceId();
+            LocalUniqueId localUid;
+            int localUidType = this.in.readUnsignedByte();
+            switch (localUidType) {
+                case LOCAL_UID_PROVIDER_BASED:
+                    localUid = new ProviderBasedLocalUniqueId(
+                            new FixedLocalUniqueIdValuesProvider(
+                                    readString(),
+                                    (int) unzigzag(readVarLong())));
+                    break;
+                case LOCAL_UID_OBJECT:
+                    localUid = (LocalUniqueId) this.in.readObject();
+                    break;
+                default:
+                    throw new InvalidObjectException(
+                            "Can't restore. Invalid local unique id type: "
+                            + localUidType);
+            }
+            UniqueId result = new UniqueId(sourceId, localUid);
+            this.uniqueIds.add(result);
+            return result;
+        }
+
+        private SourceId readSourceId() throws IOException {
+            String id = readString();
+            if (id != null) {
+                return DataSourceBackendId.getInstance(id);
+            } else {
+                return DerivedSourceId.getInstance();
+            }
+        }
+
+        private SourceSystem readSourceSystem() throws IOException,
+                ClassNotFoundException {
+            int type = this.in.readUnsignedByte();
+            switch (type) {
+                case SOURCE_SYSTEM_NULL:
+                    return null;
+                case SOURCE_SYSTEM_UNKNOWN:
+                    return SourceSystem.UNKNOWN;
+                case SOURCE_SYSTEM_DERIVED:
+                    return SourceSystem.DERIVED;
+                case SOURCE_SYSTEM_BACKEND:
+                    return DataSourceBackendSourceSystem.getInstance(
+                            readString());
+                case SOURCE_SYSTEM_OBJECT:
+                    return (SourceSystem) this.in.readObject();
+                default:
+                    throw new InvalidObjectException(
+                            "Can't restore. Invalid source system type: "
+                            + type);
+            }
+        }
+
+        private Interval readInterval() throws IOException,
+                ClassNotFoundException {
+            int mode = this.in.readUnsignedByte();
+            try {
+                switch (mode) {
+                    case INTERVAL_NULL:
+                        return null;
+                    case INTERVAL_POSITION:
+                        return INTERVAL_FACTORY.getInstance(
+                                unzigzag(readVarLong()), readGranularity());
+                    case INTERVAL_SIMPLE:
+                        long start = unzigzag(readVarLong());
+                        Granularity startGran = readGranularity();
+                        return INTERVAL_FACTORY.getInstance(start, startGran,
+                                start + unzigzag(readVarLong()),
+                                readGranularity());
+                    case INTERVAL_GENERAL:
+                        int present = this.in.readUnsignedByte();
+                        Long minStart = (present & 1) != 0
+                                ? unzigzag(readVarLong()) : null;
+                        Long maxStart = (present & 2) != 0
+                                ? unzigzag(readVarLong()) : null;
+                        Long minFinish = (present & 4) != 0
+                                ? unzigzag(readVarLong()) : null;
+                        Long maxFinish = (present & 8) != 0
+                                ? unzigzag(readVarLong()) : null;
+                        return INTERVAL_FACTORY.getInstance(minStart, maxStart,
+                                readGranularity(), minFinish, maxFinish,
+                                readGranularity());
+                    default:
+                        throw new InvalidObjectException(
+                                "Can't restore. Invalid interval mode: "
+                                + mode);
+                }
+            } catch (IllegalArgumentException iae) {
+                throw new InvalidObjectException("Can't restore: "
+                        + iae.getMessage());
+            }
+        }
+
+        private Granularity readGranularity() throws IOException,
+                ClassNotFoundException {
+            int type = this.in.readUnsignedByte();
+            if (type == GRANULARITY_NULL) {
+                return null;
+            } else if (type == GRANULARITY_OBJECT) {
+                return (Granularity) this.in.readObject();
+            } else if (type < GRANULARITIES.length) {
+                return GRANULARITIES[type];
+            } else {
+                throw new InvalidObjectException(
+                        "Can't restore. Invalid granularity: " + type);
+            }
+        }
+
+        private Value readValue() throws IOException, ClassNotFoundException {
+            int type = this.in.readUnsignedByte();
+            switch (type) {
+                case VALUE_NULL:
+                    return null;
+                case VALUE_NOMINAL:
+                    return NominalValue.getInstance(readString());
+                case VALUE_NUMBER: {
+                    int scale = (int) unzigzag(readVarLong());
+                    return NumberValue.getInstance(BigDecimal.valueOf(
+                            unzigzag(readVarLong()), scale));
+                }
+                case VALUE_BIG_NUMBER: {
+                    int scale = (int) unzigzag(readVarLong());
+                    byte[] bytes = new byte[readVarInt()];
+                    this.in.readFully(bytes);
+                    return NumberValue.getInstance(
+                            new BigDecimal(new BigInteger(bytes), scale));
+                }
+                case VALUE_TRUE:
+                    return BooleanValue.TRUE;
+                case VALUE_FALSE:
+                    return BooleanValue.FALSE;
+                case VALUE_DATE:
+                    return DateValue.getInstance(
+                            new Date(unzigzag(readVarLong())));
+                case VALUE_OBJECT:
+                    Value val = (Value) this.in.readObject();
+                    return val != null ? val.replace() : null;
+                default:
+                    throw new InvalidObjectException(
+                            "Can't restore. Invalid value type: " + type);
+            }
+        }
+
+        private Date readDate() throws IOException {
+            long l = readVarLong();
+            return l != 0 ? new Date(unzigzag(l - 1)) : null;
+        }
+
+        private String readString() throws IOException {
+            int ref = readVarInt();
+            if (ref == REF_NULL) {
+                return null;
+            } else if (ref != REF_NEW) {
+                return tableEntry(this.strings, ref, "string");
+            }
+            byte[] bytes = new byte[readVarInt()];
+            this.in.readFully(bytes);
+            String result = new String(bytes, StandardCharsets.UTF_8);
+            this.strings.add(result);
+            return result;
+        }
+
+        private int readSize() throws IOException {
+            return readVarInt() - 1;
+        }
+
+        private int readVarInt() throws IOException {
+            long l = readVarLong();
+            if (l > 0xFFFFFFFFL) {
+                throw new InvalidObjectException(
+                        "Can't restore. Integer out of range: " + l);
+            }
+            return (int) l;
+        }
+
+        private long readVarLong() throws IOException {
+            long result = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = this.in.readUnsignedByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new InvalidObjectException(
+                    "Can't restore. Malformed variable-length integer");
+        }
+
+        private static <E> E tableEntry(List<E> table, int ref, String what)
+                throws InvalidObjectException {
+            int index = ref - REF_OFFSET;
+            if (index >= table.size()) {
+                throw new InvalidObjectException(
+                        "Can't restore. Invalid " + what + " reference: "
+                        + ref);
+            }
+            return table.get(index);
+        }
+    }
+
+    private static long zigzag(long l) {
+        return (l << 1) ^ (l >> 63);
+    }
+
+    private static long unzigzag(long l) {
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    /**
+     * Supplies the id and numerical id of a previously written
+     * {@link ProviderBasedLocalUniqueId}.
+     */
+    private static final class FixedLocalUniqueIdValuesProvider
+            implements LocalUniqueIdValuesProvider {
+
+        private final String id;
+        private final int numericalId;
+
+        FixedLocalUniqueIdValuesProvider(String id, int numericalId) {
+            this.id = id;
+            this.numericalId = numericalId;
+        }
+
+        @Override
+        public void incr() {
+        }
+
+        @Override
+        public String getId() {
+            return this.id;
+        }
+
+        @Override
+        public int getNumericalId() {
+            return this.numericalId;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.protempa;
  */
 
 import java.util.Map;
+import org.drools.WorkingMemory;
 import org.drools.rule.Package;
 
 /**
@@ -32,11 +33,29 @@ class WorkingMemoryGlobals {
     static void addAll(Package rules) {
         rules.addGlobal(KEY_ID, String.class);
         rules.addGlobal(DERIVED_UNIQUE_ID_COUNTS, Map.class);
+        rules.addGlobal(DERIVATIONS_BUILDER, DerivationsBuilder.class);
     }
+
+    /**
+     * Gets the derivations builder of the execution strategy that owns the
+     * given working memory. Rule bases may be shared by more than one
+     * execution strategy, so consequences must look it up this way rather
+     * than holding on to one.
+     *
+     * @param workingMemory a {@link WorkingMemory}. Cannot be 
+     * <code>null</code>.
+     * @return a {@link DerivationsBuilder}.
+     */
+    static DerivationsBuilder getDerivationsBuilder(WorkingMemory workingMemory) {
+        return (DerivationsBuilder) workingMemory.getGlobal(DERIVATIONS_BUILDER);
+    }
+
     private WorkingMemoryGlobals() {}
     
     static final String KEY_ID = "keyId";
     
     static final String DERIVED_UNIQUE_ID_COUNTS = "derivedUniqueIdCounts";
     
+    static final String DERIVATIONS_BUILDER = "derivationsBuilder";
+    
 }
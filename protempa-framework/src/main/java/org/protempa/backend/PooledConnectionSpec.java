@@ -0,0 +1,618 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.arp.javautil.sql.ConnectionSpec;
+import org.arp.javautil.sql.ConnectionSpecVisitor;
+import org.arp.javautil.sql.DatabaseProduct;
+import org.arp.javautil.sql.DatabaseVersion;
+import org.arp.javautil.sql.Driver;
+import org.arp.javautil.sql.DriverVersion;
+
+/**
+ * A {@link ConnectionSpec} that keeps the connections created by another
+ * {@link ConnectionSpec} open for reuse, so that code that gets a connection,
+ * uses it briefly and closes it does not log into the database every time.
+ *
+ * The connections returned by {@link #getOrCreate()} return their underlying
+ * connection to the pool when they are closed. Statements that are still
+ * open are closed at that time, and uncommitted changes are rolled back. A
+ * pooled connection is checked with {@link Connection#isValid(int)} before it
+ * is handed out again, and it is closed instead if it has been idle for
+ * longer than the idle timeout.
+ *
+ * The pool may be bounded. When it is, {@link #getOrCreate()} waits for a
+ * connection to be returned if the maximum number are in use, and fails with
+ * a {@link SQLException} if none is returned within the maximum wait time.
+ * Code that holds many connections at once, such as a relational data source
+ * backend that streams the results of one query per entity spec, needs a
+ * maximum that is at least that number of connections.
+ *
+ * The number of connections in use and idle, the number created and handed
+ * out, and the time spent waiting for connections are available for
+ * monitoring. Metadata about the database and driver is retrieved once from
+ * the underlying {@link ConnectionSpec} and cached.
+ *
+ * @author Andrew Post
+ */
+public final class PooledConnectionSpec implements ConnectionSpec,
+        AutoCloseable {
+
+    private static final Logger LOGGER
+            = Logger.getLogger(PooledConnectionSpec.class.getName());
+
+    /**
+     * System property for the number of milliseconds to wait for a
+     * connection when the maximum number of connections are in use.
+     */
+    public static final String SYSTEM_PROPERTY_MAXIMUM_WAIT
+            = "protempa.connectionPool.maximumWait";
+
+    /**
+     * System property for the number of milliseconds that a connection may
+     * stay idle in the pool before it is closed.
+     */
+    public static final String SYSTEM_PROPERTY_IDLE_TIMEOUT
+            = "protempa.connectionPool.idleTimeout";
+
+    /**
+     * System property for the number of seconds to wait for a connection to
+     * be validated before it is handed out again.
+     */
+    public static final String SYSTEM_PROPERTY_VALIDATION_TIMEOUT
+            = "protempa.connectionPool.validationTimeout";
+
+    private static final int DEFAULT_MAXIMUM_WAIT = 60000;
+    private static final int DEFAULT_IDLE_TIMEOUT = 600000;
+    private static final int DEFAULT_VALIDATION_TIMEOUT = 5;
+
+    private final ConnectionSpec connectionSpec;
+    private final int maximumSize;
+    private final Semaphore permits;
+    private final long maximumWait;
+    private final long idleTimeout;
+    private final int validationTimeout;
+    private final Deque<IdleConnection> idle;
+    private final AtomicInteger activeCount;
+    private final AtomicLong createdCount;
+    private final AtomicLong borrowCount;
+    private final AtomicLong totalWaitNanos;
+    private final AtomicLong maximumWaitNanos;
+    private volatile boolean closed;
+    private volatile DatabaseProduct databaseProduct;
+    private volatile DatabaseVersion databaseVersion;
+    private volatile Driver driver;
+    private volatile DriverVersion driverVersion;
+
+    /**
+     * Creates a pool with the maximum wait, idle timeout and validation
+     * timeout that are set with the {@link #SYSTEM_PROPERTY_MAXIMUM_WAIT},
+     * {@link #SYSTEM_PROPERTY_IDLE_TIMEOUT} and
+     * {@link #SYSTEM_PROPERTY_VALIDATION_TIMEOUT} system properties, or one
+     * minute, ten minutes and five seconds, respectively, if they are not
+     * set.
+     *
+     * @param connectionSpec creates the connections to pool. Cannot be
+     * <code>null</code>.
+     * @param maximumSize the maximum number of connections that may be in use
+     * at once, or zero or less for no maximum.
+     */
+    public PooledConnectionSpec(ConnectionSpec connectionSpec,
+            int maximumSize) {
+        this(connectionSpec, maximumSize,
+                Integer.getInteger(SYSTEM_PROPERTY_MAXIMUM_WAIT,
+                        DEFAULT_MAXIMUM_WAIT),
+                Integer.getInteger(SYSTEM_PROPERTY_IDLE_TIMEOUT,
+                        DEFAULT_IDLE_TIMEOUT),
+                Integer.getInteger(SYSTEM_PROPERTY_VALIDATION_TIMEOUT,
+                        DEFAULT_VALIDATION_TIMEOUT));
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param connectionSpec creates the connections to pool. Cannot be
+     * <code>null</code>.
+     * @param maximumSize the maximum number of connections that may be in use
+     * at once, or zero or less for no maximum.
+     * @param maximumWait the number of milliseconds to wait for a connection
+     * when the maximum number are in use.
+     * @param idleTimeout the number of milliseconds that a connection may
+     * stay idle in the pool before it is closed.
+     * @param validationTimeout the number of seconds to wait for a
+     * connection to be validated before it is handed out again, or zero for
+     * no limit.
+     */
+    public PooledConnectionSpec(ConnectionSpec connectionSpec,
+            int maximumSize, long maximumWait, long idleTimeout,
+            int validationTimeout) {
+        if (connectionSpec == null) {
+            throw new IllegalArgumentException(
+                    "connectionSpec cannot be null");
+        }
+        if (maximumWait < 0) {
+            throw new IllegalArgumentException(
+                    "maximumWait cannot be negative");
+        }
+        if (idleTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "idleTimeout cannot be negative");
+        }
+        if (validationTimeout < 0) {
+            throw new IllegalArgumentException(
+                    "validationTimeout cannot be negative");
+        }
+        this.connectionSpec = connectionSpec;
+        this.maximumSize = maximumSize > 0 ? maximumSize : 0;
+        this.permits
+                = maximumSize > 0 ? new Semaphore(maximumSize, true) : null;
+        this.maximumWait = maximumWait;
+        this.idleTimeout = idleTimeout;
+        this.validationTimeout = validationTimeout;
+        this.idle = new ArrayDeque<>();
+        this.activeCount = new AtomicInteger();
+        this.createdCount = new AtomicLong();
+        this.borrowCount = new AtomicLong();
+        this.totalWaitNanos = new AtomicLong();
+        this.maximumWaitNanos = new AtomicLong();
+    }
+
+    /**
+     * Returns a connection from the pool, or a newly created connection if
+     * none are idle. Closing the returned connection returns it to the pool.
+     *
+     * @return a connection.
+     * @throws SQLException if the pool is closed, if no connection became
+     * available within the maximum wait time, or if a connection could not
+     * be created.
+     */
+    @Override
+    public Connection getOrCreate() throws SQLException {
+        if (this.closed) {
+            throw new SQLException("The connection pool is closed");
+        }
+        long start = System.nanoTime();
+        if (this.permits != null) {
+            try {
+                if (!this.permits.tryAcquire(this.maximumWait,
+                        TimeUnit.MILLISECONDS)) {
+                    recordWait(System.nanoTime() - start);
+                    throw new SQLException("Timed out after "
+                            + this.maximumWait
+                            + " ms waiting for one of "
+                            + this.maximumSize + " pooled connections");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(
+                        "Interrupted while waiting for a pooled connection",
+                        ex);
+            }
+        }
+        recordWait(System.nanoTime() - start);
+        try {
+            Connection connection = takeIdle();
+            if (connection == null) {
+                connection = this.connectionSpec.getOrCreate();
+                this.createdCount.incrementAndGet();
+            }
+            this.activeCount.incrementAndGet();
+            this.borrowCount.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(
+                    PooledConnectionSpec.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new PooledConnectionHandler(connection));
+        } catch (SQLException | RuntimeException ex) {
+            if (this.permits != null) {
+                this.permits.release();
+            }
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean isAutoCommitEnabled() {
+        return this.connectionSpec.isAutoCommitEnabled();
+    }
+
+    @Override
+    public DatabaseProduct getDatabaseProduct() throws SQLException {
+        DatabaseProduct result = this.databaseProduct;
+        if (result == null) {
+            result = this.connectionSpec.getDatabaseProduct();
+            this.databaseProduct = result;
+        }
+        return result;
+    }
+
+    @Override
+    public DatabaseVersion getDatabaseVersion() throws SQLException {
+        DatabaseVersion result = this.databaseVersion;
+        if (result == null) {
+            result = this.connectionSpec.getDatabaseVersion();
+            this.databaseVersion = result;
+        }
+        return result;
+    }
+
+    @Override
+    public Driver getDriver() throws SQLException {
+        Driver result = this.driver;
+        if (result == null) {
+            result = this.connectionSpec.getDriver();
+            this.driver = result;
+        }
+        return result;
+    }
+
+    @Override
+    public DriverVersion getDriverVersion() throws SQLException {
+        DriverVersion result = this.driverVersion;
+        if (result == null) {
+            result = this.connectionSpec.getDriverVersion();
+            this.driverVersion = result;
+        }
+        return result;
+    }
+
+    /**
+     * Passes the visitor to the pooled {@link ConnectionSpec}.
+     *
+     * @param connectionSpecVisitor a visitor.
+     */
+    @Override
+    public void accept(ConnectionSpecVisitor connectionSpecVisitor) {
+        this.connectionSpec.accept(connectionSpecVisitor);
+    }
+
+    /**
+     * Returns the {@link ConnectionSpec} that creates the pooled
+     * connections.
+     *
+     * @return a {@link ConnectionSpec}.
+     */
+    public ConnectionSpec getConnectionSpec() {
+        return this.connectionSpec;
+    }
+
+    /**
+     * Returns the maximum number of connections that may be in use at once.
+     *
+     * @return the maximum, or zero if there is no maximum.
+     */
+    public int getMaximumSize() {
+        return this.maximumSize;
+    }
+
+    /**
+     * Returns the number of connections that are in use.
+     *
+     * @return the number of connections.
+     */
+    public int getActiveCount() {
+        return this.activeCount.get();
+    }
+
+    /**
+     * Returns the number of open connections that are idle in the pool.
+     *
+     * @return the number of connections.
+     */
+    public int getIdleCount() {
+        synchronized (this.idle) {
+            return this.idle.size();
+        }
+    }
+
+    /**
+     * Returns the number of connections that have been created.
+     *
+     * @return the number of connections.
+     */
+    public long getCreatedCount() {
+        return this.createdCount.get();
+    }
+
+    /**
+     * Returns the number of times that a connection has been handed out.
+     *
+     * @return the number of times.
+     */
+    public long getBorrowCount() {
+        return this.borrowCount.get();
+    }
+
+    /**
+     * Returns the total time spent waiting for a connection when the maximum
+     * number were in use.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getTotalWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.totalWaitNanos.get());
+    }
+
+    /**
+     * Returns the longest time spent waiting for a connection when the
+     * maximum number were in use.
+     *
+     * @return the time in milliseconds.
+     */
+    public long getMaximumWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maximumWaitNanos.get());
+    }
+
+    /**
+     * Closes the idle connections and prevents further connections from
+     * being handed out. Connections that are in use are closed when they are
+     * returned.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        List<Connection> toClose = new ArrayList<>();
+        synchronized (this.idle) {
+            for (IdleConnection ic : this.idle) {
+                toClose.add(ic.connection);
+            }
+            this.idle.clear();
+        }
+        closeQuietly(toClose);
+        LOGGER.log(Level.FINE, "Closed {0}", this);
+    }
+
+    @Override
+    public String toString() {
+        return "PooledConnectionSpec{" + "active=" + getActiveCount()
+                + ", idle=" + getIdleCount()
+                + ", created=" + getCreatedCount()
+                + ", borrowed=" + getBorrowCount()
+                + ", totalWaitTime=" + getTotalWaitTime()
+                + "ms, maximumWaitTime=" + getMaximumWaitTime() + "ms}";
+    }
+
+    private void recordWait(long nanos) {
+        this.totalWaitNanos.addAndGet(nanos);
+        long max;
+        while ((max = this.maximumWaitNanos.get()) < nanos
+                && !this.maximumWaitNanos.compareAndSet(max, nanos)) {
+        }
+    }
+
+    /**
+     * Takes the most recently returned idle connection that is still valid,
+     * closing any that have been idle too long or that fail validation.
+     */
+    private Connection takeIdle() {
+        while (true) {
+            IdleConnection ic;
+            List<Connection> expired;
+            synchronized (this.idle) {
+                expired = evictExpired();
+                ic = this.idle.pollFirst();
+            }
+            closeQuietly(expired);
+            if (ic == null) {
+                return null;
+            }
+            try {
+                if (ic.connection.isValid(this.validationTimeout)) {
+                    return ic.connection;
+                }
+            } catch (SQLException ex) {
+                LOGGER.log(Level.FINER, "Pooled connection failed validation",
+                        ex);
+            }
+            closeQuietly(ic.connection);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, rolling back uncommitted changes and
+     * restoring its auto-commit mode, or closes it if the pool is closed or
+     * it cannot be reset.
+     */
+    private void release(Connection connection) {
+        try {
+            boolean reuse = !this.closed;
+            if (reuse) {
+                try {
+                    boolean autoCommit
+                            = this.connectionSpec.isAutoCommitEnabled();
+                    if (!connection.getAutoCommit()) {
+                        connection.rollback();
+                    }
+                    if (connection.getAutoCommit() != autoCommit) {
+                        connection.setAutoCommit(autoCommit);
+                    }
+                    connection.clearWarnings();
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.FINER,
+                            "Could not reset pooled connection", ex);
+                    reuse = false;
+                }
+            }
+            if (reuse) {
+                List<Connection> expired;
+                synchronized (this.idle) {
+                    this.idle.addFirst(new IdleConnection(connection));
+                    expired = evictExpired();
+                }
+                closeQuietly(expired);
+            } else {
+                closeQuietly(connection);
+            }
+        } finally {
+            this.activeCount.decrementAndGet();
+            if (this.permits != null) {
+                this.permits.release();
+            }
+        }
+    }
+
+    /**
+     * Removes the connections that have been idle longer than the idle
+     * timeout. The least recently returned connections are at the end of
+     * the deque. Must be called while holding the lock on the deque.
+     */
+    private List<Connection> evictExpired() {
+        List<Connection> result = null;
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(this.idleTimeout);
+        IdleConnection last;
+        while ((last = this.idle.peekLast()) != null
+                && now - last.returned >= timeout) {
+            this.idle.pollLast();
+            if (result == null) {
+                result = new ArrayList<>();
+            }
+            result.add(last.connection);
+        }
+        return result;
+    }
+
+    private static void closeQuietly(List<Connection> connections) {
+        if (connections != null) {
+            for (Connection connection : connections) {
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            LOGGER.log(Level.FINER, "Could not close pooled connection", ex);
+        }
+    }
+
+    private static final class IdleConnection {
+
+        private final Connection connection;
+        private final long returned;
+
+        IdleConnection(Connection connection) {
+            this.connection = connection;
+            this.returned = System.nanoTime();
+        }
+    }
+
+    /**
+     * Passes calls through to a pooled connection except for
+     * {@link Connection#close()}, which closes the statements that were
+     * created through the proxy and returns the connection to the pool.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+
+        private final Connection connection;
+        private final List<Statement> statements;
+        private boolean closed;
+
+        PooledConnectionHandler(Connection connection) {
+            this.connection = connection;
+            this.statements = new ArrayList<>();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + this.connection;
+                case "close":
+                    close();
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return this.closed || this.connection.isClosed();
+                    }
+                default:
+            }
+            synchronized (this) {
+                if (this.closed) {
+                    throw new SQLException("Connection is closed");
+                }
+            }
+            Object result;
+            try {
+                result = method.invoke(this.connection, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+            if (result instanceof Statement) {
+                synchronized (this) {
+                    for (Iterator<Statement> itr = this.statements.iterator();
+                            itr.hasNext();) {
+                        if (itr.next().isClosed()) {
+                            itr.remove();
+                        }
+                    }
+                    this.statements.add((Statement) result);
+                }
+            }
+            return result;
+        }
+
+        private void close() {
+            List<Statement> stmts;
+            synchronized (this) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                stmts = new ArrayList<>(this.statements);
+                this.statements.clear();
+            }
+            for (Statement stmt : stmts) {
+                try {
+                    stmt.close();
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.FINER,
+                            "Could not close statement of pooled connection",
+                            ex);
+                }
+            }
+            release(this.connection);
+        }
+    }
+}
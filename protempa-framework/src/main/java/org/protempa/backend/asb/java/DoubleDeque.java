@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.asb.java;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A double-ended queue of primitive <code>double</code>s, backed by a
+ * growable circular array, for keeping the running state of algorithms'
+ * sliding windows without boxing.
+ *
+ * @author Andrew Post
+ */
+final class DoubleDeque {
+
+    private double[] elements;
+    private int head;
+    private int size;
+
+    DoubleDeque() {
+        this.elements = new double[16];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    void clear() {
+        this.head = 0;
+        this.size = 0;
+    }
+
+    void addLast(double value) {
+        if (this.size == this.elements.length) {
+            double[] grown = new double[this.elements.length * 2];
+            for (int i = 0; i < this.size; i++) {
+                grown[i] = get(i);
+            }
+            this.elements = grown;
+            this.head = 0;
+        }
+        this.elements[index(this.size++)] = value;
+    }
+
+    double peekFirst() {
+        checkNotEmpty();
+        return this.elements[this.head];
+    }
+
+    double peekLast() {
+        checkNotEmpty();
+        return this.elements[index(this.size - 1)];
+    }
+
+    double removeFirst() {
+        checkNotEmpty();
+        double result = this.elements[this.head];
+        this.head = index(1);
+        this.size--;
+        return result;
+    }
+
+    double removeLast() {
+        checkNotEmpty();
+        return this.elements[index(--this.size)];
+    }
+
+    double get(int i) {
+        return this.elements[index(i)];
+    }
+
+    private int index(int i) {
+        return (this.head + i) % this.elements.length;
+    }
+
+    private void checkNotEmpty() {
+        if (this.size == 0) {
+            throw new NoSuchElementException();
+        }
+    }
+}
@@ -23,10 +23,14 @@ import org.protempa.AbstractAlgorithm;
 import org.protempa.AlgorithmArguments;
 import org.protempa.Algorithms;
 import org.protempa.AlgorithmParameter;
+import org.protempa.AlgorithmWindow;
+import org.protempa.IncrementalAlgorithm;
+import org.protempa.ParameterColumns;
 import org.protempa.proposition.Parameter;
 import org.protempa.proposition.PrimitiveParameter;
 import org.protempa.proposition.Segment;
 import org.protempa.proposition.value.BooleanValue;
+import org.protempa.proposition.value.NumericalValue;
 import org.protempa.proposition.value.Value;
 import org.protempa.proposition.value.ValueComparator;
 import org.protempa.proposition.value.ValueType;
@@ -37,7 +41,8 @@ import org.protempa.proposition.value.ValueType;
  * 
  * @author Andrew Post
  */
-public final class MinAlgorithm extends AbstractAlgorithm {
+public final class MinAlgorithm extends AbstractAlgorithm
+        implements IncrementalAlgorithm {
 
     private static final long serialVersionUID = 6131613237861460023L;
 
@@ -82,4 +87,107 @@ public final class MinAlgorithm extends AbstractAlgorithm {
             return null;
         }
     }
+
+    /**
+     * Creates a window that keeps the candidates for the window's minimum
+     * value in a monotonic deque.
+     *
+     * @param args the algorithm's arguments.
+     * @param columns a {@link ParameterColumns} view of the sequence.
+     * @return a new {@link AlgorithmWindow}.
+     */
+    @Override
+    public AlgorithmWindow newWindow(AlgorithmArguments args,
+            ParameterColumns columns) {
+        return new MinWindow(args, columns);
+    }
+
+    private static Value satisfies(double minVal, Value minThreshold,
+            ValueComparator minThresholdComp, Value maxThreshold,
+            ValueComparator maxThresholdComp) {
+        if ((minThresholdComp == null || minThreshold == null
+                || ParameterColumns.compare(minThresholdComp, minVal,
+                        ((NumericalValue) minThreshold).doubleValue()))
+                && (maxThresholdComp == null || maxThreshold == null
+                || ParameterColumns.compare(maxThresholdComp, minVal,
+                        ((NumericalValue) maxThreshold).doubleValue()))) {
+            return BooleanValue.TRUE;
+        } else {
+            return null;
+        }
+    }
+
+    private final class MinWindow implements AlgorithmWindow {
+
+        private final AlgorithmArguments args;
+        private final ParameterColumns columns;
+        private final Value minThreshold;
+        private final ValueComparator minThresholdComp;
+        private final Value maxThreshold;
+        private final ValueComparator maxThresholdComp;
+        private final boolean numericThresholds;
+        /**
+         * The window's numeric values that may still become its minimum, in
+         * nondecreasing order.
+         */
+        private final DoubleDeque mins;
+        private int nonNumeric;
+
+        MinWindow(AlgorithmArguments args, ParameterColumns columns) {
+            this.args = args;
+            this.columns = columns;
+            this.minThreshold = args.value("minThreshold");
+            this.minThresholdComp = args.valueComp("minThreshold");
+            this.maxThreshold = args.value("maxThreshold");
+            this.maxThresholdComp = args.valueComp("maxThreshold");
+            this.numericThresholds = (this.minThresholdComp == null
+                    || this.minThreshold == null
+                    || ParameterColumns.isNumeric(this.minThreshold))
+                    && (this.maxThresholdComp == null
+                    || this.maxThreshold == null
+                    || ParameterColumns.isNumeric(this.maxThreshold));
+            this.mins = new DoubleDeque();
+        }
+
+        @Override
+        public void add(int index) {
+            if (this.columns.isNumeric(index)) {
+                double d = this.columns.getValue(index);
+                while (!this.mins.isEmpty() && this.mins.peekLast() > d) {
+                    this.mins.removeLast();
+                }
+                this.mins.addLast(d);
+            } else {
+                this.nonNumeric++;
+            }
+        }
+
+        @Override
+        public void remove(int index) {
+            if (this.columns.isNumeric(index)) {
+                if (this.columns.getValue(index) == this.mins.peekFirst()) {
+                    this.mins.removeFirst();
+                }
+            } else {
+                this.nonNumeric--;
+            }
+        }
+
+        @Override
+        public void clear() {
+            this.mins.clear();
+            this.nonNumeric = 0;
+        }
+
+        @Override
+        public Value compute(Segment<PrimitiveParameter> segment) {
+            if (!this.numericThresholds || this.nonNumeric > 0
+                    || this.mins.isEmpty()) {
+                return MinAlgorithm.this.compute(segment, this.args);
+            }
+            return satisfies(this.mins.peekFirst(), this.minThreshold,
+                    this.minThresholdComp, this.maxThreshold,
+                    this.maxThresholdComp);
+        }
+    }
 }
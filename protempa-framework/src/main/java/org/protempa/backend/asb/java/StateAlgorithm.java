@@ -22,11 +22,15 @@ package org.protempa.backend.asb.java;
 import org.protempa.AbstractAlgorithm;
 import org.protempa.AlgorithmArguments;
 import org.protempa.AlgorithmParameter;
+import org.protempa.AlgorithmWindow;
 import org.protempa.Algorithms;
+import org.protempa.IncrementalAlgorithm;
+import org.protempa.ParameterColumns;
 import org.protempa.proposition.PrimitiveParameter;
 import org.protempa.proposition.Segment;
 import org.protempa.proposition.TemporalParameter;
 import org.protempa.proposition.value.BooleanValue;
+import org.protempa.proposition.value.NumericalValue;
 import org.protempa.proposition.value.Value;
 import org.protempa.proposition.value.ValueComparator;
 import org.protempa.proposition.value.ValueType;
@@ -38,7 +42,8 @@ import org.protempa.proposition.value.ValueType;
  * 
  * @author Andrew Post
  */
-public final class StateAlgorithm extends AbstractAlgorithm {
+public final class StateAlgorithm extends AbstractAlgorithm
+        implements IncrementalAlgorithm {
 
     private static final long serialVersionUID = 1254880729946491923L;
 
@@ -80,10 +85,8 @@ public final class StateAlgorithm extends AbstractAlgorithm {
                 || (maxThreshold != null && maxComparator != null)) {
             for (int i = 0, n = segment.size(); i < n; i++) {
                 TemporalParameter param = segment.get(i);
-                Value val = param.getValue();
-                if (val == null
-                        || (minComparator != null && !minComparator.compare(val, minThreshold))
-                        || (maxComparator != null && !maxComparator.compare(val, maxThreshold))) {
+                if (!satisfies(param.getValue(), minThreshold, minComparator,
+                        maxThreshold, maxComparator)) {
                     return null;
                 }
             }
@@ -91,4 +94,104 @@ public final class StateAlgorithm extends AbstractAlgorithm {
 
         return BooleanValue.TRUE;
     }
+
+    /**
+     * Creates a window that keeps count of the values that are not within
+     * the thresholds.
+     *
+     * @param args the algorithm's arguments.
+     * @param columns a {@link ParameterColumns} view of the sequence.
+     * @return a new {@link AlgorithmWindow}.
+     */
+    @Override
+    public AlgorithmWindow newWindow(AlgorithmArguments args,
+            ParameterColumns columns) {
+        return new StateWindow(args, columns);
+    }
+
+    private static boolean satisfies(Value val, Value minThreshold,
+            ValueComparator minComparator, Value maxThreshold,
+            ValueComparator maxComparator) {
+        return val != null
+                && (minComparator == null || minComparator.compare(val, minThreshold))
+                && (maxComparator == null || maxComparator.compare(val, maxThreshold));
+    }
+
+    private static final class StateWindow implements AlgorithmWindow {
+
+        private final ParameterColumns columns;
+        private final Value minThreshold;
+        private final ValueComparator minComparator;
+        private final Value maxThreshold;
+        private final ValueComparator maxComparator;
+        private final boolean checked;
+        private final boolean numericThresholds;
+        private final double min;
+        private final double max;
+        private int unsatisfied;
+
+        StateWindow(AlgorithmArguments args, ParameterColumns columns) {
+            this.columns = columns;
+            this.minThreshold = args.value("minThreshold");
+            this.minComparator = args.valueComp("minThreshold");
+            this.maxThreshold = args.value("maxThreshold");
+            this.maxComparator = args.valueComp("maxThreshold");
+            this.checked = (this.minThreshold != null && this.minComparator != null)
+                    || (this.maxThreshold != null && this.maxComparator != null);
+            this.numericThresholds = (this.minComparator == null
+                    || ParameterColumns.isNumeric(this.minThreshold))
+                    && (this.maxComparator == null
+                    || ParameterColumns.isNumeric(this.maxThreshold));
+            this.min = this.numericThresholds && this.minComparator != null
+                    ? ((NumericalValue) this.minThreshold).doubleValue() : 0.0;
+            this.max = this.numericThresholds && this.maxComparator != null
+                    ? ((NumericalValue) this.maxThreshold).doubleValue() : 0.0;
+        }
+
+        @Override
+        public void add(int index) {
+            if (!satisfies(index)) {
+                this.unsatisfied++;
+            }
+        }
+
+        @Override
+        public void remove(int index) {
+            if (!satisfies(index)) {
+                this.unsatisfied--;
+            }
+        }
+
+        @Override
+        public void clear() {
+            this.unsatisfied = 0;
+        }
+
+        @Override
+        public Value compute(Segment<PrimitiveParameter> segment) {
+            return !this.checked || this.unsatisfied == 0
+                    ? BooleanValue.TRUE : null;
+        }
+
+        /**
+         * Compares the value at the given index with the thresholds in the
+         * column view if it and the thresholds are numeric, and through
+         * the parameter's value otherwise.
+         */
+        private boolean satisfies(int index) {
+            if (this.numericThresholds && this.columns.isNumeric(index)) {
+                double val = this.columns.getValue(index);
+                return (this.minComparator == null
+                        || ParameterColumns.compare(this.minComparator, val,
+                                this.min))
+                        && (this.maxComparator == null
+                        || ParameterColumns.compare(this.maxComparator, val,
+                                this.max));
+            }
+            return StateAlgorithm.satisfies(
+                    this.columns.getParameter(index).getValue(),
+                    this.minThreshold, this.minComparator, this.maxThreshold,
+                    this.maxComparator);
+        }
+    }
 }
@@ -23,12 +23,16 @@ import org.protempa.proposition.stats.RegressionLine;
 import org.protempa.AbstractAlgorithm;
 import org.protempa.AlgorithmArguments;
 import org.protempa.AlgorithmParameter;
+import org.protempa.AlgorithmWindow;
 import org.protempa.Algorithms;
+import org.protempa.IncrementalAlgorithm;
+import org.protempa.ParameterColumns;
 import org.protempa.proposition.PrimitiveParameter;
 import org.protempa.proposition.Segment;
 import org.protempa.proposition.TemporalParameter;
 import org.protempa.proposition.value.BooleanValue;
 import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.NumericalValue;
 import org.protempa.proposition.value.Value;
 import org.protempa.proposition.value.ValueComparator;
 import org.protempa.proposition.value.ValueType;
@@ -42,10 +46,20 @@ import org.protempa.proposition.value.ValueType;
  * 
  * @author Andrew Post
  */
-public final class TrendAlgorithm extends AbstractAlgorithm {
+public final class TrendAlgorithm extends AbstractAlgorithm
+        implements IncrementalAlgorithm {
 
     private static final long serialVersionUID = 7080565221625383147L;
 
+    /**
+     * How close, relative to the magnitudes of a {@link TrendWindow}'s
+     * running sums, a comparison must be to its decision boundary for the
+     * window to compute its result from the segment instead. It is far
+     * larger than the rounding error of the sums, which are recomputed
+     * before it can accumulate.
+     */
+    private static final double TIE_TOLERANCE = 1e-6;
+
     private static double sumDiffY(
             Segment<PrimitiveParameter> points) {
         double sumDiff = 0.0;
@@ -137,7 +151,31 @@ public final class TrendAlgorithm extends AbstractAlgorithm {
             return null;
         }
 
-        double slopeAsDouble = line.getm();
+        return satisfies(line.getm(), minSlopeThreshold,
+                minSlopeThresholdComparator, maxSlopeThreshold,
+                maxSlopeThresholdComparator);
+    }
+
+    /**
+     * Creates a window that keeps running sums of the values and positions
+     * of the window's parameters for computing the regression line's slope
+     * and the variability check.
+     *
+     * @param args the algorithm's arguments.
+     * @param columns a {@link ParameterColumns} view of the sequence.
+     * @return a new {@link AlgorithmWindow}.
+     */
+    @Override
+    public AlgorithmWindow newWindow(AlgorithmArguments args,
+            ParameterColumns columns) {
+        return new TrendWindow(args, columns);
+    }
+
+    private static Value satisfies(double slopeAsDouble,
+            Value minSlopeThreshold,
+            ValueComparator minSlopeThresholdComparator,
+            Value maxSlopeThreshold,
+            ValueComparator maxSlopeThresholdComparator) {
         if ((minSlopeThresholdComparator != null && minSlopeThreshold != null)
                 || (maxSlopeThresholdComparator != null && maxSlopeThreshold != null)) {
             if (Double.isNaN(slopeAsDouble)) {
@@ -154,4 +192,222 @@ public final class TrendAlgorithm extends AbstractAlgorithm {
 
         return BooleanValue.TRUE;
     }
+
+    /**
+     * Keeps the means and the sums of squared deviations of the window's
+     * points, updated as points are added and removed, so that the slope is
+     * the same as the one the {@link RegressionLine} of the window computes,
+     * apart from rounding. The sums are computed again from the window's
+     * points once as many points have been removed as are in the window, so
+     * that rounding errors do not accumulate. When the variability check or
+     * a threshold comparison is within {@link #TIE_TOLERANCE} of a tie, so
+     * that rounding could change its outcome, the result is computed from
+     * the window's segment instead. Whether the window's values are
+     * all the same is tracked exactly, so flat windows have a slope of zero
+     * like they do with a regression line. Parameters without a position or
+     * a numeric value in the column view are not points, and windows with
+     * any of them are computed from their segment.
+     */
+    private final class TrendWindow implements AlgorithmWindow {
+
+        private final AlgorithmArguments args;
+        private final ParameterColumns columns;
+        private final DoubleDeque xs;
+        private final DoubleDeque ys;
+        private int nonPoints;
+        private int unequalNeighbors;
+        private int removals;
+        private int n;
+        private double meanX;
+        private double meanY;
+        private double sumSquaredDeviationsX;
+        private double sumSquaredDeviationsY;
+        private double maxSumSquaredDeviationsY;
+        private double sumCodeviations;
+        private double sumDiffY;
+        private double sumDiffYMagnitude;
+
+        TrendWindow(AlgorithmArguments args, ParameterColumns columns) {
+            this.args = args;
+            this.columns = columns;
+            this.xs = new DoubleDeque();
+            this.ys = new DoubleDeque();
+        }
+
+        @Override
+        public void add(int index) {
+            double x;
+            double y;
+            if (this.columns.hasPosition(index)
+                    && this.columns.isNumeric(index)) {
+                x = this.columns.getPosition(index);
+                y = this.columns.getValue(index);
+            } else {
+                x = Double.NaN;
+                y = Double.NaN;
+                this.nonPoints++;
+            }
+            if (!this.ys.isEmpty()) {
+                double prevY = this.ys.peekLast();
+                if (prevY != y) {
+                    this.unequalNeighbors++;
+                }
+                if (!Double.isNaN(prevY) && !Double.isNaN(y)) {
+                    double diff = Math.abs(prevY - y);
+                    this.sumDiffY += diff;
+                    this.sumDiffYMagnitude += diff;
+                }
+            }
+            this.xs.addLast(x);
+            this.ys.addLast(y);
+            if (!Double.isNaN(y)) {
+                addToSums(x, y);
+            }
+        }
+
+        @Override
+        public void remove(int index) {
+            double x = this.xs.removeFirst();
+            double y = this.ys.removeFirst();
+            if (Double.isNaN(y)) {
+                this.nonPoints--;
+            }
+            if (!this.ys.isEmpty()) {
+                double nextY = this.ys.peekFirst();
+                if (nextY != y) {
+                    this.unequalNeighbors--;
+                }
+                if (!Double.isNaN(nextY) && !Double.isNaN(y)) {
+                    double diff = Math.abs(y - nextY);
+                    this.sumDiffY -= diff;
+                    this.sumDiffYMagnitude += diff;
+                }
+            }
+            if (++this.removals >= this.ys.size()) {
+                recomputeSums();
+            } else if (!Double.isNaN(y) && --this.n == 0) {
+                clearSums();
+            } else if (!Double.isNaN(y)) {
+                double meanX = this.meanX - (x - this.meanX) / this.n;
+                double meanY = this.meanY - (y - this.meanY) / this.n;
+                double dx = x - meanX;
+                this.sumCodeviations -= dx * (y - this.meanY);
+                this.sumSquaredDeviationsX -= dx * (x - this.meanX);
+                this.sumSquaredDeviationsY -= (y - meanY) * (y - this.meanY);
+                this.meanX = meanX;
+                this.meanY = meanY;
+            }
+        }
+
+        @Override
+        public void clear() {
+            this.xs.clear();
+            this.ys.clear();
+            this.nonPoints = 0;
+            this.unequalNeighbors = 0;
+            recomputeSums();
+        }
+
+        @Override
+        public Value compute(Segment<PrimitiveParameter> segment) {
+            if (this.nonPoints > 0) {
+                return TrendAlgorithm.this.compute(segment, this.args);
+            }
+            int size = this.ys.size();
+            if (size < 2) {
+                return null;
+            }
+            boolean flat = this.unequalNeighbors == 0;
+            double firstPointY = this.ys.peekFirst();
+            double lastPointY = this.ys.peekLast();
+            double sumDiff = flat ? 0.0 : (size == 2
+                    ? Math.abs(firstPointY - lastPointY) : this.sumDiffY);
+            double avgDiff = sumDiff / (size - 1);
+            double diffEnds = Math.abs(firstPointY - lastPointY);
+            double maxAvgDiff = (2.0 / size) * diffEnds;
+            if (!flat && size > 2 && Math.abs(avgDiff - maxAvgDiff)
+                    <= TIE_TOLERANCE * this.sumDiffYMagnitude / (size - 1)) {
+                return TrendAlgorithm.this.compute(segment, this.args);
+            }
+            if (avgDiff > maxAvgDiff) {
+                return null;
+            }
+            double slopeAsDouble;
+            if (this.xs.peekFirst() == this.xs.peekLast()) {
+                slopeAsDouble = Double.NaN;
+            } else if (flat) {
+                slopeAsDouble = 0.0;
+            } else {
+                slopeAsDouble = this.sumCodeviations
+                        / this.sumSquaredDeviationsX;
+                /*
+                 * By the Cauchy-Schwarz inequality, this bounds the slope's
+                 * magnitude, so it scales the slope's rounding error.
+                 */
+                double tolerance = TIE_TOLERANCE * Math.sqrt(
+                        this.maxSumSquaredDeviationsY
+                        / this.sumSquaredDeviationsX);
+                if (isNearThreshold(slopeAsDouble, "minThreshold", tolerance)
+                        || isNearThreshold(slopeAsDouble, "maxThreshold",
+                                tolerance)) {
+                    return TrendAlgorithm.this.compute(segment, this.args);
+                }
+            }
+            return satisfies(slopeAsDouble, this.args.value("minThreshold"),
+                    this.args.valueComp("minThreshold"),
+                    this.args.value("maxThreshold"),
+                    this.args.valueComp("maxThreshold"));
+        }
+
+        private boolean isNearThreshold(double slope, String parameter,
+                double tolerance) {
+            Value threshold = this.args.value(parameter);
+            return this.args.valueComp(parameter) != null
+                    && threshold instanceof NumericalValue
+                    && Math.abs(slope - ((NumericalValue) threshold)
+                            .doubleValue()) <= tolerance;
+        }
+
+        private void addToSums(double x, double y) {
+            this.n++;
+            double dx = x - this.meanX;
+            double dy = y - this.meanY;
+            this.meanX += dx / this.n;
+            this.meanY += dy / this.n;
+            this.sumCodeviations += dx * (y - this.meanY);
+            this.sumSquaredDeviationsX += dx * (x - this.meanX);
+            this.sumSquaredDeviationsY += dy * (y - this.meanY);
+            this.maxSumSquaredDeviationsY = Math.max(
+                    this.maxSumSquaredDeviationsY,
+                    this.sumSquaredDeviationsY);
+        }
+
+        private void clearSums() {
+            this.n = 0;
+            this.meanX = 0.0;
+            this.meanY = 0.0;
+            this.sumSquaredDeviationsX = 0.0;
+            this.sumSquaredDeviationsY = 0.0;
+            this.maxSumSquaredDeviationsY = 0.0;
+            this.sumCodeviations = 0.0;
+        }
+
+        private void recomputeSums() {
+            this.removals = 0;
+            clearSums();
+            this.sumDiffY = 0.0;
+            double prevY = Double.NaN;
+            for (int i = 0, size = this.ys.size(); i < size; i++) {
+                double y = this.ys.get(i);
+                if (!Double.isNaN(y)) {
+                    addToSums(this.xs.get(i), y);
+                    if (!Double.isNaN(prevY)) {
+                        this.sumDiffY += Math.abs(prevY - y);
+                    }
+                }
+                prevY = y;
+            }
+            this.sumDiffYMagnitude = this.sumDiffY;
+        }
+    }
 }
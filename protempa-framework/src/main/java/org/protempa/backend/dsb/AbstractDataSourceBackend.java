@@ -20,12 +20,14 @@
 package org.protempa.backend.dsb;
 
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Set;
 import org.protempa.BackendCloseException;
 import org.protempa.DataSourceBackendSourceSystem;
 import org.protempa.DataSourceReadException;
 import org.protempa.DataSourceWriteException;
 import org.protempa.KeySetSpec;
+import org.protempa.KeyWriter;
 import org.protempa.KnowledgeSource;
 import org.protempa.KnowledgeSourceReadException;
 import org.protempa.backend.AbstractBackend;
@@ -137,6 +139,45 @@ public abstract class AbstractDataSourceBackend extends
     @Override
     public void writeKeys(Set<String> keyIds) throws DataSourceWriteException {
     }
+
+    /**
+     * Returns a key writer that collects key ids and passes them to
+     * {@link #writeKeys(java.util.Set) } in batches of 1000. Backends that
+     * can load key ids directly should override this method.
+     *
+     * @return a {@link KeyWriter}.
+     * @throws DataSourceWriteException if the writer could not be created.
+     */
+    @Override
+    public KeyWriter newKeyWriter() throws DataSourceWriteException {
+        return new KeyWriter() {
+            private static final int BATCH_SIZE = 1000;
+            private Set<String> keyIds = new HashSet<>();
+
+            @Override
+            public void write(String keyId) throws DataSourceWriteException {
+                this.keyIds.add(keyId);
+                if (this.keyIds.size() >= BATCH_SIZE) {
+                    writeKeys(this.keyIds);
+                    this.keyIds = new HashSet<>();
+                }
+            }
+
+            @Override
+            public void close() throws DataSourceWriteException {
+                if (!this.keyIds.isEmpty()) {
+                    Set<String> remaining = this.keyIds;
+                    this.keyIds = new HashSet<>();
+                    writeKeys(remaining);
+                }
+            }
+
+            @Override
+            public void discard() {
+                this.keyIds = new HashSet<>();
+            }
+        };
+    }
     
     @Override
     public void writeKeysFromKeySet(KeySetQueryResultsHandler queryResultsHandler) throws DataSourceWriteException {
@@ -70,6 +70,14 @@ public interface DataSourceBackend extends
 
     void writeKeys(Set<String> keyIds) throws DataSourceWriteException;
     
+    /**
+     * Returns a writer for loading key ids into this backend one at a time.
+     *
+     * @return a {@link KeyWriter}. It must be closed after use.
+     * @throws DataSourceWriteException if the writer could not be created.
+     */
+    KeyWriter newKeyWriter() throws DataSourceWriteException;
+
     void writeKeysFromKeySet(KeySetQueryResultsHandler queryResultsHandler) throws DataSourceWriteException;
     
     Comparator<Object> getKeyIdComparator();
@@ -22,20 +22,25 @@ package org.protempa.dest.key;
 import org.protempa.criteria.CriteriaEvaluateException;
 import org.protempa.criteria.CriteriaInitException;
 import org.protempa.criteria.Criteria;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.protempa.DataSource;
 import org.protempa.DataSourceWriteException;
+import org.protempa.KeyWriter;
 import org.protempa.KnowledgeSource;
 import org.protempa.PropositionDefinitionCache;
 import org.protempa.dest.AbstractQueryResultsHandler;
+import org.protempa.dest.QueryResultsHandlerCloseException;
 import org.protempa.dest.QueryResultsHandlerProcessingException;
 import org.protempa.proposition.Proposition;
 import org.protempa.proposition.UniqueId;
 
 /**
+ * Loads the keys that match a criteria into a data source. The keys are
+ * passed to the data source's {@link KeyWriter} as they are handled, so
+ * that data sources that support it can load them in batches over a single
+ * connection without the keys being collected first.
  *
  * @author Andrew Post
  */
@@ -44,11 +49,9 @@ public class KeyLoaderQueryResultsHandler extends AbstractQueryResultsHandler {
     private final DataSource dataSource;
     private final Criteria criteria;
     private final KnowledgeSource knowledgeSource;
-    private final int batchSize = 1000;
     private final String id;
     private final String displayName;
-    private int i;
-    private Set<String> keyIds;
+    private KeyWriter keyWriter;
 
     KeyLoaderQueryResultsHandler(DataSource dataSource, KnowledgeSource knowledgeSource, Criteria criteria, String id, String displayName) {
         if (dataSource == null) {
@@ -86,8 +89,11 @@ public class KeyLoaderQueryResultsHandler extends AbstractQueryResultsHandler {
         } catch (CriteriaInitException ex) {
             throw new QueryResultsHandlerProcessingException("Error setting up query results handler", ex);
         }
-        this.i = 0;
-        this.keyIds = new HashSet<>();
+        try {
+            this.keyWriter = this.dataSource.newKeyWriter();
+        } catch (DataSourceWriteException ex) {
+            throw new QueryResultsHandlerProcessingException("Could not start writing keys", ex);
+        }
     }
 
     @Override
@@ -98,13 +104,7 @@ public class KeyLoaderQueryResultsHandler extends AbstractQueryResultsHandler {
             Map<UniqueId, Proposition> references) throws QueryResultsHandlerProcessingException {
         try {
             if (this.criteria == null || this.criteria.evaluate(propositions)) {
-                i++;
-                if (this.i % this.batchSize == 0) {
-                    this.dataSource.writeKeys(this.keyIds);
-                    this.keyIds = new HashSet<>();
-                } else {
-                    this.keyIds.add(keyId);
-                }
+                this.keyWriter.write(keyId);
             }
         } catch (CriteriaEvaluateException | DataSourceWriteException ex) {
             throw new QueryResultsHandlerProcessingException("Error processing query results", ex);
@@ -113,13 +113,35 @@ public class KeyLoaderQueryResultsHandler extends AbstractQueryResultsHandler {
 
     @Override
     public void finish() throws QueryResultsHandlerProcessingException {
-        if (!this.keyIds.isEmpty()) {
+        if (this.keyWriter != null) {
             try {
-                this.dataSource.writeKeys(this.keyIds);
+                KeyWriter writer = this.keyWriter;
+                this.keyWriter = null;
+                writer.close();
             } catch (DataSourceWriteException ex) {
                 throw new QueryResultsHandlerProcessingException(ex);
             }
         }
     }
+
+    /**
+     * Discards the key writer if {@link #finish() } did not run, so that the
+     * keys of a failed or cancelled query are not committed.
+     *
+     * @throws QueryResultsHandlerCloseException if an error occurred
+     * discarding the key writer.
+     */
+    @Override
+    public void close() throws QueryResultsHandlerCloseException {
+        if (this.keyWriter != null) {
+            try {
+                KeyWriter writer = this.keyWriter;
+                this.keyWriter = null;
+                writer.discard();
+            } catch (DataSourceWriteException ex) {
+                throw new QueryResultsHandlerCloseException(ex);
+            }
+        }
+    }
     
 }
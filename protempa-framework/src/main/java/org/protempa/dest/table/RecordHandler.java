@@ -312,6 +312,25 @@ public abstract class RecordHandler<E> implements AutoCloseable {
 
     private void init() throws SQLException {
         if (this.connSpec != null) {
+            if (this.cn != null) {
+                /*
+                 * Reconnecting. Give back the failed connection so that it is
+                 * not leaked, which matters when connSpec is a pool.
+                 */
+                try {
+                    if (this.ps != null) {
+                        this.ps.close();
+                    }
+                } catch (SQLException ignore) {
+                } finally {
+                    this.ps = null;
+                    try {
+                        this.cn.close();
+                    } catch (SQLException ignore) {
+                    }
+                    this.cn = null;
+                }
+            }
             this.cn = this.connSpec.getOrCreate();
         }
         this.ps = this.cn.prepareStatement(this.statement);
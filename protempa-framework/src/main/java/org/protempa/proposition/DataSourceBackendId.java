@@ -52,8 +52,13 @@ public final class DataSourceBackendId extends SourceId {
         return result;
     }
 
+    /**
+     * Returns the id of the data source backend.
+     *
+     * @return the id {@link String}. Guaranteed not <code>null</code>.
+     */
     @Override
-    String getId() {
+    public String getId() {
         return this.id;
     }
 
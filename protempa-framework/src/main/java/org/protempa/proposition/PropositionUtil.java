@@ -29,6 +29,7 @@ import java.util.RandomAccess;
 import org.protempa.proposition.comparator.MaxFinishTemporalPropositionComparator;
 import org.protempa.proposition.comparator.TemporalPropositionIntervalComparator;
 
+import org.protempa.proposition.interval.Interval;
 import org.protempa.proposition.interval.IntervalUtil;
 import org.protempa.proposition.value.Unit;
 
@@ -137,8 +138,9 @@ public class PropositionUtil {
              */
             int mid = (low + high) >>> 1;
             TemporalProposition midVal = list.get(mid);
-            Long minStart = midVal.getInterval().getMinimumStart();
-            int cmp = minStart != null ? minStart.compareTo(tstamp) : -1;
+            long minStart = midVal.getInterval().minimumStart();
+            int cmp = minStart != Interval.NEGATIVE_INFINITY
+                    ? Long.compare(minStart, tstamp) : -1;
             if (cmp < 0) {
                 low = mid + 1;
             } else if (cmp > 0) {
@@ -177,8 +179,9 @@ public class PropositionUtil {
              */
             int mid = (low + high) >>> 1;
             TemporalProposition midVal = iteratorBinarySearchGet(i, mid);
-            Long maxStart = midVal.getInterval().getMinimumStart();
-            int cmp = maxStart != null ? maxStart.compareTo(tstamp) : 1;
+            long maxStart = midVal.getInterval().minimumStart();
+            int cmp = maxStart != Interval.NEGATIVE_INFINITY
+                    ? Long.compare(maxStart, tstamp) : 1;
             if (cmp < 0) {
                 low = mid + 1;
             } else if (cmp > 0) {
@@ -239,8 +242,9 @@ public class PropositionUtil {
              */
             int mid = (low + high) >>> 1;
             TemporalProposition midVal = list.get(mid);
-            Long maxFinish = midVal.getInterval().getMaximumFinish();
-            int cmp = maxFinish != null ? maxFinish.compareTo(tstamp) : 1;
+            long maxFinish = midVal.getInterval().maximumFinish();
+            int cmp = maxFinish != Interval.POSITIVE_INFINITY
+                    ? Long.compare(maxFinish, tstamp) : 1;
             if (cmp < 0) {
                 low = mid + 1;
             } else if (cmp > 0) {
@@ -280,8 +284,9 @@ public class PropositionUtil {
              */
             int mid = (low + high) >>> 1;
             T midVal = iteratorBinarySearchGet(i, mid);
-            Long maxFinish = midVal.getInterval().getMaximumFinish();
-            int cmp = maxFinish != null ? maxFinish.compareTo(tstamp) : 1;
+            long maxFinish = midVal.getInterval().maximumFinish();
+            int cmp = maxFinish != Interval.POSITIVE_INFINITY
+                    ? Long.compare(maxFinish, tstamp) : 1;
             if (cmp < 0) {
                 low = mid + 1;
             } else if (cmp > 0) {
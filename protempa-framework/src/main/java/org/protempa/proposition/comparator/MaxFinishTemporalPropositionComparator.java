@@ -34,16 +34,7 @@ public class MaxFinishTemporalPropositionComparator implements
 
     @Override
     public int compare(TemporalProposition p0, TemporalProposition p1) {
-        Long p0MaximumFinish = p0.getInterval().getMaximumFinish();
-        Long p1MaximumFinish = p1.getInterval().getMaximumFinish();
-        if (p0MaximumFinish == p1MaximumFinish) {
-            return 0;
-        } else if (p0MaximumFinish == null) {
-            return 1;
-        } else if (p1MaximumFinish == null) {
-            return -1;
-        } else {
-            return p0MaximumFinish.compareTo(p1MaximumFinish);
-        }
+        return Long.compare(p0.getInterval().maximumFinish(),
+                p1.getInterval().maximumFinish());
     }
 }
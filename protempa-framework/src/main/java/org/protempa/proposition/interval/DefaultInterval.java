@@ -82,17 +82,14 @@ public final class DefaultInterval extends Interval {
                 computeLength();
                 if (cn == null) {
                     cn = new ConstraintNetwork(1);
-                    if (v[0] == null || v[1] == null || v[2] == null
-                            || v[3] == null || v[4] != null || v[5] != null
-                            || v[2].compareTo(v[1]) <= 0) {
-                        cn.addInterval(this);
-                    } else {
-                        simple = true;
-                    }
+                    cn.addInterval(this);
                 } else {
                     cn.clear();
-                    if (v[0] == null || v[1] == null || v[2] == null
-                            || v[3] == null || v[2].compareTo(v[1]) <= 0) {
+                    if (specifiedMinimumStart == NEGATIVE_INFINITY
+                            || specifiedMaximumStart == POSITIVE_INFINITY
+                            || specifiedMinimumFinish == NEGATIVE_INFINITY
+                            || specifiedMaximumFinish == POSITIVE_INFINITY
+                            || specifiedMinimumFinish <= specifiedMaximumStart) {
                         cn.addInterval(this);
                     } else {
                         simple = true;
@@ -114,19 +111,13 @@ public final class DefaultInterval extends Interval {
      *************************************************************************
      */
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see org.virginia.pbhs.parameters.Interval#getMinimumStart()
-     */
     @Override
-    public Long getMinimumStart() {
+    public long minimumStart() {
         calculator();
         if (simple) {
-            return v[0];
+            return specifiedMinimumStart;
         } else {
-            Weight minStart = cn.getMinimumStart();
-            return minStart.isInfinity() ? null : minStart.value();
+            return valueOf(cn.getMinimumStart(), NEGATIVE_INFINITY);
         }
     }
 
@@ -136,19 +127,13 @@ public final class DefaultInterval extends Interval {
      *************************************************************************
      */
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see org.virginia.pbhs.parameters.Interval#getMaximumStart()
-     */
     @Override
-    public Long getMaximumStart() {
+    public long maximumStart() {
         calculator();
         if (simple) {
-            return v[1];
+            return specifiedMaximumStart;
         } else {
-            Weight maxStart = cn.getMaximumStart();
-            return maxStart.isInfinity() ? null : maxStart.value();
+            return valueOf(cn.getMaximumStart(), POSITIVE_INFINITY);
         }
     }
 
@@ -158,41 +143,29 @@ public final class DefaultInterval extends Interval {
      *************************************************************************
      */
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see org.virginia.pbhs.parameters.Interval#getMinimumFinish()
-     */
     @Override
-    public Long getMinimumFinish() {
+    public long minimumFinish() {
         calculator();
         if (simple) {
-            return v[2];
+            return specifiedMinimumFinish;
         } else {
-            Weight minFinish = cn.getMinimumFinish();
-            return minFinish.isInfinity() ? null : minFinish.value();
+            return valueOf(cn.getMinimumFinish(), NEGATIVE_INFINITY);
         }
     }
 
     /**
      * *************************************************************************
-     * MAXIMUM START
+     * MAXIMUM FINISH
      *************************************************************************
      */
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see org.virginia.pbhs.parameters.Interval#getMaximumFinish()
-     */
     @Override
-    public Long getMaximumFinish() {
+    public long maximumFinish() {
         calculator();
         if (simple) {
-            return v[3];
+            return specifiedMaximumFinish;
         } else {
-            Weight maxFinish = cn.getMaximumFinish();
-            return maxFinish.isInfinity() ? null : maxFinish.value();
+            return valueOf(cn.getMaximumFinish(), POSITIVE_INFINITY);
         }
     }
 
@@ -202,19 +175,13 @@ public final class DefaultInterval extends Interval {
      *************************************************************************
      */
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see org.virginia.pbhs.parameters.Interval#getMinimumDuration()
-     */
     @Override
-    public Long getMinimumLength() {
+    public long minimumLength() {
         calculator();
         if (simple) {
-            return v[2] - v[1];
+            return specifiedMinimumFinish - specifiedMaximumStart;
         } else {
-            Weight minDur = cn.getMinimumDuration();
-            return minDur.isInfinity() ? null : minDur.value();
+            return valueOf(cn.getMinimumDuration(), POSITIVE_INFINITY);
         }
     }
 
@@ -224,22 +191,20 @@ public final class DefaultInterval extends Interval {
      *************************************************************************
      */
 
-    /*
-     * (non-Javadoc)
-     *
-     * @see org.virginia.pbhs.parameters.IInterval#getMaximumDuration()
-     */
     @Override
-    public Long getMaximumLength() {
+    public long maximumLength() {
         calculator();
         if (simple) {
-            return v[3] - v[0];
+            return specifiedMaximumFinish - specifiedMinimumStart;
         } else {
-            Weight maxDur = cn.getMaximumDuration();
-            return maxDur.isInfinity() ? null : maxDur.value();
+            return valueOf(cn.getMaximumDuration(), POSITIVE_INFINITY);
         }
     }
 
+    private static long valueOf(Weight weight, long infinity) {
+        return weight.isInfinity() ? infinity : weight.value();
+    }
+
     private void readObject(ObjectInputStream s) throws IOException,
             ClassNotFoundException {
         s.defaultReadObject();
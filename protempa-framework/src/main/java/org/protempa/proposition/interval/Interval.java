@@ -22,7 +22,7 @@ package org.protempa.proposition.interval;
 import java.io.IOException;
 import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
-import java.util.Arrays;
+import java.util.Objects;
 
 import org.protempa.graph.Weight;
 import org.protempa.graph.WeightFactory;
@@ -38,10 +38,35 @@ import org.protempa.proposition.value.Unit;
  * temporal problems, as defined in Dechter, R. et al. Temporal Constraint
  * Networks. Artif. Intell. 1991;49:61-95.
  *
+ * The computed bounds are stored as primitive <code>long</code>s and read
+ * with {@link #minimumStart()}, {@link #maximumStart()},
+ * {@link #minimumFinish()}, {@link #maximumFinish()},
+ * {@link #minimumLength()} and {@link #maximumLength()}. Relations,
+ * comparisons and constraint networks use these accessors. The
+ * <code>Long</code> getters such as {@link #getMinimumStart()} box their
+ * results. A subclass that changes the bounds must override the primitive
+ * accessors. Overriding only the <code>Long</code> getters changes what they
+ * return but not how the interval is related to others. The computed bounds
+ * used to be in a protected <code>Long[]</code> field named <code>v</code>,
+ * which has been removed.
+ *
  * @author Andrew Post
  */
 public abstract class Interval implements Comparable<Interval> {
 
+    /**
+     * The value returned by {@link #minimumStart()} and
+     * {@link #minimumFinish()} when the interval is unbounded on that side.
+     */
+    public static final long NEGATIVE_INFINITY = Long.MIN_VALUE;
+
+    /**
+     * The value returned by {@link #maximumStart()},
+     * {@link #maximumFinish()} and {@link #maximumLength()} when the interval
+     * is unbounded on that side.
+     */
+    public static final long POSITIVE_INFINITY = Long.MAX_VALUE;
+
     public static enum Side {
 
         START(IntervalUtil.resourceBundle().getString("intervalSide.startDisplayName")),
@@ -68,9 +93,14 @@ public abstract class Interval implements Comparable<Interval> {
     private Long maxLength;
     private Unit lengthUnit;
     //Compute these
+    long specifiedMinimumStart;
+    long specifiedMaximumStart;
+    long specifiedMinimumFinish;
+    long specifiedMaximumFinish;
+    long specifiedMinimumLength;
+    long specifiedMaximumLength;
     private Start start;
     private Finish finish;
-    protected Long[] v;
     private Weight[] vw;
     private volatile int hashCode;
     private boolean minLengthComputed;
@@ -138,15 +168,12 @@ public abstract class Interval implements Comparable<Interval> {
     }
 
     protected void initComputed() throws IllegalArgumentException {
-        this.start = new Start(this);
-        this.finish = new Finish(this);
-
-        Long w0 = null;
-        Long w1 = null;
-        Long w2 = null;
-        Long w3 = null;
-        Long w4 = 0L;
-        Long w5 = null;
+        long w0 = NEGATIVE_INFINITY;
+        long w1 = POSITIVE_INFINITY;
+        long w2 = NEGATIVE_INFINITY;
+        long w3 = POSITIVE_INFINITY;
+        long w4 = 0L;
+        long w5 = POSITIVE_INFINITY;
         if (startGranularity != null) {
             if (minStart != null) {
                 w0 = minStart;
@@ -193,7 +220,7 @@ public abstract class Interval implements Comparable<Interval> {
             if (g1 != null) {
                 w4 = g1.minimumDistance(maxStart, minLength, lengthUnit);
             } else if (minFinish != null && maxStart != null) {
-                w4 = minLength.longValue();
+                w4 = minLength;
             }
             this.minLengthComputed = true;
         }
@@ -205,8 +232,13 @@ public abstract class Interval implements Comparable<Interval> {
             }
             this.maxLengthComputed = true;
         }
-        v = new Long[]{w0, w1, w2, w3, w4, w5};
-        if ((v[0] != null && v[1] != null && v[0].compareTo(v[1]) > 0) || (v[2] != null && v[3] != null && v[2].compareTo(v[3]) > 0) || (v[4] != null && v[5] != null && v[4].compareTo(v[5]) > 0)) {
+        this.specifiedMinimumStart = w0;
+        this.specifiedMaximumStart = w1;
+        this.specifiedMinimumFinish = w2;
+        this.specifiedMaximumFinish = w3;
+        this.specifiedMinimumLength = w4;
+        this.specifiedMaximumLength = w5;
+        if (w0 > w1 || w2 > w3 || w4 > w5) {
             throw new IllegalArgumentException("Illegal values for interval");
         }
     }
@@ -214,8 +246,8 @@ public abstract class Interval implements Comparable<Interval> {
     protected void computeLength() {
         if (!this.minLengthComputed || !this.maxLengthComputed) {
             //set default min and max length
-            Long w4 = 0L;
-            Long w5 = null;
+            long w4 = 0L;
+            long w5 = POSITIVE_INFINITY;
 
             //set granularities
             Granularity g1 = null;
@@ -253,7 +285,7 @@ public abstract class Interval implements Comparable<Interval> {
                                 lengthUnit);
                     }
                 } else if (minFinish != null && maxStart != null) {
-                    w4 = minLength.longValue();
+                    w4 = minLength;
                 }
                 minLengthComputed = true;
             }
@@ -284,75 +316,151 @@ public abstract class Interval implements Comparable<Interval> {
             }
 
             //set min and max length
-            this.v[4] = w4;
-            this.v[5] = w5;
+            this.specifiedMinimumLength = w4;
+            this.specifiedMaximumLength = w5;
         }
     }
 
     /**
      * Gets the minimum start in internal PROTEMPA units.
      *
-     * @return a {@link Long}.
+     * @return a <code>long</code>, or {@link #NEGATIVE_INFINITY} if the start
+     * is unbounded.
+     */
+    public long minimumStart() {
+        return this.specifiedMinimumStart;
+    }
+
+    /**
+     * Gets the maximum start in internal PROTEMPA units.
+     *
+     * @return a <code>long</code>, or {@link #POSITIVE_INFINITY} if the start
+     * is unbounded.
+     */
+    public long maximumStart() {
+        return this.specifiedMaximumStart;
+    }
+
+    /**
+     * Gets the minimum finish in internal PROTEMPA units.
+     *
+     * @return a <code>long</code>, or {@link #NEGATIVE_INFINITY} if the
+     * finish is unbounded.
+     */
+    public long minimumFinish() {
+        return this.specifiedMinimumFinish;
+    }
+
+    /**
+     * Gets the maximum finish in internal PROTEMPA units.
+     *
+     * @return a <code>long</code>, or {@link #POSITIVE_INFINITY} if the
+     * finish is unbounded.
+     */
+    public long maximumFinish() {
+        return this.specifiedMaximumFinish;
+    }
+
+    /**
+     * Gets the minimum length in internal PROTEMPA units.
+     *
+     * @return a <code>long</code>, or {@link #POSITIVE_INFINITY} if no
+     * length is possible.
+     */
+    public long minimumLength() {
+        computeLength();
+        return this.specifiedMinimumLength;
+    }
+
+    /**
+     * Gets the maximum length in internal PROTEMPA units.
+     *
+     * @return a <code>long</code>, or {@link #POSITIVE_INFINITY} if the
+     * length is unbounded.
+     */
+    public long maximumLength() {
+        computeLength();
+        return this.specifiedMaximumLength;
+    }
+
+    /**
+     * Gets the minimum start in internal PROTEMPA units.
+     *
+     * @return a {@link Long}, or <code>null</code> if the start is unbounded.
      */
     public Long getMinimumStart() {
-        return v[0];
+        return boxMinimum(minimumStart());
     }
 
     /**
      * Gets the maximum start in internal PROTEMPA units.
      *
-     * @return a {@link Long}.
+     * @return a {@link Long}, or <code>null</code> if the start is unbounded.
      */
     public Long getMaximumStart() {
-        return v[1];
+        return boxMaximum(maximumStart());
     }
 
     /**
      * Gets the minimum finish in internal PROTEMPA units.
      *
-     * @return a {@link Long}.
+     * @return a {@link Long}, or <code>null</code> if the finish is
+     * unbounded.
      */
     public Long getMinimumFinish() {
-        return v[2];
+        return boxMinimum(minimumFinish());
     }
 
     /**
      * Gets the maximum finish in internal PROTEMPA units.
      *
-     * @return a {@link Long}.
+     * @return a {@link Long}, or <code>null</code> if the finish is
+     * unbounded.
      */
     public Long getMaximumFinish() {
-        return v[3];
+        return boxMaximum(maximumFinish());
     }
 
     /**
      * Gets the minimum length in internal PROTEMPA units.
      *
-     * @return a {@link Long}.
+     * @return a {@link Long}, or <code>null</code> if no length is possible.
      */
     public Long getMinimumLength() {
-        computeLength();
-        return v[4];
+        return boxLength(minimumLength());
     }
 
     /**
      * Gets the maximum length in internal PROTEMPA units.
      *
-     * @return a {@link Long}.
+     * @return a {@link Long}, or <code>null</code> if the length is
+     * unbounded.
      */
     public Long getMaximumLength() {
-        computeLength();
-        return v[5];
+        return boxLength(maximumLength());
+    }
+
+    private static Long boxMinimum(long value) {
+        return value != NEGATIVE_INFINITY ? value : null;
+    }
+
+    private static Long boxMaximum(long value) {
+        return value != POSITIVE_INFINITY ? value : null;
+    }
+
+    private static Long boxLength(long value) {
+        return value != NEGATIVE_INFINITY && value != POSITIVE_INFINITY
+                ? value : null;
     }
 
     private void initVw() {
         this.vw = new Weight[]{
-            v[0] != null ? weightFactory.getInstance(v[0]) : WeightFactory.NEG_INFINITY,
-            v[1] != null ? weightFactory.getInstance(v[1]) : WeightFactory.POS_INFINITY,
-            v[2] != null ? weightFactory.getInstance(v[2]) : WeightFactory.NEG_INFINITY,
-            v[3] != null ? weightFactory.getInstance(v[3]) : WeightFactory.POS_INFINITY,
-            v[4] != null ? weightFactory.getInstance(v[4]) : WeightFactory.ZERO,
-            v[5] != null ? weightFactory.getInstance(v[5]) : WeightFactory.POS_INFINITY};
+            this.specifiedMinimumStart != NEGATIVE_INFINITY ? weightFactory.getInstance(this.specifiedMinimumStart) : WeightFactory.NEG_INFINITY,
+            this.specifiedMaximumStart != POSITIVE_INFINITY ? weightFactory.getInstance(this.specifiedMaximumStart) : WeightFactory.POS_INFINITY,
+            this.specifiedMinimumFinish != NEGATIVE_INFINITY ? weightFactory.getInstance(this.specifiedMinimumFinish) : WeightFactory.NEG_INFINITY,
+            this.specifiedMaximumFinish != POSITIVE_INFINITY ? weightFactory.getInstance(this.specifiedMaximumFinish) : WeightFactory.POS_INFINITY,
+            weightFactory.getInstance(this.specifiedMinimumLength),
+            this.specifiedMaximumLength != POSITIVE_INFINITY ? weightFactory.getInstance(this.specifiedMaximumLength) : WeightFactory.POS_INFINITY};
     }
 
     /**
@@ -432,8 +540,11 @@ public abstract class Interval implements Comparable<Interval> {
      *
      * @return
      */
-    Start getStart() {
-        return start;
+    synchronized Start getStart() {
+        if (this.start == null) {
+            this.start = new Start(this);
+        }
+        return this.start;
     }
 
     /**
@@ -441,17 +552,21 @@ public abstract class Interval implements Comparable<Interval> {
      *
      * @return
      */
-    Finish getFinish() {
-        return finish;
+    synchronized Finish getFinish() {
+        if (this.finish == null) {
+            this.finish = new Finish(this);
+        }
+        return this.finish;
     }
 
     public boolean isLengthGreaterThan(int duration, Unit durationUnits) {
-        Long minS = getMinimumStart();
-        Long minF = getMinimumFinish();
-        if (durationUnits == null || minS == null || minF == null) {
-            if (minF == null) {
+        long minS = minimumStart();
+        long minF = minimumFinish();
+        if (durationUnits == null || minS == NEGATIVE_INFINITY
+                || minF == NEGATIVE_INFINITY) {
+            if (minF == NEGATIVE_INFINITY) {
                 return false;
-            } else if (minS == null) {
+            } else if (minS == NEGATIVE_INFINITY) {
                 return true;
             } else {
                 return minS + duration < minF;
@@ -463,12 +578,13 @@ public abstract class Interval implements Comparable<Interval> {
     }
 
     public boolean isLengthLessThan(int duration, Unit durationUnits) {
-        Long maxS = getMaximumStart();
-        Long maxF = getMaximumFinish();
-        if (durationUnits == null || maxS == null || maxF == null) {
-            if (maxF == null) {
+        long maxS = maximumStart();
+        long maxF = maximumFinish();
+        if (durationUnits == null || maxS == POSITIVE_INFINITY
+                || maxF == POSITIVE_INFINITY) {
+            if (maxF == POSITIVE_INFINITY) {
                 return false;
-            } else if (maxS == null) {
+            } else if (maxS == POSITIVE_INFINITY) {
                 return true;
             } else {
                 return maxS + duration > maxF;
@@ -486,7 +602,12 @@ public abstract class Interval implements Comparable<Interval> {
      */
     @Override
     public String toString() {
-        return Arrays.asList(v).toString();
+        return "[" + boxMinimum(this.specifiedMinimumStart) + ", "
+                + boxMaximum(this.specifiedMaximumStart) + ", "
+                + boxMinimum(this.specifiedMinimumFinish) + ", "
+                + boxMaximum(this.specifiedMaximumFinish) + ", "
+                + this.specifiedMinimumLength + ", "
+                + boxMaximum(this.specifiedMaximumLength) + "]";
     }
 
     static final class Start {
@@ -566,14 +687,24 @@ public abstract class Interval implements Comparable<Interval> {
         }
 
         Interval otherIval = (Interval) other;
-        return Arrays.equals(this.v, otherIval.v);
+        return this.specifiedMinimumStart == otherIval.specifiedMinimumStart
+                && this.specifiedMaximumStart == otherIval.specifiedMaximumStart
+                && this.specifiedMinimumFinish == otherIval.specifiedMinimumFinish
+                && this.specifiedMaximumFinish == otherIval.specifiedMaximumFinish
+                && this.specifiedMinimumLength == otherIval.specifiedMinimumLength
+                && this.specifiedMaximumLength == otherIval.specifiedMaximumLength;
     }
 
     @Override
     public int hashCode() {
         if (this.hashCode == 0) {
             int result = 17;
-            result = 37 * result + Arrays.hashCode(this.v);
+            result = 37 * result + Long.hashCode(this.specifiedMinimumStart);
+            result = 37 * result + Long.hashCode(this.specifiedMaximumStart);
+            result = 37 * result + Long.hashCode(this.specifiedMinimumFinish);
+            result = 37 * result + Long.hashCode(this.specifiedMaximumFinish);
+            result = 37 * result + Long.hashCode(this.specifiedMinimumLength);
+            result = 37 * result + Long.hashCode(this.specifiedMaximumLength);
             this.hashCode = result;
         }
 
@@ -586,33 +717,27 @@ public abstract class Interval implements Comparable<Interval> {
             return 0;
         }
 
-        Long start1 = this.getMinimumStart();
-        Long finish1 = this.getMaximumFinish();
-        Long start2 = o.getMinimumStart();
-        Long finish2 = o.getMaximumFinish();
-
-        int result;
-        if (start1 == null && start2 != null) {
-            result = -1;
-        } else if (start1 != null && start2 == null) {
-            result = 1;
-        } else if (start1 == null && start2 == null) {
-            result = 0;
-        } else {
-            result = start1.compareTo(start2);
-        }
+        int result = Long.compare(minimumStart(), o.minimumStart());
         if (result != 0) {
             return result;
         }
-        if (finish1 == null && finish2 != null) {
-            return 1;
-        } else if (finish1 != null && finish2 == null) {
-            return -1;
-        } else if (finish1 == null && finish2 == null) {
-            return 0;
-        } else {
-            return finish1.compareTo(finish2);
-        }
+        return Long.compare(maximumFinish(), o.maximumFinish());
+    }
+
+    /**
+     * Returns whether this interval was created with the given starts,
+     * finishes and granularities and no length constraints. Used by
+     * {@link IntervalFactory} to check its cache without allocating a key.
+     */
+    final boolean isSpecifiedBy(Long minStart, Long maxStart,
+            Granularity startGranularity, Long minFinish, Long maxFinish,
+            Granularity finishGranularity) {
+        return Objects.equals(this.minStart, minStart)
+                && Objects.equals(this.maxStart, maxStart)
+                && Objects.equals(this.minFinish, minFinish)
+                && Objects.equals(this.maxFinish, maxFinish)
+                && Objects.equals(this.startGranularity, startGranularity)
+                && Objects.equals(this.finishGranularity, finishGranularity);
     }
 
     /**
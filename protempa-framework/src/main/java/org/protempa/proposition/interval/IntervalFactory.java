@@ -19,19 +19,22 @@
  */
 package org.protempa.proposition.interval;
 
-import org.apache.commons.collections4.map.ReferenceMap;
 import org.protempa.proposition.value.AbsoluteTimeGranularity;
 import org.protempa.proposition.value.Granularity;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A factory for creating {@link Interval} objects. A subclass of
  * {@link Interval} will be returned that is optimized for the arguments that
  * are provided to this factory's <code>getInstance</code> methods.
  *
+ * Recently created intervals are interned in a fixed-size, direct-mapped
+ * cache shared by all factories. Lookups neither lock nor allocate, and a
+ * slot is simply overwritten when a different interval hashes to it, so
+ * equal intervals are usually, but not always, the same instance.
+ *
  * @author Andrew Post
  */
 public final class IntervalFactory {
@@ -41,7 +44,9 @@ public final class IntervalFactory {
         private static Interval defaultInterval = new DefaultInterval();
     }
 
-    private static final Map<List<Object>, Interval> cache = new ReferenceMap<>();
+    private static final int CACHE_SIZE = 1 << 14;
+    private static final AtomicReferenceArray<Interval> cache
+            = new AtomicReferenceArray<>(CACHE_SIZE);
 
     /**
      * Returns an interval specified by the given minimum start, maximum start,
@@ -71,22 +76,20 @@ public final class IntervalFactory {
     public Interval getInstance(Long minStart, Long maxStart,
             Granularity startGran, Long minFinish, Long maxFinish,
             Granularity finishGran) {
-        List<Object> key = Arrays.asList(new Object[]{minStart, maxStart,
-            startGran, minFinish, maxFinish, finishGran});
-        Interval result;
-        synchronized (cache) {
-            result = cache.get(key);
-            if (result == null) {
-                if (minStart == null || maxStart == null || minFinish == null
-                        || maxFinish == null) {
-                    result = new DefaultInterval(minStart, maxStart, startGran,
-                            minFinish, maxFinish, finishGran, null, null, null);
-                } else {
-                    result = new SimpleInterval(minStart, maxStart,
-                            startGran, minFinish, maxFinish, finishGran);
-                }
-                cache.put(key, result);
+        int slot = slot(minStart, maxStart, startGran, minFinish, maxFinish,
+                finishGran);
+        Interval result = cache.get(slot);
+        if (result == null || !result.isSpecifiedBy(minStart, maxStart,
+                startGran, minFinish, maxFinish, finishGran)) {
+            if (minStart == null || maxStart == null || minFinish == null
+                    || maxFinish == null) {
+                result = new DefaultInterval(minStart, maxStart, startGran,
+                        minFinish, maxFinish, finishGran, null, null, null);
+            } else {
+                result = new SimpleInterval(minStart, maxStart,
+                        startGran, minFinish, maxFinish, finishGran);
             }
+            cache.set(slot, result);
         }
         return result;
     }
@@ -109,21 +112,8 @@ public final class IntervalFactory {
      */
     public Interval getInstance(Long start, Granularity startGran,
             Long finish, Granularity finishGran) {
-        List<Object> key = Arrays.asList(new Object[]{start, startGran,
-            finish, finishGran});
-        Interval result;
-        synchronized (cache) {
-            result = cache.get(key);
-            if (result == null) {
-                if (start == null || finish == null) {
-                    result = new DefaultInterval(start, startGran, finish, finishGran);
-                } else {
-                    result = new SimpleInterval(start, startGran, finish, finishGran);
-                }
-                cache.put(key, result);
-            }
-        }
-        return result;
+        return getInstance(start, start, startGran, finish, finish,
+                finishGran);
     }
 
     /**
@@ -141,20 +131,8 @@ public final class IntervalFactory {
      * @return an {@link Interval}.
      */
     public Interval getInstance(Long position, Granularity gran) {
-        List<Object> key = Arrays.asList(new Object[]{position, gran});
-        Interval result;
-        synchronized (cache) {
-            result = cache.get(key);
-            if (result == null) {
-                if (position == null) {
-                    result = new DefaultInterval(position, gran, position, gran);
-                } else {
-                    result = new SimpleInterval(position, gran);
-                }
-                cache.put(key, result);
-            }
-        }
-        return result;
+        return getInstance(position, position, gran, position, position,
+                gran);
     }
 
     /**
@@ -165,4 +143,19 @@ public final class IntervalFactory {
     public Interval getInstance() {
         return DefaultIntervalContainer.defaultInterval;
     }
+
+    private static int slot(Long minStart, Long maxStart,
+            Granularity startGran, Long minFinish, Long maxFinish,
+            Granularity finishGran) {
+        int h = Objects.hashCode(minStart);
+        h = 31 * h + Objects.hashCode(maxStart);
+        h = 31 * h + Objects.hashCode(startGran);
+        h = 31 * h + Objects.hashCode(minFinish);
+        h = 31 * h + Objects.hashCode(maxFinish);
+        h = 31 * h + Objects.hashCode(finishGran);
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h & (CACHE_SIZE - 1);
+    }
 }
@@ -289,14 +289,14 @@ public final class Relation implements Serializable {
         if (interval1 == null || interval2 == null) {
             return false;
         }
-        Long minStart1 = interval1.getMinimumStart();
-        Long maxStart1 = interval1.getMaximumStart();
-        Long minFinish1 = interval1.getMinimumFinish();
-        Long maxFinish1 = interval1.getMaximumFinish();
-        Long minStart2 = interval2.getMinimumStart();
-        Long maxStart2 = interval2.getMaximumStart();
-        Long minFinish2 = interval2.getMinimumFinish();
-        Long maxFinish2 = interval2.getMaximumFinish();
+        long minStart1 = interval1.minimumStart();
+        long maxStart1 = interval1.maximumStart();
+        long minFinish1 = interval1.minimumFinish();
+        long maxFinish1 = interval1.maximumFinish();
+        long minStart2 = interval2.minimumStart();
+        long maxStart2 = interval2.maximumStart();
+        long minFinish2 = interval2.minimumFinish();
+        long maxFinish2 = interval2.maximumFinish();
         return evenHasRelationCheck(0, minStart1, minStart2)
                 && oddHasRelationCheck(1, maxStart1, maxStart2)
                 && evenHasRelationCheck(2, minStart1, minFinish2)
@@ -307,35 +307,83 @@ public final class Relation implements Serializable {
                 && oddHasRelationCheck(7, maxFinish1, maxFinish2);
     }
 
-    private boolean evenHasRelationCheck(int i, Long lhs, Long rhs) {
-        if (this.units[i] != null && lhs != null && rhs != null
+    /**
+     * Returns whether one of this relation's eight distance constraints has a
+     * value. Constraints are numbered in the order of the public
+     * constructor's arguments: <code>0</code> for the minimum distance
+     * between starts through <code>7</code> for the maximum distance between
+     * finishes.
+     *
+     * @param constraint a constraint number between <code>0</code> and
+     * <code>7</code>.
+     * @return <code>true</code> if the constraint has a value,
+     * <code>false</code> if it is unconstrained.
+     */
+    public boolean isConstrained(int constraint) {
+        return this.intValues[constraint] != null;
+    }
+
+    /**
+     * Determines whether two interval endpoints satisfy one of this
+     * relation's eight distance constraints. Constraints are numbered as in
+     * {@link #isConstrained(int)}. Even-numbered (minimum distance)
+     * constraints are monotonically non-decreasing in <code>rhs</code> and
+     * non-increasing in <code>lhs</code>, and odd-numbered (maximum distance)
+     * constraints are the reverse, so callers may binary search sorted
+     * endpoints. {@link #hasRelation(Interval, Interval)} is the conjunction
+     * of all eight constraints, applied to the endpoints documented in the
+     * public constructor. Even-numbered constraints relate minimum
+     * endpoints, so an unbounded endpoint is given as
+     * {@link Interval#NEGATIVE_INFINITY}; odd-numbered constraints relate
+     * maximum endpoints, so an unbounded endpoint is given as
+     * {@link Interval#POSITIVE_INFINITY}.
+     *
+     * @param constraint a constraint number between <code>0</code> and
+     * <code>7</code>.
+     * @param lhs the left-hand-side endpoint.
+     * @param rhs the right-hand-side endpoint.
+     * @return <code>true</code> if the constraint is satisfied,
+     * <code>false</code> otherwise.
+     */
+    public boolean hasRelation(int constraint, long lhs, long rhs) {
+        if ((constraint & 1) == 0) {
+            return evenHasRelationCheck(constraint, lhs, rhs);
+        } else {
+            return oddHasRelationCheck(constraint, lhs, rhs);
+        }
+    }
+
+    private boolean evenHasRelationCheck(int i, long lhs, long rhs) {
+        boolean lhsBounded = lhs != Interval.NEGATIVE_INFINITY;
+        boolean rhsBounded = rhs != Interval.NEGATIVE_INFINITY;
+        if (this.units[i] != null && lhsBounded && rhsBounded
                 && this.intValues[i] != null) {
-            long lhsl = lhs;
-            long rhsl = rhs;
-            if (lhsl <= rhsl) {
-                return isLessThanOrEqualToDuration(this.units[i], lhsl, rhsl,
+            if (lhs <= rhs) {
+                return isLessThanOrEqualToDuration(this.units[i], lhs, rhs,
                         this.intValues[i]);
             } else {
-                return isGreaterThanOrEqualToDuration(this.units[i], rhsl,
-                        lhsl, -this.intValues[i]);
+                return isGreaterThanOrEqualToDuration(this.units[i], rhs,
+                        lhs, -this.intValues[i]);
             }
-        } else if (lhs != null && rhs != null && this.intValues[i] != null) {
+        } else if (lhsBounded && rhsBounded && this.intValues[i] != null) {
             return lhs + this.intValues[i] <= rhs;
-        } else if ((rhs != null || lhs == null) && this.intValues[i] == null) {
+        } else if ((rhsBounded || !lhsBounded) && this.intValues[i] == null) {
             return true;
         } else {
             return false;
         }
     }
 
-    private boolean oddHasRelationCheck(int i, Long lhs, Long rhs) {
-        if (this.units[i] != null && lhs != null && rhs != null
+    private boolean oddHasRelationCheck(int i, long lhs, long rhs) {
+        boolean lhsBounded = lhs != Interval.POSITIVE_INFINITY;
+        boolean rhsBounded = rhs != Interval.POSITIVE_INFINITY;
+        if (this.units[i] != null && lhsBounded && rhsBounded
                 && this.intValues[i] != null) {
             return isGreaterThanOrEqualToDuration(this.units[i], lhs, rhs,
                     this.intValues[i]);
-        } else if (lhs != null && rhs != null && this.intValues[i] != null) {
+        } else if (lhsBounded && rhsBounded && this.intValues[i] != null) {
             return lhs + this.intValues[i] >= rhs;
-        } else if ((lhs != null || rhs == null) && this.intValues[i] == null) {
+        } else if ((lhsBounded || !rhsBounded) && this.intValues[i] == null) {
             return true;
         } else {
             return false;
@@ -0,0 +1,247 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.proposition.value;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Calendar;
+
+/**
+ * Stateless, thread-safe calendar arithmetic on positions in UTC milliseconds
+ * from the epoch, in the default time zone. Fields are specified with
+ * {@link Calendar} field constants, and each operation gives the same result
+ * as the corresponding operation on a lenient {@link java.util.GregorianCalendar}
+ * (including its handling of daylight saving time transitions) without
+ * allocating or locking a {@link Calendar}.
+ *
+ * @author Andrew Post
+ */
+final class AbsoluteTimeArithmetic {
+
+    private static final long MILLIS_IN_SECOND = 1000L;
+    private static final long MILLIS_IN_MINUTE = 60 * MILLIS_IN_SECOND;
+    private static final long MILLIS_IN_HOUR = 60 * MILLIS_IN_MINUTE;
+
+    private AbsoluteTimeArithmetic() {
+    }
+
+    /**
+     * Sets all of the fields of the given position that are smaller than the
+     * given field to their minimum values, like calling
+     * {@link Calendar#set(int, int)} with
+     * {@link Calendar#getActualMinimum(int)} on each of them.
+     *
+     * @param position a position.
+     * @param calField one of {@link Calendar#MILLISECOND},
+     * {@link Calendar#SECOND}, {@link Calendar#MINUTE},
+     * {@link Calendar#HOUR_OF_DAY}, {@link Calendar#DATE},
+     * {@link Calendar#MONTH} or {@link Calendar#YEAR}.
+     * @return the truncated position.
+     */
+    static long truncate(long position, int calField) {
+        LocalDateTime local;
+        switch (calField) {
+            case Calendar.MILLISECOND:
+                return position;
+            case Calendar.SECOND:
+                local = toLocal(position).truncatedTo(ChronoUnit.SECONDS);
+                break;
+            case Calendar.MINUTE:
+                local = toLocal(position).truncatedTo(ChronoUnit.MINUTES);
+                break;
+            case Calendar.HOUR_OF_DAY:
+                local = toLocal(position).truncatedTo(ChronoUnit.HOURS);
+                break;
+            case Calendar.DATE:
+                local = toLocal(position).truncatedTo(ChronoUnit.DAYS);
+                break;
+            case Calendar.MONTH:
+                local = toLocal(position).truncatedTo(ChronoUnit.DAYS)
+                        .withDayOfMonth(1);
+                break;
+            case Calendar.YEAR:
+                local = toLocal(position).truncatedTo(ChronoUnit.DAYS)
+                        .withDayOfYear(1);
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported calendar field " + calField);
+        }
+        return fromLocal(local);
+    }
+
+    /**
+     * Adds the given amount of the given field to a position, like
+     * {@link Calendar#add(int, int)}. Time fields are added as fixed
+     * lengths of time. Days and weeks keep the local time of day across
+     * daylight saving time transitions where possible. Months and years keep
+     * the local date and time, pinning the day of the month to the last day
+     * of a shorter month.
+     *
+     * @param position a position.
+     * @param calField one of {@link Calendar#MILLISECOND},
+     * {@link Calendar#SECOND}, {@link Calendar#MINUTE},
+     * {@link Calendar#HOUR_OF_DAY}, {@link Calendar#DATE},
+     * {@link Calendar#WEEK_OF_MONTH}, {@link Calendar#MONTH} or
+     * {@link Calendar#YEAR}.
+     * @param amount the amount to add.
+     * @return the new position.
+     */
+    static long add(long position, int calField, long amount) {
+        if (amount == 0) {
+            return position;
+        }
+        switch (calField) {
+            case Calendar.MILLISECOND:
+                return position + amount;
+            case Calendar.SECOND:
+                return position + amount * MILLIS_IN_SECOND;
+            case Calendar.MINUTE:
+                return position + amount * MILLIS_IN_MINUTE;
+            case Calendar.HOUR_OF_DAY:
+                return position + amount * MILLIS_IN_HOUR;
+            case Calendar.DATE:
+                return addDays(position, amount);
+            case Calendar.WEEK_OF_MONTH:
+                return addDays(position, amount * 7);
+            case Calendar.MONTH:
+                return fromLocal(toLocal(position).plusMonths(amount));
+            case Calendar.YEAR:
+                return fromLocal(toLocal(position).plusYears(amount));
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported calendar field " + calField);
+        }
+    }
+
+    /**
+     * Returns the number of times the given field can be added to
+     * <code>start</code> without going past <code>finish</code>, that is,
+     * the largest <code>n</code> such that
+     * <code>add(start, calField, n) &lt;= finish</code>, or zero if there is
+     * no such positive <code>n</code>. The answer is estimated from the
+     * local dates of the two positions and then corrected by at most a
+     * couple of additions.
+     *
+     * @param start the start position.
+     * @param finish the finish position.
+     * @param calField one of the fields supported by
+     * {@link #add(long, int, long)}.
+     * @return the number of whole units between the two positions.
+     */
+    static long between(long start, long finish, int calField) {
+        if (finish < start) {
+            return 0L;
+        }
+        switch (calField) {
+            case Calendar.MILLISECOND:
+                return finish - start;
+            case Calendar.SECOND:
+                return (finish - start) / MILLIS_IN_SECOND;
+            case Calendar.MINUTE:
+                return (finish - start) / MILLIS_IN_MINUTE;
+            case Calendar.HOUR_OF_DAY:
+                return (finish - start) / MILLIS_IN_HOUR;
+            default:
+        }
+        LocalDateTime startLocal = toLocal(start);
+        LocalDateTime finishLocal = toLocal(finish);
+        long n;
+        switch (calField) {
+            case Calendar.DATE:
+                n = ChronoUnit.DAYS.between(startLocal.toLocalDate(),
+                        finishLocal.toLocalDate());
+                break;
+            case Calendar.WEEK_OF_MONTH:
+                n = ChronoUnit.DAYS.between(startLocal.toLocalDate(),
+                        finishLocal.toLocalDate()) / 7;
+                break;
+            case Calendar.MONTH:
+                n = 12L * (finishLocal.getYear() - startLocal.getYear())
+                        + finishLocal.getMonthValue()
+                        - startLocal.getMonthValue();
+                break;
+            case Calendar.YEAR:
+                n = finishLocal.getYear() - startLocal.getYear();
+                break;
+            default:
+                throw new IllegalArgumentException(
+                        "Unsupported calendar field " + calField);
+        }
+        while (n > 0 && add(start, calField, n) > finish) {
+            n--;
+        }
+        while (add(start, calField, n + 1) <= finish) {
+            n++;
+        }
+        return n;
+    }
+
+    private static long addDays(long position, long days) {
+        ZoneId zone = ZoneId.systemDefault();
+        Instant instant = Instant.ofEpochMilli(position);
+        ZoneOffset offset = zone.getRules().getOffset(instant);
+        LocalDateTime target = LocalDateTime.ofInstant(instant, zone)
+                .plusDays(days);
+        long result = localMillis(target) - offset.getTotalSeconds()
+                * MILLIS_IN_SECOND;
+        /*
+         * Like GregorianCalendar, compute the new position using the old
+         * offset, then shift it by the change in offset unless that would
+         * move it to another date.
+         */
+        long offsetChange = (offset.getTotalSeconds() - zone.getRules()
+                .getOffset(Instant.ofEpochMilli(result)).getTotalSeconds())
+                * MILLIS_IN_SECOND;
+        if (offsetChange != 0) {
+            long adjusted = result + offsetChange;
+            if (toLocal(adjusted).toLocalDate().equals(
+                    target.toLocalDate())) {
+                result = adjusted;
+            }
+        }
+        return result;
+    }
+
+    private static LocalDateTime toLocal(long position) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(position),
+                ZoneId.systemDefault());
+    }
+
+    /**
+     * Resolves a local date and time the way a lenient calendar does: a time
+     * that is skipped by a daylight saving time transition is moved forward
+     * by the length of the gap, and a time that occurs twice resolves to the
+     * later of the two offsets.
+     */
+    private static long fromLocal(LocalDateTime local) {
+        return ZonedDateTime.ofLocal(local, ZoneId.systemDefault(), null)
+                .withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+    }
+
+    private static long localMillis(LocalDateTime local) {
+        return local.toEpochSecond(ZoneOffset.UTC) * MILLIS_IN_SECOND
+                + local.getNano() / 1000000;
+    }
+}
@@ -161,7 +161,6 @@ public class AbsoluteTimeUnit extends AbstractTimeUnit {
 
         return pos;
     }
-    private transient final Calendar cal;
     private transient final boolean isUsingFastDurationCalculations;
     private int ordinal = nextOrdinal++;
 
@@ -172,8 +171,6 @@ public class AbsoluteTimeUnit extends AbstractTimeUnit {
         super(name, pluralName, abbreviation, shortFormat,
                 mediumFormat, longFormat, length, calUnits);
 
-        this.cal = Calendar.getInstance();
-
         if (fastDurationCalcsEnabled) {
             this.isUsingFastDurationCalculations = canUseFastDistanceCalcs;
         } else {
@@ -210,11 +207,8 @@ public class AbsoluteTimeUnit extends AbstractTimeUnit {
         if (this.isUsingFastDurationCalculations) {
             return position + duration * getLength();
         } else {
-            synchronized (this.cal) {
-                this.cal.setTimeInMillis(position);
-                this.cal.add(getCalendarUnits(), duration);
-                return this.cal.getTimeInMillis();
-            }
+            return AbsoluteTimeArithmetic.add(position, getCalendarUnits(),
+                    duration);
         }
     }
 }
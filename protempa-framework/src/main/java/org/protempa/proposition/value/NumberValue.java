@@ -19,7 +19,6 @@
  */
 package org.protempa.proposition.value;
 
-import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
 import java.io.IOException;
@@ -28,13 +27,21 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.text.Format;
-import java.util.Map;
 
 /**
  * Represents a number, either integral or floating point, with unbounded upper
  * and lower limit (subject to available memory). Significant digits are
  * preserved.
  *
+ * Number values created from a <code>double</code>, or parsed from a string
+ * that is the same as the <code>double</code>'s string form, are backed by
+ * the <code>double</code> and create the equivalent {@link BigDecimal}, the
+ * one returned by {@link BigDecimal#valueOf(double)}, only when it is
+ * needed. Number values that compare the same as their <code>double</code>
+ * values (see {@link #isDoubleComparable()}) are compared with each other as
+ * <code>double</code>s. Whether a value created from a {@link BigDecimal} is
+ * one of them is worked out the first time it is needed.
+ *
  * @author Andrew Post
  */
 public final class NumberValue implements NumericalValue,
@@ -42,8 +49,26 @@ public final class NumberValue implements NumericalValue,
 
     private static final long serialVersionUID = 266750924747111671L;
 
-    private static final Map<BigDecimal, NumberValue> cache = new ReferenceMap<>();
-    private BigDecimal num;
+    /**
+     * The maximum number of significant digits of a decimal number that is
+     * guaranteed to round-trip through a <code>double</code>.
+     */
+    private static final int MAX_EXACT_PRECISION = 15;
+
+    private static final SoftValueCache<Object, NumberValue> cache
+            = new SoftValueCache<>();
+    private static final byte DOUBLE_COMPARABLE_UNKNOWN = 0;
+    private static final byte DOUBLE_COMPARABLE = 1;
+    private static final byte NOT_DOUBLE_COMPARABLE = 2;
+
+    private volatile BigDecimal num;
+    private transient double doubleNum;
+    private transient boolean doubleBacked;
+    /*
+     * Written after doubleNum, so a thread that reads DOUBLE_COMPARABLE also
+     * sees doubleNum.
+     */
+    private transient volatile byte doubleComparable;
     private transient volatile int hashCode;
 
     /**
@@ -64,9 +89,15 @@ public final class NumberValue implements NumericalValue,
      *
      * @param num a double.
      * @return a {@link NumberValue}. Guaranteed not <code>null</code>.
+     * @throws NumberFormatException if the double is infinite or NaN.
      */
     public static NumberValue getInstance(double num) {
-        return getInstance(BigDecimal.valueOf(num));
+        Double key = num;
+        NumberValue result = cache.get(key);
+        if (result == null) {
+            result = cache.putIfAbsent(key, new NumberValue(num));
+        }
+        return result;
     }
 
     public static NumberValue getInstance(long num) {
@@ -76,12 +107,9 @@ public final class NumberValue implements NumericalValue,
     public static NumberValue getInstance(BigDecimal num) {
         NumberValue result;
         if (num != null) {
-            synchronized (cache) {
-                result = cache.get(num);
-                if (result == null) {
-                    result = new NumberValue(num);
-                    cache.put(num, result);
-                }
+            result = cache.get(num);
+            if (result == null) {
+                result = cache.putIfAbsent(num, new NumberValue(num));
             }
         } else {
             result = getInstance(BigDecimal.ZERO);
@@ -93,8 +121,21 @@ public final class NumberValue implements NumericalValue,
         this(BigDecimal.valueOf(num));
     }
 
+    /**
+     * Creates a number value backed by a <code>double</code>. It is equal to
+     * the number value of the {@link BigDecimal} returned by
+     * {@link BigDecimal#valueOf(double)}.
+     *
+     * @param num a double.
+     * @throws NumberFormatException if the double is infinite or NaN.
+     */
     public NumberValue(double num) {
-        this(BigDecimal.valueOf(num));
+        if (Double.isInfinite(num) || Double.isNaN(num)) {
+            throw new NumberFormatException("Infinite or NaN");
+        }
+        this.doubleNum = num;
+        this.doubleBacked = true;
+        this.doubleComparable = DOUBLE_COMPARABLE;
     }
 
     public NumberValue(BigDecimal num) {
@@ -109,12 +150,44 @@ public final class NumberValue implements NumericalValue,
         }
     }
 
+    /**
+     * Returns a number value backed by a <code>double</code> for a string
+     * with no leading or trailing whitespace that is the same as
+     * {@link Double#toString(double)} of the number. The {@link BigDecimal}
+     * of such a string equals the one returned by
+     * {@link BigDecimal#valueOf(double)}, so the value is equal to the one
+     * that {@link #NumberValue(java.math.BigDecimal)} would create.
+     *
+     * @param str a string.
+     * @return a {@link NumberValue}, or <code>null</code> if the string is
+     * not in that form.
+     */
+    static NumberValue parseIfDouble(String str) {
+        /*
+         * Double.toString always has a decimal point for finite numbers, so
+         * integers and non-numbers are not parsed twice.
+         */
+        if (str.indexOf('.') < 0) {
+            return null;
+        }
+        double d;
+        try {
+            d = Double.parseDouble(str);
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (!Double.isNaN(d) && !Double.isInfinite(d)
+                && Double.toString(d).equals(str)) {
+            return getInstance(d);
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public NumberValue replace() {
-        NumberValue result;
-        synchronized (cache) {
-            result = cache.get(this.num);
-        }
+        NumberValue result = cache.get(
+                this.doubleBacked ? Double.valueOf(this.doubleNum) : this.num);
         if (result != null) {
             return result;
         } else {
@@ -125,7 +198,7 @@ public final class NumberValue implements NumericalValue,
     @Override
     public int hashCode() {
         if (this.hashCode == 0) {
-            this.hashCode = num.hashCode();
+            this.hashCode = getBigDecimal().hashCode();
         }
         return this.hashCode;
     }
@@ -142,7 +215,17 @@ public final class NumberValue implements NumericalValue,
             return false;
         }
         final NumberValue other = (NumberValue) obj;
-        if (this.num != other.num && !this.num.equals(other.num)) {
+        if (isDoubleComparable() && other.isDoubleComparable()) {
+            if (this.doubleNum != other.doubleNum) {
+                return false;
+            }
+            if (this.doubleBacked && other.doubleBacked) {
+                return true;
+            }
+        }
+        BigDecimal thisNum = getBigDecimal();
+        BigDecimal otherNum = other.getBigDecimal();
+        if (thisNum != otherNum && !thisNum.equals(otherNum)) {
             return false;
         }
         return true;
@@ -155,12 +238,16 @@ public final class NumberValue implements NumericalValue,
      */
     @Override
     public int compareTo(NumberValue o) {
-        return num.compareTo(o.num);
+        if (isDoubleComparable() && o.isDoubleComparable()) {
+            return this.doubleNum < o.doubleNum ? -1
+                    : (this.doubleNum > o.doubleNum ? 1 : 0);
+        }
+        return getBigDecimal().compareTo(o.getBigDecimal());
     }
 
     @Override
     public String getFormatted() {
-        return num.toString();
+        return getBigDecimal().toString();
     }
     
     @Override
@@ -168,7 +255,7 @@ public final class NumberValue implements NumericalValue,
         if (format == null) {
             return getFormatted();
         } else {
-            return format.format(this.num);
+            return format.format(getBigDecimal());
         }
     }
 
@@ -179,16 +266,53 @@ public final class NumberValue implements NumericalValue,
 
     @Override
     public double doubleValue() {
-        return num.doubleValue();
+        return this.doubleBacked || isDoubleComparable()
+                ? this.doubleNum : this.num.doubleValue();
     }
 
     public long longValue() {
-        return num.longValue();
+        if (this.doubleBacked && Math.abs(this.doubleNum) < 0x1p63) {
+            return (long) this.doubleNum;
+        }
+        return getBigDecimal().longValue();
     }
 
     @Override
     public BigDecimal getBigDecimal() {
-        return num;
+        BigDecimal result = this.num;
+        if (result == null) {
+            result = BigDecimal.valueOf(this.doubleNum);
+            this.num = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether this value compares with other such values the same
+     * as its <code>double</code> value does. This is the case for values
+     * created from a <code>double</code>, and for values with at most 15
+     * significant digits that are zero or in the range of normal
+     * <code>double</code>s.
+     *
+     * @return <code>true</code> or <code>false</code>.
+     */
+    public boolean isDoubleComparable() {
+        byte result = this.doubleComparable;
+        if (result == DOUBLE_COMPARABLE_UNKNOWN) {
+            result = NOT_DOUBLE_COMPARABLE;
+            BigDecimal bd = this.num;
+            if (bd.precision() <= MAX_EXACT_PRECISION) {
+                double d = bd.doubleValue();
+                if (d == 0.0 ? bd.signum() == 0
+                        : Math.abs(d) >= Double.MIN_NORMAL
+                        && !Double.isInfinite(d)) {
+                    this.doubleNum = d;
+                    result = DOUBLE_COMPARABLE;
+                }
+            }
+            this.doubleComparable = result;
+        }
+        return result == DOUBLE_COMPARABLE;
     }
 
     /**
@@ -218,7 +342,7 @@ public final class NumberValue implements NumericalValue,
                                 : ValueComparator.EQUAL_TO);
             case INEQUALITYNUMBERVALUE:
                 InequalityNumberValue other2 = (InequalityNumberValue) o;
-                int comp2 = num.compareTo((BigDecimal) other2.getNumber());
+                int comp2 = compareTo(other2.getNumberValue());
                 switch (other2.getComparator()) {
                     case EQUAL_TO:
                         return comp2 > 0 ? ValueComparator.GREATER_THAN
@@ -242,7 +366,7 @@ public final class NumberValue implements NumericalValue,
 
     @Override
     public Number getNumber() {
-        return num;
+        return getBigDecimal();
     }
 
     @Override
@@ -255,20 +379,19 @@ public final class NumberValue implements NumericalValue,
 
     @Override
     public String toString() {
+        getBigDecimal();
         return ToStringBuilder.reflectionToString(this);
     }
 
     private void writeObject(ObjectOutputStream s) throws IOException {
-        s.writeObject(this.num);
+        s.writeObject(getBigDecimal());
     }
 
     private void readObject(ObjectInputStream s) throws IOException,
             ClassNotFoundException {
         BigDecimal tmpNum = (BigDecimal) s.readObject();
         init(tmpNum);
-        if (!cache.containsKey(tmpNum)) {
-            cache.put(tmpNum, this);
-        }
+        cache.putIfAbsent(this.num, this);
     }
 
     @Override
@@ -0,0 +1,100 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.proposition.value;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A thread-safe cache of softly referenced values for interning value
+ * objects. Lookups do not lock, and values are reclaimed by the garbage
+ * collector when memory is low, like in a {@link
+ * org.apache.commons.collections4.map.ReferenceMap} with soft values.
+ *
+ * @author Andrew Post
+ */
+final class SoftValueCache<K, V> {
+
+    private final ConcurrentMap<K, Entry<K, V>> map;
+    private final ReferenceQueue<V> queue;
+
+    SoftValueCache() {
+        this.map = new ConcurrentHashMap<>();
+        this.queue = new ReferenceQueue<>();
+    }
+
+    /**
+     * Gets the value cached for a key.
+     *
+     * @param key a key. Cannot be <code>null</code>.
+     * @return the cached value, or <code>null</code> if there is none.
+     */
+    V get(K key) {
+        Entry<K, V> entry = this.map.get(key);
+        return entry != null ? entry.get() : null;
+    }
+
+    /**
+     * Caches a value if no value is cached for its key.
+     *
+     * @param key a key. Cannot be <code>null</code>.
+     * @param value a value. Cannot be <code>null</code>.
+     * @return the value that is cached for the key when this method returns,
+     * either the value provided or one that was cached already.
+     */
+    V putIfAbsent(K key, V value) {
+        purge();
+        Entry<K, V> entry = new Entry<>(key, value, this.queue);
+        while (true) {
+            Entry<K, V> existing = this.map.putIfAbsent(key, entry);
+            if (existing == null) {
+                return value;
+            }
+            V existingValue = existing.get();
+            if (existingValue != null) {
+                return existingValue;
+            }
+            if (this.map.replace(key, existing, entry)) {
+                return value;
+            }
+        }
+    }
+
+    private void purge() {
+        Object ref;
+        while ((ref = this.queue.poll()) != null) {
+            @SuppressWarnings("unchecked")
+            Entry<K, V> entry = (Entry<K, V>) ref;
+            this.map.remove(entry.key, entry);
+        }
+    }
+
+    private static final class Entry<K, V> extends SoftReference<V> {
+
+        private final K key;
+
+        Entry(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
@@ -19,14 +19,11 @@
  */
 package org.protempa.proposition.value;
 
-import org.apache.commons.collections4.map.ReferenceMap;
-
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Represents types of values of propositions and properties, and provides a
@@ -178,7 +175,8 @@ public enum ValueType {
                 }
             },
     NUMBERVALUE {
-                private Map<String, BigDecimal> cache = new ReferenceMap<>();
+                private final SoftValueCache<String, BigDecimal> cache
+                        = new SoftValueCache<>();
 
                 @Override
                 public Value parse(String val) {
@@ -189,13 +187,15 @@ public enum ValueType {
                              * there are spaces before or after the number in val.
                              */
                             String valTrimmed = val.trim();
-                            BigDecimal bd;
-                            synchronized (this.cache) {
-                                bd = this.cache.get(valTrimmed);
-                                if (bd == null) {
-                                    bd = new BigDecimal(valTrimmed);
-                                    this.cache.put(valTrimmed, bd);
-                                }
+                            NumberValue result
+                                    = NumberValue.parseIfDouble(valTrimmed);
+                            if (result != null) {
+                                return result;
+                            }
+                            BigDecimal bd = this.cache.get(valTrimmed);
+                            if (bd == null) {
+                                bd = this.cache.putIfAbsent(valTrimmed,
+                                        new BigDecimal(valTrimmed));
                             }
                             return NumberValue.getInstance(bd);
                         } catch (NumberFormatException e) {
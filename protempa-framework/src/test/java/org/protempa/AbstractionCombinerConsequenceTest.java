@@ -0,0 +1,161 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.protempa.proposition.AbstractParameter;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.interval.Interval;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.value.NominalValue;
+
+/**
+ * Tests {@link AbstractionCombinerConsequence}. The consequence is fired on
+ * the abstract parameters in a recording working memory, and fired again
+ * after each change to them, like the rule's collect pattern would, until
+ * it changes nothing.
+ *
+ * @author Andrew Post
+ */
+public class AbstractionCombinerConsequenceTest extends ProtempaTestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+
+    private ConsequenceFixture fixture;
+    private List<Proposition> facts;
+    private List<Proposition> inserted;
+    private DerivationsBuilder derivationsBuilder;
+    private AbstractionCombinerConsequence consequence;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.fixture = new ConsequenceFixture();
+        this.facts = this.fixture.getFacts();
+        this.inserted = this.fixture.getInserted();
+        this.derivationsBuilder = this.fixture.getDerivationsBuilder();
+        LowLevelAbstractionDefinition def
+                = new LowLevelAbstractionDefinition("LLA");
+        def.setGapFunction(new SimpleGapFunction(10, null));
+        this.consequence = new AbstractionCombinerConsequence(def);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.fixture = null;
+        this.facts = null;
+        this.inserted = null;
+        this.derivationsBuilder = null;
+        this.consequence = null;
+    }
+
+    public void testRunOfThreeAndGap() throws Exception {
+        AbstractParameter a1 = newFragment(0L, 10L, "High", null);
+        AbstractParameter a2 = newFragment(10L, 20L, "High", null);
+        AbstractParameter a3 = newFragment(25L, 30L, "High", null);
+        AbstractParameter a4 = newFragment(100L, 110L, "High", null);
+        fireUntilUnchanged();
+        assertEquals(1, this.inserted.size());
+        AbstractParameter combined = (AbstractParameter) this.inserted.get(0);
+        assertEquals(new HashSet<>(Arrays.asList(combined, a4)),
+                new HashSet<>(this.facts));
+        Interval ival = combined.getInterval();
+        assertEquals(Long.valueOf(0L), ival.getMinStart());
+        assertEquals(Long.valueOf(30L), ival.getMaxFinish());
+        assertEquals(NominalValue.getInstance("High"), combined.getValue());
+        assertFalse(this.facts.contains(a1));
+        assertFalse(this.facts.contains(a2));
+        assertFalse(this.facts.contains(a3));
+    }
+
+    public void testDerivationsPointToCombined() throws Exception {
+        List<PrimitiveParameter> sources = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AbstractParameter fragment = newFragment(i * 10L, i * 10L + 10L,
+                    "High", null);
+            PrimitiveParameter source = new PrimitiveParameter("PP", getUid());
+            source.setPosition(i * 10L);
+            this.derivationsBuilder.propositionAsserted(source, fragment);
+            sources.add(source);
+        }
+        fireUntilUnchanged();
+        assertEquals(1, this.facts.size());
+        Proposition combined = this.facts.get(0);
+        assertEquals(new HashSet<Proposition>(sources),
+                this.derivationsBuilder.getBackwardDerivations()
+                .get(combined));
+        for (PrimitiveParameter source : sources) {
+            assertEquals(Collections.singleton(combined),
+                    this.derivationsBuilder.getForwardDerivations()
+                    .get(source));
+        }
+    }
+
+    public void testDifferentContextsNotCombined() throws Exception {
+        newFragment(0L, 10L, "High", "Context1");
+        newFragment(10L, 20L, "High", "Context2");
+        newFragment(20L, 30L, "Low", "Context2");
+        fireUntilUnchanged();
+        assertTrue(this.inserted.isEmpty());
+        assertEquals(3, this.facts.size());
+    }
+
+    public void testSameContextCombined() throws Exception {
+        newFragment(0L, 10L, "High", "Context1");
+        newFragment(10L, 20L, "High", "Context1");
+        newFragment(5L, 15L, "High", "Context2");
+        fireUntilUnchanged();
+        assertEquals(1, this.inserted.size());
+        AbstractParameter combined = (AbstractParameter) this.inserted.get(0);
+        assertEquals("Context1", combined.getContextId());
+        assertEquals(2, this.facts.size());
+    }
+
+    private AbstractParameter newFragment(Long start, Long finish,
+            String value, String contextId) {
+        AbstractParameter result = new AbstractParameter("LLA", getUid());
+        result.setInterval(INTERVAL_FACTORY.getInstance(start, null, finish,
+                null));
+        result.setValue(NominalValue.getInstance(value));
+        result.setContextId(contextId);
+        this.facts.add(result);
+        return result;
+    }
+
+    private void fireUntilUnchanged() throws Exception {
+        List<Proposition> facts = this.fixture.getFacts();
+        for (int i = 0; i < 10; i++) {
+            List<Proposition> before = new ArrayList<>(facts);
+            if (before.size() < 2) {
+                return;
+            }
+            this.fixture.evaluate(this.consequence, before);
+            if (before.equals(facts)) {
+                return;
+            }
+        }
+        fail("The consequence did not stop changing the working memory");
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.Assert;
+import org.drools.WorkingMemory;
+import org.drools.spi.Consequence;
+import org.drools.spi.KnowledgeHelper;
+import org.protempa.proposition.Proposition;
+
+/**
+ * Fires a consequence outside of a rule base, for testing. The working
+ * memory only has the globals that consequences get, and the knowledge
+ * helper's collect pattern returns the propositions that the test passes
+ * in. Propositions that the consequence retracts are removed from the facts,
+ * and propositions that it inserts are added to them.
+ *
+ * @author Andrew Post
+ */
+final class ConsequenceFixture {
+
+    private final Map<String, Object> globals;
+    private final DerivationsBuilder derivationsBuilder;
+    private final List<Proposition> facts;
+    private final List<Proposition> inserted;
+    private final WorkingMemory workingMemory;
+
+    ConsequenceFixture() {
+        this.globals = new HashMap<>();
+        this.derivationsBuilder = new DerivationsBuilder();
+        this.facts = new ArrayList<>();
+        this.inserted = new ArrayList<>();
+        this.globals.put(WorkingMemoryGlobals.KEY_ID, "key");
+        this.globals.put(WorkingMemoryGlobals.DERIVATIONS_BUILDER,
+                this.derivationsBuilder);
+        this.workingMemory = (WorkingMemory) Proxy.newProxyInstance(
+                ConsequenceFixture.class.getClassLoader(),
+                new Class<?>[]{WorkingMemory.class}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getGlobal":
+                        return globals.get((String) args[0]);
+                    case "setGlobal":
+                        globals.put((String) args[0], args[1]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(
+                                method.getName());
+                }
+            }
+        });
+    }
+
+    DerivationsBuilder getDerivationsBuilder() {
+        return this.derivationsBuilder;
+    }
+
+    /**
+     * The propositions in the working memory. Tests may add to it.
+     *
+     * @return a modifiable list.
+     */
+    List<Proposition> getFacts() {
+        return this.facts;
+    }
+
+    /**
+     * The propositions that the consequence inserted, in the order of
+     * insertion.
+     *
+     * @return a modifiable list.
+     */
+    List<Proposition> getInserted() {
+        return this.inserted;
+    }
+
+    /**
+     * Fires a consequence once.
+     *
+     * @param consequence the consequence.
+     * @param collected what the rule's collect pattern returns.
+     * @throws Exception if the consequence threw an exception.
+     */
+    void evaluate(Consequence consequence,
+            List<? extends Proposition> collected) throws Exception {
+        final List<Proposition> collectedCopy = new ArrayList<>(collected);
+        KnowledgeHelper kh = (KnowledgeHelper) Proxy.newProxyInstance(
+                ConsequenceFixture.class.getClassLoader(),
+                new Class<?>[]{KnowledgeHelper.class}, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getDeclaration":
+                        return null;
+                    case "get":
+                        return new ArrayList<>(collectedCopy);
+                    case "getWorkingMemory":
+                        return workingMemory;
+                    case "retract":
+                        Assert.assertTrue(facts.remove((Proposition) args[0]));
+                        return null;
+                    case "insertLogical":
+                        facts.add((Proposition) args[0]);
+                        inserted.add((Proposition) args[0]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(
+                                method.getName());
+                }
+            }
+        });
+        consequence.evaluate(kh, this.workingMemory);
+    }
+}
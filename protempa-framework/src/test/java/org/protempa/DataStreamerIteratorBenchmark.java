@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.protempa.proposition.Proposition;
+
+/**
+ * Measures how many events per second {@link DataStreamerIterator} merges
+ * from a varying number of input streams, like the entity spec streams of
+ * the relational data source backend. When the streams are dense, every
+ * stream has one event for each key id. When they are sparse, each key id
+ * has one event in one of the streams. The total number of events is the
+ * same for every number of streams. It only uses API that predates the
+ * sorted merge, so that it can be run against earlier versions for
+ * comparison. Run it with {@link #main(java.lang.String[]) } from the test
+ * classpath.
+ *
+ * @author Andrew Post
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataStreamerIteratorBenchmark {
+
+    private static final int EVENTS = 1 << 16;
+
+    @Param({"1", "4", "16", "64", "256"})
+    private int streams;
+
+    @Param({"true", "false"})
+    private boolean dense;
+
+    private DataStreamingEvent<Proposition>[][] events;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        int eventsPerStream = EVENTS / this.streams;
+        List<Proposition> data = Collections.emptyList();
+        this.events = new DataStreamingEvent[this.streams][eventsPerStream];
+        for (int i = 0; i < eventsPerStream; i++) {
+            for (int j = 0; j < this.streams; j++) {
+                int key = this.dense ? i : i * this.streams + j;
+                this.events[j][i] = new DataStreamingEvent<>(
+                        String.format("KEY%08d", key), data);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public int merge() throws DataSourceReadException {
+        List<DataStreamingEventIterator<Proposition>> itrs
+                = new ArrayList<>(this.streams);
+        for (DataStreamingEvent<Proposition>[] stream : this.events) {
+            itrs.add(new ArrayDataStreamingEventIterator(stream));
+        }
+        int count = 0;
+        DataStreamerIterator<Proposition> itr
+                = new DataStreamerIterator<>(itrs);
+        while (itr.hasNext()) {
+            itr.next();
+            count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DataStreamerIteratorBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    private static final class ArrayDataStreamingEventIterator
+            implements DataStreamingEventIterator<Proposition> {
+
+        private final DataStreamingEvent<Proposition>[] events;
+        private int i;
+
+        ArrayDataStreamingEventIterator(
+                DataStreamingEvent<Proposition>[] events) {
+            this.events = events;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.i < this.events.length;
+        }
+
+        @Override
+        public DataStreamingEvent<Proposition> next() {
+            return this.events[this.i++];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
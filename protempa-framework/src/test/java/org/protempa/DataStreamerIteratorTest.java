@@ -0,0 +1,135 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.protempa.proposition.Proposition;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class DataStreamerIteratorTest extends TestCase {
+
+    public void testRoundRobinWithinKeyId() throws DataSourceReadException {
+        List<DataStreamingEvent<Proposition>> a
+                = events("k1", "k1", "k3");
+        List<DataStreamingEvent<Proposition>> b = events("k1", "k2");
+        List<DataStreamingEvent<Proposition>> c = events("k2", "k3");
+        assertEquals(Arrays.asList(a.get(0), b.get(0), a.get(1), b.get(1),
+                c.get(0), a.get(2), c.get(1)), drain(a, b, c));
+    }
+
+    public void testNoIterators() throws DataSourceReadException {
+        assertTrue(drain().isEmpty());
+    }
+
+    public void testEmptyIterators() throws DataSourceReadException {
+        assertTrue(drain(events(), events()).isEmpty());
+    }
+
+    public void testManyIteratorsSortedByKeyId()
+            throws DataSourceReadException {
+        Random random = new Random(1L);
+        List<List<DataStreamingEvent<Proposition>>> streams
+                = new ArrayList<>();
+        List<DataStreamingEvent<Proposition>> all = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            List<String> keyIds = new ArrayList<>();
+            for (int j = random.nextInt(20); j > 0; j--) {
+                keyIds.add("k" + (100 + random.nextInt(50)));
+            }
+            Collections.sort(keyIds);
+            List<DataStreamingEvent<Proposition>> stream = events(
+                    keyIds.toArray(new String[keyIds.size()]));
+            streams.add(stream);
+            all.addAll(stream);
+        }
+        @SuppressWarnings("unchecked")
+        List<DataStreamingEvent<Proposition>> result = drain(
+                streams.toArray(new List[streams.size()]));
+        assertEquals(all.size(), result.size());
+        assertTrue(result.containsAll(all));
+        for (int i = 1; i < result.size(); i++) {
+            assertTrue(result.get(i - 1).getKeyId().compareTo(
+                    result.get(i).getKeyId()) <= 0);
+        }
+    }
+
+    @SafeVarargs
+    private static List<DataStreamingEvent<Proposition>> drain(
+            List<DataStreamingEvent<Proposition>>... streams)
+            throws DataSourceReadException {
+        List<DataStreamingEventIterator<Proposition>> itrs
+                = new ArrayList<>();
+        for (List<DataStreamingEvent<Proposition>> stream : streams) {
+            itrs.add(new ListDataStreamingEventIterator(stream));
+        }
+        List<DataStreamingEvent<Proposition>> result = new ArrayList<>();
+        DataStreamerIterator<Proposition> itr
+                = new DataStreamerIterator<>(itrs);
+        while (itr.hasNext()) {
+            assertNotNull(itr.getNextKeyId());
+            result.add(itr.next());
+        }
+        return result;
+    }
+
+    private static List<DataStreamingEvent<Proposition>> events(
+            String... keyIds) {
+        List<DataStreamingEvent<Proposition>> result = new ArrayList<>();
+        for (String keyId : keyIds) {
+            result.add(new DataStreamingEvent<>(keyId,
+                    new ArrayList<Proposition>()));
+        }
+        return result;
+    }
+
+    private static final class ListDataStreamingEventIterator
+            implements DataStreamingEventIterator<Proposition> {
+
+        private final Iterator<DataStreamingEvent<Proposition>> itr;
+
+        ListDataStreamingEventIterator(
+                List<DataStreamingEvent<Proposition>> events) {
+            this.itr = events.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.itr.hasNext();
+        }
+
+        @Override
+        public DataStreamingEvent<Proposition> next() {
+            return this.itr.next();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.eurekaclinical.datastore.DataStore;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class FactStoreWriteBufferTest extends TestCase {
+
+    public void testBatchBoundaries() {
+        FakeDataStore dataStore = new FakeDataStore();
+        FactStoreWriteBuffer buffer
+                = new FactStoreWriteBuffer(dataStore, 3, Long.MAX_VALUE);
+        List<Integer> written = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            if (buffer.put("key" + i, new WorkingMemoryFactStore())) {
+                written.add(buffer.flush());
+            }
+        }
+        assertEquals(Arrays.asList(3, 3), written);
+        assertEquals(Arrays.asList(3, 3), dataStore.batchSizes);
+        assertEquals(1, buffer.size());
+        assertEquals(6, dataStore.size());
+        assertFalse(dataStore.containsKey("key6"));
+    }
+
+    public void testFlushRemainder() {
+        FakeDataStore dataStore = new FakeDataStore();
+        FactStoreWriteBuffer buffer
+                = new FactStoreWriteBuffer(dataStore, 100, Long.MAX_VALUE);
+        assertFalse(buffer.put("key0", new WorkingMemoryFactStore()));
+        assertFalse(buffer.put("key1", new WorkingMemoryFactStore()));
+        assertTrue(dataStore.isEmpty());
+        assertEquals(2, buffer.flush());
+        assertEquals(0, buffer.flush());
+        assertEquals(Arrays.asList(2), dataStore.batchSizes);
+        assertEquals(2, dataStore.size());
+    }
+
+    public void testTimeDue() {
+        FactStoreWriteBuffer buffer
+                = new FactStoreWriteBuffer(new FakeDataStore(), 100, 0L);
+        assertTrue(buffer.put("key0", new WorkingMemoryFactStore()));
+    }
+
+    public void testGetBuffered() {
+        FakeDataStore dataStore = new FakeDataStore();
+        WorkingMemoryFactStore stored = new WorkingMemoryFactStore();
+        dataStore.put("key0", stored);
+        FactStoreWriteBuffer buffer
+                = new FactStoreWriteBuffer(dataStore, 100, Long.MAX_VALUE);
+        assertSame(stored, buffer.get("key0"));
+        WorkingMemoryFactStore buffered = new WorkingMemoryFactStore();
+        buffer.put("key0", buffered);
+        assertSame(buffered, buffer.get("key0"));
+        assertSame(stored, dataStore.get("key0"));
+        assertNull(buffer.get("key1"));
+        buffer.flush();
+        assertSame(buffered, dataStore.get("key0"));
+    }
+
+    private static class FakeDataStore
+            extends HashMap<String, WorkingMemoryFactStore>
+            implements DataStore<String, WorkingMemoryFactStore> {
+
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private boolean closed;
+
+        @Override
+        public void putAll(
+                Map<? extends String, ? extends WorkingMemoryFactStore> m) {
+            this.batchSizes.add(m.size());
+            super.putAll(m);
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this.closed;
+        }
+    }
+}
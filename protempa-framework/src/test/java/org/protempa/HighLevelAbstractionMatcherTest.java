@@ -0,0 +1,185 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.protempa.proposition.Event;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.TemporalProposition;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.interval.Relation;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+import org.protempa.proposition.value.AbsoluteTimeUnit;
+
+/**
+ * Compares the instances found by {@link HighLevelAbstractionMatcher} with
+ * those found by checking every combination of candidate propositions.
+ *
+ * @author Andrew Post
+ */
+public class HighLevelAbstractionMatcherTest extends ProtempaTestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private TemporalExtendedPropositionDefinition tepd1;
+    private TemporalExtendedPropositionDefinition tepd2;
+    private TemporalExtendedPropositionDefinition tepd3;
+    private HighLevelAbstractionDefinition def;
+
+    @Override
+    public void setUp() {
+        this.tepd1 = new TemporalExtendedPropositionDefinition("A");
+        this.tepd2 = new TemporalExtendedPropositionDefinition("B");
+        this.tepd3 = new TemporalExtendedPropositionDefinition("C");
+        this.def = new HighLevelAbstractionDefinition("HLA");
+        this.def.add(this.tepd1);
+        this.def.add(this.tepd2);
+        this.def.add(this.tepd3);
+    }
+
+    public void testBeforeAndOverlaps() {
+        this.def.setRelation(this.tepd1, this.tepd2, Relation.BEFORE);
+        this.def.setRelation(this.tepd2, this.tepd3, Relation.OVERLAPS);
+        assertSameInstances(new Random(1L), 40);
+    }
+
+    public void testDistanceInUnits() {
+        this.def.setRelation(this.tepd1, this.tepd2, new Relation(
+                null, null, null, null, null, null, null, null,
+                0, AbsoluteTimeUnit.HOUR, 6, AbsoluteTimeUnit.HOUR,
+                null, null, null, null));
+        this.def.setRelation(this.tepd3, this.tepd1,
+                Relation.CONTAINS_OR_EQUALS);
+        assertSameInstances(new Random(2L), 40);
+    }
+
+    public void testNoRelations() {
+        assertSameInstances(new Random(3L), 6);
+    }
+
+    public void testSharedCandidates() {
+        this.def.setRelation(this.tepd1, this.tepd2, Relation.BEFORE);
+        ExtendedPropositionDefinition[] epds = epds();
+        List<TemporalProposition> props = randomEvents(new Random(4L), 20);
+        @SuppressWarnings("unchecked")
+        List<? extends Proposition>[] candidates
+                = new List[]{props, props, props};
+        assertEquals(bruteForce(epds, candidates),
+                asSet(new HighLevelAbstractionMatcher(this.def, epds)
+                        .match(candidates)));
+    }
+
+    public void testEmptyCandidates() {
+        ExtendedPropositionDefinition[] epds = epds();
+        @SuppressWarnings("unchecked")
+        List<? extends Proposition>[] candidates = new List[]{
+            randomEvents(new Random(5L), 3), new ArrayList<>(),
+            randomEvents(new Random(6L), 3)};
+        assertTrue(new HighLevelAbstractionMatcher(this.def, epds)
+                .match(candidates).isEmpty());
+    }
+
+    private void assertSameInstances(Random random, int size) {
+        ExtendedPropositionDefinition[] epds = epds();
+        @SuppressWarnings("unchecked")
+        List<? extends Proposition>[] candidates = new List[]{
+            randomEvents(random, size), randomEvents(random, size),
+            randomEvents(random, size)};
+        Set<List<Proposition>> expected = bruteForce(epds, candidates);
+        Set<List<Proposition>> actual = asSet(
+                new HighLevelAbstractionMatcher(this.def, epds)
+                .match(candidates));
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    private ExtendedPropositionDefinition[] epds() {
+        return new ExtendedPropositionDefinition[]{
+            this.tepd2, this.tepd3, this.tepd1};
+    }
+
+    private Set<List<Proposition>> bruteForce(
+            ExtendedPropositionDefinition[] epds,
+            List<? extends Proposition>[] candidates) {
+        Set<List<Proposition>> result = new HashSet<>();
+        for (Proposition p0 : candidates[0]) {
+            for (Proposition p1 : candidates[1]) {
+                for (Proposition p2 : candidates[2]) {
+                    Proposition[] instance = {p0, p1, p2};
+                    if (p0.equals(p1) || p0.equals(p2) || p1.equals(p2)) {
+                        continue;
+                    }
+                    boolean found = true;
+                    for (List<TemporalExtendedPropositionDefinition> pair
+                            : this.def.getTemporalExtendedPropositionDefinitionPairs()) {
+                        TemporalProposition lhs = (TemporalProposition)
+                                instance[Arrays.asList(epds).indexOf(pair.get(0))];
+                        TemporalProposition rhs = (TemporalProposition)
+                                instance[Arrays.asList(epds).indexOf(pair.get(1))];
+                        if (!this.def.getRelation(pair).hasRelation(
+                                lhs.getInterval(), rhs.getInterval())) {
+                            found = false;
+                            break;
+                        }
+                    }
+                    if (found) {
+                        result.add(Arrays.asList(instance));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<List<Proposition>> asSet(List<Proposition[]> instances) {
+        Set<List<Proposition>> result = new HashSet<>();
+        for (Proposition[] instance : instances) {
+            assertTrue("duplicate instance", result.add(Arrays.asList(instance)));
+        }
+        return result;
+    }
+
+    private List<TemporalProposition> randomEvents(Random random, int size) {
+        List<TemporalProposition> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long start = random.nextInt(48) * HOUR
+                    + random.nextInt(4) * HOUR / 4;
+            long finish = start + random.nextInt(8) * HOUR;
+            Event event = new Event("E", getUid());
+            if (random.nextBoolean()) {
+                event.setInterval(INTERVAL_FACTORY.getInstance(start,
+                        AbsoluteTimeGranularity.HOUR, finish,
+                        AbsoluteTimeGranularity.HOUR));
+            } else {
+                event.setInterval(INTERVAL_FACTORY.getInstance(start, null,
+                        finish, null));
+            }
+            result.add(event);
+        }
+        return result;
+    }
+}
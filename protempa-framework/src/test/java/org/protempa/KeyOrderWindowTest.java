@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class KeyOrderWindowTest extends TestCase {
+
+    public void testKeysInWindowDoNotWait() throws InterruptedException {
+        KeyOrderWindow window = new KeyOrderWindow(3);
+        window.await(0);
+        window.await(2);
+        window.advance();
+        window.await(3);
+    }
+
+    public void testKeyPastWindowWaitsForAdvance() throws Exception {
+        final KeyOrderWindow window = new KeyOrderWindow(2);
+        final long[] admitted = {-1};
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    window.await(3);
+                    synchronized (admitted) {
+                        admitted[0] = System.nanoTime();
+                    }
+                } catch (InterruptedException ex) {
+                }
+            }
+        };
+        waiter.start();
+        window.advance();
+        Thread.sleep(100);
+        long advanced = System.nanoTime();
+        synchronized (admitted) {
+            assertEquals(-1, admitted[0]);
+        }
+        window.advance();
+        waiter.join(10000);
+        assertFalse(waiter.isAlive());
+        synchronized (admitted) {
+            assertTrue(admitted[0] >= advanced);
+        }
+    }
+
+    public void testWaitIsInterruptible() throws Exception {
+        final KeyOrderWindow window = new KeyOrderWindow(1);
+        final boolean[] interrupted = {false};
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    window.await(1);
+                } catch (InterruptedException ex) {
+                    interrupted[0] = true;
+                }
+            }
+        };
+        waiter.start();
+        waiter.interrupt();
+        waiter.join(10000);
+        assertFalse(waiter.isAlive());
+        assertTrue(interrupted[0]);
+    }
+}
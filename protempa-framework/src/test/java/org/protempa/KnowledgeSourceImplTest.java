@@ -93,4 +93,63 @@ public class KnowledgeSourceImplTest {
                 expected, 
                 knowledgeSource.collectPropIdDescendantsUsingInverseIsA("bar", "rab"));
     }
+
+    @Test
+    public void testReadPropositionDefinitionCached() throws KnowledgeSourceReadException {
+        PropositionDefinition propDef = 
+                knowledgeSource.readPropositionDefinition("foo");
+        long misses = knowledgeSource.getCacheMissCount();
+        long hits = knowledgeSource.getCacheHitCount();
+        Assert.assertSame("cached definition differs", propDef, 
+                knowledgeSource.readPropositionDefinition("foo"));
+        Assert.assertEquals("cache miss", misses, 
+                knowledgeSource.getCacheMissCount());
+        Assert.assertEquals("no cache hit", hits + 1, 
+                knowledgeSource.getCacheHitCount());
+    }
+    
+    @Test
+    public void testReadMissingPropositionDefinitionCached() throws KnowledgeSourceReadException {
+        Assert.assertNull(knowledgeSource.readPropositionDefinition("xyz"));
+        long misses = knowledgeSource.getCacheMissCount();
+        Assert.assertNull(knowledgeSource.readPropositionDefinition("xyz"));
+        Assert.assertFalse(knowledgeSource.hasPropositionDefinition("xyz"));
+        Assert.assertEquals("cache miss", misses, 
+                knowledgeSource.getCacheMissCount());
+    }
+    
+    @Test
+    public void testReadPropositionDefinitionsPartiallyCached() throws KnowledgeSourceReadException {
+        knowledgeSource.readPropositionDefinition("foo");
+        List<PropositionDefinition> propDefs = 
+                knowledgeSource.readPropositionDefinitions("bar", "foo", "bar");
+        Assert.assertEquals(2, propDefs.size());
+        Assert.assertEquals("bar", propDefs.get(0).getId());
+        Assert.assertEquals("foo", propDefs.get(1).getId());
+    }
+    
+    @Test
+    public void testCollectSubtreeCached() throws KnowledgeSourceReadException {
+        Set<String> result = 
+                knowledgeSource.collectPropIdDescendantsUsingInverseIsA("bar", "rab");
+        result.clear();
+        long misses = knowledgeSource.getCacheMissCount();
+        Set<String> expected = 
+                Arrays.asSet(new String[] {"bar", "foo", "baz", "oof", "rab", "zab"});
+        Assert.assertEquals("collectSubtree failed", 
+                expected, 
+                knowledgeSource.collectPropIdDescendantsUsingInverseIsA("rab", "bar"));
+        Assert.assertEquals("cache miss", misses, 
+                knowledgeSource.getCacheMissCount());
+    }
+    
+    @Test
+    public void testClearInvalidatesCache() throws KnowledgeSourceReadException {
+        knowledgeSource.readPropositionDefinition("foo");
+        knowledgeSource.clear();
+        long misses = knowledgeSource.getCacheMissCount();
+        knowledgeSource.readPropositionDefinition("foo");
+        Assert.assertEquals("no cache miss", misses + 1, 
+                knowledgeSource.getCacheMissCount());
+    }
 }
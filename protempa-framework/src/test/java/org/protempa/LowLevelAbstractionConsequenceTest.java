@@ -0,0 +1,151 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import org.protempa.proposition.Context;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Sequence;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.interval.Relation;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class LowLevelAbstractionConsequenceTest extends ProtempaTestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+    private static final Relation REL = new Relation(null, null, 0, null,
+            null, null, null, null, null, null, null, null, 0, null, null,
+            null);
+    private static final long HOUR = 60L * 60L * 1000L;
+
+    public void testPartitionNonOverlapping() {
+        Random random = new Random(0L);
+        for (int trial = 0; trial < 20; trial++) {
+            List<Context> contexts = new ArrayList<>();
+            long start = 0;
+            for (int i = 0; i < 10; i++) {
+                start += random.nextInt(50) * HOUR;
+                long finish = start + random.nextInt(50) * HOUR;
+                contexts.add(newContext(start, finish));
+                start = finish + HOUR;
+            }
+            assertSamePartition(newParameters(random, start), contexts);
+        }
+    }
+
+    public void testPartitionOverlapping() {
+        Random random = new Random(1L);
+        for (int trial = 0; trial < 20; trial++) {
+            List<Context> contexts = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                long start = random.nextInt(500) * HOUR;
+                contexts.add(newContext(start,
+                        start + random.nextInt(100) * HOUR));
+            }
+            assertSamePartition(newParameters(random, 600 * HOUR), contexts);
+        }
+    }
+
+    public void testPartitionEmpty() {
+        assertTrue(LowLevelAbstractionConsequence.partition(
+                new Sequence<PrimitiveParameter>("TEST"),
+                new Sequence<>("CONTEXT", Collections.singletonList(
+                        newContext(0, HOUR)))).isEmpty());
+    }
+
+    private List<PrimitiveParameter> newParameters(Random random, long max) {
+        List<PrimitiveParameter> result = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            PrimitiveParameter param =
+                    new PrimitiveParameter("TEST", getUid());
+            param.setPosition((long) (random.nextDouble() * max));
+            param.setGranularity(random.nextInt(5) == 0
+                    ? AbsoluteTimeGranularity.DAY
+                    : AbsoluteTimeGranularity.MINUTE);
+            result.add(param);
+        }
+        return result;
+    }
+
+    private Context newContext(long start, long finish) {
+        Context context = new Context("CONTEXT", getUid());
+        context.setInterval(INTERVAL_FACTORY.getInstance(start,
+                AbsoluteTimeGranularity.MINUTE, finish,
+                AbsoluteTimeGranularity.MINUTE));
+        return context;
+    }
+
+    private void assertSamePartition(List<PrimitiveParameter> params,
+            List<Context> contexts) {
+        Sequence<PrimitiveParameter> seq = new Sequence<>("TEST", params);
+        Sequence<Context> contextSeq = new Sequence<>("CONTEXT", contexts);
+        List<List<PrimitiveParameter>> expected = new ArrayList<>();
+        for (Sequence<PrimitiveParameter> subSeq
+                : scanPartition(seq, contextSeq)) {
+            expected.add(new ArrayList<>(subSeq));
+        }
+        List<List<PrimitiveParameter>> actual = new ArrayList<>();
+        for (Sequence<PrimitiveParameter> subSeq
+                : LowLevelAbstractionConsequence.partition(seq, contextSeq)) {
+            actual.add(new ArrayList<>(subSeq));
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Partitions by scanning the parameters that are left for each context.
+     */
+    private static List<Sequence<PrimitiveParameter>> scanPartition(
+            Sequence<PrimitiveParameter> seq, Sequence<Context> contexts) {
+        List<Sequence<PrimitiveParameter>> result = new ArrayList<>();
+        LinkedList<PrimitiveParameter> ll = new LinkedList<>(seq);
+        for (Context context : contexts) {
+            boolean in = false;
+            Sequence<PrimitiveParameter> subSeq =
+                    new Sequence<>(seq.getPropositionIds());
+            for (Iterator<PrimitiveParameter> itr = ll.iterator();
+                    itr.hasNext();) {
+                PrimitiveParameter tp = itr.next();
+                if (REL.hasRelation(tp.getInterval(), context.getInterval())) {
+                    subSeq.add(tp);
+                    in = true;
+                    itr.remove();
+                } else if (in) {
+                    break;
+                }
+            }
+            if (!subSeq.isEmpty()) {
+                result.add(subSeq);
+            }
+        }
+        return result;
+    }
+}
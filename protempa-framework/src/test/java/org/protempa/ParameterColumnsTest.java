@@ -0,0 +1,127 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.protempa.backend.asb.java.MinAlgorithm;
+import org.protempa.backend.asb.java.StateAlgorithm;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Segment;
+import org.protempa.proposition.Sequence;
+import org.protempa.proposition.value.InequalityNumberValue;
+import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.Value;
+import org.protempa.proposition.value.ValueComparator;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class ParameterColumnsTest extends ProtempaTestCase {
+
+    private Sequence<PrimitiveParameter> seq;
+
+    @Override
+    protected void setUp() throws Exception {
+        List<PrimitiveParameter> params = new ArrayList<>();
+        Value[] values = {
+            NumberValue.getInstance(3), NumberValue.getInstance(5),
+            NumberValue.getInstance(5), NumberValue.getInstance(7),
+            NumberValue.getInstance(new BigDecimal("4.5")), null,
+            NumberValue.getInstance(6),
+            new InequalityNumberValue(ValueComparator.GREATER_THAN, 5),
+            NumberValue.getInstance(new BigDecimal("5.0000000000000001")),
+            NumberValue.getInstance(2)
+        };
+        for (int i = 0; i < values.length; i++) {
+            PrimitiveParameter param = new PrimitiveParameter("TEST", getUid());
+            param.setPosition(i * 10L);
+            param.setValue(values[i]);
+            params.add(param);
+        }
+        this.seq = new Sequence<>("TEST", params);
+    }
+
+    public void testColumns() {
+        ParameterColumns columns = new ParameterColumns(this.seq);
+        assertEquals(10, columns.size());
+        assertEquals(30L, columns.getPosition(3));
+        assertEquals(4.5, columns.getValue(4), 0.0);
+        assertTrue(columns.isNumeric(0, 4));
+        assertFalse(columns.isNumeric(5));
+        assertFalse(columns.isNumeric(7));
+        assertFalse(columns.isNumeric(8));
+        assertFalse(columns.isNumeric(4, 6));
+        assertTrue(columns.isNumeric(6, 6));
+        assertSame(this.seq.get(7), columns.getParameter(7));
+    }
+
+    public void testStateAlgorithm() throws Exception {
+        StateAlgorithm algorithm = new StateAlgorithm(new Algorithms(), "state");
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN_OR_EQUAL_TO,
+                NumberValue.getInstance(5), ValueComparator.LESS_THAN,
+                NumberValue.getInstance(7));
+        assertSameResults(algorithm, ValueComparator.EQUAL_TO,
+                NumberValue.getInstance(5), null, null);
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN,
+                NumberValue.getInstance(new BigDecimal("4.5")), null, null);
+        assertSameResults(algorithm, null, null,
+                ValueComparator.LESS_THAN_OR_EQUAL_TO,
+                NumberValue.getInstance(new BigDecimal("5.0000000000000001")));
+    }
+
+    public void testMinAlgorithm() throws Exception {
+        MinAlgorithm algorithm = new MinAlgorithm(new Algorithms(), "min");
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN_OR_EQUAL_TO,
+                NumberValue.getInstance(3), ValueComparator.LESS_THAN,
+                NumberValue.getInstance(5));
+        assertSameResults(algorithm, ValueComparator.EQUAL_TO,
+                NumberValue.getInstance(5), null, null);
+        assertSameResults(algorithm, null, null, null, null);
+    }
+
+    private void assertSameResults(IncrementalAlgorithm algorithm,
+            ValueComparator minComp, Value minThreshold,
+            ValueComparator maxComp, Value maxThreshold) throws Exception {
+        LowLevelAbstractionValueDefinition def =
+                new LowLevelAbstractionValueDefinition(
+                new LowLevelAbstractionDefinition("TEST_LLA"), "TEST_VALUE");
+        def.setParameterComp("minThreshold", minComp);
+        def.setParameterValue("minThreshold", minThreshold);
+        def.setParameterComp("maxThreshold", maxComp);
+        def.setParameterValue("maxThreshold", maxThreshold);
+        SlidingWindows windows = new SlidingWindows(algorithm, this.seq);
+        int matches = 0;
+        for (int x = 0; x < this.seq.size(); x++) {
+            for (int y = x; y < this.seq.size(); y++) {
+                Segment<PrimitiveParameter> seg = new Segment<>(this.seq, x, y);
+                boolean expected = def.satisfiedBy(seg, algorithm);
+                assertEquals("[" + x + ", " + y + "]", expected,
+                        def.satisfiedBy(seg, windows, algorithm));
+                if (expected) {
+                    matches++;
+                }
+            }
+        }
+        assertTrue(matches > 0);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import org.drools.RuleBase;
+import org.drools.StatefulSession;
+import org.protempa.SequentialTemporalPatternDefinition.SubsequentTemporalExtendedPropositionDefinition;
+import org.protempa.proposition.AbstractParameter;
+import org.protempa.proposition.Event;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.interval.Relation;
+
+/**
+ * Tests that rules whose patterns match a single proposition id, which get a
+ * literal constraint on the <code>id</code> field when
+ * {@link PropositionIdConstraints#SYSTEM_PROPERTY_INDEXED} is set, and rules
+ * whose patterns match several proposition ids, which get a predicate, fire
+ * on the propositions they do when every pattern has a predicate. The
+ * patterns are on the {@link Proposition} interface and the
+ * {@link org.protempa.proposition.TemporalProposition} and
+ * {@link AbstractParameter} classes. {@link PropositionIdPredicatesTest}
+ * makes the same assertions with literal constraints turned off.
+ *
+ * @author Andrew Post
+ */
+public class PropositionIdConstraintsTest extends ProtempaTestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+
+    private StatefulSession workingMemory;
+    private DerivationsBuilder derivationsBuilder;
+    private Event e1a;
+    private Event e1b;
+    private Event e2;
+    private Event parent;
+    private Event child1;
+    private Event child2;
+
+    @Override
+    protected void setUp() throws Exception {
+        EventDefinition e1Def = new EventDefinition("E1");
+        EventDefinition e2Def = new EventDefinition("E2");
+        EventDefinition parentDef = new EventDefinition("PARENT");
+        parentDef.setInverseIsA("CHILD1", "CHILD2");
+        EventDefinition child1Def = new EventDefinition("CHILD1");
+        EventDefinition child2Def = new EventDefinition("CHILD2");
+
+        HighLevelAbstractionDefinition singleDef
+                = new HighLevelAbstractionDefinition("SINGLE");
+        singleDef.add(new TemporalExtendedPropositionDefinition("E1"));
+        singleDef.setGapFunction(new SimpleGapFunction(0, null));
+
+        HighLevelAbstractionDefinition multiDef
+                = new HighLevelAbstractionDefinition("MULTI");
+        multiDef.add(new TemporalExtendedPropositionDefinition("PARENT"));
+        multiDef.setGapFunction(new SimpleGapFunction(0, null));
+
+        SequentialTemporalPatternDefinition seqDef
+                = new SequentialTemporalPatternDefinition("SEQ");
+        seqDef.setFirstTemporalExtendedPropositionDefinition(
+                new TemporalExtendedPropositionDefinition("E1"));
+        seqDef.setSubsequentTemporalExtendedPropositionDefinitions(
+                new SubsequentTemporalExtendedPropositionDefinition[]{
+                    new SubsequentTemporalExtendedPropositionDefinition(
+                    Relation.BEFORE,
+                    new TemporalExtendedPropositionDefinition("E1"))});
+        seqDef.setGapFunction(new SimpleGapFunction(0, null));
+
+        List<PropositionDefinition> propDefs = Arrays.asList(e1Def, e2Def,
+                parentDef, child1Def, child2Def, singleDef, multiDef, seqDef);
+        RuleBase ruleBase;
+        System.setProperty(PropositionIdConstraints.SYSTEM_PROPERTY_INDEXED,
+                Boolean.toString(isIndexed()));
+        try {
+            JBossRuleCreator ruleCreator = new JBossRuleCreator(
+                    Collections.<LowLevelAbstractionDefinition, Algorithm>emptyMap(),
+                    new PropositionDefinitionCache(propDefs));
+            ruleCreator.visit(propDefs);
+            ruleBase = new JBossRuleBaseFactory(ruleCreator).newInstance();
+        } finally {
+            System.clearProperty(
+                    PropositionIdConstraints.SYSTEM_PROPERTY_INDEXED);
+        }
+
+        this.derivationsBuilder = new DerivationsBuilder();
+        this.workingMemory = ruleBase.newStatefulSession(false);
+        this.workingMemory.setGlobal(WorkingMemoryGlobals.KEY_ID, "KEY");
+        this.workingMemory.setGlobal(WorkingMemoryGlobals.DERIVATIONS_BUILDER,
+                this.derivationsBuilder);
+
+        this.e1a = newEvent("E1", 0L);
+        this.e1b = newEvent("E1", 100L);
+        this.e2 = newEvent("E2", 200L);
+        this.parent = newEvent("PARENT", 300L);
+        this.child1 = newEvent("CHILD1", 400L);
+        this.child2 = newEvent("CHILD2", 500L);
+        for (Event event : new Event[]{this.e1a, this.e1b, this.e2,
+            this.parent, this.child1, this.child2}) {
+            this.workingMemory.insert(event);
+        }
+        this.workingMemory.fireAllRules();
+    }
+
+    /**
+     * Returns whether patterns that match a single proposition id get a
+     * literal constraint.
+     *
+     * @return <code>true</code>.
+     */
+    protected boolean isIndexed() {
+        return true;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (this.workingMemory != null) {
+            this.workingMemory.dispose();
+        }
+    }
+
+    public void testSingleIdPatternOnPropositions() {
+        assertEquals(2, countDerived("SINGLE"));
+        assertEquals(newSet(this.e1a, this.e1b), derivedFrom("SINGLE"));
+    }
+
+    public void testMultipleIdPatternOnPropositions() {
+        assertEquals(3, countDerived("MULTI"));
+        assertEquals(newSet(this.parent, this.child1, this.child2),
+                derivedFrom("MULTI"));
+    }
+
+    public void testSingleIdPatternOnTemporalPropositions() {
+        assertEquals(1, countDerived("SEQ"));
+        assertEquals(newSet(this.e1a, this.e1b), derivedFrom("SEQ"));
+    }
+
+    public void testOtherPropositionsNotMatched() {
+        assertNull(this.derivationsBuilder.getForwardDerivations()
+                .get(this.e2));
+    }
+
+    private Event newEvent(String id, long start) {
+        Event event = new Event(id, getUid());
+        event.setInterval(INTERVAL_FACTORY.getInstance(start, null,
+                start + 10L, null));
+        return event;
+    }
+
+    private int countDerived(String propId) {
+        int count = 0;
+        for (Iterator<?> itr = this.workingMemory.iterateObjects();
+                itr.hasNext();) {
+            Object obj = itr.next();
+            if (obj instanceof AbstractParameter
+                    && propId.equals(((AbstractParameter) obj).getId())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the propositions from which the abstract parameters with the
+     * given id in working memory were derived.
+     */
+    private Set<Proposition> derivedFrom(String propId) {
+        Set<Proposition> result = new HashSet<>();
+        for (Iterator<?> itr = this.workingMemory.iterateObjects();
+                itr.hasNext();) {
+            Object obj = itr.next();
+            if (obj instanceof AbstractParameter
+                    && propId.equals(((AbstractParameter) obj).getId())) {
+                Set<Proposition> props = this.derivationsBuilder
+                        .getBackwardDerivations().get(obj);
+                if (props != null) {
+                    result.addAll(props);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<Proposition> newSet(Proposition... props) {
+        return new HashSet<>(Arrays.asList(props));
+    }
+}
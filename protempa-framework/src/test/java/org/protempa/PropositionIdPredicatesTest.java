@@ -0,0 +1,34 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+/**
+ * Runs {@link PropositionIdConstraintsTest} with every pattern getting a
+ * predicate on the proposition id, which is the default.
+ *
+ * @author Andrew Post
+ */
+public class PropositionIdPredicatesTest extends PropositionIdConstraintsTest {
+
+    @Override
+    protected boolean isIndexed() {
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import junit.framework.TestCase;
+import org.protempa.proposition.interval.Relation;
+import org.protempa.proposition.value.AbsoluteTimeUnit;
+import org.protempa.proposition.value.NominalValue;
+import org.protempa.proposition.value.NumberValue;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class RuleBaseCacheTest extends TestCase {
+
+    private RuleBaseCache ruleBaseCache;
+
+    @Override
+    public void setUp() {
+        this.ruleBaseCache = new RuleBaseCache(2);
+    }
+
+    @Override
+    public void tearDown() {
+        this.ruleBaseCache = null;
+    }
+
+    public void testFingerprintSameForEqualDefinitions() {
+        assertEquals(fingerprint(newPropDefs("Foo")),
+                fingerprint(newPropDefs("Foo")));
+    }
+
+    public void testFingerprintIgnoresOrder() {
+        List<PropositionDefinition> propDefs = newPropDefs("Foo");
+        String expected = fingerprint(propDefs);
+        Collections.reverse(propDefs);
+        assertEquals(expected, fingerprint(propDefs));
+    }
+
+    public void testFingerprintIgnoresDisplayNamesAndTimestamps() {
+        List<PropositionDefinition> propDefs = newPropDefs("Foo");
+        String expected = fingerprint(propDefs);
+        List<PropositionDefinition> readAgain = newPropDefs("Bar");
+        ((EventDefinition) readAgain.get(0)).setAccessed(new Date(1000L));
+        assertEquals(expected, fingerprint(readAgain));
+    }
+
+    public void testFingerprintChangesWithDefinition() {
+        List<PropositionDefinition> propDefs = newPropDefs("Foo");
+        String expected = fingerprint(propDefs);
+        ((EventDefinition) propDefs.get(1)).setInverseIsA("PPD1");
+        assertFalse(expected.equals(fingerprint(propDefs)));
+    }
+
+    public void testFingerprintSameForHighLevelAbstractionsReadTwice() {
+        assertEquals(fingerprint(newHighLevelAbstraction(1)),
+                fingerprint(newHighLevelAbstraction(1)));
+    }
+
+    public void testFingerprintChangesWithRelation() {
+        assertFalse(fingerprint(newHighLevelAbstraction(1)).equals(
+                fingerprint(newHighLevelAbstraction(2))));
+    }
+
+    public void testFingerprintSameForLowLevelAbstractionsReadTwice() {
+        assertEquals(fingerprint(newLowLevelAbstraction(5)),
+                fingerprint(newLowLevelAbstraction(5)));
+    }
+
+    public void testFingerprintChangesWithParameterValue() {
+        assertFalse(fingerprint(newLowLevelAbstraction(5)).equals(
+                fingerprint(newLowLevelAbstraction(6))));
+    }
+
+    public void testFingerprintNullWhenDisabled() {
+        this.ruleBaseCache = new RuleBaseCache(0);
+        assertNull(fingerprint(newPropDefs("Foo")));
+    }
+
+    private String fingerprint(List<PropositionDefinition> propDefs) {
+        return this.ruleBaseCache.fingerprint(propDefs,
+                new PropositionDefinitionCache(propDefs),
+                Collections.emptyMap());
+    }
+
+    private static List<PropositionDefinition> newPropDefs(
+            String displayName) {
+        EventDefinition ed1 = new EventDefinition("ED1");
+        ed1.setDisplayName(displayName);
+        EventDefinition ed2 = new EventDefinition("ED2");
+        ed2.setInverseIsA("ED1");
+        PrimitiveParameterDefinition ppd
+                = new PrimitiveParameterDefinition("PPD1");
+        return Arrays.asList(ed1, ed2, ppd);
+    }
+
+    /**
+     * Returns a high-level abstraction with relations between three
+     * components, so that the order in which its relations are stored
+     * differs between instances.
+     */
+    private static List<PropositionDefinition> newHighLevelAbstraction(
+            int maxDistance) {
+        HighLevelAbstractionDefinition hlad
+                = new HighLevelAbstractionDefinition("HLA1");
+        hlad.setDisplayName("HLA " + System.nanoTime());
+        hlad.setAccessed(new Date());
+        TemporalExtendedPropositionDefinition e1
+                = new TemporalExtendedPropositionDefinition("ED1");
+        TemporalExtendedPropositionDefinition e2
+                = new TemporalExtendedPropositionDefinition("ED2");
+        TemporalExtendedPropositionDefinition e3
+                = new TemporalExtendedPropositionDefinition("ED3");
+        hlad.add(e1);
+        hlad.add(e2);
+        hlad.add(e3);
+        hlad.setRelation(e1, e2, newRelation(maxDistance));
+        hlad.setRelation(e2, e3, newRelation(3));
+        hlad.setRelation(e1, e3, newRelation(4));
+        List<PropositionDefinition> result = new ArrayList<>();
+        result.add(hlad);
+        for (String id : new String[]{"ED1", "ED2", "ED3"}) {
+            result.add(new EventDefinition(id));
+        }
+        return result;
+    }
+
+    private static Relation newRelation(int maxDistance) {
+        return new Relation(null, null, null, null, null, null, null, null,
+                0, AbsoluteTimeUnit.HOUR, maxDistance, AbsoluteTimeUnit.HOUR,
+                null, null, null, null);
+    }
+
+    private static List<PropositionDefinition> newLowLevelAbstraction(
+            int threshold) {
+        LowLevelAbstractionDefinition llad
+                = new LowLevelAbstractionDefinition("LLA1");
+        llad.setAccessed(new Date());
+        llad.addPrimitiveParameterId("PPD1");
+        llad.setAlgorithmId("stateDetector");
+        LowLevelAbstractionValueDefinition high
+                = new LowLevelAbstractionValueDefinition(llad, "HIGH");
+        high.setValue(NominalValue.getInstance("HIGH"));
+        high.setParameterValue("minThreshold",
+                NumberValue.getInstance(threshold));
+        high.setParameterValue("maxThreshold",
+                NumberValue.getInstance(100));
+        return Arrays.<PropositionDefinition>asList(llad,
+                new PrimitiveParameterDefinition("PPD1"));
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.protempa.SequentialTemporalPatternDefinition.SubsequentTemporalExtendedPropositionDefinition;
+import org.protempa.proposition.AbstractParameter;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.TemporalProposition;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.interval.Relation;
+
+/**
+ * Tests {@link SequentialTemporalPatternConsequence} against the matching
+ * that it replaced, which compared every window of consecutive propositions
+ * with the pattern.
+ *
+ * @author Andrew Post
+ */
+public class SequentialTemporalPatternConsequenceTest
+        extends ProtempaTestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+    private static final Relation ANY = new Relation();
+
+    public void testOverlappingMatches() throws Exception {
+        SequentialTemporalPatternDefinition def
+                = newDefinition(false, ANY, "A", "A");
+        List<TemporalProposition> tps = newPropositions(
+                new String[]{"A", "A", "A"}, new long[]{0, 10, 20});
+        List<Set<Proposition>> expected = Arrays.asList(
+                newSet(tps.get(0), tps.get(1)),
+                newSet(tps.get(1), tps.get(2)));
+        assertEquals(expected, findMatches(def, tps));
+        assertEquals(expected, findMatchesByWindow(def, tps));
+    }
+
+    public void testRepeatedIds() throws Exception {
+        SequentialTemporalPatternDefinition def
+                = newDefinition(false, ANY, "A", "B", "A");
+        List<TemporalProposition> tps = newPropositions(
+                new String[]{"A", "B", "A", "B", "A", "A", "B"},
+                new long[]{0, 10, 20, 30, 40, 50, 60});
+        List<Set<Proposition>> expected = Arrays.asList(
+                newSet(tps.get(0), tps.get(1), tps.get(2)),
+                newSet(tps.get(2), tps.get(3), tps.get(4)));
+        assertEquals(expected, findMatches(def, tps));
+        assertEquals(expected, findMatchesByWindow(def, tps));
+    }
+
+    public void testRelationsOfConsecutivePropositions() throws Exception {
+        SequentialTemporalPatternDefinition def
+                = newDefinition(false, Relation.MEETS, "A", "A");
+        List<TemporalProposition> tps = newPropositions(
+                new String[]{"A", "A", "A"}, new long[]{0, 10, 25});
+        assertEquals(Collections.singletonList(newSet(tps.get(0),
+                tps.get(1))), findMatches(def, tps));
+    }
+
+    public void testPartialMatch() throws Exception {
+        SequentialTemporalPatternDefinition def
+                = newDefinition(true, ANY, "A", "B", "C");
+        List<TemporalProposition> tps = newPropositions(
+                new String[]{"C", "A", "B"}, new long[]{0, 10, 20});
+        List<Set<Proposition>> expected = Collections.singletonList(
+                newSet(tps.get(1), tps.get(2)));
+        assertEquals(expected, findMatches(def, tps));
+        assertEquals(expected, findMatchesByWindow(def, tps));
+    }
+
+    public void testSameAsWindowMatching() throws Exception {
+        Random random = new Random(13L);
+        String[][] patterns = {{"A", "A"}, {"A", "B", "A"}, {"A", "A", "B"},
+            {"A", "B", "A", "B"}, {"B", "A", "A", "A"}};
+        Relation[] relations = {ANY, Relation.BEFORE, Relation.MEETS,
+            Relation.OVERLAPS};
+        for (int trial = 0; trial < 200; trial++) {
+            SequentialTemporalPatternDefinition def = newDefinition(
+                    random.nextBoolean(),
+                    relations[random.nextInt(relations.length)],
+                    patterns[random.nextInt(patterns.length)]);
+            int n = 1 + random.nextInt(11);
+            String[] ids = new String[n];
+            long[] starts = new long[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = random.nextBoolean() ? "A" : "B";
+                starts[i] = random.nextInt(100);
+            }
+            List<TemporalProposition> tps = newPropositions(ids, starts);
+            assertEquals(findMatchesByWindow(def, tps), findMatches(def, tps));
+        }
+    }
+
+    private static SequentialTemporalPatternDefinition newDefinition(
+            boolean allowPartialMatches, Relation relation, String... ids) {
+        SequentialTemporalPatternDefinition def
+                = new SequentialTemporalPatternDefinition("PATTERN");
+        def.setAllowPartialMatches(allowPartialMatches);
+        def.setFirstTemporalExtendedPropositionDefinition(
+                new TemporalExtendedPropositionDefinition(ids[0]));
+        SubsequentTemporalExtendedPropositionDefinition[] subsequent
+                = new SubsequentTemporalExtendedPropositionDefinition[
+                ids.length - 1];
+        for (int i = 1; i < ids.length; i++) {
+            subsequent[i - 1] = new SubsequentTemporalExtendedPropositionDefinition(
+                    relation, new TemporalExtendedPropositionDefinition(ids[i]));
+        }
+        def.setSubsequentTemporalExtendedPropositionDefinitions(subsequent);
+        return def;
+    }
+
+    private List<TemporalProposition> newPropositions(String[] ids,
+            long[] starts) {
+        List<TemporalProposition> result = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            AbstractParameter ap = new AbstractParameter(ids[i], getUid());
+            ap.setInterval(INTERVAL_FACTORY.getInstance(starts[i], null,
+                    starts[i] + 10L, null));
+            result.add(ap);
+        }
+        return result;
+    }
+
+    private static Set<Proposition> newSet(Proposition... props) {
+        return new HashSet<>(Arrays.asList(props));
+    }
+
+    /**
+     * Fires the consequence, and returns the propositions from which each
+     * pattern instance was derived, in the order of assertion.
+     */
+    private static List<Set<Proposition>> findMatches(
+            SequentialTemporalPatternDefinition def,
+            List<TemporalProposition> tps) throws Exception {
+        ConsequenceFixture fixture = new ConsequenceFixture();
+        fixture.evaluate(new SequentialTemporalPatternConsequence(def), tps);
+        DerivationsBuilder derivationsBuilder = fixture.getDerivationsBuilder();
+        List<Set<Proposition>> result = new ArrayList<>();
+        for (Proposition prop : fixture.getInserted()) {
+            Set<Proposition> derivedFrom
+                    = derivationsBuilder.getBackwardDerivations().get(prop);
+            result.add(derivedFrom != null ? derivedFrom
+                    : Collections.<Proposition>emptySet());
+        }
+        return result;
+    }
+
+    /**
+     * The matching that the consequence replaced: every window of
+     * consecutive sorted propositions is compared with the pattern, and the
+     * relations are looked up by pair of temporal extended proposition
+     * definitions.
+     */
+    private static List<Set<Proposition>> findMatchesByWindow(
+            SequentialTemporalPatternDefinition def,
+            List<TemporalProposition> propositions) {
+        SubsequentTemporalExtendedPropositionDefinition[] subsequent
+                = def.getSubsequentTemporalExtendedPropositionDefinitions();
+        TemporalExtendedPropositionDefinition[] epds
+                = new TemporalExtendedPropositionDefinition[
+                subsequent.length + 1];
+        epds[0] = def.getFirstTemporalExtendedPropositionDefinition();
+        List<List<TemporalExtendedPropositionDefinition>> epdPairs
+                = new ArrayList<>();
+        Map<List<TemporalExtendedPropositionDefinition>, Relation> epdToRelation
+                = new HashMap<>();
+        for (int i = 1; i < epds.length; i++) {
+            epds[i] = subsequent[i - 1]
+                    .getRelatedTemporalExtendedPropositionDefinition();
+            List<TemporalExtendedPropositionDefinition> pair
+                    = Arrays.asList(epds[i - 1], epds[i]);
+            epdPairs.add(pair);
+            epdToRelation.put(pair, subsequent[i - 1].getRelation());
+        }
+        List<TemporalProposition> tps = new ArrayList<>(propositions);
+        Collections.sort(tps, ProtempaUtil.TEMP_PROP_COMP);
+        List<Set<Proposition>> result = new ArrayList<>();
+        Map<TemporalExtendedPropositionDefinition, TemporalProposition> map
+                = new HashMap<>();
+        int i = 0;
+        TOP_LEVEL:
+        for (int l = epds.length, n = tps.size() - l + 1; i < n; i++) {
+            List<TemporalProposition> subList = tps.subList(i, i + l);
+            for (int j = 0; j < l; j++) {
+                TemporalProposition p = subList.get(j);
+                if (!p.getId().equals(epds[j].getPropositionId())) {
+                    continue TOP_LEVEL;
+                }
+                map.put(epds[j], p);
+            }
+            if (hasRelations(epdToRelation, epdPairs, map)) {
+                result.add(new HashSet<Proposition>(subList));
+            }
+        }
+        if (def.isAllowPartialMatches()) {
+            List<TemporalProposition> subList = tps.subList(i, tps.size());
+            map.clear();
+            for (int j = 0, n = subList.size(); j < n; j++) {
+                map.put(epds[j], subList.get(j));
+            }
+            for (List<TemporalExtendedPropositionDefinition> pair : epdPairs) {
+                TemporalProposition a1 = map.get(pair.get(0));
+                TemporalProposition a2 = map.get(pair.get(1));
+                if (a1 != null && a2 != null
+                        && !epdToRelation.get(pair).hasRelation(
+                                a1.getInterval(), a2.getInterval())) {
+                    return result;
+                }
+            }
+            result.add(new HashSet<Proposition>(subList));
+        }
+        return result;
+    }
+
+    private static boolean hasRelations(
+            Map<List<TemporalExtendedPropositionDefinition>, Relation> epdToRelation,
+            List<List<TemporalExtendedPropositionDefinition>> epdPairs,
+            Map<TemporalExtendedPropositionDefinition, TemporalProposition> map) {
+        for (List<TemporalExtendedPropositionDefinition> pair : epdPairs) {
+            if (!epdToRelation.get(pair).hasRelation(
+                    map.get(pair.get(0)).getInterval(),
+                    map.get(pair.get(1)).getInterval())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.protempa.proposition.DefaultLocalUniqueId;
+import org.protempa.proposition.DerivedSourceId;
+import org.protempa.proposition.Event;
+import org.protempa.proposition.TemporalProposition;
+import org.protempa.proposition.UniqueId;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class SliceConsequenceTest extends TestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+
+    public void testFirstMatchesStableSort() {
+        Random random = new Random(1L);
+        List<TemporalProposition> props = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            props.add(newEvent(random.nextInt(100)));
+        }
+        List<TemporalProposition> copy = new ArrayList<>(props);
+        for (int k : new int[]{1, 3, 50, 499, 500, 1000}) {
+            assertFirst(props, k, ProtempaUtil.TEMP_PROP_COMP);
+            assertFirst(props, k, ProtempaUtil.REVERSE_TEMP_PROP_COMP);
+        }
+        assertEquals(copy, props);
+    }
+
+    public void testFirstNone() {
+        List<TemporalProposition> props = new ArrayList<>();
+        props.add(newEvent(1));
+        assertTrue(SliceConsequence.first(props, 0,
+                ProtempaUtil.TEMP_PROP_COMP).isEmpty());
+    }
+
+    private static void assertFirst(List<TemporalProposition> props, int k,
+            Comparator<TemporalProposition> comp) {
+        List<TemporalProposition> sorted = new ArrayList<>(props);
+        Collections.sort(sorted, comp);
+        List<TemporalProposition> expected = sorted.subList(0,
+                Math.min(k, sorted.size()));
+        List<TemporalProposition> actual
+                = SliceConsequence.first(props, k, comp);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    private static Event newEvent(long position) {
+        Event event = new Event("Test", new UniqueId(
+                DerivedSourceId.getInstance(), new DefaultLocalUniqueId()));
+        event.setInterval(INTERVAL_FACTORY.getInstance(position,
+                AbsoluteTimeGranularity.DAY));
+        return event;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.protempa.backend.asb.java.MinAlgorithm;
+import org.protempa.backend.asb.java.StateAlgorithm;
+import org.protempa.backend.asb.java.TrendAlgorithm;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Segment;
+import org.protempa.proposition.Sequence;
+import org.protempa.proposition.value.BooleanValue;
+import org.protempa.proposition.value.InequalityNumberValue;
+import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.Value;
+import org.protempa.proposition.value.ValueComparator;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class SlidingWindowsTest extends ProtempaTestCase {
+
+    private Sequence<PrimitiveParameter> seq;
+    private Algorithms algorithms;
+
+    @Override
+    protected void setUp() throws Exception {
+        Random random = new Random(0);
+        List<PrimitiveParameter> params = new ArrayList<>();
+        long position = 1500000000000L;
+        for (int i = 0; i < 200; i++) {
+            PrimitiveParameter param = new PrimitiveParameter("TEST", getUid());
+            position += random.nextInt(4) * 60000L;
+            param.setPosition(position);
+            int r = random.nextInt(40);
+            Value value;
+            if (r == 0) {
+                value = null;
+            } else if (r == 1) {
+                value = new InequalityNumberValue(
+                        ValueComparator.GREATER_THAN, 5);
+            } else if (i > 100 && i < 130) {
+                value = NumberValue.getInstance(4);
+            } else {
+                value = NumberValue.getInstance(random.nextInt(10));
+            }
+            param.setValue(value);
+            params.add(param);
+        }
+        this.seq = new Sequence<>("TEST", params);
+        this.algorithms = new Algorithms();
+    }
+
+    public void testStateAlgorithm() throws Exception {
+        StateAlgorithm algorithm = new StateAlgorithm(this.algorithms, "state");
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN_OR_EQUAL_TO,
+                NumberValue.getInstance(3), ValueComparator.LESS_THAN,
+                NumberValue.getInstance(8));
+        assertSameResults(algorithm, ValueComparator.EQUAL_TO,
+                NumberValue.getInstance(4), null, null);
+        assertSameResults(algorithm, null, null, null, null);
+    }
+
+    public void testMinAlgorithm() throws Exception {
+        MinAlgorithm algorithm = new MinAlgorithm(this.algorithms, "min");
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN,
+                NumberValue.getInstance(1), ValueComparator.LESS_THAN,
+                NumberValue.getInstance(5));
+        assertSameResults(algorithm, ValueComparator.EQUAL_TO,
+                NumberValue.getInstance(4), null, null);
+    }
+
+    public void testTrendAlgorithm() throws Exception {
+        TrendAlgorithm algorithm = new TrendAlgorithm(this.algorithms, "trend");
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN,
+                NumberValue.getInstance(0), null, null);
+        assertSameResults(algorithm, ValueComparator.LESS_THAN,
+                NumberValue.getInstance(0), null, null);
+        assertSameResults(algorithm, ValueComparator.EQUAL_TO,
+                NumberValue.getInstance(0), null, null);
+    }
+
+    public void testTrendAlgorithmAfterOnlyNullValuesRemain()
+            throws Exception {
+        List<PrimitiveParameter> params = new ArrayList<>();
+        Value[] values = {NumberValue.getInstance(1), null, null,
+            NumberValue.getInstance(2), NumberValue.getInstance(3),
+            NumberValue.getInstance(4), NumberValue.getInstance(5),
+            NumberValue.getInstance(6), NumberValue.getInstance(7),
+            NumberValue.getInstance(8)};
+        for (int i = 0; i < values.length; i++) {
+            PrimitiveParameter param = new PrimitiveParameter("TEST", getUid());
+            param.setPosition(1500000000000L + i * 60000L);
+            param.setValue(values[i]);
+            params.add(param);
+        }
+        this.seq = new Sequence<>("TEST", params);
+        TrendAlgorithm algorithm = new TrendAlgorithm(this.algorithms, "trend");
+        LowLevelAbstractionValueDefinition def =
+                new LowLevelAbstractionValueDefinition(
+                new LowLevelAbstractionDefinition("TEST_LLA"), "TEST_VALUE");
+        def.setParameterComp("minThreshold", ValueComparator.GREATER_THAN);
+        def.setParameterValue("minThreshold", NumberValue.getInstance(0));
+        AlgorithmArguments args = new AlgorithmArguments(algorithm, def);
+        SlidingWindows windows = new SlidingWindows(algorithm, this.seq);
+        /*
+         * Removing the first value leaves only null values in the window,
+         * and the windows after that contain only the values added since.
+         */
+        assertSameResult(algorithm, args, def, windows, 0, 2);
+        assertSameResult(algorithm, args, def, windows, 1, 7);
+        assertSameResult(algorithm, args, def, windows, 2, 8);
+        assertSameResult(algorithm, args, def, windows, 3, 9);
+        assertEquals(BooleanValue.TRUE, windows.compute(def, args,
+                new Segment<>(this.seq, 3, 9)));
+    }
+
+    public void testTrendAlgorithmSlopeAtThreshold() throws Exception {
+        List<PrimitiveParameter> params = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            PrimitiveParameter param = new PrimitiveParameter("TEST", getUid());
+            param.setPosition(1500000000000L + i * 60000L);
+            param.setValue(NumberValue.getInstance(0.1 * i + 0.7));
+            params.add(param);
+        }
+        this.seq = new Sequence<>("TEST", params);
+        TrendAlgorithm algorithm = new TrendAlgorithm(this.algorithms, "trend");
+        NumberValue slope = NumberValue.getInstance(0.1 / 60000.0);
+        assertSameResults(algorithm, ValueComparator.EQUAL_TO, slope,
+                null, null);
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN, slope,
+                null, null);
+        assertSameResults(algorithm, ValueComparator.GREATER_THAN_OR_EQUAL_TO,
+                slope, ValueComparator.LESS_THAN_OR_EQUAL_TO, slope);
+    }
+
+    private void assertSameResults(IncrementalAlgorithm algorithm,
+            ValueComparator minComp, Value minThreshold,
+            ValueComparator maxComp, Value maxThreshold) throws Exception {
+        LowLevelAbstractionValueDefinition def =
+                new LowLevelAbstractionValueDefinition(
+                new LowLevelAbstractionDefinition("TEST_LLA"), "TEST_VALUE");
+        def.setParameterComp("minThreshold", minComp);
+        def.setParameterValue("minThreshold", minThreshold);
+        def.setParameterComp("maxThreshold", maxComp);
+        def.setParameterValue("maxThreshold", maxThreshold);
+        AlgorithmArguments args = new AlgorithmArguments(algorithm, def);
+        int size = this.seq.size();
+        for (int width = 1; width <= 12; width++) {
+            SlidingWindows windows = new SlidingWindows(algorithm, this.seq);
+            for (int x = 0; x + width <= size; x++) {
+                assertSameResult(algorithm, args, def, windows, x,
+                        x + width - 1);
+            }
+        }
+        Random random = new Random(1);
+        SlidingWindows windows = new SlidingWindows(algorithm, this.seq);
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < 2000; i++) {
+            int move = random.nextInt(10);
+            if (move < 4) {
+                y++;
+            } else if (move < 8) {
+                x++;
+            } else if (move == 8) {
+                x += random.nextInt(5);
+                y = x + random.nextInt(5);
+            } else {
+                x = Math.max(x - random.nextInt(5), 0);
+                y = x + random.nextInt(20);
+            }
+            if (y >= size) {
+                x = 0;
+                y = random.nextInt(10);
+            }
+            if (x > y) {
+                y = x;
+            }
+            assertSameResult(algorithm, args, def, windows, x, y);
+        }
+    }
+
+    private void assertSameResult(Algorithm algorithm, AlgorithmArguments args,
+            LowLevelAbstractionValueDefinition def, SlidingWindows windows,
+            int x, int y) throws Exception {
+        Segment<PrimitiveParameter> seg = new Segment<>(this.seq, x, y);
+        Value expected;
+        try {
+            expected = algorithm.compute(seg, args);
+        } catch (RuntimeException ex) {
+            return;
+        }
+        assertEquals("[" + x + ", " + y + "]", expected,
+                windows.compute(def, args, seg));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.arp.javautil.arrays.Arrays;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class TransitiveClosureIndexTest extends TestCase {
+
+    private TransitiveClosureIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        Map<String, PropositionDefinition> propDefs = new HashMap<>();
+        put(propDefs, "root", "left", "right");
+        put(propDefs, "left", "bottom");
+        put(propDefs, "right", "bottom", "undefined");
+        put(propDefs, "bottom");
+        put(propDefs, "cycle1", "cycle2");
+        put(propDefs, "cycle2", "cycle1");
+        this.index = new TransitiveClosureIndex(propDefs, false);
+    }
+
+    public void testDiamond() {
+        assertEquals(Arrays.asSet(new String[]{"root", "left", "right",
+            "bottom", "undefined"}),
+                this.index.closurePropIds(Collections.singleton("root")));
+    }
+
+    public void testLeaf() {
+        assertEquals(Collections.singleton("bottom"),
+                this.index.closurePropIds(Collections.singleton("bottom")));
+    }
+
+    public void testCycle() {
+        assertEquals(Arrays.asSet(new String[]{"cycle1", "cycle2"}),
+                this.index.closurePropIds(Collections.singleton("cycle2")));
+    }
+
+    public void testUnknown() {
+        Set<String> unknown = new HashSet<>();
+        BitSet closure = this.index.closure(
+                Arrays.asSet(new String[]{"left", "foo"}), unknown);
+        assertEquals(Collections.singleton("foo"), unknown);
+        Set<String> propIds = new HashSet<>();
+        for (int i = closure.nextSetBit(0); i >= 0;
+                i = closure.nextSetBit(i + 1)) {
+            propIds.add(this.index.getPropId(i));
+            assertNotNull(this.index.getPropDef(i));
+        }
+        assertEquals(Arrays.asSet(new String[]{"left", "bottom"}), propIds);
+    }
+
+    private static void put(Map<String, PropositionDefinition> propDefs,
+            String id, String... inverseIsA) {
+        EventDefinition ed = new EventDefinition(id);
+        ed.setInverseIsA(inverseIsA);
+        propDefs.put(id, ed);
+    }
+}
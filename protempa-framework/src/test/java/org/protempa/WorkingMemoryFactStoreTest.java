@@ -0,0 +1,225 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.protempa.proposition.AbstractParameter;
+import org.protempa.proposition.Constant;
+import org.protempa.proposition.DataSourceBackendId;
+import org.protempa.proposition.DerivedSourceId;
+import org.protempa.proposition.Event;
+import org.protempa.proposition.LocalUniqueIdValuesProvider;
+import org.protempa.proposition.PrimitiveParameter;
+import org.protempa.proposition.Proposition;
+import org.protempa.proposition.ProviderBasedLocalUniqueId;
+import org.protempa.proposition.UniqueId;
+import org.protempa.proposition.interval.IntervalFactory;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+import org.protempa.proposition.value.BooleanValue;
+import org.protempa.proposition.value.DateValue;
+import org.protempa.proposition.value.NominalValue;
+import org.protempa.proposition.value.NumberValue;
+import org.protempa.proposition.value.RelativeDayGranularity;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class WorkingMemoryFactStoreTest extends TestCase {
+
+    private static final IntervalFactory INTERVAL_FACTORY
+            = new IntervalFactory();
+
+    private int numericalId;
+
+    public void testRoundTrip() throws Exception {
+        WorkingMemoryFactStore factStore = newFactStore(5);
+        WorkingMemoryFactStore result = roundTrip(factStore);
+        List<Proposition> expected = factStore.getPropositions();
+        List<Proposition> actual = result.getPropositions();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Proposition p1 = expected.get(i);
+            Proposition p2 = actual.get(i);
+            assertEquals(p1, p2);
+            assertTrue(p1.isEqual(p2));
+            assertEquals(p1.getSourceSystem(), p2.getSourceSystem());
+            assertEquals(p1.getDownloadDate(), p2.getDownloadDate());
+            for (String refName : p1.getReferenceNames()) {
+                assertEquals(p1.getReferences(refName),
+                        p2.getReferences(refName));
+            }
+        }
+        assertEquals(factStore.getForwardDerivations(),
+                result.getForwardDerivations());
+        assertEquals(factStore.getBackwardDerivations(),
+                result.getBackwardDerivations());
+        assertEquals(factStore.getInstanceNums(), result.getInstanceNums());
+    }
+
+    public void testDerivationsShareInstances() throws Exception {
+        WorkingMemoryFactStore result = roundTrip(newFactStore(3));
+        Set<Proposition> props = Collections.newSetFromMap(
+                new IdentityHashMap<Proposition, Boolean>());
+        props.addAll(result.getPropositions());
+        for (Map.Entry<Proposition, Set<Proposition>> me
+                : result.getForwardDerivations().entrySet()) {
+            assertTrue(props.contains(me.getKey()));
+            for (Proposition prop : me.getValue()) {
+                assertTrue(props.contains(prop));
+            }
+        }
+    }
+
+    public void testNullCollections() throws Exception {
+        WorkingMemoryFactStore result
+                = roundTrip(new WorkingMemoryFactStore());
+        assertNull(result.getPropositions());
+        assertNull(result.getForwardDerivations());
+        assertNull(result.getBackwardDerivations());
+        assertNull(result.getInstanceNums());
+    }
+
+    public void testSmallerThanDefaultSerialization() throws Exception {
+        WorkingMemoryFactStore factStore = newFactStore(200);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(factStore.getPropositions());
+            oos.writeObject(factStore.getForwardDerivations());
+            oos.writeObject(factStore.getBackwardDerivations());
+            oos.writeObject(factStore.getInstanceNums());
+        }
+        assertTrue(serialize(factStore).length < baos.size() / 2);
+    }
+
+    private WorkingMemoryFactStore newFactStore(int n) {
+        DataSourceBackendId backendId
+                = DataSourceBackendId.getInstance("test");
+        List<Proposition> props = new ArrayList<>();
+        Map<Proposition, Set<Proposition>> forward = new HashMap<>();
+        Map<Proposition, Set<Proposition>> backward = new HashMap<>();
+        Constant patient = new Constant("Patient",
+                new UniqueId(backendId, newLocalUniqueId()));
+        patient.setProperty("name", NominalValue.getInstance("Smith"));
+        patient.setProperty("age", NumberValue.getInstance(42L));
+        patient.setProperty("deceased", BooleanValue.FALSE);
+        patient.setSourceSystem(
+                DataSourceBackendSourceSystem.getInstance("test"));
+        props.add(patient);
+        for (int i = 0; i < n; i++) {
+            PrimitiveParameter pp = new PrimitiveParameter("Glucose",
+                    new UniqueId(backendId, newLocalUniqueId()));
+            pp.setPosition(1000000L * i);
+            pp.setGranularity(AbsoluteTimeGranularity.MINUTE);
+            pp.setValue(NumberValue.getInstance(new BigDecimal("5." + i)));
+            pp.setProperty("units", NominalValue.getInstance("mmol/L"));
+            pp.setReferences("patient",
+                    Collections.singletonList(patient.getUniqueId()));
+            pp.setSourceSystem(
+                    DataSourceBackendSourceSystem.getInstance("test"));
+            pp.setDownloadDate(new Date(1234567890L));
+            props.add(pp);
+            Event e = new Event("Encounter",
+                    new UniqueId(backendId, newLocalUniqueId()));
+            e.setInterval(INTERVAL_FACTORY.getInstance(1000000L * i,
+                    AbsoluteTimeGranularity.DAY, 1000000L * i + 86400000L,
+                    AbsoluteTimeGranularity.DAY));
+            e.setProperty("admitted", DateValue.getInstance(new Date(
+                    1000000L * i)));
+            props.add(e);
+            AbstractParameter ap = new AbstractParameter("HighGlucose",
+                    new UniqueId(DerivedSourceId.getInstance(),
+                            newLocalUniqueId()));
+            ap.setInterval(INTERVAL_FACTORY.getInstance(null, 1000000L * i,
+                    RelativeDayGranularity.DAY, 1000000L * i, null,
+                    RelativeDayGranularity.DAY));
+            ap.setValue(NominalValue.getInstance("High"));
+            ap.setContextId("Inpatient");
+            ap.setSourceSystem(SourceSystem.DERIVED);
+            props.add(ap);
+            forward.put(pp, new HashSet<Proposition>(
+                    Collections.singleton(ap)));
+            backward.put(ap, new HashSet<Proposition>(
+                    Collections.singleton(pp)));
+        }
+        WorkingMemoryFactStore factStore = new WorkingMemoryFactStore();
+        factStore.setPropositions(props);
+        factStore.setForwardDerivations(forward);
+        factStore.setBackwardDerivations(backward);
+        Map<String, Integer> instanceNums = new HashMap<>();
+        instanceNums.put("HighGlucose", n);
+        factStore.setInstanceNums(instanceNums);
+        return factStore;
+    }
+
+    private ProviderBasedLocalUniqueId newLocalUniqueId() {
+        final int id = ++this.numericalId;
+        return new ProviderBasedLocalUniqueId(
+                new LocalUniqueIdValuesProvider() {
+
+            @Override
+            public void incr() {
+            }
+
+            @Override
+            public String getId() {
+                return "provider";
+            }
+
+            @Override
+            public int getNumericalId() {
+                return id;
+            }
+        });
+    }
+
+    private static byte[] serialize(WorkingMemoryFactStore factStore)
+            throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(factStore);
+        }
+        return baos.toByteArray();
+    }
+
+    private static WorkingMemoryFactStore roundTrip(
+            WorkingMemoryFactStore factStore) throws IOException,
+            ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(serialize(factStore)))) {
+            return (WorkingMemoryFactStore) ois.readObject();
+        }
+    }
+}
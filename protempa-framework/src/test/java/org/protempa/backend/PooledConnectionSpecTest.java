@@ -0,0 +1,186 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.arp.javautil.sql.ConnectionSpec;
+import org.arp.javautil.sql.ConnectionSpecVisitor;
+import org.arp.javautil.sql.DatabaseProduct;
+import org.arp.javautil.sql.DatabaseVersion;
+import org.arp.javautil.sql.Driver;
+import org.arp.javautil.sql.DriverVersion;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class PooledConnectionSpecTest extends TestCase {
+
+    public void testReuse() throws SQLException {
+        FakeConnectionSpec fake = new FakeConnectionSpec();
+        try (PooledConnectionSpec pool
+                = new PooledConnectionSpec(fake, 2, 1000, 60000, 0)) {
+            Connection c1 = pool.getOrCreate();
+            assertEquals(1, pool.getActiveCount());
+            c1.close();
+            assertTrue(c1.isClosed());
+            c1.close();
+            assertEquals(0, pool.getActiveCount());
+            assertEquals(1, pool.getIdleCount());
+            Connection c2 = pool.getOrCreate();
+            c2.close();
+            assertEquals(1, fake.connections.size());
+            assertEquals(1, pool.getCreatedCount());
+            assertEquals(2, pool.getBorrowCount());
+            assertEquals(2, fake.rollbacks);
+        }
+        assertEquals(1, fake.closed);
+    }
+
+    public void testBounded() throws SQLException {
+        FakeConnectionSpec fake = new FakeConnectionSpec();
+        try (PooledConnectionSpec pool
+                = new PooledConnectionSpec(fake, 1, 10, 60000, 0)) {
+            Connection c1 = pool.getOrCreate();
+            try {
+                pool.getOrCreate();
+                fail("Expected the pool to time out");
+            } catch (SQLException ex) {
+            }
+            c1.close();
+            pool.getOrCreate().close();
+            assertEquals(1, pool.getCreatedCount());
+        }
+    }
+
+    public void testIdleEviction() throws SQLException {
+        FakeConnectionSpec fake = new FakeConnectionSpec();
+        try (PooledConnectionSpec pool
+                = new PooledConnectionSpec(fake, 0, 1000, 0, 0)) {
+            pool.getOrCreate().close();
+            pool.getOrCreate().close();
+            assertEquals(2, pool.getCreatedCount());
+            assertEquals(0, pool.getIdleCount());
+            assertEquals(2, fake.closed);
+        }
+    }
+
+    public void testInvalidConnectionReplaced() throws SQLException {
+        FakeConnectionSpec fake = new FakeConnectionSpec();
+        try (PooledConnectionSpec pool
+                = new PooledConnectionSpec(fake, 0, 1000, 60000, 0)) {
+            pool.getOrCreate().close();
+            fake.valid = false;
+            pool.getOrCreate().close();
+            assertEquals(2, pool.getCreatedCount());
+            assertEquals(1, fake.closed);
+        }
+    }
+
+    public void testUseAfterClose() throws SQLException {
+        FakeConnectionSpec fake = new FakeConnectionSpec();
+        try (PooledConnectionSpec pool
+                = new PooledConnectionSpec(fake, 0, 1000, 60000, 0)) {
+            Connection c = pool.getOrCreate();
+            c.close();
+            try {
+                c.commit();
+                fail("Expected a closed connection");
+            } catch (SQLException ex) {
+            }
+        }
+    }
+
+    private static class FakeConnectionSpec implements ConnectionSpec {
+
+        private final List<Connection> connections = new ArrayList<>();
+        private int rollbacks;
+        private int closed;
+        private boolean valid = true;
+
+        @Override
+        public Connection getOrCreate() throws SQLException {
+            Connection result = (Connection) Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new InvocationHandler() {
+
+                @Override
+                public Object invoke(Object proxy, Method method,
+                        Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "isValid":
+                            return valid;
+                        case "getAutoCommit":
+                            return false;
+                        case "rollback":
+                            rollbacks++;
+                            return null;
+                        case "close":
+                            closed++;
+                            return null;
+                        case "isClosed":
+                            return false;
+                        default:
+                            return null;
+                    }
+                }
+            });
+            this.connections.add(result);
+            return result;
+        }
+
+        @Override
+        public boolean isAutoCommitEnabled() {
+            return false;
+        }
+
+        @Override
+        public DatabaseProduct getDatabaseProduct() {
+            return DatabaseProduct.OTHER;
+        }
+
+        @Override
+        public DatabaseVersion getDatabaseVersion() {
+            return null;
+        }
+
+        @Override
+        public Driver getDriver() {
+            return null;
+        }
+
+        @Override
+        public DriverVersion getDriverVersion() {
+            return null;
+        }
+
+        @Override
+        public void accept(ConnectionSpecVisitor connectionSpecVisitor) {
+        }
+    }
+}
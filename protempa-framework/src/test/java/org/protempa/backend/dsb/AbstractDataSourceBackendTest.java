@@ -0,0 +1,82 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.dsb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.protempa.KeyWriter;
+import org.protempa.dsb.MockDataSourceBackend;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class AbstractDataSourceBackendTest extends TestCase {
+
+    public void testKeyWriterBatches() throws Exception {
+        final List<Set<String>> batches = new ArrayList<>();
+        MockDataSourceBackend backend = new MockDataSourceBackend() {
+
+            @Override
+            public void writeKeys(Set<String> keyIds) {
+                batches.add(new HashSet<>(keyIds));
+            }
+        };
+        Set<String> expected = new HashSet<>();
+        try (KeyWriter keyWriter = backend.newKeyWriter()) {
+            for (int i = 0; i < 2500; i++) {
+                keyWriter.write("key" + i);
+                expected.add("key" + i);
+            }
+        }
+        assertEquals(3, batches.size());
+        assertEquals(Arrays.asList(1000, 1000, 500), Arrays.asList(
+                batches.get(0).size(), batches.get(1).size(),
+                batches.get(2).size()));
+        Set<String> actual = new HashSet<>();
+        for (Set<String> batch : batches) {
+            actual.addAll(batch);
+        }
+        assertEquals(expected, actual);
+    }
+
+    public void testKeyWriterDiscard() throws Exception {
+        final List<Set<String>> batches = new ArrayList<>();
+        MockDataSourceBackend backend = new MockDataSourceBackend() {
+
+            @Override
+            public void writeKeys(Set<String> keyIds) {
+                batches.add(new HashSet<>(keyIds));
+            }
+        };
+        KeyWriter keyWriter = backend.newKeyWriter();
+        for (int i = 0; i < 1500; i++) {
+            keyWriter.write("key" + i);
+        }
+        keyWriter.discard();
+        keyWriter.close();
+        assertEquals(1, batches.size());
+        assertEquals(1000, batches.get(0).size());
+    }
+}
@@ -0,0 +1,121 @@
+package org.protempa.dest.key;
+
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.protempa.DataSourceImpl;
+import org.protempa.KnowledgeSource;
+import org.protempa.KnowledgeSourceImpl;
+import org.protempa.backend.dsb.DataSourceBackend;
+import org.protempa.backend.ksb.SimpleKnowledgeSourceBackend;
+import org.protempa.criteria.Criteria;
+import org.protempa.dsb.MockDataSourceBackend;
+import org.protempa.proposition.Proposition;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class KeyLoaderQueryResultsHandlerTest extends TestCase {
+
+    private List<Set<String>> batches;
+    private DataSourceImpl dataSource;
+    private KnowledgeSource knowledgeSource;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.batches = new ArrayList<>();
+        MockDataSourceBackend backend = new MockDataSourceBackend() {
+
+            @Override
+            public void writeKeys(Set<String> keyIds) {
+                batches.add(new HashSet<>(keyIds));
+            }
+        };
+        this.dataSource = new DataSourceImpl(
+                new DataSourceBackend[]{backend});
+        this.knowledgeSource = new KnowledgeSourceImpl(
+                new SimpleKnowledgeSourceBackend());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.knowledgeSource.close();
+        this.dataSource.close();
+    }
+
+    public void testFinishWritesKeys() throws Exception {
+        KeyLoaderQueryResultsHandler handler = newHandler();
+        handler.start(null);
+        handleKeys(handler, "a", "b");
+        handler.finish();
+        handler.close();
+        assertEquals(Collections.singletonList(newSet("a", "b")),
+                this.batches);
+    }
+
+    public void testCloseWithoutFinishDiscardsKeys() throws Exception {
+        KeyLoaderQueryResultsHandler handler = newHandler();
+        handler.start(null);
+        handleKeys(handler, "a", "b");
+        handler.close();
+        assertEquals(Collections.emptyList(), this.batches);
+    }
+
+    private KeyLoaderQueryResultsHandler newHandler() {
+        return new KeyLoaderQueryResultsHandler(this.dataSource,
+                this.knowledgeSource, new Criteria() {
+
+            @Override
+            public boolean evaluate(List<Proposition> propositions) {
+                return true;
+            }
+
+            @Override
+            public String[] getPropositionIdsSpecified() {
+                return new String[0];
+            }
+
+            @Override
+            public void init(KnowledgeSource knowledgeSource) {
+            }
+        }, null, null);
+    }
+
+    private static void handleKeys(KeyLoaderQueryResultsHandler handler,
+            String... keyIds) throws Exception {
+        for (String keyId : keyIds) {
+            handler.handleQueryResult(keyId,
+                    Collections.<Proposition>emptyList(), null, null, null);
+        }
+    }
+
+    private static Set<String> newSet(String... keyIds) {
+        Set<String> result = new HashSet<>();
+        Collections.addAll(result, keyIds);
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.proposition.interval;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+import org.protempa.proposition.value.AbsoluteTimeUnit;
+
+/**
+ * Measures creating intervals with {@link IntervalFactory}, comparing them,
+ * and relating them with {@link Relation#hasRelation(Interval, Interval) },
+ * which is what processing each event row does. The
+ * <code>getInstance</code> benchmarks run on one thread and on four threads
+ * sharing the factory, because interning used to take a global lock. It
+ * only uses API that predates the primitive interval bounds, so that it can
+ * be run against earlier versions for comparison. Run it with
+ * {@link #main(java.lang.String[]) } from the test classpath.
+ *
+ * @author Andrew Post
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final long START = 1500000000000L;
+
+    private IntervalFactory intervalFactory;
+    private long[] starts;
+    private Interval[] intervals;
+    private Relation relation;
+
+    @State(Scope.Thread)
+    public static class Index {
+
+        private int i;
+
+        int next() {
+            return this.i = (this.i + 1) & (SIZE - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        this.intervalFactory = new IntervalFactory();
+        Random random = new Random(5);
+        this.starts = new long[SIZE];
+        this.intervals = new Interval[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.starts[i] = START + random.nextInt(SIZE) * 60000L;
+            this.intervals[i] = this.intervalFactory.getInstance(
+                    this.starts[i], AbsoluteTimeGranularity.MINUTE,
+                    this.starts[i] + random.nextInt(60) * 60000L,
+                    AbsoluteTimeGranularity.MINUTE);
+        }
+        this.relation = new Relation(null, null, null, null, null, null,
+                null, null, 0, AbsoluteTimeUnit.MINUTE,
+                120, AbsoluteTimeUnit.MINUTE, null, null,
+                null, null);
+    }
+
+    @Benchmark
+    public Interval getInstance(Index index) {
+        long start = this.starts[index.next()];
+        return this.intervalFactory.getInstance(start,
+                AbsoluteTimeGranularity.MINUTE, start + 60000L,
+                AbsoluteTimeGranularity.MINUTE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Interval getInstanceContended(Index index) {
+        return getInstance(index);
+    }
+
+    @Benchmark
+    public int compareTo(Index index) {
+        int i = index.next();
+        return this.intervals[i].compareTo(this.intervals[(i + 1) & (SIZE - 1)]);
+    }
+
+    @Benchmark
+    public boolean hasRelation(Index index) {
+        int i = index.next();
+        return this.relation.hasRelation(this.intervals[i],
+                this.intervals[(i + 1) & (SIZE - 1)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(IntervalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
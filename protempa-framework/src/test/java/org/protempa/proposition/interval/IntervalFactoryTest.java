@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * Protempa Framework
+ * %%
+ * Copyright (C) 2012 - 2013 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.proposition.interval;
+
+import junit.framework.TestCase;
+import org.protempa.proposition.value.AbsoluteTimeGranularity;
+
+/**
+ *
+ * @author Andrew Post
+ */
+public class IntervalFactoryTest extends TestCase {
+
+    private IntervalFactory intervalFactory;
+
+    @Override
+    protected void setUp() throws Exception {
+        this.intervalFactory = new IntervalFactory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.intervalFactory = null;
+    }
+
+    public void testSameArgumentsSameInstance() {
+        Interval i1 = this.intervalFactory.getInstance(1000L,
+                AbsoluteTimeGranularity.SECOND, 5000L,
+                AbsoluteTimeGranularity.SECOND);
+        Interval i2 = this.intervalFactory.getInstance(1000L,
+                AbsoluteTimeGranularity.SECOND, 5000L,
+                AbsoluteTimeGranularity.SECOND);
+        assertSame(i1, i2);
+    }
+
+    public void testDifferentGranularityDifferentInterval() {
+        Interval i1 = this.intervalFactory.getInstance(1000L,
+                AbsoluteTimeGranularity.SECOND, 5000L,
+                AbsoluteTimeGranularity.SECOND);
+        Interval i2 = this.intervalFactory.getInstance(1000L,
+                AbsoluteTimeGranularity.MINUTE, 5000L,
+                AbsoluteTimeGranularity.MINUTE);
+        assertNotSame(i1, i2);
+        assertEquals(AbsoluteTimeGranularity.MINUTE,
+                i2.getStartGranularity());
+    }
+
+    public void testPositionEqualsZeroLengthInterval() {
+        assertEquals(
+                this.intervalFactory.getInstance(1000L, null, 1000L, null),
+                this.intervalFactory.getInstance(1000L, null));
+    }
+
+    public void testUnboundedStart() {
+        Interval i = this.intervalFactory.getInstance(null, null, 5000L,
+                null);
+        assertEquals(Interval.NEGATIVE_INFINITY, i.minimumStart());
+        assertNull(i.getMinimumStart());
+        assertEquals(Long.valueOf(5000L), i.getMaximumFinish());
+    }
+
+    public void testUnboundedFinish() {
+        Interval i = this.intervalFactory.getInstance(1000L, null, null,
+                null);
+        assertEquals(Interval.POSITIVE_INFINITY, i.maximumFinish());
+        assertNull(i.getMaximumFinish());
+        assertEquals(Long.valueOf(1000L), i.getMinimumStart());
+    }
+
+    public void testCompareToUnboundedStartFirst() {
+        Interval unbounded = this.intervalFactory.getInstance(null, null,
+                5000L, null);
+        Interval bounded = this.intervalFactory.getInstance(1000L, null,
+                5000L, null);
+        assertTrue(unbounded.compareTo(bounded) < 0);
+        assertTrue(bounded.compareTo(unbounded) > 0);
+    }
+}
@@ -22,6 +22,7 @@ package org.protempa.proposition.value;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Locale;
 
 import org.protempa.proposition.value.AbsoluteTimeGranularity;
@@ -51,4 +52,56 @@ public class AbsoluteTimeGranularityTest extends TestCase {
         long april1 = asPosition(DATE_FORMAT.parse("01-Apr-2007"));
         assertEquals(april1, AbsoluteTimeGranularity.MONTH.earliest(april1));
     }
+
+    public void testDistanceMonths() throws ParseException {
+        long jan15 = asPosition(DATE_FORMAT.parse("15-Jan-2007"));
+        assertEquals(2, AbsoluteTimeGranularity.DAY.distance(jan15,
+                asPosition(DATE_FORMAT.parse("14-Apr-2007")),
+                AbsoluteTimeGranularity.DAY, AbsoluteTimeUnit.MONTH));
+        assertEquals(3, AbsoluteTimeGranularity.DAY.distance(jan15,
+                asPosition(DATE_FORMAT.parse("15-Apr-2007")),
+                AbsoluteTimeGranularity.DAY, AbsoluteTimeUnit.MONTH));
+    }
+
+    public void testDistanceDaysBackwards() throws ParseException {
+        assertEquals(0, AbsoluteTimeGranularity.DAY.distance(
+                asPosition(DATE_FORMAT.parse("15-Apr-2007")),
+                asPosition(DATE_FORMAT.parse("15-Jan-2007")),
+                AbsoluteTimeGranularity.DAY, AbsoluteTimeUnit.DAY));
+    }
+
+    public void testDistanceDaysOverYear() throws ParseException {
+        assertEquals(366, AbsoluteTimeGranularity.DAY.distance(
+                asPosition(DATE_FORMAT.parse("01-Jan-2008")),
+                asPosition(DATE_FORMAT.parse("01-Jan-2009")),
+                AbsoluteTimeGranularity.DAY, AbsoluteTimeUnit.DAY));
+    }
+
+    public void testMaximumDistanceMonths() throws ParseException {
+        long jan31 = asPosition(DATE_FORMAT.parse("31-Jan-2007"));
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(jan31);
+        cal.add(Calendar.MONTH, 1);
+        cal.add(Calendar.MONTH, 1);
+        assertEquals(cal.getTimeInMillis() - 1 - jan31,
+                AbsoluteTimeGranularity.DAY.maximumDistance(jan31, 1,
+                AbsoluteTimeUnit.MONTH));
+    }
+
+    public void testMinimumDistanceDays() throws ParseException {
+        long mar1 = asPosition(DATE_FORMAT.parse("01-Mar-2007"));
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(mar1);
+        cal.add(Calendar.DATE, 30);
+        cal.add(Calendar.DATE, -1);
+        assertEquals(cal.getTimeInMillis() + 1 - mar1,
+                AbsoluteTimeGranularity.DAY.minimumDistance(mar1, 30,
+                AbsoluteTimeUnit.DAY));
+    }
+
+    public void testEarliestDay() throws ParseException {
+        long april1 = asPosition(DATE_FORMAT.parse("01-Apr-2007"));
+        assertEquals(april1, AbsoluteTimeGranularity.DAY.earliest(
+                april1 + 13 * 60 * 60 * 1000L + 1234));
+    }
 }
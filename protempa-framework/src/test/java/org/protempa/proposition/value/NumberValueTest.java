@@ -19,12 +19,17 @@
  */
 package org.protempa.proposition.value;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.text.NumberFormat;
 
 
 
 import java.util.Date;
+import java.util.Random;
 import junit.framework.TestCase;
 
 /**
@@ -140,4 +145,142 @@ public class NumberValueTest extends TestCase {
         format.setGroupingUsed(false);
         assertEquals("1000", format.format(new BigDecimal("1000")));
     }
+
+    public void testDoubleEqualsBigDecimal() {
+        NumberValue fromDouble = new NumberValue(0.1);
+        NumberValue fromBigDecimal = new NumberValue(new BigDecimal("0.1"));
+        assertEquals(fromBigDecimal, fromDouble);
+        assertEquals(fromDouble, fromBigDecimal);
+        assertEquals(fromBigDecimal.hashCode(), fromDouble.hashCode());
+        assertEquals(BigDecimal.valueOf(0.1), fromDouble.getBigDecimal());
+        assertEquals("0.1", fromDouble.getFormatted());
+    }
+
+    public void testDoubleScaleSignificant() {
+        NumberValue fromDouble = NumberValue.getInstance(1.0);
+        NumberValue fromLong = NumberValue.getInstance(1L);
+        assertFalse(fromDouble.equals(fromLong));
+        assertEquals(0, fromDouble.compareTo(fromLong));
+        assertEquals(ValueComparator.EQUAL_TO, fromDouble.compare(fromLong));
+    }
+
+    public void testNegativeZero() {
+        assertEquals(NumberValue.getInstance(0.0),
+                NumberValue.getInstance(-0.0));
+        assertEquals(ValueComparator.EQUAL_TO, NumberValue.getInstance(-0.0)
+                .compare(new NumberValue(BigDecimal.ZERO)));
+    }
+
+    public void testNaN() {
+        try {
+            NumberValue.getInstance(Double.NaN);
+            fail("Expected a NumberFormatException");
+        } catch (NumberFormatException ex) {
+        }
+    }
+
+    public void testDoubleComparable() {
+        assertTrue(new NumberValue(1e-320).isDoubleComparable());
+        assertTrue(new NumberValue(new BigDecimal("123.456"))
+                .isDoubleComparable());
+        assertFalse(new NumberValue(new BigDecimal("0.1234567890123456"))
+                .isDoubleComparable());
+        assertFalse(new NumberValue(new BigDecimal("1E-400"))
+                .isDoubleComparable());
+    }
+
+    public void testCompareSameAsBigDecimal() {
+        Random random = new Random(25);
+        NumberValue[] values = new NumberValue[200];
+        for (int i = 0; i < values.length; i++) {
+            double d = (random.nextInt(2001) - 1000) / 100.0;
+            switch (i % 4) {
+                case 0:
+                    values[i] = new NumberValue(d);
+                    break;
+                case 1:
+                    values[i] = new NumberValue(BigDecimal.valueOf(d)
+                            .setScale(random.nextInt(4) + 2));
+                    break;
+                case 2:
+                    values[i] = new NumberValue(new BigDecimal(d));
+                    break;
+                default:
+                    values[i] = new NumberValue(Math.nextUp(d));
+            }
+        }
+        for (NumberValue v1 : values) {
+            for (NumberValue v2 : values) {
+                BigDecimal bd1 = v1.getBigDecimal();
+                BigDecimal bd2 = v2.getBigDecimal();
+                assertEquals(Integer.signum(bd1.compareTo(bd2)),
+                        Integer.signum(v1.compareTo(v2)));
+                assertEquals(bd1.equals(bd2), v1.equals(v2));
+            }
+        }
+    }
+
+    public void testLongValue() {
+        assertEquals(-2L, new NumberValue(-2.7).longValue());
+        assertEquals(new BigDecimal("1E+20").longValue(),
+                new NumberValue(1e20).longValue());
+    }
+
+    public void testParseDoubleString() {
+        NumberValue expected = NumberValue.getInstance(2.5);
+        assertSame(expected, ValueType.NUMBERVALUE.parse(" 2.5 "));
+        assertEquals(new NumberValue(new BigDecimal("2.5")),
+                ValueType.NUMBERVALUE.parse("2.5"));
+    }
+
+    public void testParseKeepsScale() {
+        assertEquals("2.50", ValueType.NUMBERVALUE.parse("2.50").getFormatted());
+        assertEquals("120", ValueType.NUMBERVALUE.parse("120").getFormatted());
+        assertEquals("1E+3", ValueType.NUMBERVALUE.parse("1e3").getFormatted());
+        assertEquals("0.12345678901234567890",
+                ValueType.NUMBERVALUE.parse("0.12345678901234567890")
+                .getFormatted());
+        assertNull(ValueType.NUMBERVALUE.parse("NaN"));
+        assertNull(ValueType.NUMBERVALUE.parse("1.5d"));
+    }
+
+    public void testParseSameAsBigDecimal() {
+        Random random = new Random(25);
+        for (int i = 0; i < 1000; i++) {
+            String str;
+            switch (i % 4) {
+                case 0:
+                    str = Double.toString((random.nextInt(200001) - 100000)
+                            / 100.0);
+                    break;
+                case 1:
+                    str = Integer.toString(random.nextInt(2001) - 1000);
+                    break;
+                case 2:
+                    str = BigDecimal.valueOf(random.nextInt(100000), 3)
+                            .toPlainString();
+                    break;
+                default:
+                    str = Double.toString(random.nextDouble() * 1e-10);
+            }
+            NumberValue parsed = (NumberValue) ValueType.NUMBERVALUE.parse(str);
+            NumberValue expected = new NumberValue(new BigDecimal(str));
+            assertEquals(str, expected, parsed);
+            assertEquals(str, expected.hashCode(), parsed.hashCode());
+            assertEquals(str, expected.getFormatted(), parsed.getFormatted());
+            assertEquals(str, 0, expected.compareTo(parsed));
+        }
+    }
+
+    public void testSerializeDouble() throws Exception {
+        NumberValue expected = new NumberValue(2.5);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(expected);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(expected, in.readObject());
+        }
+    }
 }
@@ -105,6 +105,16 @@ abstract class ConnectionManager {
      */
     protected abstract Project initProject();
 
+    /**
+     * Returns when the project was last modified, if that can be determined.
+     *
+     * @return the modification time in milliseconds since the epoch, or
+     * <code>null</code> if it is not known.
+     */
+    Long getProjectModificationTime() {
+        return null;
+    }
+
     /**
      * Closes the project.
      */
@@ -298,6 +308,59 @@ abstract class ConnectionManager {
         return getFromProtege(name, INSTANCE_GETTER);
     }
 
+    /**
+     * Command for retrieving many instances from the knowledge base at once.
+     *
+     * @see #getInstances(Collection)
+     */
+    private final ProtegeCommand<Map<String, Instance>, Collection<String>> INSTANCES_BY_NAME_GETTER =
+            new ProtegeCommand<Map<String, Instance>, Collection<String>>(
+                    "get instances by name") {
+
+                /**
+                 * Gets the specified instances from the knowledge base.
+                 *
+                 * @param names
+                 *            the instances' names.
+                 * @return a <code>Map</code> from name to
+                 *         <code>Instance</code> in the order of the names,
+                 *         with no entries for names that were not found.
+                 * @see ConnectionManager.ProtegeCommand#get(java.lang.Object)
+                 */
+                @Override
+                Map<String, Instance> get(Collection<String> names) {
+                    Map<String, Instance> result = new LinkedHashMap<>();
+                    for (String name : names) {
+                        Instance instance = protegeKnowledgeBase.getInstance(name);
+                        if (instance != null) {
+                            result.put(name, instance);
+                        }
+                    }
+                    return result;
+                }
+            };
+
+    /**
+     * Retrieves the specified instances from the knowledge base in one
+     * command, rather than retrying and logging each lookup separately.
+     *
+     * @param names the instances' names.
+     * @return a <code>Map</code> from name to <code>Instance</code> in the
+     * order of the names, with no entries for names that were not found.
+     * Guaranteed not to be <code>null</code>.
+     * @see ConnectionManager#INSTANCES_BY_NAME_GETTER
+     */
+    Map<String, Instance> getInstances(Collection<String> names)
+            throws KnowledgeSourceReadException {
+        Map<String, Instance> result =
+                getFromProtege(names, INSTANCES_BY_NAME_GETTER);
+        if (result != null) {
+            return result;
+        } else {
+            return new HashMap<>(0);
+        }
+    }
+
     /**
      * Command for retrieving instances of a cls from the knowledge base.
      *
@@ -633,6 +696,66 @@ abstract class ConnectionManager {
         return getOwnSlotValues(frame, getSlot(slotName));
     }
 
+    private static final class SlotValuesForEachSpec {
+
+        List<? extends Frame> frames;
+        Slot slot;
+
+        /**
+         * @param frames
+         * @param slot
+         */
+        SlotValuesForEachSpec(List<? extends Frame> frames, Slot slot) {
+            this.frames = frames;
+            this.slot = slot;
+        }
+
+        @Override
+        public String toString() {
+            return this.slot + " of " + this.frames.size() + " frames";
+        }
+    }
+
+    private final ProtegeCommand<List<Collection<?>>, SlotValuesForEachSpec> OWN_SLOT_VALUES_FOR_EACH_GETTER = new ProtegeCommand<List<Collection<?>>, SlotValuesForEachSpec>("get own slot values") {
+
+        @Override
+        List<Collection<?>> get(SlotValuesForEachSpec spec) {
+            List<Collection<?>> result = new ArrayList<>(spec.frames.size());
+            for (Frame frame : spec.frames) {
+                Collection<?> values =
+                        protegeKnowledgeBase.getOwnSlotValues(frame, spec.slot);
+                if (values != null) {
+                    result.add(values);
+                } else {
+                    result.add(Collections.emptyList());
+                }
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Gets the values of a slot for each of the given frames in one command,
+     * rather than retrying and logging each lookup separately.
+     *
+     * @param frames the frames.
+     * @param slot the slot.
+     * @return the slot values of each frame, in the order of the frames.
+     * Guaranteed not to be <code>null</code>.
+     */
+    List<Collection<?>> getOwnSlotValuesForEach(List<? extends Frame> frames,
+            Slot slot) throws KnowledgeSourceReadException {
+        List<Collection<?>> result = getFromProtege(
+                new SlotValuesForEachSpec(frames, slot),
+                OWN_SLOT_VALUES_FOR_EACH_GETTER);
+        if (result != null) {
+            return result;
+        } else {
+            return Collections.nCopies(frames.size(),
+                    (Collection<?>) Collections.emptyList());
+        }
+    }
+
     private final ProtegeCommand<Collection<Cls>, Instance> DIRECT_TYPES_GETTER = new ProtegeCommand<Collection<Cls>, Instance>(
             "get direct types") {
 
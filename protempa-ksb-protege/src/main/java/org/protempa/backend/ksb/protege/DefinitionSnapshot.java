@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * Protempa Protege Knowledge Source Backend
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.ksb.protege;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import org.protempa.PropositionDefinition;
+
+/**
+ * A copy on disk of the proposition definitions that were converted from a
+ * Protege project, so that a backend that is started again for the same,
+ * unchanged project can skip converting them. A snapshot is tied to a key
+ * that identifies the project and the backend's configuration, and to the
+ * project's modification time. It is ignored if either differs.
+ *
+ * @author Andrew Post
+ */
+final class DefinitionSnapshot {
+
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final String key;
+    private final long modificationTime;
+    private final Map<String, PropositionDefinition> propDefs;
+    private volatile boolean modified;
+    private volatile boolean discarded;
+
+    /**
+     * Creates an empty snapshot.
+     *
+     * @param directory the directory in which to store the snapshot.
+     * @param key identifies the project and the backend's configuration.
+     * @param modificationTime the project's modification time.
+     */
+    DefinitionSnapshot(File directory, String key, long modificationTime) {
+        assert directory != null : "directory cannot be null";
+        assert key != null : "key cannot be null";
+        this.file = new File(directory,
+                "protege-" + Integer.toHexString(key.hashCode())
+                + ".snapshot");
+        this.key = key;
+        this.modificationTime = modificationTime;
+        this.propDefs = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Reads the proposition definitions that were stored by a previous
+     * backend for the same project and modification time, if any. Errors
+     * are logged, and the snapshot is left empty.
+     */
+    @SuppressWarnings("unchecked")
+    void load() {
+        if (!this.file.isFile()) {
+            return;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+                new BufferedInputStream(Files.newInputStream(
+                        this.file.toPath())))) {
+            if (in.readInt() == VERSION
+                    && this.key.equals(in.readUTF())
+                    && in.readLong() == this.modificationTime) {
+                this.propDefs.putAll(
+                        (Map<String, PropositionDefinition>) in.readObject());
+                Util.logger().log(Level.FINE,
+                        "Loaded {0} proposition definitions from {1}",
+                        new Object[]{this.propDefs.size(), this.file});
+            } else {
+                Util.logger().log(Level.FINE, "Ignoring out-of-date {0}",
+                        this.file);
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            Util.logger().log(Level.WARNING,
+                    "Could not read proposition definition snapshot "
+                    + this.file, ex);
+            this.propDefs.clear();
+        }
+    }
+
+    /**
+     * Returns a stored proposition definition.
+     *
+     * @param id a proposition id.
+     * @return the proposition definition, or <code>null</code> if none is
+     * stored with that id.
+     */
+    PropositionDefinition get(String id) {
+        return this.propDefs.get(id);
+    }
+
+    /**
+     * Stores a newly converted proposition definition.
+     *
+     * @param propDef a proposition definition.
+     */
+    void put(PropositionDefinition propDef) {
+        if (!this.discarded
+                && this.propDefs.put(propDef.getId(), propDef) == null) {
+            this.modified = true;
+        }
+    }
+
+    /**
+     * Empties this snapshot and prevents it from being saved, for when the
+     * project has changed.
+     */
+    void discard() {
+        this.discarded = true;
+        this.propDefs.clear();
+    }
+
+    /**
+     * Writes this snapshot to disk if proposition definitions were added to
+     * it. The snapshot is written to a temporary file that then replaces the
+     * previous snapshot, so that readers never see a partial snapshot.
+     * Errors are logged.
+     */
+    void save() {
+        if (this.discarded || !this.modified) {
+            return;
+        }
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile(this.file.getName(), ".tmp",
+                    this.file.getParentFile());
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(
+                            tmpFile.toPath())))) {
+                out.writeInt(VERSION);
+                out.writeUTF(this.key);
+                out.writeLong(this.modificationTime);
+                out.writeObject(new HashMap<>(this.propDefs));
+            }
+            Files.move(tmpFile.toPath(), this.file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            this.modified = false;
+            Util.logger().log(Level.FINE,
+                    "Saved {0} proposition definitions to {1}",
+                    new Object[]{this.propDefs.size(), this.file});
+        } catch (IOException ex) {
+            Util.logger().log(Level.WARNING,
+                    "Could not save proposition definition snapshot "
+                    + this.file, ex);
+            if (tmpFile != null && !tmpFile.delete()) {
+                tmpFile.deleteOnExit();
+            }
+        }
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.protempa.backend.ksb.protege;
 
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collection;
 
@@ -60,4 +63,53 @@ final class LocalConnectionManager extends ConnectionManager {
         String projectFilePathOrURI = getProjectIdentifier();
         return new Project(projectFilePathOrURI, errors);
     }
+
+    /**
+     * Returns the latest modification time of the project file and the
+     * files next to it with the same base name (e.g., the
+     * <code>.pont</code> and <code>.pins</code> files of a project in
+     * Protege's text format).
+     *
+     * @return the modification time, or <code>null</code> if the project is
+     * not in a local file.
+     */
+    @Override
+    Long getProjectModificationTime() {
+        File projectFile = projectFile();
+        if (projectFile == null || !projectFile.isFile()) {
+            return null;
+        }
+        String name = projectFile.getName();
+        int dot = name.lastIndexOf('.');
+        String prefix = (dot >= 0 ? name.substring(0, dot) : name) + '.';
+        long result = projectFile.lastModified();
+        File[] files = projectFile.getAbsoluteFile().getParentFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(prefix)) {
+                    result = Math.max(result, file.lastModified());
+                }
+            }
+        }
+        return result;
+    }
+
+    private File projectFile() {
+        String projectFilePathOrURI = getProjectIdentifier();
+        File file = new File(projectFilePathOrURI);
+        if (file.isFile()) {
+            return file;
+        }
+        try {
+            URI uri = new URI(projectFilePathOrURI);
+            if ("file".equals(uri.getScheme())) {
+                return new File(uri);
+            }
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            Util.logger().log(Level.FINEST,
+                    "Project identifier {0} is not a file URI",
+                    projectFilePathOrURI);
+        }
+        return null;
+    }
 }
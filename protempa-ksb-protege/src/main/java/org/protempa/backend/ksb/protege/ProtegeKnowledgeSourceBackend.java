@@ -36,27 +36,37 @@ import org.protempa.backend.AbstractCommonsKnowledgeSourceBackend;
 import org.protempa.backend.BackendInitializationException;
 import org.protempa.backend.BackendInstanceSpec;
 import org.protempa.backend.KnowledgeSourceBackendInitializationException;
+import org.protempa.backend.annotations.BackendProperty;
 import org.protempa.proposition.value.AbsoluteTimeUnit;
 import org.protempa.proposition.value.RelativeHourUnit;
 import org.protempa.proposition.value.Unit;
 import org.protempa.proposition.value.ValueType;
 import org.protempa.query.And;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import org.protempa.ProtempaUtil;
 
 /**
  * Abstract class for converting a Protege knowledge base into a PROTEMPA
  * knowledge base.
  *
+ * Proposition definitions that are read in bulk are looked up in Protege
+ * with one command per batch and converted one at a time. Setting the
+ * <code>snapshotDirectory</code> property saves the converted proposition
+ * definitions of a local project in that directory when the backend is
+ * closed, and reuses them the next time the backend is initialized if the
+ * project's files have not been modified since.
+ *
  * @author Andrew Post
  */
 public abstract class ProtegeKnowledgeSourceBackend
@@ -66,6 +76,8 @@ public abstract class ProtegeKnowledgeSourceBackend
     private ConnectionManager cm;
     private Units units;
     private InstanceConverterFactory instanceConverterFactory;
+    private String snapshotDirectory;
+    private DefinitionSnapshot snapshot;
 
     private static enum Units {
 
@@ -84,6 +96,23 @@ public abstract class ProtegeKnowledgeSourceBackend
     protected ProtegeKnowledgeSourceBackend() {
     }
 
+    public String getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    /**
+     * Sets a directory in which to save converted proposition definitions
+     * between runs. Snapshots are only used for projects in local files,
+     * because the modification time of a remote project is not available.
+     *
+     * @param snapshotDirectory a directory path, or <code>null</code> (the
+     * default) to not save converted proposition definitions.
+     */
+    @BackendProperty(displayName = "Snapshot directory")
+    public void setSnapshotDirectory(String snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
     @Override
     public void initialize(BackendInstanceSpec config)
             throws BackendInitializationException {
@@ -94,6 +123,25 @@ public abstract class ProtegeKnowledgeSourceBackend
             pcm.init();
             this.cm = pcm;
             this.instanceConverterFactory = new InstanceConverterFactory(pcm);
+            initSnapshot();
+        }
+    }
+
+    private void initSnapshot() {
+        if (this.snapshotDirectory != null) {
+            Long modificationTime = this.cm.getProjectModificationTime();
+            if (modificationTime != null) {
+                String key = this.cm.getProjectIdentifier() + '\n'
+                        + this.units + '\n' + getId();
+                this.snapshot = new DefinitionSnapshot(
+                        new File(this.snapshotDirectory), key,
+                        modificationTime);
+                this.snapshot.load();
+            } else {
+                Util.logger().log(Level.FINE,
+                        "Not using a snapshot for project {0} because its modification time is unknown",
+                        this.cm.getProjectIdentifier());
+            }
         }
     }
 
@@ -124,6 +172,10 @@ public abstract class ProtegeKnowledgeSourceBackend
 
     @Override
     public void close() {
+        if (this.snapshot != null) {
+            this.snapshot.save();
+            this.snapshot = null;
+        }
         if (this.cm != null) {
             this.cm.close();
             this.cm = null;
@@ -137,40 +189,23 @@ public abstract class ProtegeKnowledgeSourceBackend
     @Override
     public PropositionDefinition readPropositionDefinition(String name)
             throws KnowledgeSourceReadException {
-        Instance instance = this.cm.getInstance(name);
-        if (instance != null) {
-            PropositionConverter converter
-                    = this.instanceConverterFactory.getInstance(instance);
-            assert converter != null :
-                    "no converter for proposition definintion " + name;
-            return converter.convert(instance, this);
-        } else {
-            return null;
+        PropositionDefinition result = fromSnapshot(name);
+        if (result != null) {
+            return result;
         }
+        return this.propDefConverter.convert(this.cm.getInstance(name));
     }
 
     @Override
     public List<PropositionDefinition> readPropositionDefinitions(String[] ids) throws KnowledgeSourceReadException {
-        List<PropositionDefinition> result = new ArrayList<>();
-        for (String id : ids) {
-            PropositionDefinition pd = readPropositionDefinition(id);
-            if (pd != null) {
-                result.add(pd);
-            }
-        }
-        return result;
+        return readDefinitions(ids, PropositionDefinition.class,
+                this.propDefConverter);
     }
 
     @Override
     public List<AbstractionDefinition> readAbstractionDefinitions(String[] ids) throws KnowledgeSourceReadException {
-        List<AbstractionDefinition> result = new ArrayList<>();
-        for (String id : ids) {
-            AbstractionDefinition ad = readAbstractionDefinition(id);
-            if (ad != null) {
-                result.add(ad);
-            }
-        }
-        return result;
+        return readDefinitions(ids, AbstractionDefinition.class,
+                this.abstractionDefConverter);
     }
 
     @Override
@@ -187,27 +222,156 @@ public abstract class ProtegeKnowledgeSourceBackend
 
     @Override
     public List<TemporalPropositionDefinition> readTemporalPropositionDefinitions(String[] ids) throws KnowledgeSourceReadException {
-        List<TemporalPropositionDefinition> result = new ArrayList<>();
-        for (String id : ids) {
-            TemporalPropositionDefinition tpd = readTemporalPropositionDefinition(id);
-            if (tpd != null) {
-                result.add(tpd);
-            }
-        }
-        return result;
+        return readDefinitions(ids, TemporalPropositionDefinition.class,
+                this.tempPropDefConverter);
     }
 
     @Override
     public AbstractionDefinition readAbstractionDefinition(String name)
             throws KnowledgeSourceReadException {
-        Instance instance = this.cm.getInstance(name);
-        AbstractionConverter ac
-                = this.instanceConverterFactory.getAbstractionInstance(instance);
-        if (ac == null) {
-            return null;
-        } else {
-            return ac.convert(instance, this);
+        PropositionDefinition propDef = fromSnapshot(name);
+        if (propDef != null) {
+            return propDef instanceof AbstractionDefinition
+                    ? (AbstractionDefinition) propDef : null;
+        }
+        return this.abstractionDefConverter.convert(this.cm.getInstance(name));
+    }
+
+    /**
+     * Converts a Protege instance into a proposition definition.
+     *
+     * @param <E> the type of proposition definition.
+     */
+    private abstract class DefinitionConverter<E extends PropositionDefinition> {
+
+        /**
+         * Converts a Protege instance, and adds the result to the snapshot
+         * if there is one.
+         *
+         * @param instance a Protege instance, or <code>null</code>.
+         * @return the proposition definition, or <code>null</code> if
+         * <code>instance</code> is <code>null</code> or is not of the type
+         * that this converter produces.
+         */
+        final E convert(Instance instance)
+                throws KnowledgeSourceReadException {
+            if (instance == null) {
+                return null;
+            }
+            E result = convertInstance(instance);
+            DefinitionSnapshot s = snapshot;
+            if (result != null && s != null) {
+                s.put(result);
+            }
+            return result;
+        }
+
+        abstract E convertInstance(Instance instance)
+                throws KnowledgeSourceReadException;
+    }
+
+    private final DefinitionConverter<PropositionDefinition> propDefConverter
+            = new DefinitionConverter<PropositionDefinition>() {
+
+        @Override
+        PropositionDefinition convertInstance(Instance instance)
+                throws KnowledgeSourceReadException {
+            PropositionConverter converter
+                    = instanceConverterFactory.getInstance(instance);
+            assert converter != null :
+                    "no converter for proposition definintion "
+                    + instance.getName();
+            return converter.convert(instance,
+                    ProtegeKnowledgeSourceBackend.this);
+        }
+    };
+
+    private final DefinitionConverter<AbstractionDefinition> abstractionDefConverter
+            = new DefinitionConverter<AbstractionDefinition>() {
+
+        @Override
+        AbstractionDefinition convertInstance(Instance instance)
+                throws KnowledgeSourceReadException {
+            AbstractionConverter ac
+                    = instanceConverterFactory.getAbstractionInstance(instance);
+            if (ac == null) {
+                return null;
+            } else {
+                return ac.convert(instance,
+                        ProtegeKnowledgeSourceBackend.this);
+            }
+        }
+    };
+
+    private final DefinitionConverter<TemporalPropositionDefinition> tempPropDefConverter
+            = new DefinitionConverter<TemporalPropositionDefinition>() {
+
+        @Override
+        TemporalPropositionDefinition convertInstance(Instance instance)
+                throws KnowledgeSourceReadException {
+            TemporalPropositionConverter tpc
+                    = instanceConverterFactory.getTemporalPropositionInstance(instance);
+            if (tpc == null) {
+                return null;
+            } else {
+                return tpc.convert(instance,
+                        ProtegeKnowledgeSourceBackend.this);
+            }
         }
+    };
+
+    private PropositionDefinition fromSnapshot(String id) {
+        DefinitionSnapshot s = this.snapshot;
+        return s != null ? s.get(id) : null;
+    }
+
+    /**
+     * Reads proposition definitions in bulk. Proposition definitions that
+     * are in the snapshot are taken from it. The others are looked up in
+     * Protege with one command and then converted one at a time, because
+     * conversion reads from the Protege knowledge base, which the connection
+     * manager may replace when a command fails.
+     *
+     * @param <E> the type of proposition definition.
+     * @param ids the proposition ids.
+     * @param cls the type of proposition definition.
+     * @param converter converts Protege instances into proposition
+     * definitions of that type.
+     * @return the proposition definitions that were found, in the order of
+     * <code>ids</code>, with an element for each occurrence of an id that is
+     * given more than once.
+     */
+    private <E extends PropositionDefinition> List<E> readDefinitions(
+            String[] ids, Class<E> cls, DefinitionConverter<E> converter)
+            throws KnowledgeSourceReadException {
+        PropositionDefinition[] propDefs = new PropositionDefinition[ids.length];
+        List<String> remaining = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            propDefs[i] = fromSnapshot(ids[i]);
+            if (propDefs[i] == null) {
+                remaining.add(ids[i]);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            Map<String, Instance> instances = this.cm.getInstances(remaining);
+            Map<String, E> converted = new HashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                if (propDefs[i] == null) {
+                    String id = ids[i];
+                    if (!converted.containsKey(id)) {
+                        converted.put(id, converter.convert(instances.get(id)));
+                    }
+                    propDefs[i] = converted.get(id);
+                }
+            }
+        }
+        List<E> result = new ArrayList<>(ids.length);
+        for (PropositionDefinition propDef : propDefs) {
+            if (cls.isInstance(propDef)) {
+                result.add(cls.cast(propDef));
+            }
+        }
+        return result;
     }
 
     /**
@@ -263,25 +427,29 @@ public abstract class ProtegeKnowledgeSourceBackend
      */
     @Override
     public void formChanged(ProjectEvent arg0) {
-        this.instanceConverterFactory.reset();
-        fireKnowledgeSourceBackendUpdated();
+        projectChanged();
     }
 
     @Override
     public void projectClosed(ProjectEvent arg0) {
-        this.instanceConverterFactory.reset();
-        fireKnowledgeSourceBackendUpdated();
+        projectChanged();
     }
 
     @Override
     public void projectSaved(ProjectEvent arg0) {
-        this.instanceConverterFactory.reset();
-        fireKnowledgeSourceBackendUpdated();
+        projectChanged();
     }
 
     @Override
     public void runtimeClsWidgetCreated(ProjectEvent arg0) {
+        projectChanged();
+    }
+
+    private void projectChanged() {
         this.instanceConverterFactory.reset();
+        if (this.snapshot != null) {
+            this.snapshot.discard();
+        }
         fireKnowledgeSourceBackendUpdated();
     }
 
@@ -343,14 +511,12 @@ public abstract class ProtegeKnowledgeSourceBackend
 
     @Override
     public TemporalPropositionDefinition readTemporalPropositionDefinition(String name) throws KnowledgeSourceReadException {
-        Instance instance = this.cm.getInstance(name);
-        TemporalPropositionConverter ac
-                = this.instanceConverterFactory.getTemporalPropositionInstance(instance);
-        if (ac == null) {
-            return null;
-        } else {
-            return ac.convert(instance, this);
+        PropositionDefinition propDef = fromSnapshot(name);
+        if (propDef != null) {
+            return propDef instanceof TemporalPropositionDefinition
+                    ? (TemporalPropositionDefinition) propDef : null;
         }
+        return this.tempPropDefConverter.convert(this.cm.getInstance(name));
     }
 
     @Override
@@ -378,11 +544,7 @@ public abstract class ProtegeKnowledgeSourceBackend
     public Collection<PropositionDefinition> collectPropDefDescendantsUsingAllNarrower(boolean inDataSourceOnly, String[] propIds) throws KnowledgeSourceReadException {
         ProtempaUtil.checkArrayForNullElement(propIds, "propIds");
         Collection<String> resultPropIds = collectPropDescendantsInt(inDataSourceOnly, true, propIds);
-        List<PropositionDefinition> result = new ArrayList<>(resultPropIds.size());
-        for (String propId : resultPropIds) {
-            result.add(readPropositionDefinition(propId));
-        }
-        return result;
+        return readPropositionDefinitions(resultPropIds.toArray(new String[resultPropIds.size()]));
     }
 
     @Override
@@ -395,48 +557,66 @@ public abstract class ProtegeKnowledgeSourceBackend
     public Collection<PropositionDefinition> collectPropDefDescendantsUsingInverseIsA(String[] propIds) throws KnowledgeSourceReadException {
         ProtempaUtil.checkArrayForNullElement(propIds, "propIds");
         Collection<String> resultPropIds = collectPropDescendantsInt(false, false, propIds);
-        List<PropositionDefinition> result = new ArrayList<>(resultPropIds.size());
-        for (String propId : resultPropIds) {
-            result.add(readPropositionDefinition(propId));
-        }
-        return result;
+        return readPropositionDefinitions(resultPropIds.toArray(new String[resultPropIds.size()]));
     }
 
+    /**
+     * Collects the given proposition ids and their descendants
+     * breadth-first. Each level of the hierarchy is fetched from Protege
+     * with one command per slot, and each proposition is visited once even if
+     * it is reachable along more than one path.
+     */
     private Collection<String> collectPropDescendantsInt(boolean inDataSourceOnly, boolean narrower, String[] propIds) throws KnowledgeSourceReadException {
         assert propIds != null : "propIds cannot be null";
         Slot inverseIsASlot = this.cm.getSlot("inverseIsA");
         Slot abstractedFromSlot = this.cm.getSlot("abstractedFrom");
         Slot inDataSourceSlot = this.cm.getSlot("inDataSource");
         Set<String> result = new HashSet<>();
-        Queue<Instance> queue = new LinkedList<>();
+        Set<String> visited = new HashSet<>();
+        List<Instance> level = new ArrayList<>();
+        Map<String, Instance> roots = this.cm.getInstances(Arrays.asList(propIds));
         for (String propId : propIds) {
-            Instance instance = this.cm.getInstance(propId);
+            Instance instance = roots.get(propId);
             if (instance == null) {
                 throw new KnowledgeSourceReadException("unknown proposition id " + propId);
-            } else {
-                queue.add(instance);
+            } else if (visited.add(instance.getName())) {
+                level.add(instance);
             }
         }
-        while (!queue.isEmpty()) {
-            Instance instance = queue.poll();
-            if (inDataSourceOnly) {
-                Boolean inDataSource = (Boolean) this.cm.getOwnSlotValue(instance, inDataSourceSlot);
-                if (inDataSource != null && inDataSource.booleanValue()) {
+        while (!level.isEmpty()) {
+            List<Collection<?>> inDataSources = inDataSourceOnly
+                    ? this.cm.getOwnSlotValuesForEach(level, inDataSourceSlot)
+                    : null;
+            List<Collection<?>> inverseIsAs
+                    = this.cm.getOwnSlotValuesForEach(level, inverseIsASlot);
+            List<Collection<?>> abstractedFroms = narrower
+                    ? this.cm.getOwnSlotValuesForEach(level, abstractedFromSlot)
+                    : null;
+            List<Instance> nextLevel = new ArrayList<>();
+            for (int i = 0, n = level.size(); i < n; i++) {
+                Instance instance = level.get(i);
+                if (!inDataSourceOnly
+                        || inDataSources.get(i).contains(Boolean.TRUE)) {
                     result.add(instance.getName());
                 }
-            } else {
-                result.add(instance.getName());
-            }
-            Collection<?> inverseIsAs = this.cm.getOwnSlotValues(instance, inverseIsASlot);
-            for (Object obj : inverseIsAs) {
-                queue.add((Instance) obj);
-            }
-            Collection<?> abstractedFroms = narrower ? this.cm.getOwnSlotValues(instance, abstractedFromSlot) : Collections.emptyList();
-            for (Object obj : abstractedFroms) {
-                queue.add((Instance) obj);
+                addUnvisited(inverseIsAs.get(i), visited, nextLevel);
+                if (narrower) {
+                    addUnvisited(abstractedFroms.get(i), visited, nextLevel);
+                }
             }
+            level = nextLevel;
         }
         return result;
     }
 
+    private static void addUnvisited(Collection<?> instances,
+            Set<String> visited, List<Instance> nextLevel) {
+        for (Object obj : instances) {
+            Instance instance = (Instance) obj;
+            if (visited.add(instance.getName())) {
+                nextLevel.add(instance);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,174 @@
+/*
+ * #%L
+ * Protempa Protege Knowledge Source Backend
+ * %%
+ * Copyright (C) 2012 - 2018 Emory University
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.protempa.backend.ksb.protege;
+
+import edu.stanford.smi.protege.model.Cls;
+import edu.stanford.smi.protege.model.KnowledgeBase;
+import edu.stanford.smi.protege.model.Project;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.protempa.BackendCloseException;
+import org.protempa.EventDefinition;
+import org.protempa.PropositionDefinition;
+import org.protempa.backend.BackendInstanceSpec;
+import org.protempa.backend.ksb.KnowledgeSourceBackend;
+import org.protempa.bp.commons.CommonsBackendProvider;
+
+/**
+ * Tests reading proposition definitions in bulk from a local Protege
+ * project, with and without a snapshot.
+ *
+ * @author Andrew Post
+ */
+public class ProtegeKnowledgeSourceBackendTest {
+
+    private static final String[] PROJECT_FILES = {"protempa.pprj",
+        "protempa.pont", "protempa.pins"};
+
+    private File projectDirectory;
+    private File snapshotDirectory;
+    private List<KnowledgeSourceBackend> backends;
+
+    @Before
+    public void setUp() throws IOException {
+        this.projectDirectory
+                = Files.createTempDirectory("protege").toFile();
+        this.snapshotDirectory
+                = Files.createTempDirectory("snapshot").toFile();
+        for (String name : PROJECT_FILES) {
+            try (InputStream in = getClass().getResourceAsStream(
+                    "/kb/" + name)) {
+                Files.copy(in, new File(this.projectDirectory, name).toPath());
+            }
+        }
+        Collection<?> errors = new ArrayList<>();
+        Project project = new Project(projectFile().getPath(), errors);
+        KnowledgeBase kb = project.getKnowledgeBase();
+        Cls event = kb.getCls("Event");
+        for (String id : new String[]{"E1", "E2", "E3"}) {
+            kb.createInstance(id, event);
+        }
+        project.save(errors);
+        project.dispose();
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+        this.backends = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() throws BackendCloseException {
+        for (KnowledgeSourceBackend backend : this.backends) {
+            backend.close();
+        }
+        delete(this.projectDirectory);
+        delete(this.snapshotDirectory);
+    }
+
+    @Test
+    public void testReadPropositionDefinitionsInOrder() throws Exception {
+        KnowledgeSourceBackend backend = newBackend(false);
+        Assert.assertEquals(Arrays.asList("E3", "E1", "E2", "E1"),
+                ids(backend.readPropositionDefinitions(
+                        new String[]{"E3", "E1", "NOT_AN_ID", "E2", "E1"})));
+    }
+
+    @Test
+    public void testReadDefinitionsOfOneType() throws Exception {
+        KnowledgeSourceBackend backend = newBackend(false);
+        Assert.assertTrue(backend.readAbstractionDefinitions(
+                new String[]{"E1", "E2"}).isEmpty());
+        Assert.assertEquals(Arrays.asList("E2", "E1", "E2"),
+                ids(backend.readTemporalPropositionDefinitions(
+                        new String[]{"E2", "E1", "E2"})));
+    }
+
+    @Test
+    public void testReadPropositionDefinitionsFromSnapshot()
+            throws Exception {
+        KnowledgeSourceBackend backend = newBackend(true);
+        EventDefinition e2 = (EventDefinition)
+                backend.readPropositionDefinition("E2");
+        backend.close();
+        this.backends.remove(backend);
+        Assert.assertEquals(1, this.snapshotDirectory.list().length);
+
+        KnowledgeSourceBackend backend2 = newBackend(true);
+        List<PropositionDefinition> propDefs
+                = backend2.readPropositionDefinitions(
+                        new String[]{"E1", "E2", "E3", "E2"});
+        Assert.assertEquals(Arrays.asList("E1", "E2", "E3", "E2"),
+                ids(propDefs));
+        /*
+         * E2 was converted by the first backend and comes from the
+         * snapshot, so it has the first backend's access time.
+         */
+        Assert.assertEquals(e2.getAccessed(), propDefs.get(1).getAccessed());
+        Assert.assertSame(propDefs.get(1), propDefs.get(3));
+    }
+
+    private KnowledgeSourceBackend newBackend(boolean snapshot)
+            throws Exception {
+        BackendInstanceSpec<KnowledgeSourceBackend> spec
+                = new CommonsBackendProvider()
+                        .getKnowledgeSourceBackendSpecLoader()
+                        .loadSpec(LocalKnowledgeSourceBackend.class.getName())
+                        .newBackendInstanceSpec();
+        spec.setProperty("projectString", projectFile().getPath());
+        if (snapshot) {
+            spec.setProperty("snapshotDirectory",
+                    this.snapshotDirectory.getPath());
+        }
+        KnowledgeSourceBackend result = spec.getInstance();
+        this.backends.add(result);
+        return result;
+    }
+
+    private File projectFile() {
+        return new File(this.projectDirectory, PROJECT_FILES[0]);
+    }
+
+    private static List<String> ids(
+            List<? extends PropositionDefinition> propDefs) {
+        List<String> result = new ArrayList<>(propDefs.size());
+        for (PropositionDefinition propDef : propDefs) {
+            result.add(propDef.getId());
+        }
+        return result;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}